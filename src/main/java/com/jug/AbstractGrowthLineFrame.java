@@ -18,8 +18,10 @@ import com.jug.lp.DivisionAssignment;
 import com.jug.lp.ExitAssignment;
 import com.jug.lp.GrowthLineTrackingILP;
 import com.jug.lp.Hypothesis;
+import com.jug.lp.LineageIndex;
 import com.jug.lp.MappingAssignment;
 import com.jug.util.ArgbDrawingUtils;
+import com.jug.util.ArgbOverlay;
 import com.jug.util.SimpleFunctionAnalysis;
 import com.jug.util.Util;
 import com.jug.util.filteredcomponents.FilteredComponent;
@@ -276,9 +278,19 @@ public abstract class AbstractGrowthLineFrame< C extends Component< FloatType, C
 	 *
 	 * @param img
 	 */
-	public void generateSimpleSegmentationHypotheses( final Img< FloatType > img ) {
+	public void generateSimpleSegmentationHypotheses( final RandomAccessibleInterval< FloatType > img ) {
+		generateSimpleSegmentationHypotheses( getSimpleGapSeparationValues( img ) );
+	}
 
-		final float[] fkt = getSimpleGapSeparationValues( img );
+	/**
+	 * Builds the component tree from already computed gap separation values
+	 * (e.g. values loaded from the <code>HypothesisCache</code>).
+	 *
+	 * @param fkt
+	 *            the gap separation values along this GrowthLineFrame.
+	 */
+	public void generateSimpleSegmentationHypotheses( final float[] fkt ) {
+		simpleSepValues = fkt;
 
 		if ( fkt.length > 0 ) {
 			final RandomAccessibleInterval< FloatType > raiFkt = new ArrayImgFactory< FloatType >().create( new int[] { fkt.length }, new FloatType() );
@@ -360,7 +372,7 @@ public abstract class AbstractGrowthLineFrame< C extends Component< FloatType, C
 	 * @param wellPoints
 	 * @return
 	 */
-	public float[] getCenterLineValues( final Img< FloatType > img ) {
+	public float[] getCenterLineValues( final RandomAccessibleInterval< FloatType > img ) {
 		final RandomAccess< FloatType > raImg = img.randomAccess();
 
 		final float[] dIntensity = new float[ imgLocations.size() ];
@@ -376,7 +388,7 @@ public abstract class AbstractGrowthLineFrame< C extends Component< FloatType, C
 	 * @param wellPoints
 	 * @return
 	 */
-	public float[] getMirroredCenterLineValues( final Img< FloatType > img ) {
+	public float[] getMirroredCenterLineValues( final RandomAccessibleInterval< FloatType > img ) {
 		final RandomAccess< FloatType > raImg = img.randomAccess();
 		final List< Point > mirroredImgLocations = getMirroredImgLocations();
 		final float[] dIntensity = new float[ mirroredImgLocations.size() ];
@@ -393,11 +405,11 @@ public abstract class AbstractGrowthLineFrame< C extends Component< FloatType, C
 	 * @param img
 	 * @return
 	 */
-	public float[] getSimpleGapSeparationValues( final Img< FloatType > img ) {
+	public float[] getSimpleGapSeparationValues( final RandomAccessibleInterval< FloatType > img ) {
 		return getSimpleGapSeparationValues( img, false );
 	}
 
-	public float[] getSimpleGapSeparationValues( final Img< FloatType > img, final boolean forceRecomputation ) {
+	public float[] getSimpleGapSeparationValues( final RandomAccessibleInterval< FloatType > img, final boolean forceRecomputation ) {
 		if ( simpleSepValues == null ) {
 			if ( img == null ) return null;
 			simpleSepValues = getMaxTiltedLineAveragesInRectangleAlongAvgCenter( img );
@@ -474,7 +486,7 @@ public abstract class AbstractGrowthLineFrame< C extends Component< FloatType, C
 	 * @param wellPoints
 	 * @return
 	 */
-	private float[] getMaxTiltedLineAveragesInRectangleAlongAvgCenter( final Img< FloatType > img ) {
+	private float[] getMaxTiltedLineAveragesInRectangleAlongAvgCenter( final RandomAccessibleInterval< FloatType > img ) {
 		return getMaxTiltedLineAveragesInRectangleAlongAvgCenter( img, false );
 	}
 
@@ -542,14 +554,16 @@ public abstract class AbstractGrowthLineFrame< C extends Component< FloatType, C
 	}
 
 	/**
-	 * Draws the GrowthLine center line into the given annotation
-	 * <code>Img</code>.
+	 * Draws the GrowthLine center line into the given annotation overlay.
 	 *
-	 * @param img
-	 *            the Img to draw into.
+	 * @param overlay
+	 *            the ArgbOverlay to draw into.
 	 */
-	public void drawCenterLine( final Img< ARGBType > imgAnnotated ) {
-		drawCenterLine( imgAnnotated, null );
+	public void drawCenterLine( final ArgbOverlay overlay ) {
+		final int color = ARGBType.rgba( 0, 255, 0, 255 );
+		for ( final Point p : imgLocations ) {
+			overlay.set( Util.pointLocation( p ), color );
+		}
 	}
 
 	/**
@@ -747,8 +761,11 @@ public abstract class AbstractGrowthLineFrame< C extends Component< FloatType, C
 	 * @return
 	 */
 	public int getSolutionStats_numCells() {
-		int cells = 0;
 		final GrowthLineTrackingILP ilp = getParent().getIlp();
+		final LineageIndex lineage = ilp.getLineageIndex();
+		if ( lineage.getSolution() != null ) { return lineage.getNumCellsAt( this.getTime() ); }
+
+		int cells = 0;
 		for ( final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > set : ilp.getOptimalRightAssignments( this.getTime() ).values() ) {
 
 			for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? >>> ora : set ) {
@@ -767,9 +784,11 @@ public abstract class AbstractGrowthLineFrame< C extends Component< FloatType, C
 	 *         return value is increased by 1.
 	 */
 	public int getSolutionStats_cellPos( final Hypothesis< Component< FloatType, ? >> hyp ) {
-		int pos = 1;
-
 		final GrowthLineTrackingILP ilp = getParent().getIlp();
+		final int segment = ilp.getLineageIndex().getSegment( hyp );
+		if ( segment != LineageIndex.NONE ) { return ilp.getLineageIndex().getPositionInGL( segment ); }
+
+		int pos = 1;
 		for ( final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > optRightAssmnt : ilp.getOptimalRightAssignments(
 				this.getTime() ).values() ) {
 
@@ -15,6 +15,7 @@ import com.jug.gui.progress.DialogProgress;
 import com.jug.lp.AbstractAssignment;
 import com.jug.lp.GrowthLineTrackingILP;
 import com.jug.lp.Hypothesis;
+import com.jug.lp.SolutionArtifact;
 
 /**
  * @author jug
@@ -123,6 +124,24 @@ public class GrowthLine {
 		getIlp().run();
 	}
 
+	/**
+	 * Sets up an ILP (without solver) that contains the given, previously
+	 * stored solution.
+	 *
+	 * @param solution
+	 * @param inputFingerprint
+	 *            describes the data and segmentation parameters in use.
+	 * @return true if the solution could be restored.
+	 */
+	public boolean loadSolution( final SolutionArtifact solution, final String inputFingerprint ) {
+		ilp = new GrowthLineTrackingILP( this, false );
+		if ( !ilp.loadSolution( solution, inputFingerprint ) ) {
+			ilp = null;
+			return false;
+		}
+		return true;
+	}
+
 	/**
 	 * @return a <code>Vector<String></code> object containing the summary of
 	 *         divisions and exits for this GL. This data is eventually exported
@@ -16,8 +16,15 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.BorderFactory;
 import javax.swing.JFileChooser;
@@ -37,17 +44,37 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.lang3.SystemUtils;
 
+import com.jug.batch.BatchJob;
+import com.jug.batch.BatchJobQueue;
 import com.jug.gui.MoMAGui;
 import com.jug.gui.MoMAModel;
 import com.jug.gui.progress.DialogProgress;
 import com.jug.loops.Loops;
+import com.jug.lp.CandidateSelector;
+import com.jug.lp.ConstraintCompiler;
+import com.jug.lp.GrowthLineTrackingILP;
+import com.jug.lp.GurobiEnvPool;
+import com.jug.lp.ModelNaming;
+import com.jug.lp.RollingHorizonTracker;
+import com.jug.lp.SolverProfile;
+import com.jug.lp.SolverTrajectory;
+import com.jug.lp.SolutionArtifact;
 import com.jug.ops.cursor.FindLocalMaxima;
 import com.jug.ops.numerictype.SumOfRai;
 import com.jug.segmentation.GrowthLineSegmentationMagic;
 import com.jug.segmentation.SilentWekaSegmenter;
+import com.jug.util.ArgbOverlay;
+import com.jug.util.CompactImgs;
+import com.jug.util.ComputeResources;
 import com.jug.util.DataMover;
 import com.jug.util.FloatTypeImgLoader;
+import com.jug.util.GrowthLineStrips;
+import com.jug.util.HypothesisCache;
+import com.jug.util.N5DatasetIO;
+import com.jug.util.RunCheckpoint;
+import com.jug.util.SimpleFunctionAnalysis;
 import com.jug.util.converter.RealFloatProbMapToSegmentation;
+import com.jug.util.converter.RealUnsignedByteQuantizeConverter;
 
 /**
  * Main class for the MotherMachine project.
@@ -56,18 +83,17 @@ import com.jug.util.converter.RealFloatProbMapToSegmentation;
 import gurobi.GRBEnv;
 import gurobi.GRBException;
 import ij.ImageJ;
-import ij.Prefs;
 import net.imglib2.Cursor;
 import net.imglib2.Point;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.algorithm.gauss3.Gauss3;
 import net.imglib2.algorithm.stats.Normalize;
+import net.imglib2.converter.Converters;
 import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.Img;
-import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.display.imagej.ImageJFunctions;
-import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
 import net.imglib2.type.numeric.real.FloatType;
 import net.imglib2.view.IntervalView;
 import net.imglib2.view.Views;
@@ -87,6 +113,22 @@ public class MoMA {
 	// -------------------------------------------------------------------------------------
 	public static MoMA instance;
 	public static boolean HEADLESS = false;
+
+	/**
+	 * Headless re-export: instead of building and solving the ILPs, the
+	 * solutions stored by a previous headless run (see
+	 * <code>getSolutionFolder</code>) are restored. No Gurobi environment is
+	 * needed in this mode.
+	 */
+	public static boolean EXPORT_ONLY = false;
+
+	/**
+	 * Headless runs record completed phases in a checkpoint in
+	 * <code>getRunFolder()</code>. If this is set, a headless run continues
+	 * from such a checkpoint (if it fits the data and parameters) instead of
+	 * starting from scratch.
+	 */
+	public static boolean RESUME = false;
 	public static boolean running_as_Fiji_plugin = false;
 
 	/**
@@ -96,6 +138,15 @@ public class MoMA {
 	public static float SIGMA_GL_DETECTION_X = 20f;
 	public static float SIGMA_GL_DETECTION_Y = 0f;
 
+	/**
+	 * Parameter: if set, growth line centers are detected on horizontal
+	 * intensity profiles (column sums over all rows between GL_OFFSET_TOP and
+	 * GL_OFFSET_BOTTOM), one per frame and in parallel. This is much faster
+	 * than the 2D detection (local maxima per pixel row), but assumes growth
+	 * lines to be (roughly) vertical. Set to false for difficult data.
+	 */
+	public static boolean GL_DETECTION_BY_PROJECTION = false;
+
 	/**
 	 * Parameter: sigma for gaussian blurring in x-direction of the raw image
 	 * data. Used while searching the gaps between bacteria.
@@ -192,6 +243,243 @@ public class MoMA {
 	 */
 	public static boolean USE_CLASSIFIER_FOR_PMF = true;
 
+	/**
+	 * Global switch that turns the chunked (N5) data cache on or off. If on,
+	 * the raw data as well as the preprocessed stacks (background subtracted
+	 * and normalized imgTemp, cell classification and segmentation) and the
+	 * segmentation hypotheses (gap separation functions and component tree
+	 * structure) are written next to the loaded data and reused on the next launch, as long
+	 * as they were computed with the same parameters.
+	 * Default: OFF (false)
+	 */
+	public static boolean CACHE_PREPROCESSED_DATA = false;
+
+	/**
+	 * Global switch that turns compact storage of the raw channels on or off.
+	 * If on, channels holding 8- or 16-bit data are kept as 16-bit unsigned
+	 * integers and converted to float on access (bit-exact), which halves
+	 * their memory footprint. Cell classification probabilities are then
+	 * quantized to 8 bit (lossy).
+	 * Default: OFF (false)
+	 */
+	public static boolean COMPACT_IMAGE_STORAGE = false;
+
+	/**
+	 * Global switch that turns cropping to the growth lines on or off. If on,
+	 * headless runs copy the columns around each GL into a strip of its own
+	 * once the segmentation hypotheses are built, and release the full frames
+	 * for the rest of the run (see <code>GrowthLineStrips</code>).
+	 * Default: OFF (false)
+	 */
+	public static boolean CROP_TO_GROWTH_LINES = false;
+
+	/**
+	 * Parameter: how the path-blocking and continuity constraints are added to
+	 * the ILPs. One of GrowthLineTrackingILP.CONSTRAINTS_RECURSIVE (one
+	 * expression per leaf-to-root path, built recursively),
+	 * CONSTRAINTS_PATH_TABLE (same constraints, compiled in one pass and added
+	 * in batches) or CONSTRAINTS_CLIQUES (one constraint per maximal clique of
+	 * conflicting hypotheses).
+	 * Default: CONSTRAINTS_PATH_TABLE (1)
+	 */
+	public static int CONSTRAINT_FORMULATION = GrowthLineTrackingILP.CONSTRAINTS_PATH_TABLE;
+
+	/**
+	 * Global switch: if on, each GL's ILP is built once per constraint
+	 * formulation before the actual ILP is generated, and constraint counts
+	 * and build times are reported.
+	 * Default: OFF (false)
+	 */
+	public static boolean BENCHMARK_CONSTRAINT_GENERATION = false;
+
+	/**
+	 * Parameter: how variables and constraints of the ILPs are named. One of
+	 * ModelNaming.NAMES_FULL (descriptive names), NAMES_COMPACT (short running
+	 * numbers) or NAMES_NONE. Descriptive names are restored whenever a model
+	 * is written for debugging.
+	 * Default: NAMES_FULL (0)
+	 */
+	public static int ILP_NAMING = ModelNaming.NAMES_FULL;
+
+	/**
+	 * Parameter: number of frames per window in rolling horizon tracking.
+	 * GLs longer than that are not solved as one ILP (headless mode only),
+	 * but window by window (see RollingHorizonTracker). 0 switches rolling
+	 * horizon tracking off.
+	 * Default: 0
+	 */
+	public static int ROLLING_HORIZON_WINDOW = 0;
+
+	/**
+	 * Parameter: number of frames committed per rolling horizon window. The
+	 * remaining frames of each window are solved again by the next one.
+	 * Values not below ROLLING_HORIZON_WINDOW are reduced to
+	 * ROLLING_HORIZON_WINDOW-1 when the properties are loaded.
+	 * Default: 100
+	 */
+	public static int ROLLING_HORIZON_COMMIT = 100;
+
+	/**
+	 * Global switch: if on, segmentation hypotheses that cannot be reached by
+	 * any (non cut off) assignment from the previous frame do not get any
+	 * variables in the ILPs. Note that such hypotheses can then also not be
+	 * forced into the solution interactively.
+	 * Default: OFF (false)
+	 */
+	public static boolean PRESOLVE_HYPOTHESES = false;
+
+	/**
+	 * Global switch: if on (and PRESOLVE_HYPOTHESES is on), each headless ILP
+	 * is solved a second time without presolve to confirm that the optimal
+	 * objective value did not change. This is a diagnostic: growth lines are
+	 * then solved one after the other (MAX_CONCURRENT_SOLVES is ignored).
+	 * Default: OFF (false)
+	 */
+	public static boolean VALIDATE_PRESOLVE = false;
+
+	/**
+	 * Global switch: if on, ILPs are cut at frames in which the activity of
+	 * all hypotheses is forced (e.g. unreachable after presolve, or fixed by
+	 * curations) and the resulting time segments are solved independently
+	 * and in parallel (see TimeSegmentDecomposer).
+	 * Default: OFF (false)
+	 */
+	public static boolean DECOMPOSE_TIME_SEGMENTS = false;
+
+	/**
+	 * Parameter: time segments solved independently must contain at least
+	 * this many frames; cuts leading to shorter segments are not used.
+	 * Default: 10
+	 */
+	public static int DECOMPOSITION_MIN_SEGMENT_LENGTH = 10;
+
+	/**
+	 * Global switch: if on, each ILP solved in time segments is solved a
+	 * second time as a whole to confirm that objective and solution agree.
+	 * Default: OFF (false)
+	 */
+	public static boolean VALIDATE_DECOMPOSITION = false;
+
+	/**
+	 * Parameter: while the GUI waits for an optimization, the best solution
+	 * found so far is shown at most every that many seconds (see
+	 * SolutionSnapshot). 0 switches this preview off.
+	 * Default: 1
+	 */
+	public static float INCUMBENT_PREVIEW_INTERVAL = 1f;
+
+	/**
+	 * Parameter: which mapping and division candidates (passing the global
+	 * cost cutoff) get variables in the ILPs. Sum of any of
+	 * CandidateSelector.SPATIAL_WINDOW (1), K_BEST (2) and ADAPTIVE (4); 0
+	 * keeps all candidates (EXHAUSTIVE).
+	 * Default: EXHAUSTIVE (0)
+	 */
+	public static int CANDIDATE_STRATEGY = CandidateSelector.EXHAUSTIVE;
+
+	/**
+	 * Parameter: number of mappings and of divisions kept per source
+	 * hypothesis by the K_BEST candidate strategy.
+	 * Default: 5
+	 */
+	public static int CANDIDATES_K = 5;
+
+	/**
+	 * Parameter: the ADAPTIVE candidate strategy cuts the candidates of a
+	 * source hypothesis at the largest gap between their sorted costs, if
+	 * that gap is at least this many times the average gap.
+	 * Default: 1.5
+	 */
+	public static float CANDIDATE_GAP_RATIO = 1.5f;
+
+	/**
+	 * Global switch: if on, each GL's ILP is built and solved once per
+	 * candidate strategy before the actual ILP is generated, and model sizes
+	 * and solution changes (w.r.t. EXHAUSTIVE) are reported.
+	 * Default: OFF (false)
+	 */
+	public static boolean BENCHMARK_CANDIDATE_STRATEGIES = false;
+
+	/**
+	 * Parameter: name of the SolverProfile used to solve the ILPs (default,
+	 * fast-interactive, batch-throughput, or exact). Can be overwritten by
+	 * the command line option '-sp'.
+	 * Default: "default"
+	 */
+	public static String SOLVER_PROFILE = SolverProfile.DEFAULT.getName();
+
+	/**
+	 * Global switch: if on, headless runs write each GL's ILP to
+	 * 'models/GLxxx.mps' in the output folder before solving it. These files
+	 * can be fed to the SolverTuner.
+	 * Default: OFF (false)
+	 */
+	public static boolean SAVE_TRACKING_MODELS = false;
+
+	/**
+	 * Parameter: total number of cores shared by loading, preprocessing,
+	 * classification, and the solver (see ComputeResources). 0 means all
+	 * cores ImageJ is configured to use.
+	 * Default: 0
+	 */
+	public static int CORE_BUDGET = 0;
+
+	/**
+	 * Parameter: number of GLs solved at the same time in headless mode.
+	 * Each concurrent solve gets a fair share of CORE_BUDGET as Gurobi
+	 * threads; solves started later get more threads as fewer GLs remain.
+	 * Default: 1
+	 */
+	public static int MAX_CONCURRENT_SOLVES = 1;
+
+	/**
+	 * Parameter: stop an optimization if its incumbent did not improve for
+	 * this many seconds (0 = off).
+	 * Default: 0
+	 */
+	public static double TERMINATION_STALL_SECONDS = 0;
+
+	/**
+	 * Parameters: stop an optimization if its gap decreased by less than
+	 * TERMINATION_FLAT_GAP_DELTA within the last TERMINATION_FLAT_GAP_SECONDS
+	 * seconds (0 = off).
+	 * Default: 0 and 0.001
+	 */
+	public static double TERMINATION_FLAT_GAP_SECONDS = 0;
+	public static double TERMINATION_FLAT_GAP_DELTA = 0.001;
+
+	/**
+	 * Parameter: when re-optimizing after a curation, stop as soon as the
+	 * incumbent is within this relative tolerance of the previous optimum
+	 * (negative = off).
+	 * Default: -1
+	 */
+	public static double TERMINATION_MATCH_TOLERANCE = -1;
+
+	/**
+	 * Global switch: if on, headless runs write incumbent and bound over time
+	 * of each GL's solve to 'solutions/GLxxx_trajectory.csv', and the progress
+	 * of the branch-and-bound search to 'solutions/GLxxx_nodes.csv'.
+	 * Default: OFF (false)
+	 */
+	public static boolean SAVE_SOLVER_TRAJECTORIES = false;
+
+	/**
+	 * Parameter: how often a batch run (option '-b') starts a dataset before
+	 * giving it up. A dataset that failed, or was being processed when a
+	 * batch run crashed, is retried when the batch run is started again.
+	 * Default: 2
+	 */
+	public static int BATCH_MAX_ATTEMPTS = 2;
+
+	/**
+	 * Global switch: if on, the cell statistics of all GLs are additionally
+	 * exported to 'ExportedCellStats_xxx.mmcol', a columnar binary table (see
+	 * ColumnarTableWriter).
+	 * Default: OFF (false)
+	 */
+	public static boolean EXPORT_COLUMNAR = false;
+
 	/**
 	 * One of the test for paper:
 	 * What happens if exit constraints are NOT part of the model?
@@ -206,6 +494,12 @@ public class MoMA {
 	private static int minTime = -1;
 	private static int maxTime = -1;
 	private static int initOptRange = -1;
+
+	/**
+	 * Solver profile given on the command line (overrides SOLVER_PROFILE from
+	 * the properties).
+	 */
+	private static String solverProfileFromCmd = null;
 	private static int minChannelIdx = 1;
 	private static int numChannels = 1;
 
@@ -341,6 +635,15 @@ public class MoMA {
 		final Option headless = new Option( "h", "headless", false, "start without user interface (note: input-folder must be given!)" );
 		headless.setRequired( false );
 
+		final Option batch = new Option( "b", "batch", true, "headless processing of all datasets listed in the given manifest file, in one go (resumes where a previous run stopped)" );
+		batch.setRequired( false );
+
+		final Option resume = new Option( "r", "resume", false, "headless run continuing where an earlier run on the same data stopped (skips completed GLs and phases)" );
+		resume.setRequired( false );
+
+		final Option exportOnly = new Option( "e", "export_only", false, "headless re-export of the solutions stored by a previous headless run (no solver needed)" );
+		exportOnly.setRequired( false );
+
 		final Option timeFirst = new Option( "tmin", "min_time", true, "first time-point to be processed" );
 		timeFirst.setRequired( false );
 
@@ -365,8 +668,14 @@ public class MoMA {
 		final Option userProps = new Option( "p", "props", true, "properties file to be loaded (mm.properties)" );
 		userProps.setRequired( false );
 
+		final Option solverProfile = new Option( "sp", "solver_profile", true, "solver profile to be used (default, fast-interactive, batch-throughput, exact)" );
+		solverProfile.setRequired( false );
+
 		options.addOption( help );
 		options.addOption( headless );
+		options.addOption( batch );
+		options.addOption( exportOnly );
+		options.addOption( resume );
 		options.addOption( numChannelsOption );
 		options.addOption( minChannelIdxOption );
 		options.addOption( timeFirst );
@@ -375,6 +684,7 @@ public class MoMA {
 		options.addOption( infolder );
 		options.addOption( outfolder );
 		options.addOption( userProps );
+		options.addOption( solverProfile );
 		// get the commands parsed
 		CommandLine cmd = null;
 		try {
@@ -382,7 +692,7 @@ public class MoMA {
 		} catch ( final ParseException e1 ) {
 			final HelpFormatter formatter = new HelpFormatter();
 			formatter.printHelp(
-					"... [-p props-file] -i in-folder [-o out-folder] -c <num-channels> [-cmin start-channel-ids] [-tmin idx] [-tmax idx] [-orange num-frames] [-headless]",
+					"... [-p props-file] -i in-folder [-o out-folder] -c <num-channels> [-cmin start-channel-ids] [-tmin idx] [-tmax idx] [-orange num-frames] [-sp solver-profile] [-headless [-export_only | -resume]] [-b manifest-file]",
 					"",
 					options,
 					"Error: " + e1.getMessage() );
@@ -406,7 +716,7 @@ public class MoMA {
 		if ( cmd.hasOption( "h" ) ) {
 			System.out.println( ">>> Starting MM in headless mode." );
 			HEADLESS = true;
-			if ( !cmd.hasOption( "i" ) ) {
+			if ( !cmd.hasOption( "i" ) && !cmd.hasOption( "b" ) ) {
 				final HelpFormatter formatter = new HelpFormatter();
 				formatter.printHelp( "Headless-mode requires option '-i <in-folder>'...", options );
 				if (!running_as_Fiji_plugin) {
@@ -417,6 +727,45 @@ public class MoMA {
 			}
 		}
 
+		File batchManifest = null;
+		if ( cmd.hasOption( "b" ) ) {
+			System.out.println( ">>> Starting MM in batch mode." );
+			HEADLESS = true;
+			batchManifest = new File( cmd.getOptionValue( "b" ) );
+			if ( !batchManifest.canRead() ) {
+				System.out.println( "Error: Batch manifest cannot be read!" );
+				if (!running_as_Fiji_plugin) {
+					System.exit( 2 );
+				} else {
+					return;
+				}
+			}
+		}
+
+		if ( cmd.hasOption( "e" ) ) {
+			if ( !HEADLESS ) {
+				System.out.println( "Error: export-only mode requires headless mode (option '-h')!" );
+				if (!running_as_Fiji_plugin) {
+					System.exit( 0 );
+				} else {
+					return;
+				}
+			}
+			EXPORT_ONLY = true;
+		}
+
+		if ( cmd.hasOption( "r" ) ) {
+			if ( !HEADLESS ) {
+				System.out.println( "Error: resume mode requires headless mode (option '-h' or '-b')!" );
+				if (!running_as_Fiji_plugin) {
+					System.exit( 0 );
+				} else {
+					return;
+				}
+			}
+			RESUME = true;
+		}
+
 		File inputFolder = null;
 		if ( cmd.hasOption( "i" ) ) {
 			inputFolder = new File( cmd.getOptionValue( "i" ) );
@@ -441,7 +790,7 @@ public class MoMA {
 
 		File outputFolder = null;
 		if ( !cmd.hasOption( "o" ) ) {
-			if ( inputFolder == null ) {
+			if ( inputFolder == null && batchManifest == null ) {
 				System.out.println( "Error: Output folder would be set to a 'null' input folder! Please check your command line arguments..." );
 				if (!running_as_Fiji_plugin) {
 					System.exit( 3 );
@@ -449,8 +798,10 @@ public class MoMA {
 					return;
 				}
 			}
-			outputFolder = inputFolder;
-			STATS_OUTPUT_PATH = outputFolder.getAbsolutePath();
+			if ( inputFolder != null ) {
+				outputFolder = inputFolder;
+				STATS_OUTPUT_PATH = outputFolder.getAbsolutePath();
+			}
 		} else {
 			outputFolder = new File( cmd.getOptionValue( "o" ) );
 
@@ -497,45 +848,51 @@ public class MoMA {
 			initOptRange = Integer.parseInt( cmd.getOptionValue( "orange" ) );
 		}
 
+		if ( cmd.hasOption( "sp" ) ) {
+			solverProfileFromCmd = cmd.getOptionValue( "sp" );
+		}
+
 		// ******** CHECK GUROBI ********* CHECK GUROBI ********* CHECK GUROBI *********
 		final String jlp = System.getProperty( "java.library.path" );
 //		System.out.println( jlp );
-		try {
-			new GRBEnv( "MoMA_gurobi.log" );
-		} catch ( final GRBException e ) {
-			final String msgs = "Initial Gurobi test threw exception... check your Gruobi setup!\n\nJava library path: " + jlp;
-			if ( HEADLESS ) {
-				System.out.println( msgs );
-			} else {
-				JOptionPane.showMessageDialog(
-						MoMA.guiFrame,
-						msgs,
-						"Gurobi Error?",
-						JOptionPane.ERROR_MESSAGE );
-			}
-			e.printStackTrace();
-			if (!running_as_Fiji_plugin) {
-				System.exit( 98 );
-			} else {
-				return;
-			}
-		} catch ( final UnsatisfiedLinkError ulr ) {
-			final String msgs = "Could initialize Gurobi.\n" + "You might not have installed Gurobi properly or you miss a valid license.\n" + "Please visit 'www.gurobi.com' for further information.\n\n" + ulr.getMessage() + "\nJava library path: " + jlp;
-			if ( HEADLESS ) {
-				System.out.println( msgs );
-			} else {
-				JOptionPane.showMessageDialog(
-						MoMA.guiFrame,
-						msgs,
-						"Gurobi Error?",
-						JOptionPane.ERROR_MESSAGE );
-				ulr.printStackTrace();
-			}
-			System.out.println( "\n>>>>> Java library path: " + jlp + "\n" );
-			if (!running_as_Fiji_plugin) {
-				System.exit( 99 );
-			} else {
-				return;
+		if ( !EXPORT_ONLY ) {
+			try {
+				new GRBEnv( "MoMA_gurobi.log" );
+			} catch ( final GRBException e ) {
+				final String msgs = "Initial Gurobi test threw exception... check your Gruobi setup!\n\nJava library path: " + jlp;
+				if ( HEADLESS ) {
+					System.out.println( msgs );
+				} else {
+					JOptionPane.showMessageDialog(
+							MoMA.guiFrame,
+							msgs,
+							"Gurobi Error?",
+							JOptionPane.ERROR_MESSAGE );
+				}
+				e.printStackTrace();
+				if (!running_as_Fiji_plugin) {
+					System.exit( 98 );
+				} else {
+					return;
+				}
+			} catch ( final UnsatisfiedLinkError ulr ) {
+				final String msgs = "Could initialize Gurobi.\n" + "You might not have installed Gurobi properly or you miss a valid license.\n" + "Please visit 'www.gurobi.com' for further information.\n\n" + ulr.getMessage() + "\nJava library path: " + jlp;
+				if ( HEADLESS ) {
+					System.out.println( msgs );
+				} else {
+					JOptionPane.showMessageDialog(
+							MoMA.guiFrame,
+							msgs,
+							"Gurobi Error?",
+							JOptionPane.ERROR_MESSAGE );
+					ulr.printStackTrace();
+				}
+				System.out.println( "\n>>>>> Java library path: " + jlp + "\n" );
+				if (!running_as_Fiji_plugin) {
+					System.exit( 99 );
+				} else {
+					return;
+				}
 			}
 		}
 		// ******* END CHECK GUROBI **** END CHECK GUROBI **** END CHECK GUROBI ********
@@ -549,39 +906,19 @@ public class MoMA {
 		System.out.println( "VERSION: " + VERSION_STRING );
 
 		props = main.loadParams();
-		BGREM_TEMPLATE_XMIN = Integer.parseInt( props.getProperty( "BGREM_TEMPLATE_XMIN", Integer.toString( BGREM_TEMPLATE_XMIN ) ) );
-		BGREM_TEMPLATE_XMAX = Integer.parseInt( props.getProperty( "BGREM_TEMPLATE_XMAX", Integer.toString( BGREM_TEMPLATE_XMAX ) ) );
-		BGREM_X_OFFSET = Integer.parseInt( props.getProperty( "BGREM_X_OFFSET", Integer.toString( BGREM_X_OFFSET ) ) );
-		GL_WIDTH_IN_PIXELS = Integer.parseInt( props.getProperty( "GL_WIDTH_IN_PIXELS", Integer.toString( GL_WIDTH_IN_PIXELS ) ) );
-		MOTHER_CELL_BOTTOM_TRICK_MAX_PIXELS = Integer.parseInt( props.getProperty( "MOTHER_CELL_BOTTOM_TRICK_MAX_PIXELS", Integer.toString( MOTHER_CELL_BOTTOM_TRICK_MAX_PIXELS ) ) );
-		GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS = Integer.parseInt( props.getProperty( "GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS", Integer.toString( GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS ) ) );
-		GL_OFFSET_BOTTOM = Integer.parseInt( props.getProperty( "GL_OFFSET_BOTTOM", Integer.toString( GL_OFFSET_BOTTOM ) ) );
-		if ( GL_OFFSET_BOTTOM == -1 ) {
-			GL_OFFSET_BOTTOM_AUTODETECT = true;
-		} else {
-			GL_OFFSET_BOTTOM_AUTODETECT = false;
+		applyParams( props );
+		if ( solverProfileFromCmd != null ) {
+			SOLVER_PROFILE = solverProfileFromCmd;
 		}
-		GL_OFFSET_TOP = Integer.parseInt( props.getProperty( "GL_OFFSET_TOP", Integer.toString( GL_OFFSET_TOP ) ) );
-		GL_OFFSET_LATERAL = Integer.parseInt( props.getProperty( "GL_OFFSET_LATERAL", Integer.toString( GL_OFFSET_LATERAL ) ) );
-		MIN_CELL_LENGTH = Integer.parseInt( props.getProperty( "MIN_CELL_LENGTH", Integer.toString( MIN_CELL_LENGTH ) ) );
-		MIN_GAP_CONTRAST = Float.parseFloat( props.getProperty( "MIN_GAP_CONTRAST", Float.toString( MIN_GAP_CONTRAST ) ) );
-		SIGMA_PRE_SEGMENTATION_X = Float.parseFloat( props.getProperty( "SIGMA_PRE_SEGMENTATION_X", Float.toString( SIGMA_PRE_SEGMENTATION_X ) ) );
-		SIGMA_PRE_SEGMENTATION_Y = Float.parseFloat( props.getProperty( "SIGMA_PRE_SEGMENTATION_Y", Float.toString( SIGMA_PRE_SEGMENTATION_Y ) ) );
-		SIGMA_GL_DETECTION_X = Float.parseFloat( props.getProperty( "SIGMA_GL_DETECTION_X", Float.toString( SIGMA_GL_DETECTION_X ) ) );
-		SIGMA_GL_DETECTION_Y = Float.parseFloat( props.getProperty( "SIGMA_GL_DETECTION_Y", Float.toString( SIGMA_GL_DETECTION_Y ) ) );
-		SEGMENTATION_MIX_CT_INTO_PMFRF = Float.parseFloat( props.getProperty( "SEGMENTATION_MIX_CT_INTO_PMFRF", Float.toString( SEGMENTATION_MIX_CT_INTO_PMFRF ) ) );
-		SEGMENTATION_CLASSIFIER_MODEL_FILE = props.getProperty( "SEGMENTATION_CLASSIFIER_MODEL_FILE", SEGMENTATION_CLASSIFIER_MODEL_FILE );
-		CELLSIZE_CLASSIFIER_MODEL_FILE = props.getProperty( "CELLSIZE_CLASSIFIER_MODEL_FILE", CELLSIZE_CLASSIFIER_MODEL_FILE );
-		DEFAULT_PATH = props.getProperty( "DEFAULT_PATH", DEFAULT_PATH );
-
-		GUROBI_TIME_LIMIT = Double.parseDouble( props.getProperty( "GUROBI_TIME_LIMIT", Double.toString( GUROBI_TIME_LIMIT ) ) );
-		GUROBI_MAX_OPTIMALITY_GAP = Double.parseDouble( props.getProperty( "GUROBI_MAX_OPTIMALITY_GAP", Double.toString( GUROBI_MAX_OPTIMALITY_GAP ) ) );
 
-		GUI_POS_X = Integer.parseInt( props.getProperty( "GUI_POS_X", Integer.toString( DEFAULT_GUI_POS_X ) ) );
-		GUI_POS_Y = Integer.parseInt( props.getProperty( "GUI_POS_Y", Integer.toString( DEFAULT_GUI_POS_X ) ) );
-		GUI_WIDTH = Integer.parseInt( props.getProperty( "GUI_WIDTH", Integer.toString( GUI_WIDTH ) ) );
-		GUI_HEIGHT = Integer.parseInt( props.getProperty( "GUI_HEIGHT", Integer.toString( GUI_HEIGHT ) ) );
-		GUI_CONSOLE_WIDTH = Integer.parseInt( props.getProperty( "GUI_CONSOLE_WIDTH", Integer.toString( GUI_CONSOLE_WIDTH ) ) );
+		if ( batchManifest != null ) {
+			final boolean allDone = processBatch( batchManifest, cmd.hasOption( "o" ) ? outputFolder : null );
+			if (!running_as_Fiji_plugin) {
+				System.exit( allDone ? 11 : 12 );
+			} else {
+				return;
+			}
+		}
 
 		if ( !HEADLESS ) {
 			// Iterate over all currently attached monitors and check if sceen
@@ -638,6 +975,14 @@ public class MoMA {
 				return;
 			}
 		}
+		if ( HEADLESS && main.isRunCompleted() ) {
+			System.out.println( "Nothing to do: the checkpoint in " + getRunFolder().getAbsolutePath() + " says this run was completed already." );
+			if (!running_as_Fiji_plugin) {
+				System.exit( 11 );
+			} else {
+				return;
+			}
+		}
 		// ------------------------------------------------------------------------------------------------------
 		// ------------------------------------------------------------------------------------------------------
 
@@ -646,7 +991,7 @@ public class MoMA {
 			new ImageJ();
 			ImageJFunctions.show( main.imgRaw, "Rotated & cropped raw data" );
 			// ImageJFunctions.show( main.imgTemp, "Temporary" );
-			// ImageJFunctions.show( main.imgAnnotated, "Annotated ARGB data" );
+			// ImageJFunctions.show( main.annotationOverlay.render( main.imgRaw, 0 ), "Annotated ARGB data" );
 
 			// main.getCellSegmentedChannelImgs()
 			// ImageJFunctions.show( main.imgClassified, "Classification" );
@@ -682,6 +1027,7 @@ public class MoMA {
 
 			gui.exportHtmlOverview();
 			gui.exportDataFiles();
+			main.markExported();
 
 			instance.saveParams();
 
@@ -702,12 +1048,37 @@ public class MoMA {
 	 */
 	public ImageJ ij;
 
-	private List< Img< FloatType >> rawChannelImgs;
-	private Img< FloatType > imgRaw;
-	private Img< FloatType > imgTemp;
-	private Img< ARGBType > imgAnnotated;
-	private Img< FloatType > imgClassified;
-	private Img< ShortType > imgSegmented;
+	private List< RandomAccessibleInterval< FloatType >> rawChannelImgs;
+	private RandomAccessibleInterval< FloatType > imgRaw;
+	private RandomAccessibleInterval< FloatType > imgTemp;
+	private ArgbOverlay annotationOverlay;
+
+	/**
+	 * Cell classification (probability maps; quantized ones if
+	 * COMPACT_IMAGE_STORAGE is on, see <code>CompactImgs</code>). The
+	 * segmentation is derived from it on the fly.
+	 */
+	private RandomAccessibleInterval< FloatType > imgClassified;
+
+	/**
+	 * N5 container holding the chunked raw and preprocessed data of the loaded
+	 * dataset (see <code>CACHE_PREPROCESSED_DATA</code>).
+	 */
+	private File cacheContainer;
+
+	/**
+	 * Identity of the loaded input data (see
+	 * <code>FloatTypeImgLoader.getInputIdentity</code>), part of all cache
+	 * fingerprints.
+	 */
+	private String inputIdentity = "";
+
+	/**
+	 * Completed phases of a headless run (null otherwise), and the indices of
+	 * the GLs whose solutions were restored from it.
+	 */
+	private RunCheckpoint checkpoint;
+	private final Set< Integer > restoredGLs = new HashSet< Integer >();
 
 	/**
 	 * Contains all detected growth line center points. The structure goes in
@@ -743,14 +1114,14 @@ public class MoMA {
 	/**
 	 * @return the imgRaw
 	 */
-	public Img< FloatType > getImgRaw() {
+	public RandomAccessibleInterval< FloatType > getImgRaw() {
 		return imgRaw;
 	}
 
 	/**
 	 * @return the rawChannelImgs
 	 */
-	public List< Img< FloatType >> getRawChannelImgs() {
+	public List< RandomAccessibleInterval< FloatType >> getRawChannelImgs() {
 		return rawChannelImgs;
 	}
 
@@ -758,14 +1129,14 @@ public class MoMA {
 	 * @param imgRaw
 	 *            the imgRaw to set
 	 */
-	public void setImgRaw( final Img< FloatType > imgRaw ) {
+	public void setImgRaw( final RandomAccessibleInterval< FloatType > imgRaw ) {
 		this.imgRaw = imgRaw;
 	}
 
 	/**
 	 * @return the imgTemp
 	 */
-	public Img< FloatType > getImgTemp() {
+	public RandomAccessibleInterval< FloatType > getImgTemp() {
 		return imgTemp;
 	}
 
@@ -773,40 +1144,40 @@ public class MoMA {
 	 * @param imgTemp
 	 *            the imgTemp to set
 	 */
-	public void setImgTemp( final Img< FloatType > imgTemp ) {
+	public void setImgTemp( final RandomAccessibleInterval< FloatType > imgTemp ) {
 		this.imgTemp = imgTemp;
 	}
 
 	/**
-	 * @return the imgRendered
+	 * @return the annotationOverlay
 	 */
-	public Img< ARGBType > getImgAnnotated() {
-		return imgAnnotated;
+	public ArgbOverlay getAnnotationOverlay() {
+		return annotationOverlay;
 	}
 
 	/**
-	 * @param imgRendered
-	 *            the imgRendered to set
-	 */
-	public void setImgRendered( final Img< ARGBType > imgRendered ) {
-		this.imgAnnotated = imgRendered;
-	}
-
-	/**
-	 * @return imgSegmented
+	 * @return the cell classification (probability maps)
 	 */
 	public RandomAccessibleInterval< FloatType > getCellClassificationImgs() {
-		if ( this.imgSegmented == null ) {
-			getCellSegmentedChannelImgs();
+		if ( this.imgClassified == null ) {
+			computeCellClassification();
 		}
 		return this.imgClassified;
 	}
 
 	/**
-	 * @return imgSegmented
+	 * @return the cell segmentation (thresholded cell classification)
 	 */
 	public RandomAccessibleInterval< ShortType > getCellSegmentedChannelImgs() {
-		if ( this.imgSegmented == null ) {
+		return Converters.convert( getCellClassificationImgs(), new RealFloatProbMapToSegmentation< FloatType >( 0.5f ), new ShortType() );
+	}
+
+	/**
+	 * Computes the cell classification of all frames (unless it can be
+	 * loaded from the cache).
+	 */
+	private void computeCellClassification() {
+		if ( !loadClassificationFromCache() ) {
 			final DialogProgress dialogProgress = new DialogProgress( MoMA.getGui(), "Estimating cell-area using RF classifier...", MoMA.getGui().model.getCurrentGL().size() );
 			if ( !HEADLESS ) {
 				dialogProgress.setVisible( true );
@@ -815,12 +1186,12 @@ public class MoMA {
 			final SilentWekaSegmenter< FloatType > oldClassifier = GrowthLineSegmentationMagic.getClassifier();
 			GrowthLineSegmentationMagic.setClassifier( MoMA.CELLSIZE_CLASSIFIER_MODEL_FILE, "" );
 
-			imgClassified = new ArrayImgFactory< FloatType >().create( imgTemp, new FloatType() );
-			imgSegmented = new ArrayImgFactory< ShortType >().create( imgTemp, new ShortType() );
-			final RealFloatProbMapToSegmentation< FloatType > converter = new RealFloatProbMapToSegmentation< FloatType >( 0.5f );
+			final Img< UnsignedByteType > compactClassified = COMPACT_IMAGE_STORAGE ? CompactImgs.createProbabilityMapLike( imgTemp ) : null;
+			final Img< FloatType > floatClassified = COMPACT_IMAGE_STORAGE ? null : DataMover.createEmptyArrayImgLike( imgTemp, new FloatType() );
+			final RealUnsignedByteQuantizeConverter< FloatType > quantizer = CompactImgs.getProbabilityQuantizer();
 
-			final int numProcessors = Prefs.getThreads();
-			final int numThreads = Math.min( ( int ) getImgTemp().dimension( 2 ), numProcessors );
+			final ComputeResources.Allocation cores = ComputeResources.acquire( ComputeResources.CLASSIFICATION, ( int ) getImgTemp().dimension( 2 ) );
+			final int numThreads = cores.getThreads();
 			final Thread[] threads = new Thread[ numThreads ];
 
 			class ImageProcessingThread extends Thread {
@@ -841,11 +1212,11 @@ public class MoMA {
 						final IntervalView< FloatType > channel0Frame = Views.hyperSlice( getImgRaw(), 2, frameIdx );  // RAWest data at hand   ;)
 						classified = Views.hyperSlice( GrowthLineSegmentationMagic.returnClassification( channel0Frame ), 2, 0 );
 
-						final RandomAccessibleInterval< FloatType > newClassificationSlize = Views.hyperSlice( imgClassified, 2, frameIdx );
-						final RandomAccessibleInterval< ShortType > newSegmentationSlize = Views.hyperSlice( imgSegmented, 2, frameIdx );
-
-						DataMover.copy( classified, Views.iterable( newClassificationSlize ) );
-						DataMover.copy( classified, Views.iterable( newSegmentationSlize ), converter );
+						if ( compactClassified != null ) {
+							DataMover.copy( classified, Views.iterable( Views.hyperSlice( compactClassified, 2, frameIdx ) ), quantizer );
+						} else {
+							DataMover.copy( classified, Views.iterable( Views.hyperSlice( floatClassified, 2, frameIdx ) ) );
+						}
 
 						if ( !HEADLESS ) {
 							dialogProgress.hasProgressed();
@@ -866,6 +1237,8 @@ public class MoMA {
 					thread.join();
 				} catch ( final InterruptedException e ) {}
 			}
+			cores.release();
+			imgClassified = ( compactClassified != null ) ? CompactImgs.asProbabilities( compactClassified ) : floatClassified;
 
 			// clean up
 			GrowthLineSegmentationMagic.setClassifier( oldClassifier );
@@ -873,9 +1246,9 @@ public class MoMA {
 				dialogProgress.setVisible( false );
 				dialogProgress.dispose();
 			}
-		}
 
-		return imgSegmented;
+			saveClassificationToCache();
+		}
 	}
 
 	/**
@@ -1132,35 +1505,110 @@ public class MoMA {
 	}
 
 	/**
-	 * Loads the file 'mm.properties' and returns an instance of
-	 * {@link Properties} containing the key-value pairs found in that file.
+	 * Sets all parameters found in the given properties (parameters not
+	 * contained keep their current value).
 	 *
-	 * @return instance of {@link Properties} containing the key-value pairs
-	 *         found in that file.
+	 * @param props
 	 */
-	@SuppressWarnings( "resource" )
-	private Properties loadParams() {
-		InputStream is = null;
-		final Properties defaultProps = new Properties();
-
-		// First try loading from the current directory
-		try {
-			final File f = new File( "mm.properties" );
-			System.out.println( "Loading default properties from: " + f.getAbsolutePath() );
-			is = new FileInputStream( f );
-		} catch ( final Exception e ) {
-			System.out.println( "Could not load props... try from classpath next..." );
-			is = null;
-		}
-
-		try {
-			URL propslURL = ClassLoader.getSystemResource( "mm.properties" );
-			if ( propslURL == null ) {
-				propslURL = getClass().getClassLoader().getResource( "mm.properties" );
-			}
-			if ( propslURL != null ) {
-				is = propslURL.openStream();
-				defaultProps.load( is );
+	private static void applyParams( final Properties props ) {
+		BGREM_TEMPLATE_XMIN = Integer.parseInt( props.getProperty( "BGREM_TEMPLATE_XMIN", Integer.toString( BGREM_TEMPLATE_XMIN ) ) );
+		BGREM_TEMPLATE_XMAX = Integer.parseInt( props.getProperty( "BGREM_TEMPLATE_XMAX", Integer.toString( BGREM_TEMPLATE_XMAX ) ) );
+		BGREM_X_OFFSET = Integer.parseInt( props.getProperty( "BGREM_X_OFFSET", Integer.toString( BGREM_X_OFFSET ) ) );
+		GL_WIDTH_IN_PIXELS = Integer.parseInt( props.getProperty( "GL_WIDTH_IN_PIXELS", Integer.toString( GL_WIDTH_IN_PIXELS ) ) );
+		MOTHER_CELL_BOTTOM_TRICK_MAX_PIXELS = Integer.parseInt( props.getProperty( "MOTHER_CELL_BOTTOM_TRICK_MAX_PIXELS", Integer.toString( MOTHER_CELL_BOTTOM_TRICK_MAX_PIXELS ) ) );
+		GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS = Integer.parseInt( props.getProperty( "GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS", Integer.toString( GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS ) ) );
+		GL_OFFSET_BOTTOM = Integer.parseInt( props.getProperty( "GL_OFFSET_BOTTOM", Integer.toString( GL_OFFSET_BOTTOM ) ) );
+		if ( GL_OFFSET_BOTTOM == -1 ) {
+			GL_OFFSET_BOTTOM_AUTODETECT = true;
+		} else {
+			GL_OFFSET_BOTTOM_AUTODETECT = false;
+		}
+		GL_OFFSET_TOP = Integer.parseInt( props.getProperty( "GL_OFFSET_TOP", Integer.toString( GL_OFFSET_TOP ) ) );
+		GL_OFFSET_LATERAL = Integer.parseInt( props.getProperty( "GL_OFFSET_LATERAL", Integer.toString( GL_OFFSET_LATERAL ) ) );
+		MIN_CELL_LENGTH = Integer.parseInt( props.getProperty( "MIN_CELL_LENGTH", Integer.toString( MIN_CELL_LENGTH ) ) );
+		MIN_GAP_CONTRAST = Float.parseFloat( props.getProperty( "MIN_GAP_CONTRAST", Float.toString( MIN_GAP_CONTRAST ) ) );
+		SIGMA_PRE_SEGMENTATION_X = Float.parseFloat( props.getProperty( "SIGMA_PRE_SEGMENTATION_X", Float.toString( SIGMA_PRE_SEGMENTATION_X ) ) );
+		SIGMA_PRE_SEGMENTATION_Y = Float.parseFloat( props.getProperty( "SIGMA_PRE_SEGMENTATION_Y", Float.toString( SIGMA_PRE_SEGMENTATION_Y ) ) );
+		SIGMA_GL_DETECTION_X = Float.parseFloat( props.getProperty( "SIGMA_GL_DETECTION_X", Float.toString( SIGMA_GL_DETECTION_X ) ) );
+		SIGMA_GL_DETECTION_Y = Float.parseFloat( props.getProperty( "SIGMA_GL_DETECTION_Y", Float.toString( SIGMA_GL_DETECTION_Y ) ) );
+		GL_DETECTION_BY_PROJECTION = Boolean.parseBoolean( props.getProperty( "GL_DETECTION_BY_PROJECTION", Boolean.toString( GL_DETECTION_BY_PROJECTION ) ) );
+		SEGMENTATION_MIX_CT_INTO_PMFRF = Float.parseFloat( props.getProperty( "SEGMENTATION_MIX_CT_INTO_PMFRF", Float.toString( SEGMENTATION_MIX_CT_INTO_PMFRF ) ) );
+		SEGMENTATION_CLASSIFIER_MODEL_FILE = props.getProperty( "SEGMENTATION_CLASSIFIER_MODEL_FILE", SEGMENTATION_CLASSIFIER_MODEL_FILE );
+		CELLSIZE_CLASSIFIER_MODEL_FILE = props.getProperty( "CELLSIZE_CLASSIFIER_MODEL_FILE", CELLSIZE_CLASSIFIER_MODEL_FILE );
+		DEFAULT_PATH = props.getProperty( "DEFAULT_PATH", DEFAULT_PATH );
+
+		CACHE_PREPROCESSED_DATA = Boolean.parseBoolean( props.getProperty( "CACHE_PREPROCESSED_DATA", Boolean.toString( CACHE_PREPROCESSED_DATA ) ) );
+		COMPACT_IMAGE_STORAGE = Boolean.parseBoolean( props.getProperty( "COMPACT_IMAGE_STORAGE", Boolean.toString( COMPACT_IMAGE_STORAGE ) ) );
+		CROP_TO_GROWTH_LINES = Boolean.parseBoolean( props.getProperty( "CROP_TO_GROWTH_LINES", Boolean.toString( CROP_TO_GROWTH_LINES ) ) );
+		CONSTRAINT_FORMULATION = Integer.parseInt( props.getProperty( "CONSTRAINT_FORMULATION", Integer.toString( CONSTRAINT_FORMULATION ) ) );
+		BENCHMARK_CONSTRAINT_GENERATION = Boolean.parseBoolean( props.getProperty( "BENCHMARK_CONSTRAINT_GENERATION", Boolean.toString( BENCHMARK_CONSTRAINT_GENERATION ) ) );
+		ILP_NAMING = Integer.parseInt( props.getProperty( "ILP_NAMING", Integer.toString( ILP_NAMING ) ) );
+		ROLLING_HORIZON_WINDOW = Integer.parseInt( props.getProperty( "ROLLING_HORIZON_WINDOW", Integer.toString( ROLLING_HORIZON_WINDOW ) ) );
+		ROLLING_HORIZON_COMMIT = Integer.parseInt( props.getProperty( "ROLLING_HORIZON_COMMIT", Integer.toString( ROLLING_HORIZON_COMMIT ) ) );
+		checkRollingHorizonParams();
+		PRESOLVE_HYPOTHESES = Boolean.parseBoolean( props.getProperty( "PRESOLVE_HYPOTHESES", Boolean.toString( PRESOLVE_HYPOTHESES ) ) );
+		VALIDATE_PRESOLVE = Boolean.parseBoolean( props.getProperty( "VALIDATE_PRESOLVE", Boolean.toString( VALIDATE_PRESOLVE ) ) );
+		DECOMPOSE_TIME_SEGMENTS = Boolean.parseBoolean( props.getProperty( "DECOMPOSE_TIME_SEGMENTS", Boolean.toString( DECOMPOSE_TIME_SEGMENTS ) ) );
+		DECOMPOSITION_MIN_SEGMENT_LENGTH = Integer.parseInt( props.getProperty( "DECOMPOSITION_MIN_SEGMENT_LENGTH", Integer.toString( DECOMPOSITION_MIN_SEGMENT_LENGTH ) ) );
+		VALIDATE_DECOMPOSITION = Boolean.parseBoolean( props.getProperty( "VALIDATE_DECOMPOSITION", Boolean.toString( VALIDATE_DECOMPOSITION ) ) );
+		INCUMBENT_PREVIEW_INTERVAL = Float.parseFloat( props.getProperty( "INCUMBENT_PREVIEW_INTERVAL", Float.toString( INCUMBENT_PREVIEW_INTERVAL ) ) );
+		CANDIDATE_STRATEGY = Integer.parseInt( props.getProperty( "CANDIDATE_STRATEGY", Integer.toString( CANDIDATE_STRATEGY ) ) );
+		CANDIDATES_K = Integer.parseInt( props.getProperty( "CANDIDATES_K", Integer.toString( CANDIDATES_K ) ) );
+		CANDIDATE_GAP_RATIO = Float.parseFloat( props.getProperty( "CANDIDATE_GAP_RATIO", Float.toString( CANDIDATE_GAP_RATIO ) ) );
+		BENCHMARK_CANDIDATE_STRATEGIES = Boolean.parseBoolean( props.getProperty( "BENCHMARK_CANDIDATE_STRATEGIES", Boolean.toString( BENCHMARK_CANDIDATE_STRATEGIES ) ) );
+		SOLVER_PROFILE = props.getProperty( "SOLVER_PROFILE", SOLVER_PROFILE );
+		SAVE_TRACKING_MODELS = Boolean.parseBoolean( props.getProperty( "SAVE_TRACKING_MODELS", Boolean.toString( SAVE_TRACKING_MODELS ) ) );
+		CORE_BUDGET = Integer.parseInt( props.getProperty( "CORE_BUDGET", Integer.toString( CORE_BUDGET ) ) );
+		ComputeResources.setBudget( CORE_BUDGET );
+		MAX_CONCURRENT_SOLVES = Integer.parseInt( props.getProperty( "MAX_CONCURRENT_SOLVES", Integer.toString( MAX_CONCURRENT_SOLVES ) ) );
+		TERMINATION_STALL_SECONDS = Double.parseDouble( props.getProperty( "TERMINATION_STALL_SECONDS", Double.toString( TERMINATION_STALL_SECONDS ) ) );
+		TERMINATION_FLAT_GAP_SECONDS = Double.parseDouble( props.getProperty( "TERMINATION_FLAT_GAP_SECONDS", Double.toString( TERMINATION_FLAT_GAP_SECONDS ) ) );
+		TERMINATION_FLAT_GAP_DELTA = Double.parseDouble( props.getProperty( "TERMINATION_FLAT_GAP_DELTA", Double.toString( TERMINATION_FLAT_GAP_DELTA ) ) );
+		TERMINATION_MATCH_TOLERANCE = Double.parseDouble( props.getProperty( "TERMINATION_MATCH_TOLERANCE", Double.toString( TERMINATION_MATCH_TOLERANCE ) ) );
+		SAVE_SOLVER_TRAJECTORIES = Boolean.parseBoolean( props.getProperty( "SAVE_SOLVER_TRAJECTORIES", Boolean.toString( SAVE_SOLVER_TRAJECTORIES ) ) );
+		BATCH_MAX_ATTEMPTS = Integer.parseInt( props.getProperty( "BATCH_MAX_ATTEMPTS", Integer.toString( BATCH_MAX_ATTEMPTS ) ) );
+		EXPORT_COLUMNAR = Boolean.parseBoolean( props.getProperty( "EXPORT_COLUMNAR", Boolean.toString( EXPORT_COLUMNAR ) ) );
+
+		GUROBI_TIME_LIMIT = Double.parseDouble( props.getProperty( "GUROBI_TIME_LIMIT", Double.toString( GUROBI_TIME_LIMIT ) ) );
+		GUROBI_MAX_OPTIMALITY_GAP = Double.parseDouble( props.getProperty( "GUROBI_MAX_OPTIMALITY_GAP", Double.toString( GUROBI_MAX_OPTIMALITY_GAP ) ) );
+
+		GUI_POS_X = Integer.parseInt( props.getProperty( "GUI_POS_X", Integer.toString( DEFAULT_GUI_POS_X ) ) );
+		GUI_POS_Y = Integer.parseInt( props.getProperty( "GUI_POS_Y", Integer.toString( DEFAULT_GUI_POS_X ) ) );
+		GUI_WIDTH = Integer.parseInt( props.getProperty( "GUI_WIDTH", Integer.toString( GUI_WIDTH ) ) );
+		GUI_HEIGHT = Integer.parseInt( props.getProperty( "GUI_HEIGHT", Integer.toString( GUI_HEIGHT ) ) );
+		GUI_CONSOLE_WIDTH = Integer.parseInt( props.getProperty( "GUI_CONSOLE_WIDTH", Integer.toString( GUI_CONSOLE_WIDTH ) ) );
+	}
+
+	/**
+	 * Loads the file 'mm.properties' and returns an instance of
+	 * {@link Properties} containing the key-value pairs found in that file.
+	 *
+	 * @return instance of {@link Properties} containing the key-value pairs
+	 *         found in that file.
+	 */
+	@SuppressWarnings( "resource" )
+	private Properties loadParams() {
+		InputStream is = null;
+		final Properties defaultProps = new Properties();
+
+		// First try loading from the current directory
+		try {
+			final File f = new File( "mm.properties" );
+			System.out.println( "Loading default properties from: " + f.getAbsolutePath() );
+			is = new FileInputStream( f );
+		} catch ( final Exception e ) {
+			System.out.println( "Could not load props... try from classpath next..." );
+			is = null;
+		}
+
+		try {
+			URL propslURL = ClassLoader.getSystemResource( "mm.properties" );
+			if ( propslURL == null ) {
+				propslURL = getClass().getClassLoader().getResource( "mm.properties" );
+			}
+			if ( propslURL != null ) {
+				is = propslURL.openStream();
+				defaultProps.load( is );
 				System.out.println( " >> default properties loaded!" );
 
 			}
@@ -1213,32 +1661,7 @@ public class MoMA {
 			final File f = new File( "mm.properties" );
 			final OutputStream out = new FileOutputStream( f );
 
-			props.setProperty( "BGREM_TEMPLATE_XMIN", Integer.toString( BGREM_TEMPLATE_XMIN ) );
-			props.setProperty( "BGREM_TEMPLATE_XMAX", Integer.toString( BGREM_TEMPLATE_XMAX ) );
-			props.setProperty( "BGREM_X_OFFSET", Integer.toString( BGREM_X_OFFSET ) );
-			props.setProperty( "GL_WIDTH_IN_PIXELS", Integer.toString( GL_WIDTH_IN_PIXELS ) );
-			props.setProperty( "MOTHER_CELL_BOTTOM_TRICK_MAX_PIXELS", Integer.toString( MOTHER_CELL_BOTTOM_TRICK_MAX_PIXELS ) );
-			props.setProperty( "GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS", Integer.toString( GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS ) );
-			int offset = GL_OFFSET_BOTTOM;
-			if ( GL_OFFSET_BOTTOM_AUTODETECT ) {
-				offset = -1;
-			}
-			props.setProperty( "GL_OFFSET_BOTTOM", Integer.toString( offset ) );
-			props.setProperty( "GL_OFFSET_TOP", Integer.toString( GL_OFFSET_TOP ) );
-			props.setProperty( "GL_OFFSET_LATERAL", Integer.toString( GL_OFFSET_LATERAL ) );
-			props.setProperty( "MIN_CELL_LENGTH", Integer.toString( MIN_CELL_LENGTH ) );
-			props.setProperty( "MIN_GAP_CONTRAST", Double.toString( MIN_GAP_CONTRAST ) );
-			props.setProperty( "SIGMA_PRE_SEGMENTATION_X", Double.toString( SIGMA_PRE_SEGMENTATION_X ) );
-			props.setProperty( "SIGMA_PRE_SEGMENTATION_Y", Double.toString( SIGMA_PRE_SEGMENTATION_Y ) );
-			props.setProperty( "SIGMA_GL_DETECTION_X", Double.toString( SIGMA_GL_DETECTION_X ) );
-			props.setProperty( "SIGMA_GL_DETECTION_Y", Double.toString( SIGMA_GL_DETECTION_Y ) );
-			props.setProperty( "SEGMENTATION_MIX_CT_INTO_PMFRF", Double.toString( SEGMENTATION_MIX_CT_INTO_PMFRF ) );
-			props.setProperty( "SEGMENTATION_CLASSIFIER_MODEL_FILE", SEGMENTATION_CLASSIFIER_MODEL_FILE );
-			props.setProperty( "CELLSIZE_CLASSIFIER_MODEL_FILE", CELLSIZE_CLASSIFIER_MODEL_FILE );
-			props.setProperty( "DEFAULT_PATH", DEFAULT_PATH );
-
-			props.setProperty( "GUROBI_TIME_LIMIT", Double.toString( GUROBI_TIME_LIMIT ) );
-			props.setProperty( "GUROBI_MAX_OPTIMALITY_GAP", Double.toString( GUROBI_MAX_OPTIMALITY_GAP ) );
+			putParams( props );
 
 			if ( !MoMA.HEADLESS ) {
 				GUI_POS_X = guiFrame.getX();
@@ -1259,6 +1682,204 @@ public class MoMA {
 		}
 	}
 
+	/**
+	 * Writes the current values of all parameters (but not the GUI
+	 * placement) into the given properties.
+	 *
+	 * @param props
+	 */
+	private static void putParams( final Properties props ) {
+		props.setProperty( "BGREM_TEMPLATE_XMIN", Integer.toString( BGREM_TEMPLATE_XMIN ) );
+		props.setProperty( "BGREM_TEMPLATE_XMAX", Integer.toString( BGREM_TEMPLATE_XMAX ) );
+		props.setProperty( "BGREM_X_OFFSET", Integer.toString( BGREM_X_OFFSET ) );
+		props.setProperty( "GL_WIDTH_IN_PIXELS", Integer.toString( GL_WIDTH_IN_PIXELS ) );
+		props.setProperty( "MOTHER_CELL_BOTTOM_TRICK_MAX_PIXELS", Integer.toString( MOTHER_CELL_BOTTOM_TRICK_MAX_PIXELS ) );
+		props.setProperty( "GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS", Integer.toString( GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS ) );
+		int offset = GL_OFFSET_BOTTOM;
+		if ( GL_OFFSET_BOTTOM_AUTODETECT ) {
+			offset = -1;
+		}
+		props.setProperty( "GL_OFFSET_BOTTOM", Integer.toString( offset ) );
+		props.setProperty( "GL_OFFSET_TOP", Integer.toString( GL_OFFSET_TOP ) );
+		props.setProperty( "GL_OFFSET_LATERAL", Integer.toString( GL_OFFSET_LATERAL ) );
+		props.setProperty( "MIN_CELL_LENGTH", Integer.toString( MIN_CELL_LENGTH ) );
+		props.setProperty( "MIN_GAP_CONTRAST", Double.toString( MIN_GAP_CONTRAST ) );
+		props.setProperty( "SIGMA_PRE_SEGMENTATION_X", Double.toString( SIGMA_PRE_SEGMENTATION_X ) );
+		props.setProperty( "SIGMA_PRE_SEGMENTATION_Y", Double.toString( SIGMA_PRE_SEGMENTATION_Y ) );
+		props.setProperty( "SIGMA_GL_DETECTION_X", Double.toString( SIGMA_GL_DETECTION_X ) );
+		props.setProperty( "SIGMA_GL_DETECTION_Y", Double.toString( SIGMA_GL_DETECTION_Y ) );
+		props.setProperty( "GL_DETECTION_BY_PROJECTION", Boolean.toString( GL_DETECTION_BY_PROJECTION ) );
+		props.setProperty( "SEGMENTATION_MIX_CT_INTO_PMFRF", Double.toString( SEGMENTATION_MIX_CT_INTO_PMFRF ) );
+		props.setProperty( "SEGMENTATION_CLASSIFIER_MODEL_FILE", SEGMENTATION_CLASSIFIER_MODEL_FILE );
+		props.setProperty( "CELLSIZE_CLASSIFIER_MODEL_FILE", CELLSIZE_CLASSIFIER_MODEL_FILE );
+		props.setProperty( "DEFAULT_PATH", DEFAULT_PATH );
+
+		props.setProperty( "CACHE_PREPROCESSED_DATA", Boolean.toString( CACHE_PREPROCESSED_DATA ) );
+		props.setProperty( "COMPACT_IMAGE_STORAGE", Boolean.toString( COMPACT_IMAGE_STORAGE ) );
+		props.setProperty( "CROP_TO_GROWTH_LINES", Boolean.toString( CROP_TO_GROWTH_LINES ) );
+		props.setProperty( "CONSTRAINT_FORMULATION", Integer.toString( CONSTRAINT_FORMULATION ) );
+		props.setProperty( "BENCHMARK_CONSTRAINT_GENERATION", Boolean.toString( BENCHMARK_CONSTRAINT_GENERATION ) );
+		props.setProperty( "ILP_NAMING", Integer.toString( ILP_NAMING ) );
+		props.setProperty( "ROLLING_HORIZON_WINDOW", Integer.toString( ROLLING_HORIZON_WINDOW ) );
+		props.setProperty( "ROLLING_HORIZON_COMMIT", Integer.toString( ROLLING_HORIZON_COMMIT ) );
+		props.setProperty( "PRESOLVE_HYPOTHESES", Boolean.toString( PRESOLVE_HYPOTHESES ) );
+		props.setProperty( "VALIDATE_PRESOLVE", Boolean.toString( VALIDATE_PRESOLVE ) );
+		props.setProperty( "DECOMPOSE_TIME_SEGMENTS", Boolean.toString( DECOMPOSE_TIME_SEGMENTS ) );
+		props.setProperty( "DECOMPOSITION_MIN_SEGMENT_LENGTH", Integer.toString( DECOMPOSITION_MIN_SEGMENT_LENGTH ) );
+		props.setProperty( "VALIDATE_DECOMPOSITION", Boolean.toString( VALIDATE_DECOMPOSITION ) );
+		props.setProperty( "INCUMBENT_PREVIEW_INTERVAL", Float.toString( INCUMBENT_PREVIEW_INTERVAL ) );
+		props.setProperty( "CANDIDATE_STRATEGY", Integer.toString( CANDIDATE_STRATEGY ) );
+		props.setProperty( "CANDIDATES_K", Integer.toString( CANDIDATES_K ) );
+		props.setProperty( "CANDIDATE_GAP_RATIO", Float.toString( CANDIDATE_GAP_RATIO ) );
+		props.setProperty( "BENCHMARK_CANDIDATE_STRATEGIES", Boolean.toString( BENCHMARK_CANDIDATE_STRATEGIES ) );
+		props.setProperty( "SOLVER_PROFILE", SOLVER_PROFILE );
+		props.setProperty( "SAVE_TRACKING_MODELS", Boolean.toString( SAVE_TRACKING_MODELS ) );
+		props.setProperty( "CORE_BUDGET", Integer.toString( CORE_BUDGET ) );
+		props.setProperty( "MAX_CONCURRENT_SOLVES", Integer.toString( MAX_CONCURRENT_SOLVES ) );
+		props.setProperty( "TERMINATION_STALL_SECONDS", Double.toString( TERMINATION_STALL_SECONDS ) );
+		props.setProperty( "TERMINATION_FLAT_GAP_SECONDS", Double.toString( TERMINATION_FLAT_GAP_SECONDS ) );
+		props.setProperty( "TERMINATION_FLAT_GAP_DELTA", Double.toString( TERMINATION_FLAT_GAP_DELTA ) );
+		props.setProperty( "TERMINATION_MATCH_TOLERANCE", Double.toString( TERMINATION_MATCH_TOLERANCE ) );
+		props.setProperty( "SAVE_SOLVER_TRAJECTORIES", Boolean.toString( SAVE_SOLVER_TRAJECTORIES ) );
+		props.setProperty( "BATCH_MAX_ATTEMPTS", Integer.toString( BATCH_MAX_ATTEMPTS ) );
+		props.setProperty( "EXPORT_COLUMNAR", Boolean.toString( EXPORT_COLUMNAR ) );
+
+		props.setProperty( "GUROBI_TIME_LIMIT", Double.toString( GUROBI_TIME_LIMIT ) );
+		props.setProperty( "GUROBI_MAX_OPTIMALITY_GAP", Double.toString( GUROBI_MAX_OPTIMALITY_GAP ) );
+	}
+
+	/**
+	 * Processes all datasets listed in the given manifest (see
+	 * <code>BatchJob</code>) one after the other in this JVM, such that
+	 * Gurobi environments (see <code>GurobiEnvPool</code>) and loaded
+	 * classifiers are reused. Progress is journaled next to the manifest;
+	 * calling this again for the same manifest skips all datasets that are
+	 * done already.
+	 *
+	 * Per-dataset parameter overrides only apply to their dataset, and
+	 * mm.properties is not written by batch runs.
+	 *
+	 * @param manifest
+	 * @param outputParent
+	 *            if not null, datasets without own output folder write into
+	 *            a sub-folder (named like the input folder) of this folder.
+	 * @return true if all datasets of the manifest are done.
+	 */
+	private static boolean processBatch( final File manifest, final File outputParent ) {
+		final BatchJobQueue queue;
+		try {
+			queue = new BatchJobQueue( manifest, BatchJobQueue.getDefaultJournalFor( manifest ), BATCH_MAX_ATTEMPTS );
+		} catch ( final Exception e ) {
+			System.out.println( "Error: Batch manifest could not be opened!" );
+			e.printStackTrace();
+			return false;
+		}
+
+		final Properties baseline = new Properties();
+		putParams( baseline );
+		final int batchMinTime = minTime;
+		final int batchMaxTime = maxTime;
+		final int batchInitOptRange = initOptRange;
+		final int batchMinChannelIdx = minChannelIdx;
+		final int batchNumChannels = numChannels;
+
+		final boolean resumeAll = RESUME;
+		final List< BatchJob > pending = queue.getPendingJobs();
+		System.out.println( String.format( "Batch: %d datasets, %d still to be processed.", queue.getJobs().size(), pending.size() ) );
+		int jobNum = 0;
+		for ( final BatchJob job : pending ) {
+			jobNum++;
+			System.out.println( String.format( "\n========== Batch dataset %d of %d (attempt %d): %s ==========", jobNum, pending.size(), queue.getAttempts( job ) + 1, job.getInputFolder().getAbsolutePath() ) );
+			final long startTime = System.currentTimeMillis();
+			try {
+				// a dataset that was started before continues from its checkpoint
+				RESUME = resumeAll || queue.getAttempts( job ) > 0;
+				queue.markStarted( job );
+
+				final Properties jobProps = new Properties();
+				jobProps.putAll( baseline );
+				jobProps.putAll( job.getOverrides() );
+				applyParams( jobProps );
+				minTime = job.getIntOption( "tmin", batchMinTime );
+				maxTime = job.getIntOption( "tmax", batchMaxTime );
+				initOptRange = job.getIntOption( "orange", batchInitOptRange );
+				minChannelIdx = job.getIntOption( "cmin", batchMinChannelIdx );
+				numChannels = job.getIntOption( "c", batchNumChannels );
+
+				File outputFolder = job.getOutputFolder();
+				if ( outputParent != null && !job.hasOutputFolder() ) {
+					outputFolder = new File( outputParent, job.getInputFolder().getName() );
+				}
+				processBatchJob( job.getInputFolder(), outputFolder );
+
+				queue.markDone( job );
+				System.out.println( String.format( "Batch dataset done in %.1f s.", ( System.currentTimeMillis() - startTime ) / 1000.0 ) );
+			} catch ( final Exception e ) {
+				System.out.println( "ERROR: batch dataset failed: " + job.getInputFolder().getAbsolutePath() );
+				e.printStackTrace();
+				try {
+					queue.markFailed( job, e );
+				} catch ( final IOException e1 ) {
+					e1.printStackTrace();
+				}
+			}
+		}
+
+		int numDone = 0;
+		for ( final BatchJob job : queue.getJobs() ) {
+			if ( BatchJobQueue.DONE.equals( queue.getState( job ) ) ) numDone++;
+		}
+		System.out.println( String.format( "\nBatch finished: %d of %d datasets done, %d Gurobi environment(s) created for concurrent solves.", numDone, queue.getJobs().size(), GurobiEnvPool.getNumCreated() ) );
+		for ( final BatchJob job : queue.getJobs() ) {
+			if ( !BatchJobQueue.DONE.equals( queue.getState( job ) ) ) {
+				System.out.println( String.format( "  NOT DONE (%d attempts): %s", queue.getAttempts( job ), job ) );
+			}
+		}
+		try {
+			queue.close();
+		} catch ( final IOException e ) {
+			e.printStackTrace();
+		}
+		return numDone == queue.getJobs().size();
+	}
+
+	/**
+	 * Does for one dataset of a batch run what a headless run does: process,
+	 * solve, and export. Afterwards all Gurobi models are disposed.
+	 */
+	private static void processBatchJob( final File inputFolder, final File outputFolder ) throws Exception {
+		if ( !outputFolder.isDirectory() && !outputFolder.mkdirs() ) { throw new IOException( "Output folder " + outputFolder.getAbsolutePath() + " cannot be created." ); }
+		if ( !outputFolder.canWrite() ) { throw new IOException( "Output folder " + outputFolder.getAbsolutePath() + " cannot be written to." ); }
+		STATS_OUTPUT_PATH = outputFolder.getAbsolutePath();
+		defaultFilenameDecoration = inputFolder.getName();
+		props.setProperty( "import_path", inputFolder.getAbsolutePath() );
+
+		final MoMA main = new MoMA();
+		final MoMAModel mmm = new MoMAModel( main );
+		instance = main;
+		try {
+			main.processDataFromFolder( inputFolder.getAbsolutePath(), minTime, maxTime, minChannelIdx, numChannels );
+			if ( main.isRunCompleted() ) {
+				System.out.println( "Nothing to do: the checkpoint in " + getRunFolder().getAbsolutePath() + " says this dataset was completed already." );
+				return;
+			}
+			gui = new MoMAGui( mmm );
+			gui.exportHtmlOverview();
+			gui.exportDataFiles();
+			main.markExported();
+		} finally {
+			if ( main.getGrowthLines() != null ) {
+				for ( final GrowthLine gl : main.getGrowthLines() ) {
+					if ( gl.getIlp() != null ) {
+						gl.getIlp().dispose();
+					}
+				}
+			}
+			gui = null;
+			instance = null;
+		}
+	}
+
 	/**
 	 * Opens all tiffs in the given folder, straightens and crops images,
 	 * extracts growth lines, subtracts background, builds segmentation
@@ -1285,25 +1906,40 @@ public class MoMA {
 		setDatasetName( String.format( "%s >> %s", folder.getParentFile().getName(), folder.getName() ) );
 
 		// load channels separately into Img objects
-		rawChannelImgs = FloatTypeImgLoader.loadTiffsFromFileOrFolder(path, minTime, maxTime, minChannelIdx, numChannels + minChannelIdx - 1);
+		inputIdentity = FloatTypeImgLoader.getInputIdentity( folder );
+		rawChannelImgs = FloatTypeImgLoader.loadTiffsFromFileOrFolder(path, minTime, maxTime, minChannelIdx, numChannels + minChannelIdx - 1, COMPACT_IMAGE_STORAGE);
 
+		cacheContainer = getCacheContainerFor( path );
+		if ( CACHE_PREPROCESSED_DATA ) {
+			saveRawToCache( path );
+		}
 
 		imgRaw = rawChannelImgs.get( 0 );
 
-		// setup ARGB image (that will eventually contain annotations)
-		System.out.print( "Spawning off annotation image (ARGB)..." );
-		resetImgAnnotatedLike( getImgRaw() );
-		try {
-			DataMover.convertAndCopy( getImgRaw(), getImgAnnotated() );
-		} catch ( final Exception e ) {
-			// conversion might not be supported
-			e.printStackTrace();
+		// setup (sparse) annotation overlay
+		resetAnnotationOverlayLike( getImgRaw() );
+		imgClassified = null;
+
+		restoredGLs.clear();
+		checkpoint = null;
+		if ( HEADLESS && !EXPORT_ONLY ) {
+			checkpoint = new RunCheckpoint( getRunFolder(), getSegmentationFingerprint(), RESUME );
+			if ( checkpoint.isResumed() ) {
+				System.out.println( "Resuming from checkpoint in " + getRunFolder().getAbsolutePath() );
+			}
+			if ( isRunCompleted() ) return;
 		}
-		System.out.println( " done!" );
 
 		restartFromGLSegmentation();
+		if ( HEADLESS && CROP_TO_GROWTH_LINES ) {
+			cropToGrowthLines();
+		}
 
-		if ( HEADLESS ) {
+		if ( HEADLESS && EXPORT_ONLY ) {
+			System.out.println( "Restoring stored solution(s)..." );
+			loadSolutions();
+			System.out.println( " done!" );
+		} else if ( HEADLESS ) {
 			System.out.println( "Generating Integer Linear Program(s)..." );
 			generateILPs();
 			System.out.println( " done!" );
@@ -1314,21 +1950,279 @@ public class MoMA {
 		}
 	}
 
+	/**
+	 * Replaces the raw channels and imgTemp by copies of the columns around
+	 * the detected GLs (see <code>GrowthLineStrips</code>), such that the full
+	 * frames can be garbage collected. Needs to happen after the segmentation
+	 * hypotheses are built, since preprocessing looks at entire frames.
+	 * Nothing is cropped if the strips would not be smaller than the frames.
+	 */
+	private void cropToGrowthLines() {
+		final GrowthLineStrips strips = new GrowthLineStrips( imgRaw, getGrowthLines() );
+		final long fullPixels = imgRaw.dimension( 0 ) * imgRaw.dimension( 1 ) * imgRaw.dimension( 2 );
+		if ( strips.getNumPixels() >= fullPixels ) {
+			System.out.println( "Growth line strips would not be smaller than the full frames -- not cropping." );
+			return;
+		}
+
+		System.out.print( "Cropping data to growth lines..." );
+		final List< RandomAccessibleInterval< FloatType > > croppedChannels = new ArrayList< RandomAccessibleInterval< FloatType > >( rawChannelImgs.size() );
+		for ( int i = 0; i < rawChannelImgs.size(); i++ ) {
+			croppedChannels.add( strips.crop( rawChannelImgs.get( i ) ) );
+			rawChannelImgs.set( i, null ); // such that the full channel can go right away
+		}
+		rawChannelImgs = croppedChannels;
+		imgRaw = rawChannelImgs.get( 0 );
+		imgTemp = strips.crop( imgTemp );
+		System.out.println( String.format( " done! (%d of %d pixels per stack kept)", strips.getNumPixels(), fullPixels ) );
+	}
+
+	/**
+	 * @return the folder headless runs keep their checkpoint (see
+	 *         <code>RunCheckpoint</code>) in.
+	 */
+	public static File getRunFolder() {
+		return new File( STATS_OUTPUT_PATH, "run" );
+	}
+
+	/**
+	 * @return true if the checkpoint of this (headless) run says that all
+	 *         phases including the export are completed.
+	 */
+	private boolean isRunCompleted() {
+		return checkpoint != null && checkpoint.isDone( RunCheckpoint.EXPORTED );
+	}
+
+	/**
+	 * Records the completed export in the checkpoint (if any).
+	 */
+	private void markExported() {
+		if ( checkpoint != null ) {
+			checkpoint.markDone( RunCheckpoint.EXPORTED );
+		}
+	}
+
+	/**
+	 * Restores the solution of the given GL from the solution folder, if the
+	 * checkpoint says it was solved before.
+	 *
+	 * @return true if the GL does not need to be solved again.
+	 */
+	private boolean restoreSolution( final GrowthLine gl, final int glIdx ) {
+		if ( checkpoint == null || !checkpoint.isDone( glIdx, RunCheckpoint.SOLVED ) ) return false;
+		final File file = SolutionArtifact.getFileFor( getSolutionFolder(), glIdx );
+		try {
+			if ( file.exists() && gl.loadSolution( SolutionArtifact.load( file ), getSegmentationFingerprint() ) ) {
+				restoredGLs.add( glIdx );
+				return true;
+			}
+		} catch ( final IOException e ) {
+			e.printStackTrace();
+		}
+		System.out.println( "WARNING: stored solution of GL# " + glIdx + " could not be restored -- solving it again." );
+		checkpoint.reset( glIdx );
+		return false;
+	}
+
+	/**
+	 * @return the folder solutions are stored into after headless runs (and
+	 *         restored from in EXPORT_ONLY mode).
+	 */
+	public static File getSolutionFolder() {
+		return new File( STATS_OUTPUT_PATH, "solutions" );
+	}
+
+	/**
+	 * Writes the solution of the given GL into the solution folder.
+	 *
+	 * @return true if the solution was written.
+	 */
+	private boolean saveSolution( final GrowthLine gl, final int glIdx ) {
+		final File folder = getSolutionFolder();
+		if ( !folder.mkdirs() && !folder.isDirectory() ) { // GLs might be solved concurrently
+			System.out.println( "WARNING: could not create solution folder " + folder.getAbsolutePath() );
+			return false;
+		}
+		try {
+			gl.getIlp().getSolutionArtifact( getSegmentationFingerprint() ).save( SolutionArtifact.getFileFor( folder, glIdx ) );
+			return true;
+		} catch ( final IOException e ) {
+			System.out.println( "WARNING: could not write solution of GL# " + glIdx );
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Restores the solutions of all GLs from the solution folder.
+	 *
+	 * @throws Exception
+	 *             if the solution of any GL is missing or does not fit the
+	 *             loaded data and current parameters.
+	 */
+	private void loadSolutions() throws Exception {
+		final File folder = getSolutionFolder();
+		for ( int i = 0; i < getGrowthLines().size(); i++ ) {
+			final File file = SolutionArtifact.getFileFor( folder, i );
+			if ( !file.exists() ) { throw new Exception( "No stored solution found for GL# " + i + " (" + file.getAbsolutePath() + ")." ); }
+			if ( !getGrowthLines().get( i ).loadSolution( SolutionArtifact.load( file ), getSegmentationFingerprint() ) ) { throw new Exception( "Stored solution for GL# " + i + " does not fit the loaded data or current parameters." ); }
+		}
+	}
+
 	/**
 	 * Resets imgTemp to contain the raw data from imgRaw.
 	 */
 	public void resetImgTempToRaw() {
-		setImgTemp( imgRaw.copy() );
+		final Img< FloatType > copy = DataMover.createEmptyArrayImgLike( imgRaw, new FloatType() );
+		DataMover.copy( Views.zeroMin( imgRaw ), Views.iterable( copy ) );
+		setImgTemp( copy );
 	}
 
 	/**
-	 * Resets imgTemp to contain the raw data from imgRaw.
+	 * Resets the annotation overlay to an empty one for the given stack.
+	 */
+	public void resetAnnotationOverlayLike( final RandomAccessibleInterval< FloatType > img ) {
+		annotationOverlay = new ArgbOverlay( img );
+	}
+
+	/**
+	 * Returns the N5 container used to cache data loaded from the given path.
+	 * If the path itself is an N5 container it is used directly, otherwise
+	 * the cache lives next to the data ('moma_cache.n5' inside a folder, or
+	 * '<name>.moma.n5' next to a single file).
+	 */
+	private static File getCacheContainerFor( final String path ) {
+		final File input = new File( path );
+		if ( N5DatasetIO.isN5Container( input ) ) return input;
+		if ( input.isDirectory() ) return new File( input, "moma_cache.n5" );
+		String name = input.getName();
+		if ( name.lastIndexOf( '.' ) > 0 ) {
+			name = name.substring( 0, name.lastIndexOf( '.' ) );
+		}
+		return new File( input.getParentFile(), name + ".moma.n5" );
+	}
+
+	/**
+	 * @return a string identifying the input data and all parameters the
+	 *         preprocessed data (imgTemp) depends on. Cached data is only
+	 *         reused if this string did not change.
+	 */
+	private String getPreprocessingFingerprint() {
+		return String.format(
+				Locale.ROOT,
+				"data=%s|t=%d-%d|c=%d+%d|dims=%dx%dx%d|glDet=%b,%.3f,%.3f|offsets=%d,%d,%d|glWidth=%d|bgrem=%d,%d,%d",
+				inputIdentity,
+				minTime, maxTime, minChannelIdx, numChannels,
+				imgRaw.dimension( 0 ), imgRaw.dimension( 1 ), imgRaw.dimension( 2 ),
+				GL_DETECTION_BY_PROJECTION, SIGMA_GL_DETECTION_X, SIGMA_GL_DETECTION_Y,
+				GL_OFFSET_TOP, GL_OFFSET_BOTTOM, GL_OFFSET_LATERAL,
+				GL_WIDTH_IN_PIXELS,
+				BGREM_TEMPLATE_XMIN, BGREM_TEMPLATE_XMAX, BGREM_X_OFFSET );
+	}
+
+	/**
+	 * One chunk per frame (and channel, since channels live in separate
+	 * datasets).
+	 */
+	private int[] getCacheBlockSize( final RandomAccessibleInterval< ? > img ) {
+		return new int[] { ( int ) img.dimension( 0 ), ( int ) img.dimension( 1 ), 1 };
+	}
+
+	/**
+	 * Writes the loaded raw channels into the cache container (unless they
+	 * are already there or were loaded from there). The duplicated last frame
+	 * (see FloatTypeImgLoader) is not stored.
+	 */
+	private void saveRawToCache( final String path ) {
+		if ( cacheContainer.equals( new File( path ) ) ) return;
+		final String source = String.format( "%s|%s|t=%d-%d", new File( path ).getAbsolutePath(), inputIdentity, minTime, maxTime );
+		try {
+			for ( int i = 0; i < rawChannelImgs.size(); i++ ) {
+				final String dataset = String.format( FloatTypeImgLoader.N5_RAW_DATASET_FORMAT, minChannelIdx + i );
+				if ( source.equals( N5DatasetIO.getAttribute( cacheContainer, dataset, "source" ) ) ) continue;
+
+				final Map< String, String > attributes = new HashMap< String, String >();
+				attributes.put( "source", source );
+				// the first channel is normalized when loaded
+				attributes.put( "normalized", Boolean.toString( i == 0 ) );
+				if ( minTime != -1 ) {
+					attributes.put( "firstTimeIndex", Integer.toString( minTime ) );
+				}
+				FloatTypeImgLoader.writeRawChannelToN5( cacheContainer, minChannelIdx + i, rawChannelImgs.get( i ), attributes );
+			}
+		} catch ( final IOException e ) {
+			System.out.println( "WARNING: could not write raw data to cache at " + cacheContainer.getAbsolutePath() );
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Loads the preprocessed imgTemp from the cache (if caching is enabled
+	 * and the cached data was computed with the current parameters).
+	 *
+	 * @return true if imgTemp was loaded from cache.
 	 */
-	public void resetImgAnnotatedLike( final Img< FloatType > img ) {
-		imgAnnotated = DataMover.createEmptyArrayImgLike( img, new ARGBType() );
+	private boolean loadImgTempFromCache() {
+		if ( !CACHE_PREPROCESSED_DATA || cacheContainer == null ) return false;
+		if ( !getPreprocessingFingerprint().equals( N5DatasetIO.getAttribute( cacheContainer, "preprocessed/imgTemp", "fingerprint" ) ) ) return false;
+		try {
+			setImgTemp( N5DatasetIO.readFloat( cacheContainer, "preprocessed/imgTemp" ) );
+			return true;
+		} catch ( final IOException e ) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	private void saveImgTempToCache() {
+		if ( !CACHE_PREPROCESSED_DATA || cacheContainer == null ) return;
+		final Map< String, String > attributes = new HashMap< String, String >();
+		attributes.put( "fingerprint", getPreprocessingFingerprint() );
+		try {
+			N5DatasetIO.writeFloat( cacheContainer, "preprocessed/imgTemp", imgTemp, getCacheBlockSize( imgTemp ), attributes );
+		} catch ( final IOException e ) {
+			System.out.println( "WARNING: could not write preprocessed data to cache at " + cacheContainer.getAbsolutePath() );
+			e.printStackTrace();
+		}
 	}
 
-	private void normalizePerFrame( final Img< FloatType > img, final int topOffset, final int bottomOffset ) {
+	/**
+	 * Loads cell classification (probability maps) and segmentation from the
+	 * cache (if caching is enabled and the cached data was computed with the
+	 * current parameters and classifier).
+	 *
+	 * @return true if imgClassified was loaded from cache.
+	 */
+	private boolean loadClassificationFromCache() {
+		if ( !CACHE_PREPROCESSED_DATA || cacheContainer == null ) return false;
+		final String fingerprint = getPreprocessingFingerprint() + "|" + CELLSIZE_CLASSIFIER_MODEL_FILE;
+		if ( !fingerprint.equals( N5DatasetIO.getAttribute( cacheContainer, "preprocessed/classified", "fingerprint" ) ) ) return false;
+		try {
+			final Img< FloatType > cached = N5DatasetIO.readFloat( cacheContainer, "preprocessed/classified" );
+			imgClassified = COMPACT_IMAGE_STORAGE ? CompactImgs.asProbabilities( CompactImgs.quantizeProbabilities( cached ) ) : cached;
+			System.out.println( "Cell classification loaded from cache." );
+			return true;
+		} catch ( final IOException e ) {
+			e.printStackTrace();
+			imgClassified = null;
+			return false;
+		}
+	}
+
+	private void saveClassificationToCache() {
+		if ( !CACHE_PREPROCESSED_DATA || cacheContainer == null ) return;
+		final Map< String, String > attributes = new HashMap< String, String >();
+		attributes.put( "fingerprint", getPreprocessingFingerprint() + "|" + CELLSIZE_CLASSIFIER_MODEL_FILE );
+		try {
+			N5DatasetIO.writeFloat( cacheContainer, "preprocessed/classified", getCellClassificationImgs(), getCacheBlockSize( imgClassified ), attributes );
+			N5DatasetIO.writeShort( cacheContainer, "preprocessed/segmented", getCellSegmentedChannelImgs(), getCacheBlockSize( imgClassified ), attributes );
+		} catch ( final IOException e ) {
+			System.out.println( "WARNING: could not write cell classification to cache at " + cacheContainer.getAbsolutePath() );
+			e.printStackTrace();
+		}
+	}
+
+	private void normalizePerFrame( final RandomAccessibleInterval< FloatType > img, final int topOffset, final int bottomOffset ) {
 		for ( int f = 0; f < img.dimension( 2 ); f++ ) {
 			final IntervalView< FloatType > slice = Views.hyperSlice( img, 2, f );
 			final IntervalView< FloatType > roi = Views.interval( slice, new long[] { img.min( 0 ), img.min( 1 ) + topOffset }, new long[] { img.max( 0 ), img.max( 1 ) - bottomOffset } );
@@ -1434,6 +2328,11 @@ public class MoMA {
 	 */
 	private void findGrowthLines() {
 
+		if ( GL_DETECTION_BY_PROJECTION ) {
+			findGrowthLinesByProjection();
+			return;
+		}
+
 		this.setGrowthLines( new ArrayList< GrowthLine >() );
 		this.glCenterPoints = new ArrayList< List< List< Point >>>();
 
@@ -1645,14 +2544,136 @@ public class MoMA {
 
 	}
 
+	/**
+	 * Fast alternative to the 2D growth line detection (see
+	 * <code>GL_DETECTION_BY_PROJECTION</code>). For each frame the rows between
+	 * GL_OFFSET_TOP and GL_OFFSET_BOTTOM are summed up into one horizontal
+	 * intensity profile, which is then smoothed (SIGMA_GL_DETECTION_X) and
+	 * searched for local maxima. Frames are processed in parallel. Each found
+	 * maximum becomes a vertical GL center line in that frame, and the
+	 * GrowthLineFrames are sorted into growth lines by a linear sweep over the
+	 * (sorted) maxima positions.
+	 *
+	 * This function operates on 'imgTemp' (which is not altered) and sets
+	 * 'glCenterPoints' as well as 'growthLines'.
+	 */
+	private void findGrowthLinesByProjection() {
+		final int width = ( int ) imgTemp.dimension( 0 );
+		final int height = ( int ) imgTemp.dimension( 1 );
+		final int numFrames = ( int ) imgTemp.dimension( 2 );
+		final int yMin = Math.max( 0, GL_OFFSET_TOP );
+		final int yMax = Math.max( yMin + 1, Math.min( height, height - GL_OFFSET_BOTTOM ) );
+		final int xMin = Math.max( 0, GL_OFFSET_LATERAL );
+		final int xMax = Math.min( width, width - GL_OFFSET_LATERAL + 1 );
+
+		// ------ PROJECT, SMOOTH, AND FIND MAXIMA (in parallel) ----------
+
+		final int[][] maximaPerFrame = new int[ numFrames ][];
+
+		final ComputeResources.Allocation cores = ComputeResources.acquire( ComputeResources.PREPROCESSING, numFrames );
+		final int numThreads = cores.getThreads();
+		final Thread[] threads = new Thread[ numThreads ];
+
+		class ImageProcessingThread extends Thread {
+
+			final int numThread;
+			final int numThreads;
+
+			public ImageProcessingThread( final int numThread, final int numThreads ) {
+				this.numThread = numThread;
+				this.numThreads = numThreads;
+			}
+
+			@Override
+			public void run() {
+				final float[] profile = new float[ width ];
+				for ( int frameIdx = numThread; frameIdx < numFrames; frameIdx += numThreads ) {
+					Arrays.fill( profile, 0f );
+					final IntervalView< FloatType > rows = Views.interval(
+							Views.hyperSlice( imgTemp, 2, frameIdx ),
+							new long[] { 0, yMin },
+							new long[] { width - 1, yMax - 1 } );
+					final Cursor< FloatType > cursor = Views.flatIterable( rows ).cursor();
+					int x = 0;
+					while ( cursor.hasNext() ) {
+						profile[ x ] += cursor.next().get();
+						x++;
+						if ( x == width ) x = 0;
+					}
+					final float[] smoothed = SimpleFunctionAnalysis.gaussianSmooth( profile, SIGMA_GL_DETECTION_X );
+					maximaPerFrame[ frameIdx ] = SimpleFunctionAnalysis.getLocalMaxima( smoothed, xMin, xMax );
+				}
+			}
+		}
+
+		// start threads
+		for ( int i = 0; i < numThreads; i++ ) {
+			threads[ i ] = new ImageProcessingThread( i, numThreads );
+			threads[ i ].start();
+		}
+
+		// wait for all threads to terminate
+		for ( final Thread thread : threads ) {
+			try {
+				thread.join();
+			} catch ( final InterruptedException e ) {}
+		}
+		cores.release();
+
+		// ------ BUILD GrowthLineFrames ----------------------------------
+
+		this.glCenterPoints = new ArrayList< List< List< Point >>>( numFrames );
+		final List< List< GrowthLineFrame >> collectionOfFrames = new ArrayList< List< GrowthLineFrame >>( numFrames );
+		int maxGLsPerFrame = 0;
+		int maxGLsPerFrameIdx = 0;
+		for ( int frameIdx = 0; frameIdx < numFrames; frameIdx++ ) {
+			final int[] maxima = maximaPerFrame[ frameIdx ];
+			if ( maxGLsPerFrame < maxima.length ) {
+				maxGLsPerFrame = maxima.length;
+				maxGLsPerFrameIdx = frameIdx;
+			}
+
+			final List< List< Point > > frameWellCenters = new ArrayList< List< Point > >( height );
+			for ( int y = 0; y < height; y++ ) {
+				frameWellCenters.add( new ArrayList< Point >( maxima.length ) );
+			}
+			final List< GrowthLineFrame > glFrames = new ArrayList< GrowthLineFrame >( maxima.length );
+			for ( final int x : maxima ) {
+				final GrowthLineFrame glf = new GrowthLineFrame();
+				for ( int y = yMin; y < yMax; y++ ) {
+					final Point p = new Point( x, y, frameIdx );
+					glf.addPoint( p );
+					frameWellCenters.get( y ).add( p );
+				}
+				glFrames.add( glf );
+			}
+			this.glCenterPoints.add( frameWellCenters );
+			collectionOfFrames.add( glFrames );
+		}
+
+		// ------ SORT GrowthLineFrames FROM collectionOfFrames INTO this.growthLines -------------
+
+		final int[] reference = maximaPerFrame[ maxGLsPerFrameIdx ];
+		this.setGrowthLines( new ArrayList< GrowthLine >( maxGLsPerFrame ) );
+		for ( int i = 0; i < maxGLsPerFrame; i++ ) {
+			getGrowthLines().add( new GrowthLine() );
+		}
+		for ( int j = 0; j < numFrames; j++ ) {
+			final int offset = SimpleFunctionAnalysis.getBestAlignmentOffset( reference, maximaPerFrame[ j ] );
+			for ( int i = 0; i < collectionOfFrames.get( j ).size(); i++ ) {
+				getGrowthLines().get( offset + i ).add( collectionOfFrames.get( j ).get( i ) );
+			}
+		}
+	}
+
 	/**
 	 * Draws the detected well centers, <code>detectedWellCenters</code>, into
-	 * the annotation layer, <code>imgAnnotated</code>.
+	 * the annotation layer, <code>annotationOverlay</code>.
 	 */
 	private void annotateDetectedWellCenters() {
 		for ( final GrowthLine gl : this.getGrowthLines() ) {
 			for ( final GrowthLineFrame glf : gl.getFrames() ) {
-				glf.drawCenterLine( imgAnnotated );
+				glf.drawCenterLine( annotationOverlay );
 			}
 		}
 	}
@@ -1664,6 +2685,12 @@ public class MoMA {
 	 */
 	public void generateAllSimpleSegmentationHypotheses() {
 
+		final File hypothesisCacheFile = getHypothesisCacheFile();
+		long hypothesisCacheKey = 0;
+		if ( hypothesisCacheFile != null ) {
+			hypothesisCacheKey = HypothesisCache.computeKey( getGrowthLines(), getSegmentationFingerprint() );
+		}
+
 		// ------ GAUSS -----------------------------
 
 		if ( SIGMA_PRE_SEGMENTATION_X + SIGMA_PRE_SEGMENTATION_Y > 0.000001 ) {
@@ -1681,6 +2708,11 @@ public class MoMA {
 
 		// ------ DETECTION --------------------------
 
+		if ( hypothesisCacheFile != null && HypothesisCache.load( hypothesisCacheFile, hypothesisCacheKey, getGrowthLines() ) ) {
+			System.out.print( " ...loaded from cache... " );
+			return;
+		}
+
 		System.out.println( "" );
 		int i = 0;
 		for ( final GrowthLine gl : getGrowthLines() ) {
@@ -1692,6 +2724,41 @@ public class MoMA {
 			}
 			System.out.println( " ...done!" );
 		}
+
+		if ( hypothesisCacheFile != null ) {
+			try {
+				HypothesisCache.save( hypothesisCacheFile, hypothesisCacheKey, getGrowthLines() );
+			} catch ( final IOException e ) {
+				System.out.println( "WARNING: could not write hypothesis cache " + hypothesisCacheFile.getAbsolutePath() );
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * @return the file the segmentation hypotheses are cached in, or null if
+	 *         caching is turned off. Headless runs that do not cache keep them
+	 *         with their checkpoint.
+	 */
+	private File getHypothesisCacheFile() {
+		if ( !CACHE_PREPROCESSED_DATA || cacheContainer == null ) {
+			if ( checkpoint != null ) return new File( checkpoint.getFolder(), "hypotheses.bin" );
+			return null;
+		}
+		return new File( cacheContainer, "hypotheses.bin" );
+	}
+
+	/**
+	 * All parameters that influence the gap separation values and the
+	 * component trees built on them.
+	 */
+	private String getSegmentationFingerprint() {
+		return String.format(
+				"%s|sigmaPreSeg=%.3f,%.3f|minCellLength=%d|minGapContrast=%.4f|motherTrick=%d|padding=%d",
+				getPreprocessingFingerprint(),
+				SIGMA_PRE_SEGMENTATION_X, SIGMA_PRE_SEGMENTATION_Y,
+				MIN_CELL_LENGTH, MIN_GAP_CONTRAST,
+				MOTHER_CELL_BOTTOM_TRICK_MAX_PIXELS, GL_PIXEL_PADDING_IN_VIEWS );
 	}
 
 	/**
@@ -1699,7 +2766,16 @@ public class MoMA {
 	 * optimization-related structures used to compute the optimal tracking.
 	 */
 	private void generateILPs() {
-		for ( final GrowthLine gl : getGrowthLines() ) {
+		for ( int i = 0; i < getGrowthLines().size(); i++ ) {
+			final GrowthLine gl = getGrowthLines().get( i );
+			if ( restoreSolution( gl, i ) ) continue;
+			if ( useRollingHorizon( gl ) ) continue; // windows are built in runILPs
+			if ( BENCHMARK_CONSTRAINT_GENERATION ) {
+				ConstraintCompiler.benchmark( gl );
+			}
+			if ( BENCHMARK_CANDIDATE_STRATEGIES ) {
+				CandidateSelector.benchmark( gl );
+			}
 			gl.generateILP( null );
 		}
 	}
@@ -1708,11 +2784,162 @@ public class MoMA {
 	 * Runs all the generated ILPs.
 	 */
 	private void runILPs() {
-		int i = 0;
-		for ( final GrowthLine gl : getGrowthLines() ) {
-			System.out.println( " > > > > > Starting LP for GL# " + i + " < < < < < " );
-			gl.runILP();
-			i++;
+		final List< GrowthLine > gls = getGrowthLines();
+		final boolean validating = PRESOLVE_HYPOTHESES && VALIDATE_PRESOLVE;
+		final int numThreads = ( HEADLESS && !validating ) ? Math.max( 1, Math.min( MAX_CONCURRENT_SOLVES, gls.size() ) ) : 1;
+		if ( HEADLESS && validating && MAX_CONCURRENT_SOLVES > 1 ) {
+			System.out.println( "WARNING: VALIDATE_PRESOLVE is on, growth lines are solved one after the other." );
+		}
+		ComputeResources.announceSolves( gls.size() - restoredGLs.size(), numThreads );
+
+		if ( numThreads == 1 ) {
+			for ( int i = 0; i < gls.size(); i++ ) {
+				runILP( gls.get( i ), i );
+			}
+		} else {
+			final AtomicInteger nextGL = new AtomicInteger( 0 );
+			final Thread[] threads = new Thread[ numThreads ];
+			for ( int i = 0; i < numThreads; i++ ) {
+				threads[ i ] = new Thread() {
+
+					@Override
+					public void run() {
+						for ( int glIdx = nextGL.getAndIncrement(); glIdx < gls.size(); glIdx = nextGL.getAndIncrement() ) {
+							runILP( gls.get( glIdx ), glIdx );
+						}
+					}
+				};
+				threads[ i ].start();
+			}
+			for ( final Thread thread : threads ) {
+				try {
+					thread.join();
+				} catch ( final InterruptedException e ) {
+					e.printStackTrace();
+				}
+			}
+		}
+		System.out.println( String.format( "Core budget: %d, peak number of threads in use: %d", ComputeResources.getBudget(), ComputeResources.getPeakInUse() ) );
+	}
+
+	/**
+	 * Solves (and in headless mode saves) the ILP of one GL.
+	 */
+	private void runILP( final GrowthLine gl, final int glIdx ) {
+		if ( restoredGLs.contains( glIdx ) ) {
+			System.out.println( " > > > > > Solution of GL# " + glIdx + " restored from checkpoint < < < < < " );
+			return;
+		}
+		System.out.println( " > > > > > Starting LP for GL# " + glIdx + " < < < < < " );
+		try {
+			if ( useRollingHorizon( gl ) ) {
+				runRollingHorizon( gl, glIdx );
+			} else {
+				if ( SAVE_TRACKING_MODELS ) {
+					saveTrackingModel( gl, glIdx );
+				}
+				gl.runILP();
+				if ( PRESOLVE_HYPOTHESES && VALIDATE_PRESOLVE ) {
+					gl.getIlp().validatePresolve();
+				}
+			}
+		} finally {
+			ComputeResources.solveFinished();
+		}
+		if ( HEADLESS && gl.getIlp() != null ) {
+			if ( saveSolution( gl, glIdx ) && checkpoint != null ) {
+				checkpoint.markDone( glIdx, RunCheckpoint.SOLVED );
+			}
+			if ( SAVE_SOLVER_TRAJECTORIES ) {
+				saveTrajectory( gl, glIdx );
+			}
+		}
+	}
+
+	/**
+	 * Writes incumbent and bound over time (and the node log, if any) of the
+	 * latest solve of the given GL next to its solution.
+	 */
+	private void saveTrajectory( final GrowthLine gl, final int glIdx ) {
+		final SolverTrajectory trajectory = gl.getIlp().getTrajectory();
+		if ( trajectory.isEmpty() ) return; // e.g. rolling horizon
+		try {
+			trajectory.save( new File( getSolutionFolder(), String.format( "GL%03d_trajectory.csv", glIdx ) ), gl.getIlp().getTerminationReason() );
+			if ( !trajectory.getNodeLog().isEmpty() ) {
+				trajectory.saveNodeLog( new File( getSolutionFolder(), String.format( "GL%03d_nodes.csv", glIdx ) ) );
+			}
+		} catch ( final IOException e ) {
+			System.out.println( "WARNING: could not write solver trajectory of GL# " + glIdx );
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes the (not yet solved) ILP of the given GL into the 'models'
+	 * folder, e.g. for the SolverTuner.
+	 */
+	private void saveTrackingModel( final GrowthLine gl, final int glIdx ) {
+		final File folder = new File( STATS_OUTPUT_PATH, "models" );
+		if ( !folder.exists() && !folder.mkdirs() ) {
+			System.out.println( "WARNING: could not create model folder " + folder.getAbsolutePath() );
+			return;
+		}
+		try {
+			gl.getIlp().writeDebugModel( new File( folder, String.format( "GL%03d.mps", glIdx ) ) );
+		} catch ( final GRBException e ) {
+			System.out.println( "WARNING: could not write ILP of GL# " + glIdx );
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Makes ROLLING_HORIZON_WINDOW and ROLLING_HORIZON_COMMIT consistent with
+	 * each other and reports every adjustment.
+	 */
+	private static void checkRollingHorizonParams() {
+		if ( ROLLING_HORIZON_WINDOW <= 0 ) return;
+		if ( ROLLING_HORIZON_WINDOW < 2 ) {
+			System.out.println( String.format( "WARNING: ROLLING_HORIZON_WINDOW=%d is too short, rolling horizon tracking is switched off.", ROLLING_HORIZON_WINDOW ) );
+			ROLLING_HORIZON_WINDOW = 0;
+			return;
+		}
+		final int commit = RollingHorizonTracker.getValidCommitLength( ROLLING_HORIZON_WINDOW, ROLLING_HORIZON_COMMIT );
+		if ( commit != ROLLING_HORIZON_COMMIT ) {
+			System.out.println( String.format( "WARNING: ROLLING_HORIZON_COMMIT=%d does not fit ROLLING_HORIZON_WINDOW=%d, using %d instead.", ROLLING_HORIZON_COMMIT, ROLLING_HORIZON_WINDOW, commit ) );
+			ROLLING_HORIZON_COMMIT = commit;
+		}
+	}
+
+	/**
+	 * @return true if the given GL is to be tracked window by window.
+	 */
+	private boolean useRollingHorizon( final GrowthLine gl ) {
+		return HEADLESS && ROLLING_HORIZON_WINDOW > 0 && gl.size() > ROLLING_HORIZON_WINDOW;
+	}
+
+	/**
+	 * Tracks the given GL window by window and stores the disagreements found
+	 * between overlapping windows next to the solutions.
+	 */
+	private void runRollingHorizon( final GrowthLine gl, final int glIdx ) {
+		final RollingHorizonTracker tracker;
+		try {
+			tracker = new RollingHorizonTracker( gl, ROLLING_HORIZON_WINDOW, ROLLING_HORIZON_COMMIT );
+		} catch ( final IllegalArgumentException e ) {
+			System.out.println( "ERROR: GL# " + glIdx + " cannot be tracked window by window: " + e.getMessage() );
+			return;
+		}
+		if ( !tracker.run( getSegmentationFingerprint() ) ) {
+			System.out.println( "ERROR: rolling horizon solution of GL# " + glIdx + " could not be assembled." );
+			return;
+		}
+		final File folder = getSolutionFolder();
+		if ( !folder.exists() && !folder.mkdirs() ) return;
+		try {
+			tracker.saveDisagreements( new File( folder, String.format( "GL%03d_overlap.csv", glIdx ) ) );
+		} catch ( final IOException e ) {
+			System.out.println( "WARNING: could not write overlap report of GL# " + glIdx );
+			e.printStackTrace();
 		}
 	}
 
@@ -1809,16 +3036,22 @@ public class MoMA {
 //		annotateDetectedWellCenters();
 		System.out.println( " done!" );
 
-		// subtracting BG in RAW image...
-		System.out.print( "Subtracting background..." );
-		// ...and make temp image be the same
-		resetImgTempToRaw();
-		subtractBackgroundInTemp();
-		System.out.println( " done!" );
+		if ( loadImgTempFromCache() ) {
+			System.out.println( "Preprocessed images loaded from cache (background subtraction and normalization skipped)." );
+		} else {
+			// subtracting BG in RAW image...
+			System.out.print( "Subtracting background..." );
+			// ...and make temp image be the same
+			resetImgTempToRaw();
+			subtractBackgroundInTemp();
+			System.out.println( " done!" );
 
-		System.out.print( "Normalize loaded images..." );
-		normalizePerFrame( imgTemp, MoMA.GL_OFFSET_TOP, MoMA.GL_OFFSET_BOTTOM );
-		System.out.println( " done!" );
+			System.out.print( "Normalize loaded images..." );
+			normalizePerFrame( imgTemp, MoMA.GL_OFFSET_TOP, MoMA.GL_OFFSET_BOTTOM );
+			System.out.println( " done!" );
+
+			saveImgTempToCache();
+		}
 
 		System.out.print( "Generating Segmentation Hypotheses..." );
 		generateAllSimpleSegmentationHypotheses();
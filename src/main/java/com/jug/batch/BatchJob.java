@@ -0,0 +1,108 @@
+/**
+ *
+ */
+package com.jug.batch;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * One dataset to be processed by a batch run, as given by one line of a
+ * batch manifest:
+ *
+ * <pre>
+ * in-folder [key=value ...]
+ * </pre>
+ *
+ * Fields are separated by tabs, or by whitespace if the line contains no tab.
+ * The keys 'o', 'c', 'cmin', 'tmin', 'tmax' and 'orange' have the meaning of
+ * the command line options of the same name; all other keys override
+ * mm.properties parameters for this dataset only.
+ *
+ * @author jug
+ */
+public class BatchJob {
+
+	private final String key;
+	private final File inputFolder;
+	private final Properties options = new Properties();
+	private final Properties overrides = new Properties();
+
+	/**
+	 * @param line
+	 *            a (non-empty, non-comment) manifest line.
+	 * @throws IllegalArgumentException
+	 *             if a field after the input folder is not of the form
+	 *             key=value.
+	 */
+	public BatchJob( final String line ) {
+		this.key = line.trim();
+		final String[] fields = key.contains( "\t" ) ? key.split( "\t+" ) : key.split( "\\s+" );
+		inputFolder = new File( fields[ 0 ].trim() );
+		for ( int i = 1; i < fields.length; i++ ) {
+			final String field = fields[ i ].trim();
+			final int eq = field.indexOf( '=' );
+			if ( eq <= 0 ) { throw new IllegalArgumentException( "Manifest field '" + field + "' is not of the form key=value (line: " + key + ")" ); }
+			final String name = field.substring( 0, eq ).trim();
+			final String value = field.substring( eq + 1 ).trim();
+			if ( isOption( name ) ) {
+				options.setProperty( name, value );
+			} else {
+				overrides.setProperty( name, value );
+			}
+		}
+	}
+
+	private static boolean isOption( final String name ) {
+		return name.equals( "o" ) || name.equals( "c" ) || name.equals( "cmin" ) || name.equals( "tmin" ) || name.equals( "tmax" ) || name.equals( "orange" );
+	}
+
+	/**
+	 * @return the manifest line this job was read from. It identifies the job
+	 *         in the journal of a <code>BatchJobQueue</code>.
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	public File getInputFolder() {
+		return inputFolder;
+	}
+
+	/**
+	 * @return true if an output folder was given by the 'o' option.
+	 */
+	public boolean hasOutputFolder() {
+		return options.getProperty( "o" ) != null;
+	}
+
+	/**
+	 * @return the output folder given by the 'o' option, or the input folder
+	 *         if none was given.
+	 */
+	public File getOutputFolder() {
+		final String out = options.getProperty( "o" );
+		return ( out == null ) ? inputFolder : new File( out );
+	}
+
+	/**
+	 * @return the value of a command line option ('c', 'cmin', 'tmin',
+	 *         'tmax', 'orange') given for this job, or the given default.
+	 */
+	public int getIntOption( final String name, final int defaultValue ) {
+		final String value = options.getProperty( name );
+		return ( value == null ) ? defaultValue : Integer.parseInt( value );
+	}
+
+	/**
+	 * @return the mm.properties parameters to be overridden for this job.
+	 */
+	public Properties getOverrides() {
+		return overrides;
+	}
+
+	@Override
+	public String toString() {
+		return key;
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ *
+ */
+package com.jug.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The jobs of a batch manifest together with a journal that records which of
+ * them were started, finished, or failed.
+ *
+ * The journal ('&lt;manifest&gt;.journal' by default) is only ever appended
+ * to, one line per event, and synced to disk before the queue moves on. A
+ * batch run that crashed or was killed can therefore simply be started
+ * again: jobs that are done are skipped, jobs that failed or were running
+ * when the crash happened are retried until they used up their attempts (so
+ * a dataset that takes down the JVM does not block the queue forever).
+ *
+ * While a queue is open it holds a lock on '&lt;journal&gt;.lock', such that
+ * two batch runs cannot work on the same journal.
+ *
+ * @author jug
+ */
+public class BatchJobQueue {
+
+	public static final String STARTED = "STARTED";
+	public static final String DONE = "DONE";
+	public static final String FAILED = "FAILED";
+
+	private final List< BatchJob > jobs = new ArrayList< BatchJob >();
+	private final File journal;
+	private final int maxAttempts;
+
+	private final Map< String, String > lastState = new HashMap< String, String >();
+	private final Map< String, Integer > attempts = new HashMap< String, Integer >();
+
+	private RandomAccessFile lockFile;
+	private FileLock lock;
+
+	/**
+	 * @param manifest
+	 *            file listing one job per line (see <code>BatchJob</code>);
+	 *            empty lines and lines starting with '#' are ignored.
+	 * @param journal
+	 *            the journal to append to (and to resume from, if it
+	 *            exists).
+	 * @param maxAttempts
+	 *            how often a job is started before it is given up.
+	 * @throws IOException
+	 *             if manifest or journal cannot be read, or another batch run
+	 *             holds the journal.
+	 */
+	public BatchJobQueue( final File manifest, final File journal, final int maxAttempts ) throws IOException {
+		this.journal = journal;
+		this.maxAttempts = Math.max( 1, maxAttempts );
+
+		final BufferedReader reader = new BufferedReader( new FileReader( manifest ) );
+		try {
+			for ( String line = reader.readLine(); line != null; line = reader.readLine() ) {
+				if ( line.trim().isEmpty() || line.trim().startsWith( "#" ) ) continue;
+				jobs.add( new BatchJob( line ) );
+			}
+		} finally {
+			reader.close();
+		}
+
+		lockFile = new RandomAccessFile( new File( journal.getPath() + ".lock" ), "rw" );
+		try {
+			lock = lockFile.getChannel().tryLock();
+		} catch ( final OverlappingFileLockException e ) {
+			lock = null; // held by this JVM already
+		}
+		if ( lock == null ) {
+			lockFile.close();
+			throw new IOException( "Journal " + journal.getAbsolutePath() + " is used by another batch run." );
+		}
+
+		if ( journal.exists() ) {
+			replayJournal();
+		}
+	}
+
+	/**
+	 * @return the journal file next to the given manifest.
+	 */
+	public static File getDefaultJournalFor( final File manifest ) {
+		return new File( manifest.getPath() + ".journal" );
+	}
+
+	private void replayJournal() throws IOException {
+		final BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( journal ), "UTF-8" ) );
+		try {
+			for ( String line = reader.readLine(); line != null; line = reader.readLine() ) {
+				// STATE <tab> timestamp <tab> message <tab> key -- the key is
+				// last since it might contain tabs itself
+				final String[] fields = line.split( "\t", 4 );
+				if ( fields.length < 4 ) continue; // e.g. a line cut short by a crash
+				final String state = fields[ 0 ];
+				final String key = fields[ 3 ];
+				if ( !state.equals( STARTED ) && !state.equals( DONE ) && !state.equals( FAILED ) ) continue;
+				lastState.put( key, state );
+				if ( state.equals( STARTED ) ) {
+					attempts.put( key, getAttempts( key ) + 1 );
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		// terminate a line cut short by a crash, such that it does not swallow
+		// the next event
+		final RandomAccessFile raf = new RandomAccessFile( journal, "rw" );
+		try {
+			if ( raf.length() > 0 ) {
+				raf.seek( raf.length() - 1 );
+				if ( raf.read() != '\n' ) {
+					raf.write( '\n' );
+				}
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * @return all jobs of the manifest, in manifest order.
+	 */
+	public List< BatchJob > getJobs() {
+		return jobs;
+	}
+
+	/**
+	 * @return the jobs that still need to be (re-)run, in manifest order.
+	 */
+	public synchronized List< BatchJob > getPendingJobs() {
+		final List< BatchJob > ret = new ArrayList< BatchJob >();
+		for ( final BatchJob job : jobs ) {
+			if ( isPending( job ) ) {
+				ret.add( job );
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return true if the given job is neither done nor out of attempts.
+	 */
+	public synchronized boolean isPending( final BatchJob job ) {
+		return !DONE.equals( lastState.get( job.getKey() ) ) && getAttempts( job.getKey() ) < maxAttempts;
+	}
+
+	/**
+	 * @return the state last recorded for the given job (null if it was never
+	 *         started).
+	 */
+	public synchronized String getState( final BatchJob job ) {
+		return lastState.get( job.getKey() );
+	}
+
+	/**
+	 * @return how often the given job was started so far.
+	 */
+	public synchronized int getAttempts( final BatchJob job ) {
+		return getAttempts( job.getKey() );
+	}
+
+	private int getAttempts( final String key ) {
+		final Integer n = attempts.get( key );
+		return ( n == null ) ? 0 : n.intValue();
+	}
+
+	public void markStarted( final BatchJob job ) throws IOException {
+		record( job, STARTED, "" );
+	}
+
+	public void markDone( final BatchJob job ) throws IOException {
+		record( job, DONE, "" );
+	}
+
+	public void markFailed( final BatchJob job, final Throwable cause ) throws IOException {
+		record( job, FAILED, ( cause == null ) ? "" : String.valueOf( cause ) );
+	}
+
+	/**
+	 * Appends one event to the journal and waits until it is on disk.
+	 */
+	private synchronized void record( final BatchJob job, final String state, final String message ) throws IOException {
+		final String line = String.format( "%s\t%d\t%s\t%s\n", state, System.currentTimeMillis(), message.replaceAll( "[\t\r\n]+", " " ), job.getKey() );
+		final FileOutputStream out = new FileOutputStream( journal, true );
+		try {
+			out.write( line.getBytes( "UTF-8" ) );
+			out.flush();
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		lastState.put( job.getKey(), state );
+		if ( state.equals( STARTED ) ) {
+			attempts.put( job.getKey(), getAttempts( job.getKey() ) + 1 );
+		}
+	}
+
+	/**
+	 * Releases the lock on the journal.
+	 */
+	public void close() throws IOException {
+		if ( lock != null ) {
+			lock.release();
+			lock = null;
+		}
+		if ( lockFile != null ) {
+			lockFile.close();
+			lockFile = null;
+		}
+	}
+}
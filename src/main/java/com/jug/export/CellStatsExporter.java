@@ -11,13 +11,13 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Vector;
 
 import javax.swing.JOptionPane;
 
+import com.jug.GrowthLine;
 import com.jug.GrowthLineFrame;
 import com.jug.MoMA;
 import com.jug.gui.DialogCellStatsExportSetup;
@@ -25,15 +25,14 @@ import com.jug.gui.MoMAGui;
 import com.jug.gui.OsDependentFileChooser;
 import com.jug.gui.progress.DialogProgress;
 import com.jug.lp.AbstractAssignment;
-import com.jug.lp.DivisionAssignment;
 import com.jug.lp.GrowthLineTrackingILP;
 import com.jug.lp.Hypothesis;
+import com.jug.lp.LineageIndex;
 import com.jug.lp.MappingAssignment;
 import com.jug.util.ComponentTreeUtils;
 import com.jug.util.Util;
 import com.jug.util.filteredcomponents.FilteredComponent;
 
-import gurobi.GRBException;
 import net.imglib2.IterableInterval;
 import net.imglib2.Point;
 import net.imglib2.algorithm.componenttree.Component;
@@ -135,35 +134,43 @@ public class CellStatsExporter {
 		/**
 		 * @return
 		 */
-		public SegmentRecord nextSegmentInTime( final GrowthLineTrackingILP ilp ) {
+		public SegmentRecord nextSegmentInTime( final LineageIndex lineage ) {
 			SegmentRecord ret = this;
 
 			exists = true;
-			try {
-				final AbstractAssignment< Hypothesis< Component< FloatType, ? >>> rightAssmt = ilp.getOptimalRightAssignment( this.hyp );
-				if ( rightAssmt == null ) {
-					exists = false;
-					terminated_by = SegmentRecord.ENDOFTRACKING;
-				} else if ( rightAssmt.getType() == GrowthLineTrackingILP.ASSIGNMENT_MAPPING ) {
-					final MappingAssignment ma = ( MappingAssignment ) rightAssmt;
-					if ( !ma.isPruned() ) {
-						ret = new SegmentRecord( this, 1 );
-						ret.hyp = ma.getDestinationHypothesis();
-					} else {
-						terminated_by = SegmentRecord.USER_PRUNING;
-						exists = false;
-					}
+			final int segment = lineage.getSegment( this.hyp );
+			final AbstractAssignment< Hypothesis< Component< FloatType, ? >>> rightAssmt = ( segment == LineageIndex.NONE ) ? null : lineage.getRightAssignment( segment );
+			if ( rightAssmt == null ) {
+				exists = false;
+				terminated_by = SegmentRecord.ENDOFTRACKING;
+			} else if ( rightAssmt.getType() == GrowthLineTrackingILP.ASSIGNMENT_MAPPING ) {
+				final MappingAssignment ma = ( MappingAssignment ) rightAssmt;
+				if ( !ma.isPruned() ) {
+					ret = new SegmentRecord( this, 1 );
+					ret.hyp = ma.getDestinationHypothesis();
 				} else {
-					terminated_by = rightAssmt.getType();
+					terminated_by = SegmentRecord.USER_PRUNING;
 					exists = false;
 				}
-			} catch ( final GRBException ge ) {
+			} else {
+				terminated_by = rightAssmt.getType();
 				exists = false;
-				System.err.println( ge.getMessage() );
 			}
 			return ret;
 		}
 
+		/**
+		 * @return how the track ended, named as in the cell-stats CSV (only
+		 *         meaningful once <code>exists()</code> returned false).
+		 */
+		public String getTerminationName() {
+			if ( terminated_by == GrowthLineTrackingILP.ASSIGNMENT_EXIT ) return "EXIT";
+			if ( terminated_by == GrowthLineTrackingILP.ASSIGNMENT_DIVISION ) return "DIVISION";
+			if ( terminated_by == SegmentRecord.USER_PRUNING ) return "USER_PRUNING";
+			if ( terminated_by == SegmentRecord.ENDOFTRACKING ) return "ENDOFDATA";
+			return "GUROBI_EXCEPTION";
+		}
+
 		/**
 		 * @return true if the current segment is valid.
 		 */
@@ -265,6 +272,11 @@ public class CellStatsExporter {
 
 	// //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+	/**
+	 * Rows per row group of the columnar export.
+	 */
+	private static final int COLUMNAR_ROW_GROUP_SIZE = 4096;
+
 	private final MoMAGui gui;
 	private boolean doTrackExport = false;
 	private boolean doExportUserInputs = true;
@@ -320,10 +332,9 @@ public class CellStatsExporter {
 									MoMA.getDefaultFilenameDecoration() ) );
 					MoMA.getGui().model.getCurrentGL().getIlp().saveState( file );
 				}
-				try {
-					exportCellStats( new File( folderToUse, "ExportedCellStats_" + MoMA.getDefaultFilenameDecoration() + ".csv" ) );
-				} catch ( final GRBException e ) {
-					e.printStackTrace();
+				exportCellStats( new File( folderToUse, "ExportedCellStats_" + MoMA.getDefaultFilenameDecoration() + ".csv" ) );
+				if ( MoMA.EXPORT_COLUMNAR ) {
+					exportCellStatsColumnar( new File( folderToUse, "ExportedCellStats_" + MoMA.getDefaultFilenameDecoration() + ".mmcol" ) );
 				}
 			}
 		} else {
@@ -342,19 +353,17 @@ public class CellStatsExporter {
 				MoMA.getGui().model.getCurrentGL().getIlp().saveState( file );
 			}
 
-			try {
-				exportCellStats( new File( MoMA.STATS_OUTPUT_PATH, "ExportedCellStats_" + MoMA.getDefaultFilenameDecoration() + ".csv" ) );
-			} catch ( final GRBException e ) {
-				e.printStackTrace();
+			exportCellStats( new File( MoMA.STATS_OUTPUT_PATH, "ExportedCellStats_" + MoMA.getDefaultFilenameDecoration() + ".csv" ) );
+			if ( MoMA.EXPORT_COLUMNAR ) {
+				exportCellStatsColumnar( new File( MoMA.STATS_OUTPUT_PATH, "ExportedCellStats_" + MoMA.getDefaultFilenameDecoration() + ".mmcol" ) );
 			}
 		}
 	}
 
 	/**
 	 * @param file
-	 * @throws GRBException
 	 */
-	public void exportCellStats( final File file ) throws GRBException {
+	public void exportCellStats( final File file ) {
 
 		// ------- THE MAGIC *** THE MAGIC *** THE MAGIC *** THE MAGIG -------
 		final Vector< String > linesToExport = getCellStatsExportData();
@@ -380,87 +389,165 @@ public class CellStatsExporter {
 		System.out.println( "...done!" );
 	}
 
-	private Vector< String > getCellStatsExportData() throws GRBException {
-		// use US-style number formats! (e.g. '.' as decimal point)
-		Locale.setDefault( new Locale( "en", "US" ) );
-
-		final String loadedDataFolder = MoMA.props.getProperty( "import_path", "BUG -- could not get property 'import_path' while exporting cell statistics..." );
-		final int numCurrGL = gui.sliderGL.getValue();
-		final Vector< String > linesToExport = new Vector< String >();
-
-		final GrowthLineFrame firstGLF = gui.model.getCurrentGL().getFrames().get( 0 );
-		final GrowthLineTrackingILP ilp = firstGLF.getParent().getIlp();
-		final Vector< ValuePair< Integer, Hypothesis< Component< FloatType, ? > > > > segmentsInFirstFrameSorted =
-				firstGLF.getSortedActiveHypsAndPos();
-		final List< SegmentRecord > startingPoints = new ArrayList< SegmentRecord >();
-
-		int nextCellId = 0;
-		final LinkedList< SegmentRecord > queue = new LinkedList< SegmentRecord >();
-
-		int cellNum = 0;
-		for ( final ValuePair< Integer, Hypothesis< Component< FloatType, ? > > > valuePair : segmentsInFirstFrameSorted ) {
-
-			cellNum++;
-			final SegmentRecord point =
-					new SegmentRecord( valuePair.b, nextCellId++, -1, -1, cellNum );
-			startingPoints.add( point );
-
-			final SegmentRecord prepPoint = new SegmentRecord( point, 1 );
-			prepPoint.hyp = point.hyp;
+	/**
+	 * Exports the cell statistics of all GLs that have an ILP as a columnar
+	 * table (see <code>ColumnarTableWriter</code>), one row per cell and
+	 * frame. Columns hold what <code>exportCellStats</code> writes as text;
+	 * list columns are only added if the corresponding output is switched on.
+	 * Rows are written while the lineages are traversed, one row group at a
+	 * time, so memory use does not grow with the number of cells.
+	 *
+	 * @param file
+	 */
+	public void exportCellStatsColumnar( final File file ) {
+		System.out.println( "Exporting cell-statistics of all GLs as columnar table..." );
+		final int numChannels = MoMA.instance.getRawChannelImgs().size();
+		final long h = MoMA.instance.getImgRaw().dimension( 1 );
 
-			if ( !prepPoint.hyp.isPruned() ) {
-				queue.add( prepPoint );
+		ColumnarTableWriter out = null;
+		try {
+			out = new ColumnarTableWriter( file, COLUMNAR_ROW_GROUP_SIZE );
+			out.putMetadata( "import_path", MoMA.props.getProperty( "import_path", "" ) );
+			out.putMetadata( "numChannels", "" + numChannels );
+			out.putMetadata( "imageHeight", "" + h );
+			out.putMetadata( "glHeight", "" + ( h - MoMA.GL_OFFSET_BOTTOM - MoMA.GL_OFFSET_TOP ) );
+			out.putMetadata( "trackRegionInterval", String.format( "[%d,%d]", MoMA.GL_OFFSET_TOP, h - 1 - MoMA.GL_OFFSET_BOTTOM ) );
+
+			final int colGL = out.addColumn( "gl", ColumnarTableWriter.INT32 );
+			final int colFrame = out.addColumn( "frame", ColumnarTableWriter.INT32 );
+			final int colId = out.addColumn( "cell_id", ColumnarTableWriter.INT32 );
+			final int colPid = out.addColumn( "parent_id", ColumnarTableWriter.INT32 );
+			final int colBirth = out.addColumn( "birth_frame", ColumnarTableWriter.INT32 );
+			final int colDaughterType = out.addColumn( "daughter_type", ColumnarTableWriter.INT32 );
+			final int colGenealogy = out.addColumn( "genealogy", ColumnarTableWriter.STRING );
+			final int colEnd = out.addColumn( "terminated_by", ColumnarTableWriter.STRING );
+			final int colPos = out.addColumn( "pos_in_gl", ColumnarTableWriter.INT32 );
+			final int colNumCells = out.addColumn( "num_cells_in_gl", ColumnarTableWriter.INT32 );
+			final int colTop = out.addColumn( "pixel_limit_top", ColumnarTableWriter.INT32 );
+			final int colBottom = out.addColumn( "pixel_limit_bottom", ColumnarTableWriter.INT32 );
+			final int colHeight = out.addColumn( "cell_height", ColumnarTableWriter.FLOAT32 );
+			final int colNumPixels = out.addColumn( "num_pixels_in_box", ColumnarTableWriter.INT32 );
+			final int[] colMin = new int[ numChannels ];
+			final int[] colMax = new int[ numChannels ];
+			final int[] colHist = new int[ numChannels ];
+			final int[] colPercentiles = new int[ numChannels ];
+			final int[] colColumnSums = new int[ numChannels ];
+			for ( int c = 0; c < numChannels; c++ ) {
+				colMin[ c ] = out.addColumn( "ch" + c + "_min", ColumnarTableWriter.FLOAT32 );
+				colMax[ c ] = out.addColumn( "ch" + c + "_max", ColumnarTableWriter.FLOAT32 );
+				if ( includeHistograms ) {
+					colHist[ c ] = out.addColumn( "ch" + c + "_histogram", ColumnarTableWriter.INT32_LIST );
+				}
+				if ( includeQuantiles ) {
+					colPercentiles[ c ] = out.addColumn( "ch" + c + "_percentiles", ColumnarTableWriter.FLOAT32_LIST );
+				}
+				if ( includeColIntensitySums ) {
+					colColumnSums[ c ] = out.addColumn( "ch" + c + "_column_sums", ColumnarTableWriter.FLOAT32_LIST );
+				}
 			}
-		}
-		while ( !queue.isEmpty() ) {
-			final SegmentRecord prepPoint = queue.poll();
 
-			final AbstractAssignment< Hypothesis< Component< FloatType, ? >>> rightAssmt = ilp.getOptimalRightAssignment( prepPoint.hyp );
+			final List< GrowthLine > gls = MoMA.instance.getGrowthLines();
+			for ( int g = 0; g < gls.size(); g++ ) {
+				final GrowthLine gl = gls.get( g );
+				if ( gl.getIlp() == null ) continue;
+				final LineageIndex lineage = gl.getIlp().getLineageIndex();
+				final GrowthLineFrame firstGLF = gl.getFrames().get( 0 );
+
+				for ( final SegmentRecord start : getStartingPoints( lineage ) ) {
+					// collect the track first -- rows need to know how it ended
+					final List< SegmentRecord > track = new ArrayList< SegmentRecord >();
+					SegmentRecord segmentRecord = start;
+					do {
+						track.add( segmentRecord );
+						segmentRecord = segmentRecord.nextSegmentInTime( lineage );
+					}
+					while ( segmentRecord.exists() );
+					if ( segmentRecord.terminated_by == SegmentRecord.ENDOFTRACKING ) {
+						// the last frame is doubled for tracking, do not export the copy (see getCellStatsExportData)
+						track.remove( track.size() - 1 );
+					}
+					final String terminatedBy = segmentRecord.getTerminationName();
 
-			if ( rightAssmt == null ) {
-				continue;
-			}
-			// MAPPING -- JUST DROP SEGMENT STATS
-			if ( rightAssmt.getType() == GrowthLineTrackingILP.ASSIGNMENT_MAPPING ) {
-				final MappingAssignment ma = ( MappingAssignment ) rightAssmt;
-				final SegmentRecord next = new SegmentRecord( prepPoint, 1 );
-				next.hyp = ma.getDestinationHypothesis();
-				if ( !prepPoint.hyp.isPruned() ) {
-					queue.add( next );
+					for ( final SegmentRecord segment : track ) {
+						ValuePair< Integer, Integer > limits = ComponentTreeUtils.getTreeNodeInterval( segment.hyp.getWrappedHypothesis() );
+						if ( segment.hyp.getWrappedHypothesis() instanceof FilteredComponent ) {
+							limits = ComponentTreeUtils.getExtendedTreeNodeInterval( ( FilteredComponent< ? > ) segment.hyp.getWrappedHypothesis() );
+						}
+						final GrowthLineFrame glf = gl.getFrames().get( segment.frame );
+
+						out.setInt( colGL, g );
+						out.setInt( colFrame, segment.frame );
+						out.setInt( colId, segment.id );
+						out.setInt( colPid, segment.pid );
+						out.setInt( colBirth, segment.tbirth );
+						out.setInt( colDaughterType, segment.daughterTypeOrPosition );
+						out.setString( colGenealogy, segment.getGenealogyString() );
+						out.setString( colEnd, terminatedBy );
+						out.setInt( colPos, glf.getSolutionStats_cellPos( segment.hyp ) );
+						out.setInt( colNumCells, glf.getSolutionStats_numCells() );
+						out.setInt( colTop, limits.getA() );
+						out.setInt( colBottom, limits.getB() );
+						out.setFloat( colHeight, ( float ) Util.evaluatePolygonLength( glf.getImgLocations(), limits.getA(), limits.getB() ) );
+						out.setInt( colNumPixels, ( int ) Util.getSegmentBoxPixelCount( segment.hyp, firstGLF.getAvgXpos() ) );
+
+						for ( int c = 0; c < numChannels; c++ ) {
+							final IntervalView< FloatType > channelFrame = Views.hyperSlice( MoMA.instance.getRawChannelImgs().get( c ), 2, segment.frame );
+							final IterableInterval< FloatType > segmentBoxInChannel = Util.getSegmentBoxInImg( channelFrame, segment.hyp, firstGLF.getAvgXpos() );
+
+							final FloatType min = new FloatType();
+							final FloatType max = new FloatType();
+							Util.computeMinMax( segmentBoxInChannel, min, max );
+							out.setFloat( colMin[ c ], min.get() );
+							out.setFloat( colMax[ c ], max.get() );
+
+							if ( includeHistograms ) {
+								final long[] hist = segment.computeChannelHistogram( segmentBoxInChannel, min.get(), max.get() );
+								final int[] counts = new int[ hist.length ];
+								for ( int i = 0; i < hist.length; i++ ) {
+									counts[ i ] = ( int ) hist[ i ];
+								}
+								out.setInts( colHist[ c ], counts );
+							}
+							if ( includeQuantiles ) {
+								out.setFloats( colPercentiles[ c ], segment.computeChannelPercentile( segmentBoxInChannel ) );
+							}
+							if ( includeColIntensitySums ) {
+								final IntervalView< FloatType > columnBoxInChannel = Util.getColumnBoxInImg( channelFrame, segment.hyp, firstGLF.getAvgXpos() );
+								out.setFloats( colColumnSums[ c ], segment.computeChannelColumnIntensities( columnBoxInChannel ) );
+							}
+						}
+						out.endRow();
+					}
 				}
 			}
-			// DIVISON -- NEW CELLS ARE BORN CURRENT ONE ENDS
-			if ( rightAssmt.getType() == GrowthLineTrackingILP.ASSIGNMENT_DIVISION ) {
-				final DivisionAssignment da = ( DivisionAssignment ) rightAssmt;
-
-				prepPoint.pid = prepPoint.id;
-				prepPoint.tbirth = prepPoint.frame;
-
-				prepPoint.id = nextCellId;
-				prepPoint.hyp = da.getLowerDesinationHypothesis();
-				prepPoint.daughterTypeOrPosition = SegmentRecord.LOWER;
-				if ( !prepPoint.hyp.isPruned() && !( prepPoint.tbirth > gui.sliderTime.getMaximum() ) ) {
-					final SegmentRecord newPoint = new SegmentRecord( prepPoint, 0 );
-					newPoint.genealogy.add( SegmentRecord.LOWER );
-					startingPoints.add( newPoint.clone() );
-					newPoint.frame++;
-					queue.add( newPoint );
-					nextCellId++;
-				}
-
-				prepPoint.id = nextCellId;
-				prepPoint.hyp = da.getUpperDesinationHypothesis();
-				prepPoint.daughterTypeOrPosition = SegmentRecord.UPPER;
-				if ( !prepPoint.hyp.isPruned() && !( prepPoint.tbirth > gui.sliderTime.getMaximum() ) ) {
-					final SegmentRecord newPoint = new SegmentRecord( prepPoint, 0 );
-					newPoint.genealogy.add( SegmentRecord.UPPER );
-					startingPoints.add( newPoint.clone() );
-					newPoint.frame++;
-					queue.add( newPoint );
-					nextCellId++;
+		} catch ( final IOException e ) {
+			if ( !MoMA.HEADLESS )
+				JOptionPane.showMessageDialog( gui, "Selected file could not be written!", "Error!", JOptionPane.ERROR_MESSAGE );
+			System.err.println( "Export Error: Selected file could not be written!" );
+			e.printStackTrace();
+		} finally {
+			if ( out != null ) {
+				try {
+					out.close();
+				} catch ( final IOException e ) {
+					e.printStackTrace();
 				}
 			}
 		}
+		System.out.println( "...done!" );
+	}
+
+	private Vector< String > getCellStatsExportData() {
+		// use US-style number formats! (e.g. '.' as decimal point)
+		Locale.setDefault( new Locale( "en", "US" ) );
+
+		final String loadedDataFolder = MoMA.props.getProperty( "import_path", "BUG -- could not get property 'import_path' while exporting cell statistics..." );
+		final int numCurrGL = gui.sliderGL.getValue();
+		final Vector< String > linesToExport = new Vector< String >();
+
+		final GrowthLineFrame firstGLF = gui.model.getCurrentGL().getFrames().get( 0 );
+		final LineageIndex lineage = firstGLF.getParent().getIlp().getLineageIndex();
+		final List< SegmentRecord > startingPoints = getStartingPoints( lineage );
 
 		// INITIALIZE PROGRESS-BAR if not run headless
 		final DialogProgress dialogProgress = new DialogProgress( gui, "Exporting selected cell-statistics...", startingPoints.size() );
@@ -576,7 +663,7 @@ public class CellStatsExporter {
 						linesToExport.add( intensityStr );
 					}
 				}
-				segmentRecord = segmentRecord.nextSegmentInTime( ilp );
+				segmentRecord = segmentRecord.nextSegmentInTime( lineage );
 			}
 			while ( segmentRecord.exists() );
 
@@ -614,6 +701,44 @@ public class CellStatsExporter {
 		return linesToExport;
 	}
 
+	/**
+	 * Collects the cells to export from the lineage of a solution: all cells
+	 * of the first frame (pruned or not), and all later cells that are not
+	 * pruned and whose mother is exported and not pruned as well. Cell ids are
+	 * handed out in lineage order, skipping cells that are not exported.
+	 *
+	 * @return the first segment of each exported cell, ordered by cell id.
+	 */
+	private List< SegmentRecord > getStartingPoints( final LineageIndex lineage ) {
+		final List< SegmentRecord > startingPoints = new ArrayList< SegmentRecord >();
+		final SegmentRecord[] records = new SegmentRecord[ lineage.getNumCells() ];
+
+		int nextCellId = 0;
+		int cellNum = 0;
+		for ( int cell = 0; cell < lineage.getNumCells(); cell++ ) {
+			final Hypothesis< Component< FloatType, ? > > hyp = lineage.getHypothesis( lineage.getFirstSegment( cell ) );
+			final int parent = lineage.getParent( cell );
+
+			if ( parent == LineageIndex.NONE ) {
+				cellNum++;
+				records[ cell ] = new SegmentRecord( hyp, nextCellId++, -1, -1, cellNum );
+			} else if ( !hyp.isPruned()
+					&& records[ parent ] != null
+					&& !lineage.getHypothesis( lineage.getFirstSegment( parent ) ).isPruned()
+					&& !( lineage.getBirthFrame( cell ) > gui.sliderTime.getMaximum() ) ) {
+				final int daughterType = ( lineage.getLowerDaughter( parent ) == cell ) ? SegmentRecord.LOWER : SegmentRecord.UPPER;
+				final List< Integer > genealogy = new ArrayList< Integer >( records[ parent ].genealogy );
+				genealogy.add( daughterType );
+				records[ cell ] = new SegmentRecord( hyp, nextCellId++, records[ parent ].id, lineage.getBirthFrame( cell ), daughterType, genealogy );
+			} else {
+				continue;
+			}
+			records[ cell ].frame = lineage.getBirthFrame( cell );
+			startingPoints.add( records[ cell ] );
+		}
+		return startingPoints;
+	}
+
 	public void exportTracks( final File file ) {
 
 		final Vector< Vector< String >> dataToExport = getTracksExportData();
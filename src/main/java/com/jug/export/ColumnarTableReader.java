@@ -0,0 +1,232 @@
+/**
+ *
+ */
+package com.jug.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads tables written by <code>ColumnarTableWriter</code> (see there for the
+ * file layout). Only the footer is read upfront; each column is read on
+ * request, concatenated over all row groups.
+ *
+ * @author jug
+ */
+public class ColumnarTableReader {
+
+	private final File file;
+	private final List< String > names = new ArrayList< String >();
+	private final List< Byte > types = new ArrayList< Byte >();
+	private final Map< String, String > metadata = new LinkedHashMap< String, String >();
+	private int[] groupRows;
+	private long[][] groupChunks;
+	private int numRows = 0;
+
+	/**
+	 * @param file
+	 * @throws IOException
+	 *             if the file is not a columnar table.
+	 */
+	public ColumnarTableReader( final File file ) throws IOException {
+		this.file = file;
+		final RandomAccessFile raf = new RandomAccessFile( file, "r" );
+		try {
+			final int magicLength = ColumnarTableWriter.MAGIC.length;
+			final long length = raf.length();
+			if ( length < 2 * magicLength + 4 ) { throw new IOException( "Not a columnar table: " + file ); }
+
+			final byte[] tail = new byte[ 4 + magicLength ];
+			raf.seek( length - tail.length );
+			raf.readFully( tail );
+			if ( !Arrays.equals( Arrays.copyOfRange( tail, 4, tail.length ), ColumnarTableWriter.MAGIC ) ) { throw new IOException( "Not a columnar table (or incomplete): " + file ); }
+			final int footerLength = wrap( tail ).getInt();
+			if ( footerLength < 0 || footerLength > length - tail.length - magicLength ) { throw new IOException( "Malformed footer in " + file ); }
+
+			final byte[] footerBytes = new byte[ footerLength ];
+			raf.seek( length - tail.length - footerLength );
+			raf.readFully( footerBytes );
+			readFooter( wrap( footerBytes ) );
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static ByteBuffer wrap( final byte[] bytes ) {
+		return ByteBuffer.wrap( bytes ).order( ByteOrder.LITTLE_ENDIAN );
+	}
+
+	private static String readString( final ByteBuffer buffer ) {
+		final byte[] bytes = new byte[ buffer.getInt() ];
+		buffer.get( bytes );
+		return new String( bytes, ColumnarTableWriter.UTF8 );
+	}
+
+	private void readFooter( final ByteBuffer footer ) {
+		final int numColumns = footer.getInt();
+		for ( int c = 0; c < numColumns; c++ ) {
+			names.add( readString( footer ) );
+			types.add( footer.get() );
+		}
+		final int numMetadata = footer.getInt();
+		for ( int i = 0; i < numMetadata; i++ ) {
+			final String key = readString( footer );
+			metadata.put( key, readString( footer ) );
+		}
+		final int numGroups = footer.getInt();
+		groupRows = new int[ numGroups ];
+		groupChunks = new long[ numGroups ][ 2 * numColumns ];
+		for ( int g = 0; g < numGroups; g++ ) {
+			groupRows[ g ] = footer.getInt();
+			numRows += groupRows[ g ];
+			for ( int i = 0; i < 2 * numColumns; i++ ) {
+				groupChunks[ g ][ i ] = footer.getLong();
+			}
+		}
+	}
+
+	public int getNumRows() {
+		return numRows;
+	}
+
+	public int getNumRowGroups() {
+		return groupRows.length;
+	}
+
+	public List< String > getColumnNames() {
+		return Collections.unmodifiableList( names );
+	}
+
+	/**
+	 * @return the type of the given column (see
+	 *         <code>ColumnarTableWriter</code>).
+	 */
+	public byte getType( final String column ) {
+		return types.get( getColumnIndex( column ) );
+	}
+
+	/**
+	 * @return the metadata value for the given key, or null.
+	 */
+	public String getMetadata( final String key ) {
+		return metadata.get( key );
+	}
+
+	private int getColumnIndex( final String column ) {
+		final int col = names.indexOf( column );
+		if ( col < 0 ) { throw new IllegalArgumentException( "No column '" + column + "' in " + file ); }
+		return col;
+	}
+
+	/**
+	 * Reads the chunks of the given column, one per row group.
+	 */
+	private ByteBuffer[] readChunks( final String column, final byte type ) throws IOException {
+		final int col = getColumnIndex( column );
+		if ( types.get( col ) != type ) { throw new IllegalArgumentException( "Column '" + column + "' is not of type " + type ); }
+		final ByteBuffer[] ret = new ByteBuffer[ groupRows.length ];
+		final RandomAccessFile raf = new RandomAccessFile( file, "r" );
+		try {
+			for ( int g = 0; g < groupRows.length; g++ ) {
+				final byte[] bytes = new byte[ ( int ) groupChunks[ g ][ 2 * col + 1 ] ];
+				raf.seek( groupChunks[ g ][ 2 * col ] );
+				raf.readFully( bytes );
+				ret[ g ] = wrap( bytes );
+			}
+		} finally {
+			raf.close();
+		}
+		return ret;
+	}
+
+	/**
+	 * Reads the (#rows + 1) offsets at the start of a list chunk.
+	 */
+	private static int[] readOffsets( final ByteBuffer chunk, final int rows ) {
+		final int[] offsets = new int[ rows + 1 ];
+		for ( int i = 0; i <= rows; i++ ) {
+			offsets[ i ] = chunk.getInt();
+		}
+		return offsets;
+	}
+
+	public int[] readInts( final String column ) throws IOException {
+		final int[] ret = new int[ numRows ];
+		int row = 0;
+		for ( final ByteBuffer chunk : readChunks( column, ColumnarTableWriter.INT32 ) ) {
+			while ( chunk.hasRemaining() ) {
+				ret[ row++ ] = chunk.getInt();
+			}
+		}
+		return ret;
+	}
+
+	public float[] readFloats( final String column ) throws IOException {
+		final float[] ret = new float[ numRows ];
+		int row = 0;
+		for ( final ByteBuffer chunk : readChunks( column, ColumnarTableWriter.FLOAT32 ) ) {
+			while ( chunk.hasRemaining() ) {
+				ret[ row++ ] = chunk.getFloat();
+			}
+		}
+		return ret;
+	}
+
+	public int[][] readIntLists( final String column ) throws IOException {
+		final int[][] ret = new int[ numRows ][];
+		int row = 0;
+		final ByteBuffer[] chunks = readChunks( column, ColumnarTableWriter.INT32_LIST );
+		for ( int g = 0; g < chunks.length; g++ ) {
+			final int[] offsets = readOffsets( chunks[ g ], groupRows[ g ] );
+			for ( int i = 0; i < groupRows[ g ]; i++ ) {
+				final int[] values = new int[ offsets[ i + 1 ] - offsets[ i ] ];
+				for ( int j = 0; j < values.length; j++ ) {
+					values[ j ] = chunks[ g ].getInt();
+				}
+				ret[ row++ ] = values;
+			}
+		}
+		return ret;
+	}
+
+	public float[][] readFloatLists( final String column ) throws IOException {
+		final float[][] ret = new float[ numRows ][];
+		int row = 0;
+		final ByteBuffer[] chunks = readChunks( column, ColumnarTableWriter.FLOAT32_LIST );
+		for ( int g = 0; g < chunks.length; g++ ) {
+			final int[] offsets = readOffsets( chunks[ g ], groupRows[ g ] );
+			for ( int i = 0; i < groupRows[ g ]; i++ ) {
+				final float[] values = new float[ offsets[ i + 1 ] - offsets[ i ] ];
+				for ( int j = 0; j < values.length; j++ ) {
+					values[ j ] = chunks[ g ].getFloat();
+				}
+				ret[ row++ ] = values;
+			}
+		}
+		return ret;
+	}
+
+	public String[] readStrings( final String column ) throws IOException {
+		final String[] ret = new String[ numRows ];
+		int row = 0;
+		final ByteBuffer[] chunks = readChunks( column, ColumnarTableWriter.STRING );
+		for ( int g = 0; g < chunks.length; g++ ) {
+			final int[] offsets = readOffsets( chunks[ g ], groupRows[ g ] );
+			for ( int i = 0; i < groupRows[ g ]; i++ ) {
+				final byte[] bytes = new byte[ offsets[ i + 1 ] - offsets[ i ] ];
+				chunks[ g ].get( bytes );
+				ret[ row++ ] = new String( bytes, ColumnarTableWriter.UTF8 );
+			}
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,303 @@
+/**
+ *
+ */
+package com.jug.export;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a table in a simple, Parquet-like columnar binary format. Rows are
+ * collected into row groups; a full row group is written column by column,
+ * such that a reader can fetch single columns without parsing anything else
+ * (see <code>ColumnarTableReader</code>).
+ *
+ * File layout (all numbers little endian, strings as int32 byte count plus
+ * UTF-8 bytes):
+ *
+ * <pre>
+ * "MMCOL001"
+ * row group 0: column chunk 0, column chunk 1, ...
+ * row group 1: ...
+ * footer:      int32 #columns, per column: name, int8 type
+ *              int32 #metadata entries, per entry: key, value
+ *              int32 #row groups, per group: int32 #rows,
+ *                                 per column: int64 chunk offset, int64 chunk length
+ * int32 footer length
+ * "MMCOL001"
+ * </pre>
+ *
+ * A chunk of an INT32 or FLOAT32 column holds one value per row. A chunk of
+ * an INT32_LIST, FLOAT32_LIST, or STRING column holds (#rows + 1) int32
+ * offsets (in elements, or bytes for strings), followed by all elements.
+ *
+ * @author jug
+ */
+public class ColumnarTableWriter {
+
+	public static final byte INT32 = 1;
+	public static final byte FLOAT32 = 2;
+	public static final byte INT32_LIST = 3;
+	public static final byte FLOAT32_LIST = 4;
+	public static final byte STRING = 5;
+
+	static final byte[] MAGIC = "MMCOL001".getBytes( Charset.forName( "US-ASCII" ) );
+	static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+	/**
+	 * Buffered values of one column in the current row group.
+	 */
+	private static class Column {
+
+		private final String name;
+		private final byte type;
+		private ByteBuffer elements = newBuffer( 1 << 12 );
+		private int[] offsets = new int[ 1024 ];
+		private int numElements = 0;
+		private boolean isSet = false;
+
+		private Column( final String name, final byte type ) {
+			this.name = name;
+			this.type = type;
+		}
+
+		private boolean isList() {
+			return type == INT32_LIST || type == FLOAT32_LIST || type == STRING;
+		}
+
+		private void ensureRemaining( final int bytes ) {
+			if ( elements.remaining() < bytes ) {
+				final ByteBuffer larger = newBuffer( Math.max( 2 * elements.capacity(), elements.position() + bytes ) );
+				elements.flip();
+				larger.put( elements );
+				elements = larger;
+			}
+		}
+
+		private void endRow( final int row ) {
+			if ( row + 2 > offsets.length ) {
+				offsets = Arrays.copyOf( offsets, 2 * offsets.length );
+			}
+			offsets[ row + 1 ] = numElements;
+			isSet = false;
+		}
+
+		private void clear() {
+			elements.clear();
+			numElements = 0;
+		}
+	}
+
+	private final OutputStream out;
+	private long position = 0;
+	private final int rowGroupSize;
+
+	private final List< Column > columns = new ArrayList< Column >();
+	private final Map< String, String > metadata = new LinkedHashMap< String, String >();
+
+	private int rowsInGroup = 0;
+	private final List< Integer > groupRows = new ArrayList< Integer >();
+	private final List< long[] > groupChunks = new ArrayList< long[] >();
+
+	/**
+	 * @param file
+	 *            the file to write.
+	 * @param rowGroupSize
+	 *            number of rows per row group.
+	 * @throws IOException
+	 */
+	public ColumnarTableWriter( final File file, final int rowGroupSize ) throws IOException {
+		this.out = new BufferedOutputStream( new FileOutputStream( file ), 1 << 16 );
+		this.rowGroupSize = Math.max( 1, rowGroupSize );
+		write( MAGIC );
+	}
+
+	private static ByteBuffer newBuffer( final int capacity ) {
+		return ByteBuffer.allocate( capacity ).order( ByteOrder.LITTLE_ENDIAN );
+	}
+
+	/**
+	 * Adds a column. All columns must be added before the first row ends.
+	 *
+	 * @param name
+	 * @param type
+	 *            one of INT32, FLOAT32, INT32_LIST, FLOAT32_LIST, or STRING.
+	 * @return the index of the new column.
+	 */
+	public int addColumn( final String name, final byte type ) {
+		if ( !groupRows.isEmpty() || rowsInGroup > 0 ) { throw new IllegalStateException( "Columns cannot be added after the first row." ); }
+		if ( type < INT32 || type > STRING ) { throw new IllegalArgumentException( "Unknown column type " + type ); }
+		columns.add( new Column( name, type ) );
+		return columns.size() - 1;
+	}
+
+	/**
+	 * Adds a key/value pair to the footer (e.g. where the data came from).
+	 */
+	public void putMetadata( final String key, final String value ) {
+		metadata.put( key, value );
+	}
+
+	private Column get( final int col, final byte type ) {
+		final Column column = columns.get( col );
+		if ( column.type != type ) { throw new IllegalArgumentException( "Column '" + column.name + "' is not of type " + type ); }
+		if ( column.isSet ) { throw new IllegalStateException( "Column '" + column.name + "' was set twice in the same row." ); }
+		column.isSet = true;
+		return column;
+	}
+
+	public void setInt( final int col, final int value ) {
+		final Column column = get( col, INT32 );
+		column.ensureRemaining( 4 );
+		column.elements.putInt( value );
+		column.numElements++;
+	}
+
+	public void setFloat( final int col, final float value ) {
+		final Column column = get( col, FLOAT32 );
+		column.ensureRemaining( 4 );
+		column.elements.putFloat( value );
+		column.numElements++;
+	}
+
+	public void setInts( final int col, final int[] values ) {
+		final Column column = get( col, INT32_LIST );
+		column.ensureRemaining( 4 * values.length );
+		for ( final int v : values ) {
+			column.elements.putInt( v );
+		}
+		column.numElements += values.length;
+	}
+
+	public void setFloats( final int col, final float[] values ) {
+		final Column column = get( col, FLOAT32_LIST );
+		column.ensureRemaining( 4 * values.length );
+		for ( final float v : values ) {
+			column.elements.putFloat( v );
+		}
+		column.numElements += values.length;
+	}
+
+	public void setString( final int col, final String value ) {
+		final Column column = get( col, STRING );
+		final byte[] bytes = value.getBytes( UTF8 );
+		column.ensureRemaining( bytes.length );
+		column.elements.put( bytes );
+		column.numElements += bytes.length;
+	}
+
+	/**
+	 * Completes the current row. Every column must have been set exactly
+	 * once. Writes the row group if it is full.
+	 *
+	 * @throws IOException
+	 */
+	public void endRow() throws IOException {
+		for ( final Column column : columns ) {
+			if ( !column.isSet ) { throw new IllegalStateException( "Column '" + column.name + "' was not set." ); }
+		}
+		for ( final Column column : columns ) {
+			column.endRow( rowsInGroup );
+		}
+		rowsInGroup++;
+		if ( rowsInGroup == rowGroupSize ) {
+			writeRowGroup();
+		}
+	}
+
+	private void writeRowGroup() throws IOException {
+		if ( rowsInGroup == 0 ) return;
+		final long[] chunks = new long[ 2 * columns.size() ];
+		for ( int c = 0; c < columns.size(); c++ ) {
+			final Column column = columns.get( c );
+			chunks[ 2 * c ] = position;
+			if ( column.isList() ) {
+				final ByteBuffer offsets = newBuffer( 4 * ( rowsInGroup + 1 ) );
+				for ( int i = 0; i <= rowsInGroup; i++ ) {
+					offsets.putInt( column.offsets[ i ] );
+				}
+				write( offsets.array() );
+			}
+			write( column.elements.array(), column.elements.position() );
+			chunks[ 2 * c + 1 ] = position - chunks[ 2 * c ];
+			column.clear();
+		}
+		groupRows.add( rowsInGroup );
+		groupChunks.add( chunks );
+		rowsInGroup = 0;
+	}
+
+	/**
+	 * Writes the last row group and the footer, and closes the file.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		try {
+			writeRowGroup();
+
+			final List< byte[] > parts = new ArrayList< byte[] >();
+			parts.add( ints( columns.size() ) );
+			for ( final Column column : columns ) {
+				parts.add( string( column.name ) );
+				parts.add( new byte[] { column.type } );
+			}
+			parts.add( ints( metadata.size() ) );
+			for ( final Map.Entry< String, String > entry : metadata.entrySet() ) {
+				parts.add( string( entry.getKey() ) );
+				parts.add( string( entry.getValue() ) );
+			}
+			parts.add( ints( groupRows.size() ) );
+			for ( int g = 0; g < groupRows.size(); g++ ) {
+				parts.add( ints( groupRows.get( g ) ) );
+				final ByteBuffer chunks = newBuffer( 8 * groupChunks.get( g ).length );
+				for ( final long l : groupChunks.get( g ) ) {
+					chunks.putLong( l );
+				}
+				parts.add( chunks.array() );
+			}
+
+			int footerLength = 0;
+			for ( final byte[] part : parts ) {
+				write( part );
+				footerLength += part.length;
+			}
+			write( ints( footerLength ) );
+			write( MAGIC );
+		} finally {
+			out.close();
+		}
+	}
+
+	private static byte[] ints( final int value ) {
+		return newBuffer( 4 ).putInt( value ).array();
+	}
+
+	private static byte[] string( final String value ) {
+		final byte[] bytes = value.getBytes( UTF8 );
+		final ByteBuffer ret = newBuffer( 4 + bytes.length );
+		ret.putInt( bytes.length );
+		ret.put( bytes );
+		return ret.array();
+	}
+
+	private void write( final byte[] bytes ) throws IOException {
+		write( bytes, bytes.length );
+	}
+
+	private void write( final byte[] bytes, final int length ) throws IOException {
+		out.write( bytes, 0, length );
+		position += length;
+	}
+}
@@ -3,31 +3,71 @@
  */
 package com.jug.export;
 
+import java.awt.Component;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.JOptionPane;
 
-import com.jug.gui.MoMAGui;
-import com.jug.util.Util;
+import com.jug.GrowthLine;
+import com.jug.MoMA;
+import com.jug.util.ComputeResources;
+import com.jug.util.FastPngWriter;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.real.FloatType;
 
 /**
+ * Writes an HTML page showing the tracking of all GLs that have an ILP: per
+ * GL one table with the frames of the requested range and the active
+ * assignments between them.
+ *
+ * The images are rendered off-screen by an <code>OverviewRenderer</code>, in
+ * parallel over all GLs and frames, and written by the
+ * <code>FastPngWriter</code>. The HTML itself is streamed to the file once
+ * all images are written, such that it never refers to missing images.
+ * Nothing here touches the GUI, hence it works the same in headless runs.
+ *
  * @author jug
  */
 public class HtmlOverviewExporter {
 
-	private final MoMAGui gui;
+	private static final int FRAME = 0;
+	private static final int ASSIGNMENTS = 1;
+
+	private final Component parent;
+	private final List< GrowthLine > gls;
+	private final OverviewRenderer renderer;
 	private final File htmlFile;
 	private final String imgpath;
 	private final int startFrame;
 	private final int endFrame;
 
-	public HtmlOverviewExporter( final MoMAGui gui, final File htmlFile, final String imgpath, final int startFrame, final int endFrame ) {
-		this.gui = gui;
+	/**
+	 * @param parent
+	 *            component error dialogs are shown on (can be null).
+	 * @param gls
+	 *            the GLs to export (those without ILP are skipped).
+	 * @param imgRaw
+	 *            the (x,y,t) stack the GLs live in.
+	 * @param htmlFile
+	 * @param imgpath
+	 *            folder the images are written to.
+	 * @param startFrame
+	 * @param endFrame
+	 */
+	public HtmlOverviewExporter( final Component parent, final List< GrowthLine > gls, final RandomAccessibleInterval< FloatType > imgRaw, final File htmlFile, final String imgpath, final int startFrame, final int endFrame ) {
+		this.parent = parent;
+		this.gls = gls;
+		this.renderer = new OverviewRenderer( imgRaw );
 		this.htmlFile = htmlFile;
 		this.imgpath = imgpath;
 		this.startFrame = startFrame;
@@ -45,71 +85,151 @@ public class HtmlOverviewExporter {
 		// create folders to imgs if not exists
 		final File fImgpath = new File( imgpath );
 		if ( !fImgpath.exists() && !fImgpath.mkdirs() ) {
-			JOptionPane.showMessageDialog( gui, "Saving of HTML canceled! Couldn't create dir: " + fImgpath, "Saving canceled...", JOptionPane.ERROR_MESSAGE );
+			showError( "Saving of HTML canceled! Couldn't create dir: " + fImgpath, "Saving canceled..." );
+			return;
+		}
+
+		// jobs: { glIdx, frame, FRAME or ASSIGNMENTS }
+		final List< int[] > jobs = new ArrayList< int[] >();
+		for ( int g = 0; g < gls.size(); g++ ) {
+			if ( gls.get( g ).getIlp() == null ) continue;
+			final int lastFrame = getLastFrame( gls.get( g ) );
+			for ( int i = startFrame; i <= lastFrame; i++ ) {
+				jobs.add( new int[] { g, i, FRAME } );
+				if ( i < lastFrame ) {
+					jobs.add( new int[] { g, i, ASSIGNMENTS } );
+				}
+			}
+		}
+
+		final Exception failure = renderAll( jobs, basename );
+		if ( failure != null ) {
+			showError( "Tracking imagery could not be saved entirely -- HTML not written!", "Export Error" );
+			failure.printStackTrace();
 			return;
 		}
 
 		Writer out = null;
 		try {
-			out = new OutputStreamWriter( new FileOutputStream( htmlFile ) );
+			out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( htmlFile ) ) );
+			writeHtml( out, basename, fImgpath.getName() );
+			out.close();
+		} catch ( final FileNotFoundException e1 ) {
+			showError( "File not found!", "Error!" );
+			e1.printStackTrace();
+		} catch ( final IOException e1 ) {
+			showError( "Selected file could not be written!", "Error!" );
+			e1.printStackTrace();
+		}
+	}
 
-			out.write( "<html>\n" );
-			out.write( "<body>\n" );
-			out.write( "	<table border='0' cellspacing='1' cellpadding='0'>\n" );
-			out.write( "		<tr>\n" );
+	/**
+	 * @return the last frame of the requested range the given GL has.
+	 */
+	private int getLastFrame( final GrowthLine gl ) {
+		return Math.min( endFrame, gl.size() - 1 );
+	}
 
-			String row1 = "";
-			final String nextrow = "		</tr>\n			<tr>\n";
-			String row2 = "";
-			final String row3 = "";
+	private String getImageName( final String basename, final int[] job ) {
+		if ( job[ 2 ] == FRAME ) {
+			return String.format( "%s_gl_%02d_glf_%03d.png", basename, job[ 0 ], job[ 1 ] );
+		} else {
+			return String.format( "%s_gl_%02d_assmnts_%03d.png", basename, job[ 0 ], job[ 1 ] );
+		}
+	}
 
-			for ( int i = startFrame; i <= endFrame; i++ ) {
-				gui.sliderTime.setValue( i );
-				try {
-					String fn1 = String.format( "/" + basename + "_gl_%02d_glf_%03d.png", gui.sliderGL.getValue(), i );
-					gui.imgCanvasActiveCenter.exportScreenImage( imgpath + fn1 );
-//					final String fn2 = String.format( "/" + basename + "_gl_%02d_glf_%03d_segmentation.png", gui.sliderGL.getValue(), i );
-//					gui.imgCanvasActiveCenter.exportSegmentationImage( imgpath + fn2 );
-					row1 += "			<th><font size='+2'>t=" + i + "</font></th>\n";
-					row2 += "			<td><img src='./imgs" + fn1 + "'></td>\n";
-//					row3 += "			<td><img src='./imgs" + fn2 + "'></td>\n";
-
-					if ( i < endFrame ) {
-						fn1 = String.format( "/" + basename + "_gl_%02d_assmnts_%03d.png", gui.sliderGL.getValue(), i );
-						Util.saveImage( Util.getImageOf( gui.rightAssignmentViewer.getActiveAssignments(), gui.imgCanvasActiveCenter.getWidth(), gui.imgCanvasActiveCenter.getHeight() ), imgpath + fn1 );
-						row1 += "			<th></th>\n";
-						row2 += "			<td><img src='./imgs" + fn1 + "'></td>\n"; // + "' width='10' height='" + this.imgCanvasActiveCenter.getHeight()
-//						row3 += "			<td><img src='./imgs" + fn1 + "'></td>\n"; // + "' width='10' height='" + this.imgCanvasActiveCenter.getHeight()
-					}
-				} catch ( final IOException e ) {
-					JOptionPane.showMessageDialog( gui, "Tracking imagery could not be saved entirely!", "Export Error", JOptionPane.ERROR_MESSAGE );
-					e.printStackTrace();
-					out.close();
-					return;
+	private void writeHtml( final Writer out, final String basename, final String imgFolderName ) throws IOException {
+		out.write( "<html>\n" );
+		out.write( "<body>\n" );
+		for ( int g = 0; g < gls.size(); g++ ) {
+			if ( gls.get( g ).getIlp() == null ) continue;
+			final int lastFrame = getLastFrame( gls.get( g ) );
+
+			out.write( String.format( "	<h3>GL %d</h3>\n", g ) );
+			out.write( "	<table border='0' cellspacing='1' cellpadding='0'>\n" );
+			out.write( "		<tr>\n" );
+			for ( int i = startFrame; i <= lastFrame; i++ ) {
+				out.write( "			<th><font size='+2'>t=" + i + "</font></th>\n" );
+				if ( i < lastFrame ) {
+					out.write( "			<th></th>\n" );
+				}
+			}
+			out.write( "		</tr>\n" );
+			out.write( "		<tr>\n" );
+			for ( int i = startFrame; i <= lastFrame; i++ ) {
+				out.write( "			<td><img src='./" + imgFolderName + "/" + getImageName( basename, new int[] { g, i, FRAME } ) + "'></td>\n" );
+				if ( i < lastFrame ) {
+					out.write( "			<td><img src='./" + imgFolderName + "/" + getImageName( basename, new int[] { g, i, ASSIGNMENTS } ) + "'></td>\n" );
 				}
 			}
-
-			out.write( row1 );
-			out.write( nextrow );
-			out.write( row2 );
-			out.write( nextrow );
-			out.write( nextrow );
-			out.write( row3 );
-
 			out.write( "		</tr>\n" );
 			out.write( "	</table>\n" );
-			out.write( "</body>\n" );
-			out.write( "</html>\n" );
+		}
+		out.write( "</body>\n" );
+		out.write( "</html>\n" );
+	}
 
-			out.close();
-		} catch ( final FileNotFoundException e1 ) {
-			JOptionPane.showMessageDialog( gui, "File not found!", "Error!", JOptionPane.ERROR_MESSAGE );
-			e1.printStackTrace();
-		} catch ( final IOException e1 ) {
-			JOptionPane.showMessageDialog( gui, "Selected file could not be written!", "Error!", JOptionPane.ERROR_MESSAGE );
-			e1.printStackTrace();
+	/**
+	 * Renders and writes the images of all given jobs in parallel.
+	 *
+	 * @return the first exception (IO or runtime, e.g. from rendering) that
+	 *         occurred, or null if all images were written.
+	 */
+	private Exception renderAll( final List< int[] > jobs, final String basename ) {
+		final ComputeResources.Allocation cores = ComputeResources.acquire( ComputeResources.EXPORT, jobs.size() );
+		final AtomicInteger nextJob = new AtomicInteger( 0 );
+		final Exception[] failure = new Exception[ 1 ];
+		try {
+			final Thread[] threads = new Thread[ cores.getThreads() ];
+			for ( int i = 0; i < threads.length; i++ ) {
+				threads[ i ] = new Thread() {
+
+					@Override
+					public void run() {
+						for ( int j = nextJob.getAndIncrement(); j < jobs.size(); j = nextJob.getAndIncrement() ) {
+							try {
+								render( jobs.get( j ), new File( imgpath, getImageName( basename, jobs.get( j ) ) ) );
+							} catch ( final Exception e ) {
+								// IO as well as rendering problems (runtime
+								// exceptions would otherwise just end this
+								// thread and go unnoticed)
+								synchronized ( failure ) {
+									if ( failure[ 0 ] == null ) failure[ 0 ] = e;
+								}
+								return;
+							}
+						}
+					}
+				};
+				threads[ i ].start();
+			}
+			for ( int i = 0; i < threads.length; i++ ) {
+				try {
+					threads[ i ].join();
+				} catch ( final InterruptedException e ) {
+					e.printStackTrace();
+				}
+			}
+		} finally {
+			cores.release();
 		}
+		return failure[ 0 ];
+	}
 
+	private void render( final int[] job, final File file ) throws IOException {
+		final GrowthLine gl = gls.get( job[ 0 ] );
+		if ( job[ 2 ] == FRAME ) {
+			FastPngWriter.write( renderer.renderFrame( gl.get( job[ 1 ] ) ), renderer.getFrameWidth(), renderer.getHeight(), file );
+		} else {
+			FastPngWriter.write( renderer.renderAssignments( gl.getIlp(), job[ 1 ] ), OverviewRenderer.ASSIGNMENTS_WIDTH, renderer.getHeight(), file );
+		}
 	}
 
+	private void showError( final String message, final String title ) {
+		if ( !MoMA.HEADLESS && parent != null ) {
+			JOptionPane.showMessageDialog( parent, message, title, JOptionPane.ERROR_MESSAGE );
+		} else {
+			System.out.println( "ERROR: " + message );
+		}
+	}
 }
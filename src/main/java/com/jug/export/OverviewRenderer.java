@@ -0,0 +1,213 @@
+/**
+ *
+ */
+package com.jug.export;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.GeneralPath;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Set;
+
+import com.jug.GrowthLineFrame;
+import com.jug.MoMA;
+import com.jug.lp.AbstractAssignment;
+import com.jug.lp.DivisionAssignment;
+import com.jug.lp.ExitAssignment;
+import com.jug.lp.GrowthLineTrackingILP;
+import com.jug.lp.Hypothesis;
+import com.jug.lp.MappingAssignment;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.ValuePair;
+import net.imglib2.view.IntervalView;
+import net.imglib2.view.Views;
+
+/**
+ * Renders the images of the HTML overview without any GUI: a GL frame the way
+ * the center canvas of <code>MoMAGui</code> shows it (raw data, center line,
+ * and optimal segmentation), and the active assignments between two frames
+ * the way <code>AssignmentView</code> draws them.
+ *
+ * Everything is read from the image data and the published solution of the
+ * ILPs (see <code>SolutionSnapshot</code>), hence any number of frames can be
+ * rendered concurrently.
+ *
+ * @author jug
+ */
+public class OverviewRenderer {
+
+	/**
+	 * Width of the assignment images (the one of <code>AssignmentView</code>).
+	 */
+	public static final int ASSIGNMENTS_WIDTH = 90;
+
+	private final RandomAccessibleInterval< FloatType > imgRaw;
+	private final int width;
+	private final int height;
+
+	/**
+	 * @param imgRaw
+	 *            the (x,y,t) stack the GLs live in.
+	 */
+	public OverviewRenderer( final RandomAccessibleInterval< FloatType > imgRaw ) {
+		this.imgRaw = imgRaw;
+		this.width = MoMA.GL_WIDTH_IN_PIXELS + 2 * MoMA.GL_PIXEL_PADDING_IN_VIEWS;
+		this.height = ( int ) imgRaw.dimension( 1 );
+	}
+
+	/**
+	 * @return the width of the frame images.
+	 */
+	public int getFrameWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height of all images.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the given GL frame, its center line, and its optimal
+	 *         segmentation as ARGB pixels (<code>getFrameWidth()</code> times
+	 *         <code>getHeight()</code>, row by row).
+	 */
+	public int[] renderFrame( final GrowthLineFrame glf ) {
+		final int[] pixels = new int[ width * height ];
+
+		// the same view the GUI shows, but zero outside of the data
+		final RandomAccessibleInterval< FloatType > slice = Views.hyperSlice( imgRaw, 2, imgRaw.min( 2 ) + glf.getOffsetF() );
+		final IntervalView< FloatType > view = Views.interval(
+				Views.offset( Views.extendZero( Views.zeroMin( slice ) ), glf.getOffsetX() - MoMA.GL_WIDTH_IN_PIXELS / 2 - MoMA.GL_PIXEL_PADDING_IN_VIEWS, glf.getOffsetY() ),
+				new long[] { 0, 0 },
+				new long[] { width - 1, height - 1 } );
+
+		// gray values like RealARGBConverter( 0, 1 )
+		final Cursor< FloatType > cursor = Views.flatIterable( view ).cursor();
+		int i = 0;
+		while ( cursor.hasNext() ) {
+			final int v = Math.min( 255, Math.max( 0, Math.round( 255 * cursor.next().get() ) ) );
+			pixels[ i++ ] = ARGBType.rgba( v, v, v, 255 );
+		}
+
+		final Img< ARGBType > img = ArrayImgs.argbs( pixels, width, height );
+		try {
+			glf.drawCenterLine( img, view );
+			final GrowthLineTrackingILP ilp = glf.getParent().getIlp();
+			if ( ilp != null ) {
+				glf.drawOptimalSegmentation( img, view, ilp.getOptimalSegmentation( glf.getTime() ) );
+			}
+		} catch ( final ArrayIndexOutOfBoundsException e ) {
+			// annotations reaching out of the image (see Viewer2DCanvas.paintComponent)
+		}
+		return pixels;
+	}
+
+	/**
+	 * @return the active assignments from frame t to t+1 of the given ILP as
+	 *         RGB pixels (<code>ASSIGNMENTS_WIDTH</code> times
+	 *         <code>getHeight()</code>, row by row, white background).
+	 */
+	public int[] renderAssignments( final GrowthLineTrackingILP ilp, final int t ) {
+		final BufferedImage image = new BufferedImage( ASSIGNMENTS_WIDTH, height, BufferedImage.TYPE_INT_RGB );
+		final Graphics2D g2 = image.createGraphics();
+		g2.setPaint( Color.WHITE );
+		g2.fillRect( 0, 0, ASSIGNMENTS_WIDTH, height );
+
+		for ( final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > set : ilp.getOptimalRightAssignments( t ).values() ) {
+			for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > assignment : set ) {
+				if ( assignment.getType() == GrowthLineTrackingILP.ASSIGNMENT_MAPPING ) {
+					drawMapping( g2, ( MappingAssignment ) assignment );
+				} else if ( assignment.getType() == GrowthLineTrackingILP.ASSIGNMENT_DIVISION ) {
+					drawDivision( g2, ( DivisionAssignment ) assignment );
+				} else if ( assignment.getType() == GrowthLineTrackingILP.ASSIGNMENT_EXIT ) {
+					drawExit( g2, ( ExitAssignment ) assignment );
+				}
+			}
+		}
+		g2.dispose();
+		return ( ( DataBufferInt ) image.getRaster().getDataBuffer() ).getData();
+	}
+
+	private void drawMapping( final Graphics2D g2, final MappingAssignment ma ) {
+		final ValuePair< Integer, Integer > limitsLeft = ma.getSourceHypothesis().getLocation();
+		final ValuePair< Integer, Integer > limitsRight = ma.getDestinationHypothesis().getLocation();
+
+		final GeneralPath polygon = new GeneralPath();
+		polygon.moveTo( 0, toY( limitsLeft.getA() ) );
+		polygon.lineTo( 0, toY( limitsLeft.getB() ) );
+		polygon.lineTo( ASSIGNMENTS_WIDTH, toY( limitsRight.getB() ) );
+		polygon.lineTo( ASSIGNMENTS_WIDTH, toY( limitsRight.getA() ) );
+		polygon.closePath();
+
+		draw( g2, ma, polygon, new Color( 25 / 256f, 65 / 256f, 165 / 256f, 1.0f ), new Color( 25 / 256f, 65 / 256f, 165 / 256f, 0.2f ) );
+	}
+
+	private void drawDivision( final Graphics2D g2, final DivisionAssignment da ) {
+		final ValuePair< Integer, Integer > limitsLeft = da.getSourceHypothesis().getLocation();
+		final ValuePair< Integer, Integer > limitsRightUpper = da.getUpperDesinationHypothesis().getLocation();
+		final ValuePair< Integer, Integer > limitsRightLower = da.getLowerDesinationHypothesis().getLocation();
+
+		final GeneralPath polygon = new GeneralPath();
+		polygon.moveTo( 0, toY( limitsLeft.getA() ) );
+		polygon.lineTo( 0, toY( limitsLeft.getB() ) );
+		polygon.lineTo( ASSIGNMENTS_WIDTH, toY( limitsRightLower.getB() ) );
+		polygon.lineTo( ASSIGNMENTS_WIDTH, toY( limitsRightLower.getA() ) );
+		polygon.lineTo( ASSIGNMENTS_WIDTH / 3, toY( ( 2 * ( limitsLeft.getA() + limitsLeft.getB() ) / 2 + 1 * ( limitsRightUpper.getB() + limitsRightLower.getA() ) / 2 ) / 3 ) );
+		polygon.lineTo( ASSIGNMENTS_WIDTH, toY( limitsRightUpper.getB() ) );
+		polygon.lineTo( ASSIGNMENTS_WIDTH, toY( limitsRightUpper.getA() ) );
+		polygon.closePath();
+
+		draw( g2, da, polygon, new Color( 250 / 256f, 150 / 256f, 40 / 256f, 1.0f ), new Color( 250 / 256f, 150 / 256f, 40 / 256f, 0.2f ) );
+	}
+
+	private void drawExit( final Graphics2D g2, final ExitAssignment ea ) {
+		final ValuePair< Integer, Integer > limits = ea.getAssociatedHypothesis().getLocation();
+		final GeneralPath polygon = new GeneralPath();
+		polygon.moveTo( 0, toY( limits.getA() ) );
+		polygon.lineTo( 0, toY( limits.getB() ) );
+		polygon.lineTo( ASSIGNMENTS_WIDTH / 5, toY( limits.getB() ) );
+		polygon.lineTo( ASSIGNMENTS_WIDTH / 5, toY( limits.getA() ) );
+		polygon.closePath();
+
+		draw( g2, ea, polygon, Color.RED, new Color( 1f, 0f, 0f, 0.2f ) );
+	}
+
+	/**
+	 * Fills and outlines the given shape like <code>AssignmentView</code>
+	 * does (user-confirmed assignments get a thick green outline).
+	 */
+	private static void draw( final Graphics2D g2, final AbstractAssignment< ? > assignment, final GeneralPath polygon, final Color outline, final Color fill ) {
+		g2.setStroke( new BasicStroke( 1 ) );
+		if ( !assignment.isPruned() ) {
+			g2.setPaint( assignment.isGroundTruth() ? fill.brighter().brighter() : fill );
+			g2.fill( polygon );
+		}
+		if ( assignment.isGroundTruth() ) {
+			g2.setPaint( Color.GREEN.darker() );
+			g2.setStroke( new BasicStroke( 3 ) );
+		} else {
+			g2.setPaint( outline );
+		}
+		g2.draw( polygon );
+	}
+
+	/**
+	 * @return the image row of the given hypothesis location (as drawn by
+	 *         <code>AbstractGrowthLineFrame.drawOptimalSegmentation</code>).
+	 */
+	private static int toY( final int location ) {
+		return MoMA.GL_OFFSET_TOP + location;
+	}
+}
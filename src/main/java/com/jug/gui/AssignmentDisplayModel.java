@@ -0,0 +1,143 @@
+/**
+ *
+ */
+package com.jug.gui;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+import com.jug.lp.AbstractAssignment;
+import com.jug.lp.DivisionAssignment;
+import com.jug.lp.ExitAssignment;
+import com.jug.lp.GrowthLineTrackingILP;
+import com.jug.lp.Hypothesis;
+import com.jug.lp.MappingAssignment;
+import com.jug.util.IntervalIndex;
+
+import gurobi.GRBException;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.ValuePair;
+
+/**
+ * All assignments shown by an <code>AssignmentViewer</code> for one
+ * time-point.
+ *
+ * The model is built once per time-point (and solution) and shared by all
+ * tabs of the viewer. The active assignments are only filtered out when
+ * first asked for. For both lists an <code>IntervalIndex</code> over the
+ * vertical extent of the drawn assignments is built lazily, so that finding
+ * the assignments under the mouse (or inside the repainted area) does not
+ * need to look at all of them.
+ *
+ * Vertical positions are in GL coordinates, i.e. without any display
+ * offsets.
+ *
+ * @author jug
+ */
+public class AssignmentDisplayModel {
+
+	private final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > all;
+	private List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > active = null;
+
+	private IntervalIndex< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > allIndex = null;
+	private IntervalIndex< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > activeIndex = null;
+
+	/**
+	 * @param data
+	 *            a <code>HashMap</code> containing pairs of segmentation
+	 *            hypothesis at some time-point t and assignments towards t+1
+	 *            (can be null).
+	 */
+	public AssignmentDisplayModel( final HashMap< Hypothesis< Component< FloatType, ? > >, Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > > data ) {
+		all = new ArrayList< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > >();
+		if ( data != null ) {
+			for ( final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > set : data.values() ) {
+				all.addAll( set );
+			}
+		}
+	}
+
+	/**
+	 * @param activeOnly
+	 *            if true, only assignments being chosen or fixed as ground
+	 *            truth are returned.
+	 */
+	public synchronized List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > getAssignments( final boolean activeOnly ) {
+		if ( !activeOnly ) return all;
+		if ( active == null ) {
+			active = new ArrayList< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > >();
+			for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > ass : all ) {
+				try {
+					if ( ass.isChoosen() || ass.isGroundTruth() ) {
+						active.add( ass );
+					}
+				} catch ( final GRBException e ) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return active;
+	}
+
+	/**
+	 * @return the assignments whose drawing covers the given vertical
+	 *         position.
+	 */
+	public List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > getAssignmentsAt( final boolean activeOnly, final int y ) {
+		return getIndex( activeOnly ).getItemsAt( y );
+	}
+
+	/**
+	 * @return the assignments whose drawing overlaps the given vertical
+	 *         range.
+	 */
+	public List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > getAssignmentsIn( final boolean activeOnly, final int yMin, final int yMax ) {
+		return getIndex( activeOnly ).getItemsIn( yMin, yMax );
+	}
+
+	private synchronized IntervalIndex< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > getIndex( final boolean activeOnly ) {
+		if ( activeOnly ) {
+			if ( activeIndex == null ) {
+				activeIndex = buildIndex( getAssignments( true ) );
+			}
+			return activeIndex;
+		}
+		if ( allIndex == null ) {
+			allIndex = buildIndex( all );
+		}
+		return allIndex;
+	}
+
+	private static IntervalIndex< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > buildIndex( final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > assignments ) {
+		final int[] starts = new int[ assignments.size() ];
+		final int[] ends = new int[ assignments.size() ];
+		for ( int i = 0; i < assignments.size(); i++ ) {
+			starts[ i ] = Integer.MAX_VALUE;
+			ends[ i ] = Integer.MIN_VALUE;
+			for ( final Hypothesis< Component< FloatType, ? > > hyp : getHypotheses( assignments.get( i ) ) ) {
+				final ValuePair< Integer, Integer > limits = hyp.getLocation();
+				starts[ i ] = Math.min( starts[ i ], limits.getA().intValue() );
+				ends[ i ] = Math.max( ends[ i ], limits.getB().intValue() );
+			}
+		}
+		return new IntervalIndex< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > >( starts, ends, assignments );
+	}
+
+	private static List< Hypothesis< Component< FloatType, ? > > > getHypotheses( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > assignment ) {
+		final List< Hypothesis< Component< FloatType, ? > > > ret = new ArrayList< Hypothesis< Component< FloatType, ? > > >();
+		if ( assignment.getType() == GrowthLineTrackingILP.ASSIGNMENT_EXIT ) {
+			ret.add( ( ( ExitAssignment ) assignment ).getAssociatedHypothesis() );
+		} else if ( assignment.getType() == GrowthLineTrackingILP.ASSIGNMENT_MAPPING ) {
+			ret.add( ( ( MappingAssignment ) assignment ).getSourceHypothesis() );
+			ret.add( ( ( MappingAssignment ) assignment ).getDestinationHypothesis() );
+		} else if ( assignment.getType() == GrowthLineTrackingILP.ASSIGNMENT_DIVISION ) {
+			ret.add( ( ( DivisionAssignment ) assignment ).getSourceHypothesis() );
+			ret.add( ( ( DivisionAssignment ) assignment ).getUpperDesinationHypothesis() );
+			ret.add( ( ( DivisionAssignment ) assignment ).getLowerDesinationHypothesis() );
+		}
+		return ret;
+	}
+}
@@ -8,10 +8,13 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
 import java.awt.geom.GeneralPath;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.swing.JComponent;
@@ -27,7 +30,6 @@ import com.jug.lp.Hypothesis;
 import com.jug.lp.MappingAssignment;
 import com.jug.util.OSValidator;
 
-import gurobi.GRBException;
 import net.imglib2.algorithm.componenttree.Component;
 import net.imglib2.type.numeric.real.FloatType;
 import net.imglib2.util.ValuePair;
@@ -76,7 +78,14 @@ public class AssignmentView extends JComponent implements MouseInputListener {
 	private boolean doAddToFilter = false; // if 'true' all assignments at the mouse location will be added to the filter next time repaint is called...
 	private final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > filteredAssignments;
 
-	private HashMap< Hypothesis< Component< FloatType, ? >>, Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> >> data;
+	private AssignmentDisplayModel model;
+	private boolean showActiveOnly = false;
+
+	/**
+	 * Assignments whose vertical extent contains the mouse position (exact
+	 * hit tests are only done for those).
+	 */
+	private Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > hovered = Collections.emptySet();
 
 	private boolean isMouseOver = false;
 	private int mousePosX;
@@ -257,19 +266,23 @@ public class AssignmentView extends JComponent implements MouseInputListener {
 	 */
 	@Override
 	public void paint( final Graphics g ) {
-		if ( data == null ) return;
+		if ( model == null ) return;
+
+		// only assignments reaching into the repainted area are drawn
+		final Rectangle clip = g.getClipBounds();
+		final List< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > assignments =
+				( clip == null ) ? model.getAssignments( showActiveOnly ) : model.getAssignmentsIn( showActiveOnly, toGlY( clip.y ) - 2, toGlY( clip.y + clip.height ) + 2 );
+		updateHovered();
 
 		this.currentCostLine = 0;
-		for ( final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > setOfAssignments : data.values() ) {
-			for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? >>> assignment : setOfAssignments ) {
-				if ( doFilterDataByType && assignment.getType() != filterAssignmentType ) {
-					continue;
-				}
-				if ( doFilterDataByCost && ( assignment.getCost() < this.getCostFilterMin() || assignment.getCost() > this.getCostFilterMax() ) ) {
-					continue;
-				}
-				drawAssignment( g, assignment );
+		for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? >>> assignment : assignments ) {
+			if ( doFilterDataByType && assignment.getType() != filterAssignmentType ) {
+				continue;
+			}
+			if ( doFilterDataByCost && ( assignment.getCost() < this.getCostFilterMin() || assignment.getCost() > this.getCostFilterMax() ) ) {
+				continue;
 			}
+			drawAssignment( g, assignment );
 		}
 
 		if ( this.isDragging ) {
@@ -346,7 +359,7 @@ public class AssignmentView extends JComponent implements MouseInputListener {
 		polygon.closePath();
 
 		// Interaction with mouse:
-		if ( !this.isDragging && this.isMouseOver && polygon.contains( this.mousePosX, this.mousePosY ) ) {
+		if ( !this.isDragging && this.isMouseOver && hovered.contains( ma ) && polygon.contains( this.mousePosX, this.mousePosY ) ) {
 			if ( doAddToFilter ) {
 				// this case happens after shift-click
 				this.filteredAssignments.add( ma );
@@ -455,7 +468,7 @@ public class AssignmentView extends JComponent implements MouseInputListener {
 		polygon.closePath();
 
 		// Interaction with mouse:
-		if ( !this.isDragging && this.isMouseOver && polygon.contains( this.mousePosX, this.mousePosY ) ) {
+		if ( !this.isDragging && this.isMouseOver && hovered.contains( da ) && polygon.contains( this.mousePosX, this.mousePosY ) ) {
 			if ( doAddToFilter ) {
 				// this case happens after shift-click
 				this.filteredAssignments.add( da );
@@ -537,7 +550,7 @@ public class AssignmentView extends JComponent implements MouseInputListener {
 		final int y1 = MoMA.GL_OFFSET_TOP + limits.getA().intValue() + ASSIGNMENT_DISPLAY_OFFSET;
 		final int y2 = y1 + limits.getB().intValue() - limits.getA().intValue();
 
-		if ( !this.isDragging && this.isMouseOver && this.mousePosX > x1 && this.mousePosX < x2 && this.mousePosY > y1 && this.mousePosY < y2 ) {
+		if ( !this.isDragging && this.isMouseOver && hovered.contains( ea ) && this.mousePosX > x1 && this.mousePosX < x2 && this.mousePosY > y1 && this.mousePosY < y2 ) {
 			if ( doAddToFilter ) {
 				// this case happens after shift-click
 				this.filteredAssignments.add( ea );
@@ -598,25 +611,43 @@ public class AssignmentView extends JComponent implements MouseInputListener {
 	 * @param doFilterActive
 	 */
 	public void setData( final HashMap< Hypothesis< Component< FloatType, ? >>, Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> >> data, final boolean doFilterActive ) {
-		if ( data != null && doFilterActive ) {
-			this.data = new HashMap< Hypothesis< Component< FloatType, ? >>, Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> >>();
-			for ( final Hypothesis< Component< FloatType, ? >> hypo : data.keySet() ) {
-				final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > activeSet = new HashSet< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> >();
-				for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? >>> ass : data.get( hypo ) ) {
-					try {
-						if ( ass.isChoosen() || ass.isGroundTruth() ) {
-							activeSet.add( ass );
-						}
-					} catch ( final GRBException e ) {
-						e.printStackTrace();
-					}
-					this.data.put( hypo, activeSet );
-				}
-			}
+		setModel( ( data == null ) ? null : new AssignmentDisplayModel( data ), doFilterActive );
+	}
+
+	/**
+	 * Shows the assignments of the given (possibly shared) display model
+	 * without modifying the filter setting.
+	 *
+	 * @param model
+	 *            can be null.
+	 * @param doFilterActive
+	 *            if true, only active (or ground truth) assignments are
+	 *            shown.
+	 */
+	public void setModel( final AssignmentDisplayModel model, final boolean doFilterActive ) {
+		this.model = model;
+		this.showActiveOnly = doFilterActive;
+		this.hovered = Collections.emptySet();
+		this.repaint();
+	}
+
+	/**
+	 * @return the vertical GL coordinate of the given vertical position in
+	 *         this component.
+	 */
+	private int toGlY( final int y ) {
+		return y - MoMA.GL_OFFSET_TOP - ASSIGNMENT_DISPLAY_OFFSET;
+	}
+
+	/**
+	 * Looks up the assignments that might be under the mouse.
+	 */
+	private void updateHovered() {
+		if ( model == null || !this.isMouseOver || this.isDragging ) {
+			hovered = Collections.emptySet();
 		} else {
-			this.data = data;
+			hovered = new HashSet< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> >( model.getAssignmentsAt( showActiveOnly, toGlY( this.mousePosY ) ) );
 		}
-		this.repaint();
 	}
 
 	/**
@@ -743,11 +774,17 @@ public class AssignmentView extends JComponent implements MouseInputListener {
 	 */
 	@Override
 	public void mouseMoved( final MouseEvent e ) {
+		final boolean wasOverAssignment = !hovered.isEmpty();
 		this.mousePosX = e.getX();
 		this.mousePosY = e.getY();
 		this.doAddAsGroundTruth = false;
 		this.doAddAsGroundUntruth = false;
-		this.repaint();
+		// nothing to highlight or label if the mouse moves where there are
+		// no assignments
+		updateHovered();
+		if ( wasOverAssignment || !hovered.isEmpty() ) {
+			this.repaint();
+		}
 	}
 
 	/**
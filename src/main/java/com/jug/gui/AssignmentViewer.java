@@ -43,7 +43,16 @@ public class AssignmentViewer extends JTabbedPane implements ChangeListener {
 	private int curTabIdx = 0;
 	private JPanel nextHackTab;
 
-	private HashMap< Hypothesis< Component< FloatType, ? >>, Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> >> data;
+	private AssignmentDisplayModel model;
+
+	/**
+	 * Display models of the time-points shown so far, valid for
+	 * <code>cachedIlp</code> in solution version
+	 * <code>cachedSolutionVersion</code>.
+	 */
+	private final HashMap< Integer, AssignmentDisplayModel > modelCache = new HashMap< Integer, AssignmentDisplayModel >();
+	private GrowthLineTrackingILP cachedIlp = null;
+	private int cachedSolutionVersion = -1;
 
 	private final MoMAGui gui;
 
@@ -99,11 +108,11 @@ public class AssignmentViewer extends JTabbedPane implements ChangeListener {
 			}
 		};
 
-		activeAssignments.display( data, true );
-		inactiveMappingAssignments.display( data, false, GrowthLineTrackingILP.ASSIGNMENT_MAPPING );
-		inactiveDivisionAssignments.display( data, false, GrowthLineTrackingILP.ASSIGNMENT_DIVISION );
-		inactiveExitAssignments.display( data, false, GrowthLineTrackingILP.ASSIGNMENT_EXIT );
-		fixedAssignments.display( data, false );
+		activeAssignments.display( null, true );
+		inactiveMappingAssignments.display( null, false, GrowthLineTrackingILP.ASSIGNMENT_MAPPING );
+		inactiveDivisionAssignments.display( null, false, GrowthLineTrackingILP.ASSIGNMENT_DIVISION );
+		inactiveExitAssignments.display( null, false, GrowthLineTrackingILP.ASSIGNMENT_EXIT );
+		fixedAssignments.display( null, false );
 		fixedAssignments.setFilterGroundTruth( true );
 
 		if ( !OSValidator.isMac() ) {
@@ -126,12 +135,38 @@ public class AssignmentViewer extends JTabbedPane implements ChangeListener {
 	 *            hypothesis at some time-point t and assignments towards t+1.
 	 */
 	public void display( final HashMap< Hypothesis< Component< FloatType, ? >>, Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> >> hashMap ) {
-		this.data = hashMap;
-		activeAssignments.setData( data, true );
-		inactiveMappingAssignments.setData( data, false );
-		inactiveDivisionAssignments.setData( data, false );
-		inactiveExitAssignments.setData( data, false );
-		fixedAssignments.setData( data, false );
+		showModel( ( hashMap == null ) ? null : new AssignmentDisplayModel( hashMap ) );
+	}
+
+	/**
+	 * Visualizes the assignments leaving time-point t in the given ILP. The
+	 * display model of each time-point is only built once (per solution), so
+	 * switching between time-points just swaps models.
+	 *
+	 * @param ilp
+	 * @param t
+	 */
+	public void display( final GrowthLineTrackingILP ilp, final int t ) {
+		if ( ilp != cachedIlp || ilp.getSolutionVersion() != cachedSolutionVersion ) {
+			modelCache.clear();
+			cachedIlp = ilp;
+			cachedSolutionVersion = ilp.getSolutionVersion();
+		}
+		AssignmentDisplayModel m = modelCache.get( t );
+		if ( m == null ) {
+			m = new AssignmentDisplayModel( ilp.getAllCompatibleRightAssignments( t ) );
+			modelCache.put( t, m );
+		}
+		showModel( m );
+	}
+
+	private void showModel( final AssignmentDisplayModel model ) {
+		this.model = model;
+		activeAssignments.setModel( model, true );
+		inactiveMappingAssignments.setModel( model, false );
+		inactiveDivisionAssignments.setModel( model, false );
+		inactiveExitAssignments.setModel( model, false );
+		fixedAssignments.setModel( model, false );
 	}
 
 	/**
@@ -140,15 +175,15 @@ public class AssignmentViewer extends JTabbedPane implements ChangeListener {
 	@Override
 	public void stateChanged( final ChangeEvent e ) {
 		if ( this.getSelectedComponent().equals( activeAssignments ) ) {
-			activeAssignments.setData( data, true );
+			activeAssignments.setModel( model, true );
 		} else if ( this.getSelectedComponent().equals( inactiveMappingAssignments ) ) {
-			inactiveMappingAssignments.setData( data, false );
+			inactiveMappingAssignments.setModel( model, false );
 		} else if ( this.getSelectedComponent().equals( inactiveDivisionAssignments ) ) {
-			inactiveDivisionAssignments.setData( data, false );
+			inactiveDivisionAssignments.setModel( model, false );
 		} else if ( this.getSelectedComponent().equals( inactiveExitAssignments ) ) {
-			inactiveExitAssignments.setData( data, false );
+			inactiveExitAssignments.setModel( model, false );
 		} else {
-			fixedAssignments.setData( data, false );
+			fixedAssignments.setModel( model, false );
 		}
 	}
 
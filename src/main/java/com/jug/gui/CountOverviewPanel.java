@@ -5,8 +5,6 @@ package com.jug.gui;
 
 import java.awt.BorderLayout;
 import java.awt.Font;
-import java.util.Set;
-import java.util.Vector;
 
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
@@ -14,18 +12,12 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.SwingConstants;
+import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellRenderer;
 
-import net.imglib2.algorithm.componenttree.Component;
-import net.imglib2.type.numeric.real.FloatType;
-
 import com.jug.GrowthLine;
-import com.jug.GrowthLineFrame;
-import com.jug.lp.AbstractAssignment;
-import com.jug.lp.GrowthLineTrackingILP;
-import com.jug.lp.Hypothesis;
+import com.jug.lp.SolutionSummary;
 
 /**
  * @author jug
@@ -36,8 +28,8 @@ public class CountOverviewPanel extends JPanel {
 	private static final long serialVersionUID = -7527124790229560330L;
 
 	private JTable table;
-	private Vector< Vector< String > > data;
-	private Vector< String > columnNames;
+	private final String[] columnNames = new String[] { " #C", " #D", " #E", " CCC" };
+	private SummaryTableModel tableModel;
 	private JLabel totalCellCount;
 
 	public CountOverviewPanel() {
@@ -45,12 +37,6 @@ public class CountOverviewPanel extends JPanel {
 	}
 
 	private void buildGui() {
-		columnNames = new Vector< String >();
-		columnNames.add( String.format( " #C" ) );
-		columnNames.add( String.format( " #D" ) );
-		columnNames.add( String.format( " #E" ) );
-		columnNames.add( String.format( " CCC" ) );
-
 		totalCellCount = new JLabel();
 		totalCellCount.setFont( totalCellCount.getFont().deriveFont( Font.BOLD ) );
 		totalCellCount.setText( String.format( "TOTAL CELL COUNT:    %d", 0 ) );
@@ -58,11 +44,22 @@ public class CountOverviewPanel extends JPanel {
 
 		this.setLayout( new BorderLayout() );
 		final JPanel helper = new JPanel( new BorderLayout() );
-		final DefaultTableModel model = new DefaultTableModel( data, columnNames );
-		table = new JTable( model ) {
+		tableModel = new SummaryTableModel();
+		table = new JTable( tableModel ) {
 
 			private static final long serialVersionUID = -5757310501730411649L;
-			DefaultTableCellRenderer renderRight = new DefaultTableCellRenderer();
+			DefaultTableCellRenderer renderRight = new DefaultTableCellRenderer() {
+
+				private static final long serialVersionUID = 4172291383016305628L;
+
+				@Override
+				public java.awt.Component getTableCellRendererComponent( final JTable table, final Object value, final boolean isSelected, final boolean hasFocus, final int row, final int column ) {
+					final java.awt.Component c = super.getTableCellRendererComponent( table, value, isSelected, hasFocus, row, column );
+					// frames the user put constraints on are shown in bold
+					c.setFont( tableModel.isUserTouched( row ) ? c.getFont().deriveFont( Font.BOLD ) : c.getFont().deriveFont( Font.PLAIN ) );
+					return c;
+				}
+			};
 
 			{ //initializer block
 				renderRight.setHorizontalAlignment( SwingConstants.CENTER );
@@ -88,6 +85,7 @@ public class CountOverviewPanel extends JPanel {
 				super.changeSelection( rowIndex, columnIndex, toggle, extend );
 			}
 		};
+		table.setCellSelectionEnabled( true );
 		this.add( table.getTableHeader(), BorderLayout.PAGE_START );
 		final JScrollPane scrollPane = new JScrollPane( table );
 		helper.add( scrollPane, BorderLayout.CENTER );
@@ -97,59 +95,88 @@ public class CountOverviewPanel extends JPanel {
 	}
 
 	/**
+	 * Shows the per-frame counts of the current solution of the given
+	 * <code>GrowthLine</code>. Only rows that differ from what is shown
+	 * already are updated.
+	 *
 	 * @param currentGL
 	 */
 	public void showData( final GrowthLine currentGL ) {
-		data = new Vector< Vector< String > >();
-
-		int sumOfCells = 0;
+		SolutionSummary summary = null;
 		if ( currentGL != null && currentGL.getIlp() != null ) {
-			// collect data
-			for ( final GrowthLineFrame glf : currentGL.getFrames() ) {
-				final Vector< String > row = new Vector< String >();
-
-				int cells = 0;
-				int exits = 0;
-				int divisions = 0;
-
-				for ( final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > set : currentGL.getIlp().getOptimalRightAssignments( glf.getTime() ).values() ) {
-					for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? >>> ora : set ) {
-						cells++;
-						if ( ora.getType() == GrowthLineTrackingILP.ASSIGNMENT_DIVISION )
-							divisions++;
-						if ( ora.getType() == GrowthLineTrackingILP.ASSIGNMENT_EXIT )
-							exits++;
-					}
-				}
-				if ( sumOfCells == 0 ) {
-					sumOfCells = cells;
-				} else {
-					sumOfCells += divisions;
-				}
+			summary = currentGL.getIlp().getSolutionSummary();
+		}
+		tableModel.setSummary( summary );
+		totalCellCount.setText( String.format( "TOTAL CELL COUNT:    %d", ( summary == null ) ? 0 : summary.getTotalCellCount() ) );
+	}
 
-				// fill new rows and update rowSum
-				row.add( "" + cells );
-				if ( divisions > 0 ) {
-					row.add( "" + divisions );
-				} else {
-					row.add( "" );
-				}
-				if ( exits > 0 ) {
-					row.add( "" + exits );
-				} else {
-					row.add( "" );
-				}
-				row.add( "" + sumOfCells );
+	/**
+	 * Table model reading straight from a <code>SolutionSummary</code>. When a
+	 * new summary is set, only the rows whose content changed are reported to
+	 * the table.
+	 */
+	private class SummaryTableModel extends AbstractTableModel {
+
+		private static final long serialVersionUID = 2930417125385212706L;
+
+		private SolutionSummary summary = null;
 
-				data.add( row );
+		public void setSummary( final SolutionSummary newSummary ) {
+			if ( newSummary == summary ) return;
+			final SolutionSummary oldSummary = summary;
+			summary = newSummary;
+
+			if ( oldSummary == null || newSummary == null || oldSummary.getNumFrames() != newSummary.getNumFrames() ) {
+				fireTableDataChanged();
+				return;
+			}
+			int firstChanged = -1;
+			for ( int t = 0; t <= newSummary.getNumFrames(); t++ ) {
+				final boolean changed = t < newSummary.getNumFrames() && rowDiffers( oldSummary, newSummary, t );
+				if ( changed && firstChanged < 0 ) {
+					firstChanged = t;
+				} else if ( !changed && firstChanged >= 0 ) {
+					fireTableRowsUpdated( firstChanged, t - 1 );
+					firstChanged = -1;
+				}
 			}
 		}
 
-		// set data
-		final DefaultTableModel model = new DefaultTableModel( data, columnNames );
-		table.setModel( model );
-		table.setCellSelectionEnabled( true );
-		totalCellCount.setText( String.format( "TOTAL CELL COUNT:    %d", sumOfCells ) );
-	}
+		private boolean rowDiffers( final SolutionSummary a, final SolutionSummary b, final int t ) {
+			return a.getCellCount( t ) != b.getCellCount( t ) || a.getDivisionCount( t ) != b.getDivisionCount( t ) || a.getExitCount( t ) != b.getExitCount( t ) || a.getCumulativeCellCount( t ) != b.getCumulativeCellCount( t ) || a.isUserTouched( t ) != b.isUserTouched( t );
+		}
+
+		public boolean isUserTouched( final int row ) {
+			return summary != null && summary.isUserTouched( row );
+		}
 
+		@Override
+		public int getRowCount() {
+			return ( summary == null ) ? 0 : summary.getNumFrames();
+		}
+
+		@Override
+		public int getColumnCount() {
+			return columnNames.length;
+		}
+
+		@Override
+		public String getColumnName( final int column ) {
+			return columnNames[ column ];
+		}
+
+		@Override
+		public Object getValueAt( final int row, final int column ) {
+			switch ( column ) {
+			case 0:
+				return "" + summary.getCellCount( row );
+			case 1:
+				return ( summary.getDivisionCount( row ) > 0 ) ? "" + summary.getDivisionCount( row ) : "";
+			case 2:
+				return ( summary.getExitCount( row ) > 0 ) ? "" + summary.getExitCount( row ) : "";
+			default:
+				return "" + summary.getCumulativeCellCount( row );
+			}
+		}
+	}
 }
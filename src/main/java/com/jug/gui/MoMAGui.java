@@ -578,7 +578,7 @@ public class MoMAGui extends JPanel implements ChangeListener, ActionListener {
 		// - - - - - -
 		leftAssignmentViewer = new AssignmentViewer( ( int ) model.mm.getImgRaw().dimension( 1 ), this );
 		if ( ilp != null )
-			leftAssignmentViewer.display( ilp.getAllCompatibleRightAssignments( model.getCurrentTime() - 1 ) );
+			leftAssignmentViewer.display( ilp, model.getCurrentTime() - 1 );
 		// - - - - - -
 		panelVerticalHelper.add( leftAssignmentViewer, BorderLayout.CENTER );
 		panelView.add( panelVerticalHelper );
@@ -602,7 +602,7 @@ public class MoMAGui extends JPanel implements ChangeListener, ActionListener {
 		// - - - - - -
 		rightAssignmentViewer = new AssignmentViewer( ( int ) model.mm.getImgRaw().dimension( 1 ), this );
 		if ( ilp != null )
-			rightAssignmentViewer.display( ilp.getAllCompatibleRightAssignments( model.getCurrentTime() ) );
+			rightAssignmentViewer.display( ilp, model.getCurrentTime() );
 		panelVerticalHelper.add( rightAssignmentViewer, BorderLayout.CENTER );
 		panelView.add( panelVerticalHelper );
 
@@ -913,12 +913,12 @@ public class MoMAGui extends JPanel implements ChangeListener, ActionListener {
 				if ( t == 0 ) {
 					leftAssignmentViewer.display( null );
 				} else {
-					leftAssignmentViewer.display( ilp.getAllCompatibleRightAssignments( t - 1 ) );
+					leftAssignmentViewer.display( ilp, t - 1 );
 				}
 				if ( t == sliderTime.getMaximum() ) {
 					rightAssignmentViewer.display( null );
 				} else {
-					rightAssignmentViewer.display( ilp.getAllCompatibleRightAssignments( t ) );
+					rightAssignmentViewer.display( ilp, t );
 				}
 			} else {
 				leftAssignmentViewer.display( null );
@@ -1582,8 +1582,9 @@ public class MoMAGui extends JPanel implements ChangeListener, ActionListener {
 //	}
 
 	/**
-	 * Exports current tracking solution as individual PNG images in the given
-	 * folder.
+	 * Exports the current tracking solutions of all GLs as an HTML page and
+	 * individual PNG images (rendered off-screen, see
+	 * <code>HtmlOverviewExporter</code>).
 	 *
 	 * @param endFrame
 	 * @param startFrame
@@ -1597,7 +1598,7 @@ public class MoMAGui extends JPanel implements ChangeListener, ActionListener {
 		final String path = htmlFileToSaveTo.getParent();
 		final String imgpath = path + "/imgs";
 
-		final HtmlOverviewExporter exporter = new HtmlOverviewExporter( this, htmlFileToSaveTo, imgpath, startFrame, endFrame );
+		final HtmlOverviewExporter exporter = new HtmlOverviewExporter( this, model.mm.getGrowthLines(), model.mm.getImgRaw(), htmlFileToSaveTo, imgpath, startFrame, endFrame );
 		exporter.run();
 
 		System.out.println( "...done!" );
@@ -260,7 +260,7 @@ public class Viewer2DCanvas extends JComponent implements MouseInputListener {
 				try {
 					for ( final Hypothesis< Component< FloatType, ? >> hyp2avoid : hyps2avoid ) {
 						if ( hyp2avoid.getSegmentSpecificConstraint() != null ) {
-							ilp.model.remove( hyp2avoid.getSegmentSpecificConstraint() );
+							ilp.removeConstraint( hyp2avoid.getSegmentSpecificConstraint() );
 						}
 						ilp.addSegmentNotInSolutionConstraint( hyp2avoid );
 					}
@@ -277,7 +277,7 @@ public class Viewer2DCanvas extends JComponent implements MouseInputListener {
 
 			try {
 				if ( hyp2add.getSegmentSpecificConstraint() != null ) {
-					ilp.model.remove( hyp2add.getSegmentSpecificConstraint() );
+					ilp.removeConstraint( hyp2add.getSegmentSpecificConstraint() );
 				}
 				ilp.addSegmentInSolutionConstraint( hyp2add, hyps2remove );
 			} catch ( final GRBException e1 ) {
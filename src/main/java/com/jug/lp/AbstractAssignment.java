@@ -35,6 +35,13 @@ public abstract class AbstractAssignment< H extends Hypothesis< ? > > {
 
 	private boolean isPruned = false;
 
+	/**
+	 * Cost and solution value used for assignments that do not have an ILP
+	 * variable (e.g. when restored from a <code>SolutionArtifact</code>).
+	 */
+	private float storedCost = 0f;
+	private boolean storedChoosen = false;
+
 	/**
 	 * Creates an assignment...
 	 *
@@ -118,6 +125,8 @@ public abstract class AbstractAssignment< H extends Hypothesis< ? > > {
 	 * @throws GRBException
 	 */
 	public float getCost() {
+		if ( getGRBVar() == null ) return storedCost;
+
 		float cost = 0;
 		try {
 			cost = ( float ) getGRBVar().get( GRB.DoubleAttr.Obj );
@@ -138,13 +147,39 @@ public abstract class AbstractAssignment< H extends Hypothesis< ? > > {
 	}
 
 	/**
-	 * @return true, if the ilpVar of this Assignment is equal to 1.0.
+	 * @return true, if this Assignment is chosen in the solution published
+	 *         last by the ILP (see <code>SolutionSnapshot</code>). If there is
+	 *         none (or it does not know this assignment): true if the ilpVar
+	 *         is equal to 1.0 (or the stored solution says so, see
+	 *         <code>setStoredSolution</code>).
 	 * @throws GRBException
 	 */
 	public boolean isChoosen() throws GRBException {
+		final SolutionSnapshot snapshot = ( ilp == null ) ? null : ilp.getPublishedSolution();
+		if ( snapshot != null && snapshot.contains( this ) ) return snapshot.isChoosen( this );
+		if ( getGRBVar() == null || ( ilp != null && ilp.isSolutionStoredInAssignments() ) ) return storedChoosen;
 		return ( getGRBVar().get( GRB.DoubleAttr.X ) == 1.0 );
 	}
 
+	/**
+	 * @return the solution value given by <code>setStoredSolution</code>.
+	 */
+	boolean getStoredChoosen() {
+		return storedChoosen;
+	}
+
+	/**
+	 * Sets cost and solution value of an assignment without ILP variable, or
+	 * of one whose ILP was solved in time segments.
+	 *
+	 * @param cost
+	 * @param choosen
+	 */
+	public void setStoredSolution( final float cost, final boolean choosen ) {
+		this.storedCost = cost;
+		this.storedChoosen = choosen;
+	}
+
 	/**
 	 * Abstract method that will, once implemented, add a set of assignment
 	 * related constraints to the ILP (model) later to be solved by Gurobi.
@@ -233,7 +268,7 @@ public abstract class AbstractAssignment< H extends Hypothesis< ? > > {
 				constrGroundTruth = ilp.model.addConstr( exprGroundTruth, GRB.EQUAL, value, "GroundTruthConstraint_" + getGRBVar().toString() );
 			} else {
 				if ( constrGroundTruth != null ) {
-					ilp.model.remove( constrGroundTruth );
+					ilp.removeConstraint( constrGroundTruth );
 					constrGroundTruth = null;
 				}
 			}
@@ -0,0 +1,236 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.jug.GrowthLine;
+import com.jug.MoMA;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Decides which of the mapping and division candidates leaving one source
+ * hypothesis get a variable in the ILP (on top of the global
+ * <code>GrowthLineTrackingILP.CUTOFF_COST</code>).
+ *
+ * Strategies are bit flags and can be combined:
+ * <ul>
+ * <li><code>SPATIAL_WINDOW</code>: the (upper) target must start at most
+ * <code>MoMA.MAX_CELL_DROP</code> pixels above or below the source. This is
+ * checked before any cost is computed.</li>
+ * <li><code>K_BEST</code>: only the <code>MoMA.CANDIDATES_K</code> cheapest
+ * mappings and divisions per source hypothesis are kept.</li>
+ * <li><code>ADAPTIVE</code>: the candidates of one source are cut at the
+ * natural break of their costs, i.e. at the largest gap between consecutive
+ * (sorted) costs, if that gap is at least <code>MoMA.CANDIDATE_GAP_RATIO</code>
+ * times the average gap. Sources whose candidates have evenly spread costs
+ * (or that have fewer than 3 candidates) keep all of them.</li>
+ * </ul>
+ * <code>EXHAUSTIVE</code> (0) keeps all candidates that pass the cutoff.
+ *
+ * @author jug
+ */
+public class CandidateSelector {
+
+	public static final int EXHAUSTIVE = 0;
+	public static final int SPATIAL_WINDOW = 1;
+	public static final int K_BEST = 2;
+	public static final int ADAPTIVE = 4;
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private final int strategy;
+	private final int k;
+	private final float gapRatio;
+
+	// metrics, indexed by assignment type (MAPPING/DIVISION)
+	private final long[] numOutsideWindow = new long[ 3 ];
+	private final long[] numCandidates = new long[ 3 ];
+	private final long[] numKept = new long[ 3 ];
+
+	// -------------------------------------------------------------------------------------
+	// construction
+	// -------------------------------------------------------------------------------------
+	public CandidateSelector( final int strategy, final int k, final float gapRatio ) {
+		this.strategy = strategy;
+		this.k = k;
+		this.gapRatio = gapRatio;
+	}
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @param type
+	 *            ASSIGNMENT_MAPPING or ASSIGNMENT_DIVISION.
+	 * @param from
+	 *            source hypothesis.
+	 * @param to
+	 *            (upper) target hypothesis.
+	 * @return false if the pair lies outside the spatial window and does not
+	 *         need to be considered (and its cost not computed) at all.
+	 */
+	public boolean isInWindow( final int type, final Hypothesis< Component< FloatType, ? > > from, final Hypothesis< Component< FloatType, ? > > to ) {
+		if ( ( strategy & SPATIAL_WINDOW ) == 0 ) return true;
+		if ( Math.abs( to.getLocation().getA().intValue() - from.getLocation().getA().intValue() ) <= MoMA.MAX_CELL_DROP ) return true;
+		numOutsideWindow[ type ]++;
+		return false;
+	}
+
+	/**
+	 * @param type
+	 *            ASSIGNMENT_MAPPING or ASSIGNMENT_DIVISION.
+	 * @param costs
+	 *            the costs of all candidates leaving one source hypothesis
+	 *            (all below <code>CUTOFF_COST</code>).
+	 * @return the indices of the candidates to keep.
+	 */
+	public int[] select( final int type, final List< Float > costs ) {
+		final int n = costs.size();
+		numCandidates[ type ] += n;
+
+		final Integer[] order = new Integer[ n ];
+		for ( int i = 0; i < n; i++ ) {
+			order[ i ] = i;
+		}
+
+		int numKeep = n;
+		if ( ( strategy & ( K_BEST | ADAPTIVE ) ) != 0 ) {
+			Arrays.sort( order, new Comparator< Integer >() {
+
+				@Override
+				public int compare( final Integer o1, final Integer o2 ) {
+					return Float.compare( costs.get( o1 ), costs.get( o2 ) );
+				}
+			} );
+			if ( ( strategy & K_BEST ) != 0 ) {
+				numKeep = Math.min( numKeep, k );
+			}
+			if ( ( strategy & ADAPTIVE ) != 0 ) {
+				final float[] sortedCosts = new float[ n ];
+				for ( int i = 0; i < n; i++ ) {
+					sortedCosts[ i ] = costs.get( order[ i ] );
+				}
+				numKeep = Math.min( numKeep, getNaturalBreak( sortedCosts, gapRatio ) );
+			}
+		}
+
+		final int[] ret = new int[ numKeep ];
+		for ( int i = 0; i < numKeep; i++ ) {
+			ret[ i ] = order[ i ];
+		}
+		numKept[ type ] += numKeep;
+		return ret;
+	}
+
+	/**
+	 * @param sortedCosts
+	 *            candidate costs in ascending order.
+	 * @param gapRatio
+	 *            how much larger than the average gap the largest gap must
+	 *            be to count as a break.
+	 * @return the number of candidates before the largest gap between
+	 *         consecutive costs, or all candidates if there is no such
+	 *         break.
+	 */
+	static int getNaturalBreak( final float[] sortedCosts, final float gapRatio ) {
+		final int n = sortedCosts.length;
+		if ( n < 3 ) return n;
+		final float range = sortedCosts[ n - 1 ] - sortedCosts[ 0 ];
+		if ( range <= 0 ) return n;
+
+		int cut = n;
+		float largestGap = 0;
+		for ( int i = 0; i < n - 1; i++ ) {
+			final float gap = sortedCosts[ i + 1 ] - sortedCosts[ i ];
+			if ( gap > largestGap ) {
+				largestGap = gap;
+				cut = i + 1;
+			}
+		}
+		return ( largestGap >= gapRatio * range / ( n - 1 ) ) ? cut : n;
+	}
+
+	/**
+	 * @return one line per assignment type, stating how many candidates were
+	 *         skipped by the spatial window, passed the cutoff, and were kept.
+	 */
+	public String getReport() {
+		final String[] names = new String[] { "EXIT", "mappings", "divisions" };
+		final StringBuilder sb = new StringBuilder();
+		for ( int type = GrowthLineTrackingILP.ASSIGNMENT_MAPPING; type <= GrowthLineTrackingILP.ASSIGNMENT_DIVISION; type++ ) {
+			sb.append( String.format( "    Candidate %s: %d outside window, %d below cutoff, %d kept\n", names[ type ], numOutsideWindow[ type ], numCandidates[ type ], numKept[ type ] ) );
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Builds and solves the ILP of the given GL once per candidate strategy
+	 * and reports model size, times, objective value, and how many active
+	 * assignments differ from the exhaustive baseline. The ILPs built here
+	 * are discarded afterwards.
+	 */
+	public static void benchmark( final GrowthLine gl ) {
+		final int[] strategies = new int[] { EXHAUSTIVE, SPATIAL_WINDOW, K_BEST, ADAPTIVE, SPATIAL_WINDOW | K_BEST | ADAPTIVE };
+		final String[] names = new String[] { "exhaustive", "window", "k-best", "adaptive", "combined" };
+		final StringBuilder report = new StringBuilder( "Candidate strategy benchmark:\n" );
+		report.append( String.format( "    %-10s %10s %12s %10s %10s %14s %10s\n", "strategy", "variables", "constraints", "build [ms]", "solve [ms]", "objective", "changed" ) );
+
+		Set< String > baseline = null;
+		try {
+			for ( int i = 0; i < strategies.length; i++ ) {
+				final long startTime = System.currentTimeMillis();
+				final GrowthLineTrackingILP ilp = new GrowthLineTrackingILP( gl );
+				try {
+					ilp.setCandidateStrategy( strategies[ i ] );
+					ilp.buildILP();
+					final long buildMillis = System.currentTimeMillis() - startTime;
+					ilp.run();
+					final long solveMillis = System.currentTimeMillis() - startTime - buildMillis;
+
+					final Set< String > solution = getActiveAssignments( ilp );
+					if ( baseline == null ) baseline = solution;
+					int changed = 0;
+					for ( final String a : solution ) {
+						if ( !baseline.contains( a ) ) changed++;
+					}
+					for ( final String a : baseline ) {
+						if ( !solution.contains( a ) ) changed++;
+					}
+
+					report.append( String.format( "    %-10s %10d %12d %10d %10d %14.4f %10d\n", names[ i ], ilp.model.get( GRB.IntAttr.NumVars ), ilp.model.get( GRB.IntAttr.NumConstrs ), buildMillis, solveMillis, ilp.model.get( GRB.DoubleAttr.ObjVal ), changed ) );
+				} finally {
+					ilp.dispose();
+				}
+			}
+		} catch ( final GRBException e ) {
+			e.printStackTrace();
+		}
+		System.out.print( report.toString() );
+	}
+
+	private static Set< String > getActiveAssignments( final GrowthLineTrackingILP ilp ) {
+		final Set< String > ret = new HashSet< String >();
+		for ( final SolutionArtifact.AssignmentRecord record : ilp.getSolutionArtifact( "" ).getAssignments() ) {
+			final List< String > parts = new ArrayList< String >();
+			parts.add( "" + record.getTime() );
+			parts.add( "" + record.getType() );
+			for ( final int pos : record.getHypLocations() ) {
+				parts.add( "" + pos );
+			}
+			ret.add( parts.toString() );
+		}
+		return ret;
+	}
+}
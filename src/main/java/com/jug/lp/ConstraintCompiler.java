@@ -0,0 +1,300 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import com.jug.GrowthLine;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+import gurobi.GRBLinExpr;
+import gurobi.GRBVar;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.algorithm.componenttree.ComponentForest;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Compiles the path-blocking and explanation-continuity constraints of a
+ * <code>GrowthLineTrackingILP</code> into plain arrays and adds them to the
+ * Gurobi model in batches (<code>GRBModel.addConstrs</code>).
+ *
+ * The component tree of each frame is traversed exactly once. During this
+ * traversal the right-assignment variables of each node are looked up once
+ * and the path constraints are emitted as arrays of node indices.
+ *
+ * Two formulations of the path-blocking constraints are supported:
+ * <ul>
+ * <li><code>CONSTRAINTS_PATH_TABLE</code>: one constraint per leaf-to-root
+ * path (same constraints as the recursive formulation).</li>
+ * <li><code>CONSTRAINTS_CLIQUES</code>: one constraint per maximal clique of
+ * conflicting hypotheses that actually own assignment variables. Nodes
+ * without variables are skipped, which makes paths that only differ in such
+ * nodes collapse into one constraint. The set of feasible solutions is the
+ * same.</li>
+ * </ul>
+ *
+ * @author jug
+ */
+public class ConstraintCompiler {
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private final GrowthLineTrackingILP ilp;
+	private final boolean asCliques;
+
+	private int numPathBlockingConstraints = 0;
+	private int numContinuityConstraints = 0;
+
+	// -------------------------------------------------------------------------------------
+	// construction
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @param ilp
+	 *            the ILP to add the constraints to.
+	 * @param formulation
+	 *            either <code>CONSTRAINTS_PATH_TABLE</code> or
+	 *            <code>CONSTRAINTS_CLIQUES</code> (see
+	 *            <code>GrowthLineTrackingILP</code>).
+	 */
+	public ConstraintCompiler( final GrowthLineTrackingILP ilp, final int formulation ) {
+		this.ilp = ilp;
+		this.asCliques = ( formulation == GrowthLineTrackingILP.CONSTRAINTS_CLIQUES );
+	}
+
+	// -------------------------------------------------------------------------------------
+	// getters
+	// -------------------------------------------------------------------------------------
+	public int getNumPathBlockingConstraints() {
+		return numPathBlockingConstraints;
+	}
+
+	public int getNumContinuityConstraints() {
+		return numContinuityConstraints;
+	}
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	/**
+	 * Builds the ILP of the given GL once per constraint formulation and
+	 * reports constraint count and build times. The ILPs built here are
+	 * discarded afterwards.
+	 */
+	public static void benchmark( final GrowthLine gl ) {
+		final String[] names = new String[] { "recursive", "path table", "cliques" };
+		final StringBuilder report = new StringBuilder( "Constraint generation benchmark:\n" );
+		report.append( String.format( "    %-12s %12s %16s %14s\n", "formulation", "constraints", "constraints [ms]", "total [ms]" ) );
+		try {
+			for ( int formulation = GrowthLineTrackingILP.CONSTRAINTS_RECURSIVE; formulation <= GrowthLineTrackingILP.CONSTRAINTS_CLIQUES; formulation++ ) {
+				final long startTime = System.currentTimeMillis();
+				final GrowthLineTrackingILP ilp = new GrowthLineTrackingILP( gl );
+				try {
+					ilp.setConstraintFormulation( formulation );
+					ilp.buildILP();
+					final long totalMillis = System.currentTimeMillis() - startTime;
+					report.append( String.format( "    %-12s %12d %16d %14d\n", names[ formulation ], ilp.model.get( GRB.IntAttr.NumConstrs ), ilp.getConstraintBuildMillis(), totalMillis ) );
+				} finally {
+					ilp.dispose();
+				}
+			}
+		} catch ( final GRBException e ) {
+			e.printStackTrace();
+		}
+		System.out.print( report.toString() );
+	}
+
+	/**
+	 * Adds the path-blocking constraints of all frames to the model.
+	 */
+	public void addPathBlockingConstraints() throws GRBException {
+		final GrowthLine gl = ilp.getGrowthLine();
+		for ( int t = 0; t < gl.size(); t++ ) {
+			final ComponentForest< ? > ct = gl.get( t ).getComponentTree();
+			if ( ct == null ) continue;
+
+			final List< GRBVar[] > varsPerNode = new ArrayList< GRBVar[] >();
+			final List< int[] > paths = compilePathTable( ct, varsPerNode );
+
+			final GRBLinExpr[] exprs = new GRBLinExpr[ paths.size() ];
+			for ( int i = 0; i < paths.size(); i++ ) {
+				exprs[ i ] = sumOf( paths.get( i ), varsPerNode );
+			}
+			addBatch( exprs, GRB.LESS_EQUAL, 1.0, ModelNaming.PATH_BLOCKING, t );
+			numPathBlockingConstraints += exprs.length;
+		}
+	}
+
+	/**
+	 * Adds the explanation-continuity constraints (see
+	 * <code>GrowthLineTrackingILP.addExplainationContinuityConstraints</code>)
+	 * to the model.
+	 */
+	public void addExplainationContinuityConstraints() throws GRBException {
+		final GrowthLine gl = ilp.getGrowthLine();
+		for ( int t = 1; t < gl.size() - 1; t++ ) { // !!! sparing out the border !!!
+			final List< Hypothesis< Component< FloatType, ? > > > hyps = ilp.nodes.getHypothesesAt( t );
+			final List< GRBLinExpr > exprs = new ArrayList< GRBLinExpr >( hyps.size() );
+			for ( final Hypothesis< Component< FloatType, ? > > hyp : hyps ) {
+				final GRBVar[] left = getVars( ilp.edgeSets.getLeftNeighborhood( hyp ) );
+				final GRBVar[] right = getVars( ilp.edgeSets.getRightNeighborhood( hyp ) );
+				// hypotheses pruned by presolve are not part of the model
+				if ( left.length == 0 && right.length == 0 ) continue;
+				final GRBVar[] vars = Arrays.copyOf( left, left.length + right.length );
+				System.arraycopy( right, 0, vars, left.length, right.length );
+				final double[] coeffs = new double[ vars.length ];
+				Arrays.fill( coeffs, 0, left.length, 1.0 );
+				Arrays.fill( coeffs, left.length, vars.length, -1.0 );
+
+				final GRBLinExpr expr = new GRBLinExpr();
+				expr.addTerms( coeffs, vars );
+				exprs.add( expr );
+			}
+			addBatch( exprs.toArray( new GRBLinExpr[ exprs.size() ] ), GRB.EQUAL, 0.0, ModelNaming.CONTINUITY, t );
+			numContinuityConstraints += exprs.size();
+		}
+	}
+
+	/**
+	 * Looks up the right-assignment variables of a component tree node.
+	 */
+	interface NodeVariables {
+
+		GRBVar[] get( Component< ?, ? > node );
+	}
+
+	/**
+	 * Traverses the given component forest once and returns the
+	 * path-blocking constraints as arrays of node indices.
+	 *
+	 * @param ct
+	 *            the component forest of one frame.
+	 * @param varsPerNode
+	 *            will be filled with the right-assignment variables of each
+	 *            node (indexed in pre-order).
+	 * @return one array of node indices per constraint.
+	 */
+	public List< int[] > compilePathTable( final ComponentForest< ? > ct, final List< GRBVar[] > varsPerNode ) {
+		return compilePathTable( ct, new NodeVariables() {
+
+			@Override
+			public GRBVar[] get( final Component< ?, ? > node ) {
+				@SuppressWarnings( "unchecked" )
+				final Hypothesis< Component< FloatType, ? > > hyp = ( Hypothesis< Component< FloatType, ? > > ) ilp.nodes.findHypothesisContaining( node );
+				if ( hyp == null ) {
+					System.err.println( "WARNING: Hypothesis for a CTN was not found in GrowthLineTrackingILP -- this is an indication for some design problem of the system!" );
+					return new GRBVar[ 0 ];
+				}
+				return getVars( ilp.edgeSets.getRightNeighborhood( hyp ) );
+			}
+		}, asCliques, varsPerNode );
+	}
+
+	/**
+	 * Same as above, but with the variables of each node given by
+	 * <code>lookup</code> (called once per node, in pre-order).
+	 *
+	 * @param asCliques
+	 *            true for <code>CONSTRAINTS_CLIQUES</code>, false for
+	 *            <code>CONSTRAINTS_PATH_TABLE</code>.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	static List< int[] > compilePathTable( final ComponentForest< ? > ct, final NodeVariables lookup, final boolean asCliques, final List< GRBVar[] > varsPerNode ) {
+		final List< int[] > paths = new ArrayList< int[] >();
+		final int[] stack = new int[ 16 ];
+		for ( final Object root : ct.roots() ) {
+			compile( ( Component ) root, stack, 0, lookup, asCliques, varsPerNode, paths );
+		}
+		return paths;
+	}
+
+	/**
+	 * DFS step.
+	 *
+	 * @return true if the subtree of the given node contains a node owning
+	 *         variables.
+	 */
+	private static < C extends Component< ?, C > > boolean compile( final C node, int[] stack, final int depth, final NodeVariables lookup, final boolean asCliques, final List< GRBVar[] > varsPerNode, final List< int[] > paths ) {
+		final int idx = varsPerNode.size();
+		final GRBVar[] vars = lookup.get( node );
+		varsPerNode.add( vars );
+
+		final boolean isActive = vars.length > 0;
+		int newDepth = depth;
+		if ( !asCliques || isActive ) {
+			if ( depth == stack.length ) {
+				stack = Arrays.copyOf( stack, 2 * stack.length );
+			}
+			stack[ newDepth++ ] = idx;
+		}
+
+		boolean activeBelow = false;
+		for ( final C child : node.getChildren() ) {
+			activeBelow |= compile( child, stack, newDepth, lookup, asCliques, varsPerNode, paths );
+		}
+
+		if ( asCliques ) {
+			if ( isActive && !activeBelow ) {
+				paths.add( Arrays.copyOf( stack, newDepth ) );
+			}
+		} else if ( node.getChildren().size() == 0 ) {
+			if ( hasVars( stack, newDepth, varsPerNode ) ) {
+				paths.add( Arrays.copyOf( stack, newDepth ) );
+			}
+		}
+		return isActive || activeBelow;
+	}
+
+	private static boolean hasVars( final int[] stack, final int length, final List< GRBVar[] > varsPerNode ) {
+		for ( int i = 0; i < length; i++ ) {
+			if ( varsPerNode.get( stack[ i ] ).length > 0 ) return true;
+		}
+		return false;
+	}
+
+	private static GRBLinExpr sumOf( final int[] path, final List< GRBVar[] > varsPerNode ) throws GRBException {
+		int numVars = 0;
+		for ( final int idx : path ) {
+			numVars += varsPerNode.get( idx ).length;
+		}
+		final GRBVar[] vars = new GRBVar[ numVars ];
+		int k = 0;
+		for ( final int idx : path ) {
+			final GRBVar[] nodeVars = varsPerNode.get( idx );
+			System.arraycopy( nodeVars, 0, vars, k, nodeVars.length );
+			k += nodeVars.length;
+		}
+		final double[] ones = new double[ numVars ];
+		Arrays.fill( ones, 1.0 );
+
+		final GRBLinExpr expr = new GRBLinExpr();
+		expr.addTerms( ones, vars );
+		return expr;
+	}
+
+	private static GRBVar[] getVars( final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > assignments ) {
+		if ( assignments == null ) return new GRBVar[ 0 ];
+		final GRBVar[] ret = new GRBVar[ assignments.size() ];
+		int i = 0;
+		for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a : assignments ) {
+			ret[ i++ ] = a.getGRBVar();
+		}
+		return ret;
+	}
+
+	private void addBatch( final GRBLinExpr[] exprs, final char sense, final double rhs, final int kind, final int t ) throws GRBException {
+		if ( exprs.length == 0 ) return;
+		final char[] senses = new char[ exprs.length ];
+		final double[] rhss = new double[ exprs.length ];
+		Arrays.fill( senses, sense );
+		Arrays.fill( rhss, rhs );
+		final ModelNaming naming = ilp.getNaming();
+		final String[] names = naming.constrNames( kind, t, exprs.length );
+		naming.registerAll( ilp.model.addConstrs( exprs, senses, rhss, names ), kind, t );
+	}
+}
@@ -72,7 +72,9 @@ public class ExitAssignment extends AbstractAssignment< Hypothesis< Component< F
 		}
 
 		if ( add && !MoMA.DISABLE_EXIT_CONSTRAINTS ) {
-			ilp.model.addConstr( expr, GRB.LESS_EQUAL, Hup.size(), "dc_" + dcId );
+			final int t = who.getTime();
+			final String name = ilp.getNaming().constrName( ModelNaming.EXIT, t, dcId );
+			ilp.getNaming().register( ilp.model.addConstr( expr, GRB.LESS_EQUAL, Hup.size(), name ), ModelNaming.EXIT, t, dcId );
 		}
 		dcId++;
 	}
@@ -10,8 +10,10 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -26,6 +28,7 @@ import com.jug.gui.progress.ProgressListener;
 import com.jug.lp.costs.CostFactory;
 import com.jug.lp.costs.CostManager;
 import com.jug.util.ComponentTreeUtils;
+import com.jug.util.ComputeResources;
 
 import gurobi.GRB;
 import gurobi.GRBConstr;
@@ -66,15 +69,37 @@ public class GrowthLineTrackingILP {
 
 	public static final float CUTOFF_COST = 3.0f;
 
+	/**
+	 * Ways to generate the path-blocking and continuity constraints (see
+	 * <code>MoMA.CONSTRAINT_FORMULATION</code> and
+	 * <code>ConstraintCompiler</code>).
+	 */
+	public static final int CONSTRAINTS_RECURSIVE = 0;
+	public static final int CONSTRAINTS_PATH_TABLE = 1;
+	public static final int CONSTRAINTS_CLIQUES = 2;
+
 	public static GRBEnv env;
-	public static CostManager costManager;
+
+	/**
+	 * The feature weights of mapping and division assignments, shared by the
+	 * <code>CostManager</code>s of all ILPs.
+	 */
+	public static final double[] COST_WEIGHTS = new double[] { 0.1, 0.9, 0.5, 0.5, 0, 1, 								// mapping
+	                                                           0.1, 0.9, 0.5, 0.5, 0, 1, 1, 0, 1, 1, 0, 0.1, 0.03 };  // division
 
 	// -------------------------------------------------------------------------------------
 	// fields
 	// -------------------------------------------------------------------------------------
 	private final GrowthLine gl;
 
+	/**
+	 * Feature rows of the variables of this ILP only; ILPs built concurrently
+	 * (see <code>MoMA.MAX_CONCURRENT_SOLVES</code>) must not share one.
+	 */
+	private final CostManager costManager;
+
 	public GRBModel model;
+	private GRBEnv modelEnv = null;
 	private int status = OPTIMIZATION_NEVER_PERFORMED;
 
 	public final AssignmentsAndHypotheses< AbstractAssignment< Hypothesis< Component< FloatType, ? > > >, Hypothesis< Component< FloatType, ? > > > nodes =
@@ -89,6 +114,67 @@ public class GrowthLineTrackingILP {
 
 	private int pbcId = 0;
 
+	/**
+	 * Hands out (or omits) the names of variables and constraints, see
+	 * <code>MoMA.ILP_NAMING</code>.
+	 */
+	private final ModelNaming naming = new ModelNaming( MoMA.ILP_NAMING );
+
+	/**
+	 * If true, hypotheses that cannot be reached by any assignment from the
+	 * previous frame get no variables (see <code>getReachableHypotheses</code>).
+	 */
+	private boolean presolve = MoMA.PRESOLVE_HYPOTHESES;
+	private int numPrunedHypotheses = 0;
+
+	/**
+	 * Decides which mapping and division candidates get variables, see
+	 * <code>MoMA.CANDIDATE_STRATEGY</code>.
+	 */
+	private CandidateSelector candidateSelector = new CandidateSelector( MoMA.CANDIDATE_STRATEGY, MoMA.CANDIDATES_K, MoMA.CANDIDATE_GAP_RATIO );
+	private int constraintFormulation = MoMA.CONSTRAINT_FORMULATION;
+
+	/**
+	 * Time (in ms) it took to add the path-blocking and continuity
+	 * constraints during <code>buildILP</code>.
+	 */
+	private long constraintBuildMillis = -1;
+
+	/**
+	 * Objective of the last solve that ended optimal (NaN if none), used by
+	 * <code>TerminationPolicy.MatchesPrevious</code> when re-optimizing
+	 * after a curation.
+	 */
+	private double previousObjective = Double.NaN;
+	/**
+	 * True if constraints were removed from <code>model</code> since
+	 * <code>previousObjective</code> was found. The new optimum might then be
+	 * better, hence <code>MatchesPrevious</code> must not be used.
+	 */
+	private boolean constraintsRemovedSinceOptimum = false;
+	private SolverTrajectory trajectory = new SolverTrajectory();
+	private String terminationReason = null;
+
+	/**
+	 * True if the latest solution was not read from <code>model</code>, but
+	 * stored in the assignments (see <code>TimeSegmentDecomposer</code>).
+	 */
+	private boolean solutionStoredInAssignments = false;
+
+	/**
+	 * Incremented whenever a new solution is available, so that views can
+	 * tell if what they precomputed is outdated.
+	 */
+	private volatile int solutionVersion = 0;
+	private volatile SolutionSummary solutionSummary = null;
+
+	/**
+	 * The latest solution, published by the thread running the optimization
+	 * (see <code>SolutionSnapshot</code>). Null as long as there is none.
+	 */
+	private volatile SolutionSnapshot publishedSolution = null;
+	private volatile LineageIndex lineageIndex = null;
+
 	private final GRBConstr[] segmentInFrameCountConstraint;
 
 	private final List< ProgressListener > progressListener;
@@ -97,34 +183,35 @@ public class GrowthLineTrackingILP {
 	// construction
 	// -------------------------------------------------------------------------------------
 	public GrowthLineTrackingILP( final GrowthLine gl ) {
+		this( gl, true );
+	}
+
+	/**
+	 * @param gl
+	 * @param withSolver
+	 *            if false, neither a Gurobi environment nor a model is
+	 *            created. Such an ILP can only be filled by
+	 *            <code>loadSolution</code>.
+	 */
+	public GrowthLineTrackingILP( final GrowthLine gl, final boolean withSolver ) {
 		this.gl = gl;
 
 		// Array to hold segment# constraints
 		this.segmentInFrameCountConstraint = new GRBConstr[ gl.size() ];
 
-		// Setting static stuff (this IS ugly!)
-		if ( env == null ) {
+		this.costManager = new CostManager( 6, 13, COST_WEIGHTS );
+
+		if ( withSolver ) {
 			try {
-				env = new GRBEnv( "MotherMachineILPs.log" );
+				// models solved concurrently need environments of their own
+				modelEnv = GurobiEnvPool.acquire();
+				model = new GRBModel( modelEnv );
 			} catch ( final GRBException e ) {
-				System.out.println( "GrowthLineTrackingILP::env could not be initialized!" );
+				System.out.println( "GrowthLineTrackingILP::model could not be initialized!" );
 				e.printStackTrace();
 			}
 		}
 
-		if ( costManager == null ) {
-			costManager = new CostManager( 6, 13 );
-			costManager.setWeights( new double[] { 0.1, 0.9, 0.5, 0.5, 0, 1, 								// mapping
-			                                       0.1, 0.9, 0.5, 0.5, 0, 1, 1, 0, 1, 1, 0, 0.1, 0.03 } );  // division
-		}
-
-		try {
-			model = new GRBModel( env );
-		} catch ( final GRBException e ) {
-			System.out.println( "GrowthLineTrackingILP::model could not be initialized!" );
-			e.printStackTrace();
-		}
-
 		this.progressListener = new ArrayList< ProgressListener >();
 	}
 
@@ -144,6 +231,165 @@ public class GrowthLineTrackingILP {
 		return status;
 	}
 
+	/**
+	 * @return incumbent and bound over time during the latest solve.
+	 */
+	public SolverTrajectory getTrajectory() {
+		return trajectory;
+	}
+
+	/**
+	 * @return why the latest solve was stopped early by a
+	 *         <code>TerminationPolicy</code> (null if it was not).
+	 */
+	public String getTerminationReason() {
+		return terminationReason;
+	}
+
+	/**
+	 * @return the objective value of the latest solution, also if it was
+	 *         found by solving time segments.
+	 * @throws GRBException
+	 *             if there is no solution.
+	 */
+	public double getObjectiveValue() throws GRBException {
+		if ( solutionStoredInAssignments ) return previousObjective;
+		return model.get( GRB.DoubleAttr.ObjVal );
+	}
+
+	/**
+	 * @return a number that changes whenever a new solution became available
+	 *         (by solving or loading, or an incumbent was published during a
+	 *         solve).
+	 */
+	public int getSolutionVersion() {
+		return solutionVersion;
+	}
+
+	/**
+	 * @return the latest published solution (null if there is none yet). It
+	 *         can be read while the ILP is being optimized.
+	 */
+	public SolutionSnapshot getPublishedSolution() {
+		return publishedSolution;
+	}
+
+	/**
+	 * @return per-frame cell, division and exit counts of the latest
+	 *         published solution. Computed once per solution version.
+	 */
+	public SolutionSummary getSolutionSummary() {
+		final SolutionSnapshot snapshot = publishedSolution;
+		final int version = ( snapshot == null ) ? 0 : snapshot.getVersion();
+		SolutionSummary summary = solutionSummary;
+		if ( summary == null || summary.getSolutionVersion() != version ) {
+			// two threads might both compute it, but they compute the same
+			summary = new SolutionSummary( this, snapshot, gl.size() );
+			solutionSummary = summary;
+		}
+		return summary;
+	}
+
+	/**
+	 * @return the lineage of the latest published solution (empty if there
+	 *         is none yet). Built once per solution.
+	 */
+	public LineageIndex getLineageIndex() {
+		final SolutionSnapshot snapshot = publishedSolution;
+		LineageIndex index = lineageIndex;
+		if ( index == null || index.getSolution() != snapshot ) {
+			// two threads might both build it, but they build the same
+			index = new LineageIndex( this, snapshot );
+			lineageIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Frees the Gurobi model and hands its environment back to the
+	 * <code>GurobiEnvPool</code>. The ILP cannot be optimized (or queried for
+	 * a solution that is not stored in the assignments) afterwards.
+	 */
+	public void dispose() {
+		if ( model != null ) {
+			model.dispose();
+		}
+		// the rows refer to variables of the disposed model
+		costManager.clear();
+		GurobiEnvPool.release( modelEnv );
+		modelEnv = null;
+	}
+
+	/**
+	 * @return true if the current solution is stored in the assignments
+	 *         instead of being read from the Gurobi model.
+	 */
+	public boolean isSolutionStoredInAssignments() {
+		return solutionStoredInAssignments;
+	}
+
+	/**
+	 * @return the time (in ms) it took to add the path-blocking and
+	 *         continuity constraints in <code>buildILP</code> (-1 if not yet
+	 *         built).
+	 */
+	public long getConstraintBuildMillis() {
+		return constraintBuildMillis;
+	}
+
+	/**
+	 * Switches the presolve (pruning of unreachable hypotheses) on or off.
+	 * Must be called before <code>buildILP</code>.
+	 */
+	public void setPresolve( final boolean presolve ) {
+		this.presolve = presolve;
+	}
+
+	/**
+	 * Sets the candidate strategy (see <code>CandidateSelector</code>) to use
+	 * instead of <code>MoMA.CANDIDATE_STRATEGY</code>.
+	 * Must be called before <code>buildILP</code>.
+	 */
+	public void setCandidateStrategy( final int strategy ) {
+		this.candidateSelector = new CandidateSelector( strategy, MoMA.CANDIDATES_K, MoMA.CANDIDATE_GAP_RATIO );
+	}
+
+	/**
+	 * Sets the constraint formulation (one of the <code>CONSTRAINTS_*</code>
+	 * constants) to use instead of <code>MoMA.CONSTRAINT_FORMULATION</code>.
+	 * Must be called before <code>buildILP</code>.
+	 */
+	public void setConstraintFormulation( final int formulation ) {
+		this.constraintFormulation = formulation;
+	}
+
+	/**
+	 * @return the number of hypotheses that did not get any variables because
+	 *         presolve found them to be unreachable.
+	 */
+	public int getNumPrunedHypotheses() {
+		return numPrunedHypotheses;
+	}
+
+	/**
+	 * @return the object handing out the names of variables and constraints
+	 *         of this ILP.
+	 */
+	public ModelNaming getNaming() {
+		return naming;
+	}
+
+	/**
+	 * Writes the model to the given file (format determined by the file
+	 * extension, e.g. '.lp' or '.mps'). If the model was built with compact
+	 * or no names, the descriptive names are set before writing.
+	 */
+	public void writeDebugModel( final File file ) throws GRBException {
+		naming.applyReadableNames( model, nodes );
+		model.update();
+		model.write( file.getAbsolutePath() );
+	}
+
 	// -------------------------------------------------------------------------------------
 	// methods
 	// -------------------------------------------------------------------------------------
@@ -175,17 +421,29 @@ public class GrowthLineTrackingILP {
 			}
 			System.out.println( "    Hypothesis count: " + numHyp );
 			System.out.println( "    Assignment count: " + numAss );
+			System.out.print( candidateSelector.getReport() );
+			if ( presolve ) {
+				System.out.println( String.format( "    Presolve: %d unreachable hypotheses pruned (their exit, mapping, and division variables were never created)", numPrunedHypotheses ) );
+			}
 
 			// Add the remaining ILP constraints
 			// (those would be (i) and (ii) of 'Default Solution')
 			// - - - - - - - - - - - - - - - - - - - - - - - - - -
-			addPathBlockingConstraints();
-			addExplainationContinuityConstraints();
+			final long startTime = System.currentTimeMillis();
+			if ( constraintFormulation == CONSTRAINTS_RECURSIVE ) {
+				addPathBlockingConstraints();
+				addExplainationContinuityConstraints();
+			} else {
+				final ConstraintCompiler compiler = new ConstraintCompiler( this, constraintFormulation );
+				compiler.addPathBlockingConstraints();
+				compiler.addExplainationContinuityConstraints();
+			}
 
 			// UPDATE GUROBI-MODEL
 			// - - - - - - - - - -
 			model.update();
-//			System.out.println( "Constraints added: " + model.getConstrs().length );
+			constraintBuildMillis = System.currentTimeMillis() - startTime;
+			System.out.println( String.format( "    Constraint count: %d (path-blocking and continuity constraints added in %d ms)", model.get( GRB.IntAttr.NumConstrs ), constraintBuildMillis ) );
 
 		} catch ( final GRBException e ) {
 			System.out.println( "Could not fill data into GrowthLineTrackingILP!" );
@@ -451,7 +709,7 @@ public class GrowthLineTrackingILP {
 	 * @throws GRBException
 	 */
 	private void enumerateAndAddAssignments( final int t ) throws GRBException {
-		final List< Hypothesis< Component< FloatType, ? >>> curHyps = nodes.getHypothesesAt( t );
+		final List< Hypothesis< Component< FloatType, ? >>> curHyps = presolve ? getReachableHypotheses( t ) : nodes.getHypothesesAt( t );
 		final List< Hypothesis< Component< FloatType, ? >>> nxtHyps = nodes.getHypothesesAt( t + 1 );
 
 		addExitAssignments( t, curHyps );
@@ -460,6 +718,66 @@ public class GrowthLineTrackingILP {
 		this.reportProgress();
 	}
 
+	/**
+	 * Presolve: returns the hypotheses at time t that can be part of a
+	 * feasible solution at all.
+	 * For 0 < t < T-1 the continuity constraint forces all right assignments
+	 * of a hypothesis to 0 if it has no left assignment (e.g. because all of
+	 * them were cut off by <code>CUTOFF_COST</code> or pruned further up
+	 * stream). Leaving such hypotheses out removes their variables without
+	 * changing the set of feasible solutions. Since the frames are
+	 * enumerated in temporal order, this propagates forward.
+	 * Cost bounds enter only through <code>CUTOFF_COST</code>: a hypothesis
+	 * all of whose incoming assignments are too expensive has none left and
+	 * is pruned here. Hypotheses that are merely dominated by cheaper ones
+	 * are kept, since the path and exit constraints make dropping them
+	 * change the optimum in general.
+	 */
+	private List< Hypothesis< Component< FloatType, ? >>> getReachableHypotheses( final int t ) {
+		final List< Hypothesis< Component< FloatType, ? >>> hyps = nodes.getHypothesesAt( t );
+		if ( t == 0 || hyps == null ) return hyps;
+
+		final List< Hypothesis< Component< FloatType, ? >>> ret = new ArrayList< Hypothesis< Component< FloatType, ? >>>();
+		for ( final Hypothesis< Component< FloatType, ? >> hyp : hyps ) {
+			final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > left = edgeSets.getLeftNeighborhood( hyp );
+			if ( left != null && !left.isEmpty() ) {
+				ret.add( hyp );
+			} else {
+				numPrunedHypotheses++;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Builds and solves this ILP's GL a second time without presolve and
+	 * compares objective values and variable counts with the (already
+	 * solved) presolved model of this ILP.
+	 *
+	 * @return true if both optimal objective values agree.
+	 */
+	public boolean validatePresolve() {
+		final GrowthLineTrackingILP reference = new GrowthLineTrackingILP( gl );
+		reference.setPresolve( false );
+		reference.buildILP();
+		reference.run();
+		try {
+			final double objPresolved = getObjectiveValue();
+			final double objReference = reference.getObjectiveValue();
+			final int varsPresolved = model.get( GRB.IntAttr.NumVars );
+			final int varsReference = reference.model.get( GRB.IntAttr.NumVars );
+			final boolean ok = Math.abs( objPresolved - objReference ) <= 1e-6 * Math.max( 1.0, Math.abs( objReference ) );
+			System.out.println( String.format( "    Presolve validation: %d of %d variables eliminated, objective %.6f (reference %.6f) -- %s", varsReference - varsPresolved, varsReference, objPresolved, objReference, ok ? "OK" : "MISMATCH" ) );
+			return ok;
+		} catch ( final GRBException e ) {
+			System.out.println( "ERROR: presolve could not be validated (no solution available)." );
+			e.printStackTrace();
+			return false;
+		} finally {
+			reference.dispose();
+		}
+	}
+
 	/**
 	 * Add an exit-assignment at time t to a bunch of segmentation hypotheses.
 	 * Note: exit-assignments cost <code>0</code>, but they come with a
@@ -483,7 +801,7 @@ public class GrowthLineTrackingILP {
 		for ( final Hypothesis< Component< FloatType, ? >> hyp : hyps ) {
 			cost = costModulationForSubstitutedILP( hyp.getCosts() );
 
-			final GRBVar newLPVar = model.addVar( 0.0, 1.0, cost, GRB.BINARY, String.format( "a_%d^EXIT--%d", t, hyp.getId() ) );
+			final GRBVar newLPVar = model.addVar( 0.0, 1.0, cost, GRB.BINARY, naming.varName( ASSIGNMENT_EXIT, t, hyp.getId(), -1 ) );
 			final List< Hypothesis< Component< FloatType, ? >>> Hup = LpUtils.getHup( hyp, hyps );
 			final ExitAssignment ea = new ExitAssignment( t, newLPVar, this, nodes, edgeSets, Hup, hyp );
 			nodes.addAssignment( t, ea );
@@ -515,10 +833,15 @@ public class GrowthLineTrackingILP {
 			int j = 0;
 			final float fromCost = from.getCosts();
 
+			// candidates passing the cutoff (see CandidateSelector)
+			final List< Hypothesis< Component< FloatType, ? >>> candTo = new ArrayList< Hypothesis< Component< FloatType, ? >>>();
+			final List< Float > candCosts = new ArrayList< Float >();
+			final List< float[] > candFeatures = new ArrayList< float[] >();
+
 			for ( final Hypothesis< Component< FloatType, ? >> to : nxtHyps ) {
 				final float toCost = to.getCosts();
 
-				if ( !( ComponentTreeUtils.isBelowByMoreThen( to, from, MoMA.MAX_CELL_DROP ) ) ) {
+				if ( !( ComponentTreeUtils.isBelowByMoreThen( to, from, MoMA.MAX_CELL_DROP ) ) && candidateSelector.isInWindow( ASSIGNMENT_MAPPING, from, to ) ) {
 
 					final Pair< Float, float[] > compatibilityCostOfMapping = compatibilityCostOfMapping( from, to );
 					cost = costModulationForSubstitutedILP( fromCost, toCost, compatibilityCostOfMapping.getA() );
@@ -536,25 +859,34 @@ public class GrowthLineTrackingILP {
 					// weights = [ 0.1, 0.9, 0.5, 0.5, 0.0, 1.0 ]
 					//             2.7, 2.7, 0.7, 0.6, 0.6, 0.2
 					if ( cost <= CUTOFF_COST ) {
-						final String name = String.format( "a_%d^MAPPING--(%d,%d)", t, from.getId(), to.getId() );
-						final GRBVar newLPVar = model.addVar( 0.0, 1.0, cost, GRB.BINARY, name );
+						candTo.add( to );
+						candCosts.add( cost );
+						candFeatures.add( featureValues );
+					}
+				}
+			}
 
-						costManager.addMappingVariable( newLPVar, featureValues );
-						if ( Math.abs( cost - costManager.getCurrentCost( newLPVar ) ) > 0.00001 ) {
-							System.err.println( "Mapping cost mismatch!" );
-						}
+			for ( final int c : candidateSelector.select( ASSIGNMENT_MAPPING, candCosts ) ) {
+				final Hypothesis< Component< FloatType, ? >> to = candTo.get( c );
+				cost = candCosts.get( c );
+				final float[] featureValues = candFeatures.get( c );
+				final String name = naming.varName( ASSIGNMENT_MAPPING, t, from.getId(), to.getId() );
+				final GRBVar newLPVar = model.addVar( 0.0, 1.0, cost, GRB.BINARY, name );
 
-						final MappingAssignment ma = new MappingAssignment( t, newLPVar, this, nodes, edgeSets, from, to );
-						nodes.addAssignment( t, ma );
-						if ( edgeSets.addToRightNeighborhood( from, ma ) == false ) {
-							System.err.println( "ERROR: Mapping-assignment could not be added to right neighborhood!" );
-						}
-						if ( edgeSets.addToLeftNeighborhood( to, ma ) == false ) {
-							System.err.println( "ERROR: Mapping-assignment could not be added to left neighborhood!" );
-						}
-						j++;
-					}
+				costManager.addMappingVariable( newLPVar, featureValues );
+				if ( Math.abs( cost - costManager.getCurrentCost( newLPVar ) ) > 0.00001 ) {
+					System.err.println( "Mapping cost mismatch!" );
+				}
+
+				final MappingAssignment ma = new MappingAssignment( t, newLPVar, this, nodes, edgeSets, from, to );
+				nodes.addAssignment( t, ma );
+				if ( edgeSets.addToRightNeighborhood( from, ma ) == false ) {
+					System.err.println( "ERROR: Mapping-assignment could not be added to right neighborhood!" );
+				}
+				if ( edgeSets.addToLeftNeighborhood( to, ma ) == false ) {
+					System.err.println( "ERROR: Mapping-assignment could not be added to left neighborhood!" );
 				}
+				j++;
 			}
 			i++;
 		}
@@ -710,8 +1042,14 @@ public class GrowthLineTrackingILP {
 			int j = 0;
 			final float fromCost = from.getCosts();
 
+			// candidates passing the cutoff (see CandidateSelector)
+			final List< Hypothesis< Component< FloatType, ? >>> candTo = new ArrayList< Hypothesis< Component< FloatType, ? >>>();
+			final List< Hypothesis< Component< FloatType, ? >>> candLower = new ArrayList< Hypothesis< Component< FloatType, ? >>>();
+			final List< Float > candCosts = new ArrayList< Float >();
+			final List< float[] > candFeatures = new ArrayList< float[] >();
+
 			for ( final Hypothesis< Component< FloatType, ? >> to : nxtHyps ) {
-				if ( !( ComponentTreeUtils.isBelowByMoreThen( to, from, MoMA.MAX_CELL_DROP ) ) ) {
+				if ( !( ComponentTreeUtils.isBelowByMoreThen( to, from, MoMA.MAX_CELL_DROP ) ) && candidateSelector.isInWindow( ASSIGNMENT_DIVISION, from, to ) ) {
 					for ( final Component< FloatType, ? > neighborCTN : ComponentTreeUtils.getRightNeighbors( to.getWrappedHypothesis() ) ) {
 						@SuppressWarnings( "unchecked" )
 						final Hypothesis< Component< FloatType, ? > > lowerNeighbor = ( Hypothesis< Component< FloatType, ? >> ) nodes.findHypothesisContaining( neighborCTN );
@@ -741,25 +1079,36 @@ public class GrowthLineTrackingILP {
 							// weights =  [ 0.1, 0.9, 0.5, 0.5, 0.0, 1.0, 1.0, 0.0, 1.0, 1.0, 0.0, 0.1, 0.03 ]
 							//             -0.6, 1.1, 0.9, 0.6, 1.6, 1.1, 0.3, 0.4, 0.3, 0.8, 1.6, 1.3, 0.02
 							if ( cost <= CUTOFF_COST ) {
-								final String name = String.format( "a_%d^DIVISION--(%d,%d)", t, from.getId(), to.getId() );
-								final GRBVar newLPVar = model.addVar( 0.0, 1.0, cost, GRB.BINARY, name );
-
-								costManager.addDivisionVariable( newLPVar, featureValues );
-								if ( Math.abs( cost - costManager.getCurrentCost( newLPVar ) ) > 0.00001 ) {
-									System.err.println( "Division cost mismatch!" );
-								}
-
-								final DivisionAssignment da = new DivisionAssignment( t, newLPVar, this, nodes, edgeSets, from, to, lowerNeighbor );
-								nodes.addAssignment( t, da );
-								edgeSets.addToRightNeighborhood( from, da );
-								edgeSets.addToLeftNeighborhood( to, da );
-								edgeSets.addToLeftNeighborhood( lowerNeighbor, da );
-								j++;
+								candTo.add( to );
+								candLower.add( lowerNeighbor );
+								candCosts.add( cost );
+								candFeatures.add( featureValues );
 							}
 						}
 					}
 				}
 			}
+
+			for ( final int c : candidateSelector.select( ASSIGNMENT_DIVISION, candCosts ) ) {
+				final Hypothesis< Component< FloatType, ? >> to = candTo.get( c );
+				final Hypothesis< Component< FloatType, ? >> lowerNeighbor = candLower.get( c );
+				cost = candCosts.get( c );
+				final float[] featureValues = candFeatures.get( c );
+				final String name = naming.varName( ASSIGNMENT_DIVISION, t, from.getId(), to.getId() );
+				final GRBVar newLPVar = model.addVar( 0.0, 1.0, cost, GRB.BINARY, name );
+
+				costManager.addDivisionVariable( newLPVar, featureValues );
+				if ( Math.abs( cost - costManager.getCurrentCost( newLPVar ) ) > 0.00001 ) {
+					System.err.println( "Division cost mismatch!" );
+				}
+
+				final DivisionAssignment da = new DivisionAssignment( t, newLPVar, this, nodes, edgeSets, from, to, lowerNeighbor );
+				nodes.addAssignment( t, da );
+				edgeSets.addToRightNeighborhood( from, da );
+				edgeSets.addToLeftNeighborhood( to, da );
+				edgeSets.addToLeftNeighborhood( lowerNeighbor, da );
+				j++;
+			}
 			i++;
 		}
 	}
@@ -1011,8 +1360,8 @@ public class GrowthLineTrackingILP {
 				runnerNode = runnerNode.getParent();
 			}
 			pbcId++;
-			final String name = "pbc_r_t_" + t + "_" + pbcId;
-			model.addConstr( exprR, GRB.LESS_EQUAL, 1.0, name );
+			final String name = naming.constrName( ModelNaming.PATH_BLOCKING, t, pbcId );
+			naming.register( model.addConstr( exprR, GRB.LESS_EQUAL, 1.0, name ), ModelNaming.PATH_BLOCKING, t, pbcId );
 		} else {
 			// if ctNode is a inner node -> recursion
 			for ( final C ctChild : ctNode.getChildren() ) {
@@ -1124,6 +1473,9 @@ public class GrowthLineTrackingILP {
 		for ( int t = 1; t < gl.size() - 1; t++ ) { // !!! sparing out the border !!!
 
 			for ( final Hypothesis< Component< FloatType, ? >> hyp : nodes.getHypothesesAt( t ) ) {
+				// hypotheses pruned by presolve are not part of the model
+				if ( edgeSets.getLeftNeighborhood( hyp ) == null && edgeSets.getRightNeighborhood( hyp ) == null ) continue;
+
 				final GRBLinExpr expr = new GRBLinExpr();
 
 				if ( edgeSets.getLeftNeighborhood( hyp ) != null ) {
@@ -1138,7 +1490,8 @@ public class GrowthLineTrackingILP {
 				}
 
 				// add the constraint for this hypothesis
-				model.addConstr( expr, GRB.EQUAL, 0.0, "ecc_" + eccId );
+				final String name = naming.constrName( ModelNaming.CONTINUITY, t, eccId );
+				naming.register( model.addConstr( expr, GRB.EQUAL, 0.0, name ), ModelNaming.CONTINUITY, t, eccId );
 				eccId++;
 			}
 		}
@@ -1194,13 +1547,29 @@ public class GrowthLineTrackingILP {
 	 * segmentation and tracking problem.
 	 */
 	public void run() {
+		solutionStoredInAssignments = false;
+		if ( MoMA.DECOMPOSE_TIME_SEGMENTS ) {
+			final TimeSegmentDecomposer decomposer = new TimeSegmentDecomposer( this, MoMA.DECOMPOSITION_MIN_SEGMENT_LENGTH );
+			if ( decomposer.getSegments().size() > 1 ) {
+				runDecomposed( decomposer );
+				return;
+			}
+		}
+
+		// Threads cannot be changed once Gurobi runs, hence the share of the
+		// core budget is determined (and fixed) here.
+		final ComputeResources.Allocation cores = ComputeResources.acquireForSolve();
 		try {
 			// Set maximum time Gurobi may use!
 //			model.getEnv().set( GRB.DoubleParam.TimeLimit, MotherMachine.GUROBI_TIME_LIMIT ); // now handled by callback!
+			SolverProfile.byName( MoMA.SOLVER_PROFILE ).apply( model.getEnv(), cores.getThreads() );
 			model.getEnv().set( GRB.IntParam.OutputFlag, 0 );
 
 			final DialogGurobiProgress dialog = new DialogGurobiProgress( MoMA.getGuiFrame() );
-			final GurobiCallback gcb = new GurobiCallback( dialog );
+			final GurobiCallback gcb = new GurobiCallback( dialog, TerminationPolicy.fromParameters( constraintsRemovedSinceOptimum ? Double.NaN : previousObjective ) );
+			if ( !MoMA.HEADLESS && MoMA.INCUMBENT_PREVIEW_INTERVAL > 0 ) {
+				previewIncumbents( gcb );
+			}
 			model.setCallback( gcb );
 			if ( !MoMA.HEADLESS ) {
 				dialog.setVisible( true );
@@ -1209,7 +1578,13 @@ public class GrowthLineTrackingILP {
 			// RUN + return true if solution is feasible
 			// - - - - - - - - - - - - - - - - - - - - -
 			model.optimize();
+			publishSolution();
 			dialog.notifyGurobiTermination();
+			trajectory = gcb.getTrajectory();
+			terminationReason = gcb.getTerminationReason();
+			if ( model.get( GRB.IntAttr.SolCount ) > 0 ) {
+				trajectory.record( model.get( GRB.DoubleAttr.Runtime ), model.get( GRB.DoubleAttr.ObjVal ), model.get( GRB.DoubleAttr.ObjBound ) );
+			}
 			if ( MoMA.getGui() != null ) {
 				MoMA.getGui().dataToDisplayChanged();
 			}
@@ -1239,6 +1614,8 @@ public class GrowthLineTrackingILP {
 			// - - - - - - - - - - - - - - - - - - - - -
 			if ( model.get( GRB.IntAttr.Status ) == GRB.Status.OPTIMAL ) {
 				status = OPTIMAL;
+				previousObjective = model.get( GRB.DoubleAttr.ObjVal );
+				constraintsRemovedSinceOptimum = false;
 				if ( !MoMA.HEADLESS ) {
 					dialog.pushStatus( "Optimum was found!" );
 					if ( MoMA.getGui() != null ) {
@@ -1270,7 +1647,337 @@ public class GrowthLineTrackingILP {
 		} catch ( final GRBException e ) {
 			System.out.println( "Could not run the generated ILP!" );
 			e.printStackTrace();
+		} finally {
+			cores.release();
+		}
+	}
+
+	/**
+	 * Solves the independent time segments found by the given decomposer
+	 * instead of the whole model at once. The solution ends up stored in the
+	 * assignments, everything reading the solution through
+	 * <code>AbstractAssignment.isChoosen</code> does not notice the
+	 * difference.
+	 */
+	private void runDecomposed( final TimeSegmentDecomposer decomposer ) {
+		System.out.println( String.format( "    Decomposition: solving %d independent time segments", decomposer.getSegments().size() ) );
+		status = decomposer.run();
+		solutionStoredInAssignments = true;
+		trajectory = new SolverTrajectory();
+		terminationReason = null;
+		if ( status == OPTIMAL ) {
+			previousObjective = decomposer.getObjective();
+			constraintsRemovedSinceOptimum = false;
+		}
+		publishSolution();
+		if ( MoMA.VALIDATE_DECOMPOSITION ) {
+			validateDecomposition( decomposer.getObjective() );
+		}
+		if ( MoMA.getGui() != null ) {
+			MoMA.getGui().dataToDisplayChanged();
+		}
+	}
+
+	/**
+	 * Solves a copy of the whole model and compares its optimal objective
+	 * value and solution with the ones found by solving time segments.
+	 *
+	 * @return true if both objective values agree.
+	 */
+	private boolean validateDecomposition( final double objDecomposed ) {
+		GRBModel reference = null;
+		try {
+			reference = new GRBModel( model );
+			SolverProfile.byName( MoMA.SOLVER_PROFILE ).apply( reference.getEnv() );
+			reference.getEnv().set( GRB.IntParam.OutputFlag, 0 );
+			reference.optimize();
+			final double objReference = reference.get( GRB.DoubleAttr.ObjVal );
+
+			int differences = 0;
+			final GRBVar[] vars = reference.getVars();
+			final IdentityHashMap< GRBVar, Integer > idxOfVar = new IdentityHashMap< GRBVar, Integer >();
+			final GRBVar[] ownVars = model.getVars();
+			for ( int i = 0; i < ownVars.length; i++ ) {
+				idxOfVar.put( ownVars[ i ], i );
+			}
+			for ( final List< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > innerList : nodes.getAllAssignments() ) {
+				for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? >>> assignment : innerList ) {
+					final Integer idx = idxOfVar.get( assignment.getGRBVar() );
+					if ( idx == null ) continue;
+					if ( assignment.isChoosen() != ( vars[ idx ].get( GRB.DoubleAttr.X ) > 0.5 ) ) {
+						differences++;
+					}
+				}
+			}
+			final boolean ok = Math.abs( objDecomposed - objReference ) <= 1e-6 * Math.max( 1.0, Math.abs( objReference ) );
+			System.out.println( String.format( "    Decomposition validation: objective %.6f (monolithic %.6f), %d assignments differ -- %s", objDecomposed, objReference, differences, ok ? "OK" : "MISMATCH" ) );
+			return ok;
+		} catch ( final GRBException e ) {
+			System.out.println( "ERROR: decomposition could not be validated (no monolithic solution available)." );
+			e.printStackTrace();
+			return false;
+		} finally {
+			if ( reference != null ) {
+				reference.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Decomposition: tells whether the activity of the given hypothesis (at
+	 * a frame 0 &lt; t &lt; T-1) is determined by the current constraints.
+	 *
+	 * @return 1 or 0 if the hypothesis is forced into or out of every
+	 *         feasible solution, -1 if it is not.
+	 */
+	int getForcedActivity( final Hypothesis< Component< FloatType, ? > > hyp ) {
+		final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > left = edgeSets.getLeftNeighborhood( hyp );
+		final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > right = edgeSets.getRightNeighborhood( hyp );
+		// the continuity constraint forces hypotheses that cannot be entered
+		// or left to be inactive
+		if ( left == null || left.isEmpty() || right == null || right.isEmpty() ) return 0;
+		try {
+			if ( ignoreSegmentConstraints.containsKey( hyp ) ) return 0;
+			final GRBConstr freeze = freezeSegmentConstraints.get( hyp );
+			if ( freeze != null ) return ( int ) Math.round( freeze.get( GRB.DoubleAttr.RHS ) );
+			final GRBConstr clamp = hyp.getSegmentSpecificConstraint();
+			if ( clamp != null ) return ( int ) Math.round( clamp.get( GRB.DoubleAttr.RHS ) );
+		} catch ( final GRBException e ) {
+			e.printStackTrace();
+		}
+		return -1;
+	}
+
+	/**
+	 * @return a string describing all parameters the assignment costs depend
+	 *         on (beyond the segmentation itself).
+	 */
+	public static String getCostFingerprint() {
+		return String.format(
+				"weights=%s|cutoff=%.3f|maxCellDrop=%d",
+				Arrays.toString( COST_WEIGHTS ),
+				CUTOFF_COST,
+				MoMA.MAX_CELL_DROP );
+	}
+
+	/**
+	 * Collects the current solution (all active assignments) into a
+	 * <code>SolutionArtifact</code>.
+	 *
+	 * @param inputFingerprint
+	 *            describes the data and segmentation parameters this ILP was
+	 *            built from.
+	 */
+	public SolutionArtifact getSolutionArtifact( final String inputFingerprint ) {
+		final int[] hypothesesPerFrame = new int[ gl.size() ];
+		final long[] hypothesesHashes = new long[ gl.size() ];
+		for ( int t = 0; t < gl.size(); t++ ) {
+			final List< Hypothesis< Component< FloatType, ? > > > hyps = nodes.getHypothesesAt( t );
+			hypothesesPerFrame[ t ] = ( hyps == null ) ? 0 : hyps.size();
+			hypothesesHashes[ t ] = SolutionArtifact.hashHypotheses( hyps );
+		}
+
+		final List< SolutionArtifact.AssignmentRecord > records = new ArrayList< SolutionArtifact.AssignmentRecord >();
+		for ( int t = 0; t < gl.size() - 1; t++ ) {
+			for ( final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > set : getOptimalRightAssignments( t ).values() ) {
+				for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a : set ) {
+					final List< Hypothesis< Component< FloatType, ? > > > hyps = new ArrayList< Hypothesis< Component< FloatType, ? > > >();
+					if ( a.getType() == ASSIGNMENT_EXIT ) {
+						hyps.add( ( ( ExitAssignment ) a ).getAssociatedHypothesis() );
+					} else if ( a.getType() == ASSIGNMENT_MAPPING ) {
+						hyps.add( ( ( MappingAssignment ) a ).getSourceHypothesis() );
+						hyps.add( ( ( MappingAssignment ) a ).getDestinationHypothesis() );
+					} else if ( a.getType() == ASSIGNMENT_DIVISION ) {
+						hyps.add( ( ( DivisionAssignment ) a ).getSourceHypothesis() );
+						hyps.add( ( ( DivisionAssignment ) a ).getUpperDesinationHypothesis() );
+						hyps.add( ( ( DivisionAssignment ) a ).getLowerDesinationHypothesis() );
+					}
+					final int[] hypLocations = new int[ 2 * hyps.size() ];
+					for ( int i = 0; i < hyps.size(); i++ ) {
+						hypLocations[ 2 * i ] = hyps.get( i ).getLocation().getA();
+						hypLocations[ 2 * i + 1 ] = hyps.get( i ).getLocation().getB();
+					}
+					records.add( new SolutionArtifact.AssignmentRecord( a.getType(), t, a.getCost(), hypLocations ) );
+				}
+			}
+		}
+		return new SolutionArtifact( inputFingerprint + "|" + getCostFingerprint(), status, hypothesesPerFrame, hypothesesHashes, records );
+	}
+
+	/**
+	 * Restores a solution from the given artifact. Only the segmentation
+	 * hypotheses and the active assignments are created. No Gurobi variables
+	 * are involved, so this ILP is typically created without solver (see
+	 * constructor).
+	 *
+	 * @param solution
+	 * @param inputFingerprint
+	 *            describes the data and segmentation parameters this ILP is
+	 *            built from.
+	 * @return true if the solution could be restored; false if it does not
+	 *         fit the current data and parameters.
+	 */
+	public boolean loadSolution( final SolutionArtifact solution, final String inputFingerprint ) {
+		if ( !solution.hasFingerprint( inputFingerprint + "|" + getCostFingerprint() ) ) {
+			System.out.println( "WARNING: stored solution was computed on different data or parameters." );
+			return false;
+		}
+		if ( solution.getNumFrames() != gl.size() ) return false;
+
+		while ( nodes.getNumberOfTimeSteps() < gl.size() ) {
+			nodes.addTimeStep();
+		}
+		final List< HashMap< String, Hypothesis< Component< FloatType, ? > > > > hypsByLocation = new ArrayList< HashMap< String, Hypothesis< Component< FloatType, ? > > > >();
+		for ( int t = 0; t < gl.size(); t++ ) {
+			createSegmentationHypotheses( t );
+			final List< Hypothesis< Component< FloatType, ? > > > hyps = nodes.getHypothesesAt( t );
+			if ( hyps.size() != solution.getNumHypotheses( t ) ) {
+				System.out.println( String.format( "WARNING: stored solution expects %d hypotheses at t=%d, found %d.", solution.getNumHypotheses( t ), t, hyps.size() ) );
+				return false;
+			}
+			if ( SolutionArtifact.hashHypotheses( hyps ) != solution.getHypothesesHash( t ) ) {
+				System.out.println( String.format( "WARNING: stored solution was computed on other hypotheses at t=%d.", t ) );
+				return false;
+			}
+			final HashMap< String, Hypothesis< Component< FloatType, ? > > > map = new HashMap< String, Hypothesis< Component< FloatType, ? > > >();
+			for ( final Hypothesis< Component< FloatType, ? > > hyp : hyps ) {
+				map.put( hyp.getLocation().getA() + ":" + hyp.getLocation().getB(), hyp );
+			}
+			hypsByLocation.add( map );
+		}
+
+		try {
+			for ( final SolutionArtifact.AssignmentRecord record : solution.getAssignments() ) {
+				final int t = record.getTime();
+				final int[] loc = record.getHypLocations();
+				final List< Hypothesis< Component< FloatType, ? > > > hyps = new ArrayList< Hypothesis< Component< FloatType, ? > > >();
+				for ( int i = 0; i < loc.length / 2; i++ ) {
+					final Hypothesis< Component< FloatType, ? > > hyp = hypsByLocation.get( ( i == 0 ) ? t : t + 1 ).get( loc[ 2 * i ] + ":" + loc[ 2 * i + 1 ] );
+					if ( hyp == null ) {
+						System.out.println( "WARNING: stored solution refers to an unknown hypothesis at t=" + t );
+						return false;
+					}
+					hyps.add( hyp );
+				}
+
+				final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a;
+				if ( record.getType() == ASSIGNMENT_EXIT ) {
+					final List< Hypothesis< Component< FloatType, ? > > > Hup = LpUtils.getHup( hyps.get( 0 ), nodes.getHypothesesAt( t ) );
+					a = new ExitAssignment( t, null, this, nodes, edgeSets, Hup, hyps.get( 0 ) );
+				} else if ( record.getType() == ASSIGNMENT_MAPPING ) {
+					a = new MappingAssignment( t, null, this, nodes, edgeSets, hyps.get( 0 ), hyps.get( 1 ) );
+					edgeSets.addToLeftNeighborhood( hyps.get( 1 ), a );
+				} else {
+					a = new DivisionAssignment( t, null, this, nodes, edgeSets, hyps.get( 0 ), hyps.get( 1 ), hyps.get( 2 ) );
+					edgeSets.addToLeftNeighborhood( hyps.get( 1 ), a );
+					edgeSets.addToLeftNeighborhood( hyps.get( 2 ), a );
+				}
+				a.setStoredSolution( record.getCost(), true );
+				nodes.addAssignment( t, a );
+				edgeSets.addToRightNeighborhood( hyps.get( 0 ), a );
+			}
+		} catch ( final GRBException e ) {
+			e.printStackTrace();
+			return false;
+		}
+
+		status = solution.getStatus();
+		publishSolution();
+		return true;
+	}
+
+	/**
+	 * @return all assignments of this ILP, collected from the right
+	 *         neighborhoods of all hypotheses.
+	 */
+	private List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > collectAssignments() {
+		final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > ret = new ArrayList< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > >();
+		for ( int t = 0; t < nodes.getNumberOfTimeSteps(); t++ ) {
+			final List< Hypothesis< Component< FloatType, ? > > > hyps = nodes.getHypothesesAt( t );
+			if ( hyps == null ) continue;
+			for ( final Hypothesis< Component< FloatType, ? > > hyp : hyps ) {
+				final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > rightNeighbors = edgeSets.getRightNeighborhood( hyp );
+				if ( rightNeighbors != null ) {
+					ret.addAll( rightNeighbors );
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Reads the current solution -- from the model with a single Gurobi call,
+	 * or as stored in the assignments -- and publishes it as a new
+	 * <code>SolutionSnapshot</code>. Must be called by the thread that
+	 * optimized (or loaded) the solution.
+	 */
+	private void publishSolution() {
+		final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > assignments = collectAssignments();
+		final boolean[] values = new boolean[ assignments.size() ];
+		double objective = Double.NaN;
+		try {
+			final boolean inModel = model != null && !solutionStoredInAssignments && model.get( GRB.IntAttr.SolCount ) > 0;
+			final List< Integer > idxInModel = new ArrayList< Integer >();
+			for ( int i = 0; i < assignments.size(); i++ ) {
+				final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a = assignments.get( i );
+				if ( a.getGRBVar() == null || solutionStoredInAssignments ) {
+					values[ i ] = a.getStoredChoosen();
+				} else if ( inModel ) {
+					idxInModel.add( i );
+				}
+			}
+			if ( !idxInModel.isEmpty() ) {
+				final GRBVar[] vars = new GRBVar[ idxInModel.size() ];
+				for ( int j = 0; j < vars.length; j++ ) {
+					vars[ j ] = assignments.get( idxInModel.get( j ) ).getGRBVar();
+				}
+				final double[] x = model.get( GRB.DoubleAttr.X, vars );
+				for ( int j = 0; j < vars.length; j++ ) {
+					values[ idxInModel.get( j ) ] = ( x[ j ] == 1.0 );
+				}
+			}
+			if ( solutionStoredInAssignments ) {
+				objective = previousObjective;
+			} else if ( inModel ) {
+				objective = model.get( GRB.DoubleAttr.ObjVal );
+			}
+		} catch ( final GRBException e ) {
+			System.err.println( "Solution could not be read out of Gurobi ILP!" );
+			e.printStackTrace();
+		}
+		publishedSolution = new SolutionSnapshot( this, ++solutionVersion, false, objective, assignments, values );
+	}
+
+	/**
+	 * Lets the given callback publish the incumbents Gurobi finds (at most
+	 * every <code>MoMA.INCUMBENT_PREVIEW_INTERVAL</code> seconds), such that
+	 * the GUI can show how the solution evolves.
+	 */
+	private void previewIncumbents( final GurobiCallback gcb ) {
+		final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > assignments = new ArrayList< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > >();
+		for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a : collectAssignments() ) {
+			if ( a.getGRBVar() != null ) {
+				assignments.add( a );
+			}
 		}
+		final GRBVar[] vars = new GRBVar[ assignments.size() ];
+		for ( int i = 0; i < vars.length; i++ ) {
+			vars[ i ] = assignments.get( i ).getGRBVar();
+		}
+		gcb.setIncumbentListener( vars, MoMA.INCUMBENT_PREVIEW_INTERVAL, new GurobiCallback.IncumbentListener() {
+
+			@Override
+			public void incumbentFound( final double[] x, final double objective ) {
+				final boolean[] values = new boolean[ x.length ];
+				for ( int i = 0; i < x.length; i++ ) {
+					values[ i ] = ( x[ i ] == 1.0 );
+				}
+				publishedSolution = new SolutionSnapshot( GrowthLineTrackingILP.this, ++solutionVersion, true, objective, assignments, values );
+				if ( MoMA.getGui() != null ) {
+					MoMA.getGui().dataToDisplayChanged();
+				}
+			}
+		} );
 	}
 
 	/**
@@ -1390,6 +2097,11 @@ public class GrowthLineTrackingILP {
 	 *         the optimization procedure).
 	 */
 	public List< Hypothesis< Component< FloatType, ? > > > getOptimalHypotheses( final int t ) {
+		final SolutionSnapshot snapshot = publishedSolution;
+		if ( snapshot != null && t >= 0 && t < snapshot.getNumTimeSteps() ) {
+			return new ArrayList< Hypothesis< Component< FloatType, ? > > >( snapshot.getActiveHypotheses( t ) );
+		}
+
 		final ArrayList< Hypothesis< Component< FloatType, ? > > > ret = new ArrayList< Hypothesis< Component< FloatType, ? > > >();
 
 		final List< Hypothesis< Component< FloatType, ? >>> hyps = nodes.getHypothesesAt( t );
@@ -1520,6 +2232,19 @@ public class GrowthLineTrackingILP {
 
 		final HashMap< Hypothesis< Component< FloatType, ? > >, Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > > ret = new HashMap< Hypothesis< Component< FloatType, ? > >, Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > >();
 
+		final LineageIndex lineage = getLineageIndex();
+		if ( lineage.getSolution() != null ) {
+			for ( int i = 0; i < lineage.getNumSegmentsAt( t ); i++ ) {
+				final int segment = lineage.getSegmentAt( t, i );
+				if ( lineage.getRightAssignment( segment ) != null ) {
+					final HashSet< AbstractAssignment< Hypothesis< Component< FloatType, ? >>> > oneElemSet = new HashSet< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > >();
+					oneElemSet.add( lineage.getRightAssignment( segment ) );
+					ret.put( lineage.getHypothesis( segment ), oneElemSet );
+				}
+			}
+			return ret;
+		}
+
 		final List< Hypothesis< Component< FloatType, ? >>> hyps = nodes.getHypothesesAt( t );
 
 		if ( hyps == null ) return ret;
@@ -1556,6 +2281,9 @@ public class GrowthLineTrackingILP {
 	 * @throws GRBException
 	 */
 	public AbstractAssignment< Hypothesis< Component< FloatType, ? > > > getOptimalRightAssignment( final Hypothesis< Component< FloatType, ? > > hypothesis ) throws GRBException {
+		final LineageIndex lineage = getLineageIndex();
+		final int segment = lineage.getSegment( hypothesis );
+		if ( segment != LineageIndex.NONE ) { return lineage.getRightAssignment( segment ); }
 		return findActiveAssignment( edgeSets.getRightNeighborhood( hypothesis ) );
 	}
 
@@ -1802,7 +2530,7 @@ public class GrowthLineTrackingILP {
 	public void removeSegmentsInFrameCountConstraint( final int t ) {
 		if ( segmentInFrameCountConstraint[ t ] != null ) {
 			try {
-				model.remove( segmentInFrameCountConstraint[ t ] );
+				removeConstraint( segmentInFrameCountConstraint[ t ] );
 				segmentInFrameCountConstraint[ t ] = null;
 			} catch ( final GRBException e ) {
 				e.printStackTrace();
@@ -1894,7 +2622,7 @@ public class GrowthLineTrackingILP {
 				final GRBConstr oldConstr = hyp2remove.getSegmentSpecificConstraint();
 				if ( oldConstr != null ) {
 					try {
-						model.remove( oldConstr );
+						removeConstraint( oldConstr );
 						hyp2remove.setSegmentSpecificConstraint( null );
 					} catch ( final GRBException e ) {
 						e.printStackTrace();
@@ -1912,6 +2640,20 @@ public class GrowthLineTrackingILP {
 		hyp2add.setSegmentSpecificConstraint( model.addConstr( expr, GRB.EQUAL, 1.0, "sisc_" + hyp2add.hashCode() ) );
 	}
 
+	/**
+	 * Removes the given constraint from the model. All constraints removed
+	 * after the model was built must go through here, since the next solve
+	 * must not stop at the objective of the previous one then (see
+	 * <code>TerminationPolicy.MatchesPrevious</code>).
+	 *
+	 * @param constr
+	 * @throws GRBException
+	 */
+	public void removeConstraint( final GRBConstr constr ) throws GRBException {
+		model.remove( constr );
+		constraintsRemovedSinceOptimum = true;
+	}
+
 	/**
 	 * Adds a constraint that forces any solution of this ILP to avoid a certain
 	 * segment hypothesis.
@@ -2266,7 +3008,7 @@ public class GrowthLineTrackingILP {
 			// remove all existing
 			if ( oldConstr != null ) {
 				try {
-					model.remove( oldConstr );
+					removeConstraint( oldConstr );
 					hyp.setSegmentSpecificConstraint( null );
 				} catch ( final GRBException e ) {
 					e.printStackTrace();
@@ -2324,7 +3066,7 @@ public class GrowthLineTrackingILP {
 			final GRBConstr constr = ignoreSegmentConstraints.get( hyp );
 			if ( constr != null ) {
 				try {
-					model.remove( constr );
+					removeConstraint( constr );
 					ignoreSegmentConstraints.remove( hyp );
 				} catch ( final GRBException e ) {
 //					e.printStackTrace();
@@ -2415,7 +3157,7 @@ public class GrowthLineTrackingILP {
 			final GRBConstr constr = freezeSegmentConstraints.get( hyp );
 			if ( constr != null ) {
 				try {
-					model.remove( constr );
+					removeConstraint( constr );
 					freezeSegmentConstraints.remove( hyp );
 				} catch ( final GRBException e ) {
 //					e.printStackTrace();
@@ -1,14 +1,35 @@
 package com.jug.lp;
 
+import java.util.Collections;
+import java.util.List;
+
 import gurobi.GRB;
 import gurobi.GRBCallback;
 import gurobi.GRBException;
+import gurobi.GRBVar;
 
-import com.jug.MoMA;
 import com.jug.gui.progress.DialogGurobiProgress;
 
 public class GurobiCallback extends GRBCallback {
 
+	/**
+	 * Gets told about incumbents found during the solve (see
+	 * <code>setIncumbentListener</code>).
+	 */
+	public interface IncumbentListener {
+
+		/**
+		 * Called by the thread running the solve.
+		 *
+		 * @param x
+		 *            the values of the variables given to
+		 *            <code>setIncumbentListener</code>.
+		 * @param objective
+		 *            the objective value of the incumbent.
+		 */
+		void incumbentFound( double[] x, double objective );
+	}
+
 //	private final double lastiter;
 	private double lastnode;
 //	private final GRBVar[] vars;
@@ -16,12 +37,32 @@ public class GurobiCallback extends GRBCallback {
 	private final DialogGurobiProgress dialog;
 	private double latestGap;
 
-	public GurobiCallback( final DialogGurobiProgress dialog ) { // final GRBVar[] xvars, 
+	private final List< TerminationPolicy > policies;
+	private final SolverTrajectory trajectory = new SolverTrajectory();
+	private String terminationReason = null;
+
+	private IncumbentListener incumbentListener = null;
+	private GRBVar[] incumbentVars;
+	private double incumbentInterval;
+	private double lastIncumbentRuntime = Double.NEGATIVE_INFINITY;
+
+	public GurobiCallback( final DialogGurobiProgress dialog ) {
+		this( dialog, Collections.< TerminationPolicy > singletonList( new TerminationPolicy.TimeLimitAndGap() ) );
+	}
+
+	/**
+	 * @param dialog
+	 *            progress dialog to report to (can be null).
+	 * @param policies
+	 *            the solve is aborted as soon as one of them says so.
+	 */
+	public GurobiCallback( final DialogGurobiProgress dialog, final List< TerminationPolicy > policies ) { // final GRBVar[] xvars, 
 //		lastiter = -GRB.INFINITY;
 		lastnode = -GRB.INFINITY;
 //		vars = xvars;
 		this.dialog = dialog;
 		this.latestGap = Double.POSITIVE_INFINITY;
+		this.policies = policies;
 	}
 
 	@Override
@@ -65,17 +106,22 @@ public class GurobiCallback extends GRBCallback {
 				final double runtime = getDoubleInfo( GRB.CB_RUNTIME );
 
 				this.latestGap = Math.abs( objbst - objbnd ) / ( 1.0 + Math.abs( objbst ) );
+				trajectory.record( runtime, objbst, objbnd );
 
 				if ( nodecnt - lastnode >= 100 ) {
 					lastnode = nodecnt;
 					final int actnodes = ( int ) getDoubleInfo( GRB.CB_MIP_NODLFT );
 					final int itcnt = ( int ) getDoubleInfo( GRB.CB_MIP_ITRCNT );
 					final int cutcnt = getIntInfo( GRB.CB_MIP_CUTCNT );
-					System.out.println( nodecnt + " " + actnodes + " " + itcnt + " " + objbst + " " + objbnd + " " + solcnt + " " + cutcnt );
+					trajectory.recordNodes( runtime, nodecnt, actnodes, itcnt, solcnt, cutcnt );
 				}
-				if ( runtime > MoMA.GUROBI_TIME_LIMIT ) {
-					if ( Math.abs( objbst - objbnd ) < MoMA.GUROBI_MAX_OPTIMALITY_GAP * ( 1.0 + Math.abs( objbst ) ) ) {
-						abort();
+				if ( terminationReason == null ) {
+					for ( final TerminationPolicy policy : policies ) {
+						if ( policy.shouldTerminate( trajectory ) ) {
+							terminationReason = policy.getReason();
+							abort();
+							break;
+						}
 					}
 				}
 //				if ( nodecnt >= 10000 && solcnt > 0 ) {
@@ -85,6 +131,13 @@ public class GurobiCallback extends GRBCallback {
 
 			} else if ( where == GRB.CB_MIPSOL ) {
 				// MIP solution callback
+				if ( incumbentListener != null ) {
+					final double runtime = getDoubleInfo( GRB.CB_RUNTIME );
+					if ( runtime - lastIncumbentRuntime >= incumbentInterval ) {
+						lastIncumbentRuntime = runtime;
+						incumbentListener.incumbentFound( getSolution( incumbentVars ), getDoubleInfo( GRB.CB_MIPSOL_OBJ ) );
+					}
+				}
 //				final int nodecnt = ( int ) getDoubleInfo( GRB.CB_MIPSOL_NODCNT );
 //				final double obj = getDoubleInfo( GRB.CB_MIPSOL_OBJ );
 //				final int solcnt = getIntInfo( GRB.CB_MIPSOL_SOLCNT );
@@ -144,10 +197,39 @@ public class GurobiCallback extends GRBCallback {
 		if ( dialog != null ) dialog.pushStatus( string );
 	}
 
+	/**
+	 * @param vars
+	 *            the variables whose incumbent values the listener wants.
+	 * @param minInterval
+	 *            the listener is called at most once per that many seconds
+	 *            (incumbents found in between are skipped).
+	 * @param listener
+	 */
+	public void setIncumbentListener( final GRBVar[] vars, final double minInterval, final IncumbentListener listener ) {
+		this.incumbentVars = vars;
+		this.incumbentInterval = minInterval;
+		this.incumbentListener = listener;
+	}
+
 	/**
 	 * @return
 	 */
 	public double getLatestGap() {
 		return this.latestGap;
 	}
+
+	/**
+	 * @return incumbent and bound over time, as seen by this callback.
+	 */
+	public SolverTrajectory getTrajectory() {
+		return trajectory;
+	}
+
+	/**
+	 * @return the reason given by the termination policy that aborted the
+	 *         solve, or null if none did.
+	 */
+	public String getTerminationReason() {
+		return terminationReason;
+	}
 }
@@ -0,0 +1,75 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.jug.MoMA;
+
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+
+/**
+ * Gurobi environments to be used by the models of
+ * <code>GrowthLineTrackingILP</code>s.
+ *
+ * Creating an environment checks out a license, which is slow. If models
+ * are solved one after the other, all of them share one environment. If
+ * several GLs are solved concurrently (see
+ * <code>MoMA.MAX_CONCURRENT_SOLVES</code>), each model needs an environment
+ * of its own; those are handed back by
+ * <code>GrowthLineTrackingILP.dispose()</code> and reused by later models,
+ * e.g. of the next dataset of a batch run.
+ *
+ * @author jug
+ */
+public class GurobiEnvPool {
+
+	private static final String LOG_FILE = "MotherMachineILPs.log";
+
+	private static final Deque< GRBEnv > idle = new ArrayDeque< GRBEnv >();
+	private static int numCreated = 0;
+
+	/**
+	 * @return an environment a new model can be created in.
+	 * @throws GRBException
+	 *             if a new environment had to be created but Gurobi failed to
+	 *             do so.
+	 */
+	public static synchronized GRBEnv acquire() throws GRBException {
+		if ( MoMA.MAX_CONCURRENT_SOLVES <= 1 ) return getShared();
+		if ( !idle.isEmpty() ) return idle.pop();
+		numCreated++;
+		return new GRBEnv( LOG_FILE );
+	}
+
+	/**
+	 * Hands an environment back after the (only) model created in it was
+	 * disposed. The shared environment is ignored.
+	 */
+	public static synchronized void release( final GRBEnv env ) {
+		if ( env == null || env == GrowthLineTrackingILP.env ) return;
+		idle.push( env );
+	}
+
+	/**
+	 * @return the number of environments created for concurrent solves so
+	 *         far.
+	 */
+	public static synchronized int getNumCreated() {
+		return numCreated;
+	}
+
+	/**
+	 * @return the environment shared by all models solved one after the
+	 *         other (<code>GrowthLineTrackingILP.env</code>).
+	 */
+	public static synchronized GRBEnv getShared() throws GRBException {
+		if ( GrowthLineTrackingILP.env == null ) {
+			GrowthLineTrackingILP.env = new GRBEnv( LOG_FILE );
+		}
+		return GrowthLineTrackingILP.env;
+	}
+}
@@ -4,7 +4,6 @@
 package com.jug.lp;
 
 import gurobi.GRBConstr;
-import gurobi.GRBException;
 
 import java.util.LinkedList;
 
@@ -128,45 +127,46 @@ public class Hypothesis< T extends Component< FloatType, ? > > {
 	}
 
 	/**
-	 *
+	 * Marks this hypothesis as prune root (or unmarks it) and prunes (or
+	 * un-prunes) everything downstream of it in the current solution: the
+	 * rest of its track and the tracks of all descendants, stopping at other
+	 * prune roots. Walks the <code>LineageIndex</code> of the solution.
 	 */
 	public void setPruneRoot( final boolean value, final GrowthLineTrackingILP ilp ) {
 
 		this.isPruneRoot = value;
 
-		final LinkedList< Hypothesis< Component< FloatType, ? > > > queue =
-				new LinkedList< Hypothesis< Component< FloatType, ? > > >();
-		// TODO there will be no time, but this is of course not nice...
-		queue.add( ( Hypothesis< Component< FloatType, ? > > ) this );
+		final LineageIndex lineage = ilp.getLineageIndex();
+		final int root = lineage.getSegment( this );
+		if ( root == LineageIndex.NONE ) {
+			// not part of the solution, nothing downstream
+			setPruned( value );
+			return;
+		}
+
+		final LinkedList< Integer > queue = new LinkedList< Integer >();
+		queue.add( root );
 		while ( !queue.isEmpty() ) {
-			final Hypothesis< Component< FloatType, ? > > node = queue.removeFirst();
-			node.setPruned( value );
-
-			AbstractAssignment< Hypothesis< Component< FloatType, ? >>> assmnt;
-			try {
-				assmnt = ilp.getOptimalRightAssignment( node );
-
-				if ( assmnt != null ) {
-					assmnt.setPruned( value );
-
-					switch ( assmnt.getType() ) {
-					case GrowthLineTrackingILP.ASSIGNMENT_DIVISION:
-						if ( !( ( DivisionAssignment ) assmnt ).getUpperDesinationHypothesis().isPruneRoot() ) {
-							queue.add( ( ( DivisionAssignment ) assmnt ).getUpperDesinationHypothesis() );
-						}
-						if ( !( ( DivisionAssignment ) assmnt ).getLowerDesinationHypothesis().isPruneRoot() ) {
-							queue.add( ( ( DivisionAssignment ) assmnt ).getLowerDesinationHypothesis() );
-						}
-						break;
-					case GrowthLineTrackingILP.ASSIGNMENT_MAPPING:
-						if ( !( ( MappingAssignment ) assmnt ).getDestinationHypothesis().isPruneRoot() ) {
-							queue.add( ( ( MappingAssignment ) assmnt ).getDestinationHypothesis() );
-						}
-						break;
+			final int segment = queue.removeFirst();
+			lineage.getHypothesis( segment ).setPruned( value );
+
+			final AbstractAssignment< Hypothesis< Component< FloatType, ? >>> assmnt = lineage.getRightAssignment( segment );
+			if ( assmnt != null ) {
+				assmnt.setPruned( value );
+			}
+
+			final int next = lineage.getNextSegment( segment );
+			if ( next != LineageIndex.NONE ) {
+				if ( !lineage.getHypothesis( next ).isPruneRoot() ) {
+					queue.add( next );
+				}
+			} else {
+				final int cell = lineage.getCell( segment );
+				for ( final int daughter : new int[] { lineage.getUpperDaughter( cell ), lineage.getLowerDaughter( cell ) } ) {
+					if ( daughter != LineageIndex.NONE && !lineage.getHypothesis( lineage.getFirstSegment( daughter ) ).isPruneRoot() ) {
+						queue.add( lineage.getFirstSegment( daughter ) );
 					}
 				}
-			} catch ( final GRBException e ) {
-//				e.printStackTrace();
 			}
 		}
 	}
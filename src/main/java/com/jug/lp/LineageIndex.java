@@ -0,0 +1,461 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import net.imglib2.Localizable;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * The lineage of one published solution of a
+ * <code>GrowthLineTrackingILP</code> (see <code>SolutionSnapshot</code>),
+ * built once by following the chosen assignments from the first frame on.
+ *
+ * Cells are numbered in the order a breadth-first walk through time finds
+ * them (cells in the first frame bottom up, then daughters in the order
+ * their mothers divide, lower daughter first) -- the order the exported cell
+ * ids always had. Segments (active hypotheses) are numbered cell by cell in
+ * track order, so the track of a cell is a contiguous range of segments.
+ * Everything else is kept in primitive arrays, hence track, ancestry,
+ * generation, and subtree queries do not touch the solver.
+ *
+ * Indices are immutable and can be shared between threads.
+ *
+ * @author jug
+ */
+public class LineageIndex {
+
+	public static final int NONE = -1;
+
+	private final SolutionSnapshot solution;
+
+	// segments
+	private final List< Hypothesis< Component< FloatType, ? > > > segmentHyps;
+	private final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > segmentRightAssignments;
+	private final IdentityHashMap< Hypothesis< Component< FloatType, ? > >, Integer > segmentOf;
+	private final int[] segmentCell;
+	private final int[] segmentFrame;
+	private final int[] segmentPos;
+
+	// segments per frame
+	private final int[] frameStart;
+	private final int[] frameSegments;
+	private final int[] frameNumCells;
+
+	// cells
+	private final int numRoots;
+	private final int[] cellFirstSegment;
+	private final int[] cellParent;
+	private final int[] cellLower;
+	private final int[] cellUpper;
+	private final int[] cellEndType;
+	private final int[] cellGeneration;
+	private final int[] cellPreorder;
+	private final int[] cellSubtreeEnd;
+	private final int[] preorderCells;
+
+	/**
+	 * @param ilp
+	 *            the ILP the solution belongs to.
+	 * @param solution
+	 *            the solution to index (null gives an empty index).
+	 */
+	LineageIndex( final GrowthLineTrackingILP ilp, final SolutionSnapshot solution ) {
+		this.solution = solution;
+
+		final List< List< Hypothesis< Component< FloatType, ? > > > > tracks = new ArrayList< List< Hypothesis< Component< FloatType, ? > > > >();
+		final List< List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > > trackAssignments = new ArrayList< List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > >();
+		final List< int[] > cells = new ArrayList< int[] >(); // { parent, birth frame, lower, upper, end type }
+
+		// walk the solution breadth first, one frame per step
+		final LinkedList< Integer > queue = new LinkedList< Integer >();
+		if ( solution != null && solution.getNumTimeSteps() > 0 ) {
+			for ( final Hypothesis< Component< FloatType, ? > > hyp : sortBottomUp( solution.getActiveHypotheses( 0 ) ) ) {
+				queue.add( addCell( tracks, trackAssignments, cells, hyp, NONE, 0 ) );
+			}
+		}
+		numRoots = tracks.size();
+		while ( !queue.isEmpty() ) {
+			final int cell = queue.removeFirst();
+			final List< Hypothesis< Component< FloatType, ? > > > track = tracks.get( cell );
+			final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > assmnt = findChoosen( ilp.edgeSets.getRightNeighborhood( track.get( track.size() - 1 ) ) );
+			trackAssignments.get( cell ).add( assmnt );
+			if ( assmnt == null ) continue;
+
+			final int nextFrame = cells.get( cell )[ 1 ] + track.size();
+			if ( assmnt.getType() == GrowthLineTrackingILP.ASSIGNMENT_MAPPING ) {
+				track.add( ( ( MappingAssignment ) assmnt ).getDestinationHypothesis() );
+				queue.add( cell );
+			} else {
+				cells.get( cell )[ 4 ] = assmnt.getType();
+				if ( assmnt.getType() == GrowthLineTrackingILP.ASSIGNMENT_DIVISION ) {
+					final DivisionAssignment da = ( DivisionAssignment ) assmnt;
+					cells.get( cell )[ 2 ] = addCell( tracks, trackAssignments, cells, da.getLowerDesinationHypothesis(), cell, nextFrame );
+					cells.get( cell )[ 3 ] = addCell( tracks, trackAssignments, cells, da.getUpperDesinationHypothesis(), cell, nextFrame );
+					queue.add( cells.get( cell )[ 2 ] );
+					queue.add( cells.get( cell )[ 3 ] );
+				}
+			}
+		}
+
+		// cells
+		final int numCells = cells.size();
+		cellFirstSegment = new int[ numCells + 1 ];
+		cellParent = new int[ numCells ];
+		cellLower = new int[ numCells ];
+		cellUpper = new int[ numCells ];
+		cellEndType = new int[ numCells ];
+		cellGeneration = new int[ numCells ];
+		for ( int c = 0; c < numCells; c++ ) {
+			cellFirstSegment[ c + 1 ] = cellFirstSegment[ c ] + tracks.get( c ).size();
+			cellParent[ c ] = cells.get( c )[ 0 ];
+			cellLower[ c ] = cells.get( c )[ 2 ];
+			cellUpper[ c ] = cells.get( c )[ 3 ];
+			cellEndType[ c ] = cells.get( c )[ 4 ];
+			// mothers are always found before their daughters
+			cellGeneration[ c ] = ( cellParent[ c ] == NONE ) ? 0 : cellGeneration[ cellParent[ c ] ] + 1;
+		}
+		final int[][] preorder = toPreorder( cellLower, cellUpper, numRoots );
+		preorderCells = preorder[ 0 ];
+		cellPreorder = preorder[ 1 ];
+		cellSubtreeEnd = preorder[ 2 ];
+
+		// segments
+		final int numSegments = cellFirstSegment[ numCells ];
+		segmentHyps = new ArrayList< Hypothesis< Component< FloatType, ? > > >( numSegments );
+		segmentRightAssignments = new ArrayList< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > >( numSegments );
+		segmentOf = new IdentityHashMap< Hypothesis< Component< FloatType, ? > >, Integer >( numSegments );
+		segmentCell = new int[ numSegments ];
+		segmentFrame = new int[ numSegments ];
+		int numFrames = ( solution == null ) ? 0 : solution.getNumTimeSteps();
+		for ( int c = 0; c < numCells; c++ ) {
+			for ( int i = 0; i < tracks.get( c ).size(); i++ ) {
+				final int segment = segmentHyps.size();
+				segmentHyps.add( tracks.get( c ).get( i ) );
+				segmentRightAssignments.add( trackAssignments.get( c ).get( i ) );
+				segmentOf.put( tracks.get( c ).get( i ), segment );
+				segmentCell[ segment ] = c;
+				segmentFrame[ segment ] = cells.get( c )[ 1 ] + i;
+				numFrames = Math.max( numFrames, segmentFrame[ segment ] + 1 );
+			}
+		}
+
+		// segments per frame
+		frameStart = new int[ numFrames + 1 ];
+		for ( int s = 0; s < numSegments; s++ ) {
+			frameStart[ segmentFrame[ s ] + 1 ]++;
+		}
+		for ( int t = 0; t < numFrames; t++ ) {
+			frameStart[ t + 1 ] += frameStart[ t ];
+		}
+		frameSegments = new int[ numSegments ];
+		final int[] fill = new int[ numFrames ];
+		for ( int s = 0; s < numSegments; s++ ) {
+			frameSegments[ frameStart[ segmentFrame[ s ] ] + fill[ segmentFrame[ s ] ]++ ] = s;
+		}
+
+		// cells per frame and positions (see AbstractGrowthLineFrame.getSolutionStats_cellPos)
+		frameNumCells = new int[ numFrames ];
+		segmentPos = new int[ numSegments ];
+		for ( int t = 0; t < numFrames; t++ ) {
+			for ( int i = frameStart[ t ]; i < frameStart[ t + 1 ]; i++ ) {
+				final int s = frameSegments[ i ];
+				if ( segmentRightAssignments.get( s ) != null ) {
+					frameNumCells[ t ]++;
+				}
+				segmentPos[ s ] = 1;
+				for ( int j = frameStart[ t ]; j < frameStart[ t + 1 ]; j++ ) {
+					final int other = frameSegments[ j ];
+					if ( segmentRightAssignments.get( other ) != null && segmentHyps.get( other ).getLocation().b < segmentHyps.get( s ).getLocation().a ) {
+						segmentPos[ s ]++;
+					}
+				}
+			}
+		}
+	}
+
+	private static int addCell(
+			final List< List< Hypothesis< Component< FloatType, ? > > > > tracks,
+			final List< List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > > trackAssignments,
+			final List< int[] > cells,
+			final Hypothesis< Component< FloatType, ? > > hyp,
+			final int parent,
+			final int birth ) {
+		final List< Hypothesis< Component< FloatType, ? > > > track = new ArrayList< Hypothesis< Component< FloatType, ? > > >();
+		track.add( hyp );
+		tracks.add( track );
+		trackAssignments.add( new ArrayList< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > >() );
+		cells.add( new int[] { parent, birth, NONE, NONE, NONE } );
+		return cells.size() - 1;
+	}
+
+	private AbstractAssignment< Hypothesis< Component< FloatType, ? > > > findChoosen( final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > set ) {
+		if ( set == null ) return null;
+		for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a : set ) {
+			if ( solution.isChoosen( a ) ) return a;
+		}
+		return null;
+	}
+
+	/**
+	 * Sorts like <code>AbstractGrowthLineFrame.getSortedActiveHypsAndPos</code>:
+	 * lowest pixel row first.
+	 */
+	private static List< Hypothesis< Component< FloatType, ? > > > sortBottomUp( final List< Hypothesis< Component< FloatType, ? > > > hyps ) {
+		final IdentityHashMap< Hypothesis< Component< FloatType, ? > >, Integer > bottom = new IdentityHashMap< Hypothesis< Component< FloatType, ? > >, Integer >();
+		for ( final Hypothesis< Component< FloatType, ? > > hyp : hyps ) {
+			int max = Integer.MIN_VALUE;
+			final Iterator< Localizable > componentIterator = hyp.getWrappedHypothesis().iterator();
+			while ( componentIterator.hasNext() ) {
+				max = Math.max( max, componentIterator.next().getIntPosition( 0 ) );
+			}
+			bottom.put( hyp, max );
+		}
+		final List< Hypothesis< Component< FloatType, ? > > > ret = new ArrayList< Hypothesis< Component< FloatType, ? > > >( hyps );
+		Collections.sort( ret, new Comparator< Hypothesis< Component< FloatType, ? > > >() {
+
+			@Override
+			public int compare( final Hypothesis< Component< FloatType, ? > > o1, final Hypothesis< Component< FloatType, ? > > o2 ) {
+				return bottom.get( o2 ).compareTo( bottom.get( o1 ) );
+			}
+		} );
+		return ret;
+	}
+
+	/**
+	 * Orders the cells of a lineage depth first (mother before daughters,
+	 * lower daughter before upper one).
+	 *
+	 * @param lower
+	 *            per cell its lower daughter (or NONE).
+	 * @param upper
+	 *            per cell its upper daughter (or NONE).
+	 * @param numRoots
+	 *            cells 0 to numRoots-1 are the roots of the lineage.
+	 * @return { the cells in pre-order, per cell its index in this order, per
+	 *         cell the index after the last cell of its subtree }.
+	 */
+	static int[][] toPreorder( final int[] lower, final int[] upper, final int numRoots ) {
+		final int numCells = lower.length;
+		final int[] order = new int[ numCells ];
+		final int[] index = new int[ numCells ];
+		final int[] end = new int[ numCells ];
+
+		final int[] stack = new int[ numCells ];
+		int top = 0;
+		for ( int r = numRoots - 1; r >= 0; r-- ) {
+			stack[ top++ ] = r;
+		}
+		int next = 0;
+		while ( top > 0 ) {
+			final int cell = stack[ --top ];
+			order[ next ] = cell;
+			index[ cell ] = next++;
+			if ( upper[ cell ] != NONE ) stack[ top++ ] = upper[ cell ];
+			if ( lower[ cell ] != NONE ) stack[ top++ ] = lower[ cell ];
+		}
+		// daughters come after their mother, hence are done first backwards
+		for ( int i = next - 1; i >= 0; i-- ) {
+			final int cell = order[ i ];
+			end[ cell ] = i + 1;
+			if ( lower[ cell ] != NONE ) end[ cell ] = Math.max( end[ cell ], end[ lower[ cell ] ] );
+			if ( upper[ cell ] != NONE ) end[ cell ] = Math.max( end[ cell ], end[ upper[ cell ] ] );
+		}
+		return new int[][] { order, index, end };
+	}
+
+	/**
+	 * @return the solution this index was built from (null if there was none).
+	 */
+	public SolutionSnapshot getSolution() {
+		return solution;
+	}
+
+	// ------------------------------------------------------------------------
+	// segments
+	// ------------------------------------------------------------------------
+
+	public int getNumSegments() {
+		return segmentCell.length;
+	}
+
+	/**
+	 * @return the segment the given hypothesis is, or NONE if it is not part
+	 *         of the solution.
+	 */
+	public int getSegment( final Hypothesis< ? > hyp ) {
+		final Integer segment = segmentOf.get( hyp );
+		return ( segment == null ) ? NONE : segment.intValue();
+	}
+
+	public Hypothesis< Component< FloatType, ? > > getHypothesis( final int segment ) {
+		return segmentHyps.get( segment );
+	}
+
+	public int getFrame( final int segment ) {
+		return segmentFrame[ segment ];
+	}
+
+	/**
+	 * @return the cell whose track the given segment is part of.
+	 */
+	public int getCell( final int segment ) {
+		return segmentCell[ segment ];
+	}
+
+	/**
+	 * @return the chosen assignment towards the next frame (null in the last
+	 *         frame).
+	 */
+	public AbstractAssignment< Hypothesis< Component< FloatType, ? > > > getRightAssignment( final int segment ) {
+		return segmentRightAssignments.get( segment );
+	}
+
+	/**
+	 * @return the next segment of the same cell, or NONE if the track of the
+	 *         cell ends with the given segment.
+	 */
+	public int getNextSegment( final int segment ) {
+		return ( segment + 1 < cellFirstSegment[ segmentCell[ segment ] + 1 ] ) ? segment + 1 : NONE;
+	}
+
+	/**
+	 * @return the position of the given segment in its frame, counted from
+	 *         the top (starting at 1), like
+	 *         <code>AbstractGrowthLineFrame.getSolutionStats_cellPos</code>.
+	 */
+	public int getPositionInGL( final int segment ) {
+		return segmentPos[ segment ];
+	}
+
+	// ------------------------------------------------------------------------
+	// frames
+	// ------------------------------------------------------------------------
+
+	public int getNumFrames() {
+		return frameNumCells.length;
+	}
+
+	public int getNumSegmentsAt( final int t ) {
+		return ( t < frameNumCells.length ) ? frameStart[ t + 1 ] - frameStart[ t ] : 0;
+	}
+
+	/**
+	 * @return the i-th segment in frame t (in the order of cell numbers).
+	 */
+	public int getSegmentAt( final int t, final int i ) {
+		return frameSegments[ frameStart[ t ] + i ];
+	}
+
+	/**
+	 * @return the number of segments in frame t that continue to the next
+	 *         frame, like <code>AbstractGrowthLineFrame.getSolutionStats_numCells</code>.
+	 */
+	public int getNumCellsAt( final int t ) {
+		return ( t < frameNumCells.length ) ? frameNumCells[ t ] : 0;
+	}
+
+	// ------------------------------------------------------------------------
+	// cells
+	// ------------------------------------------------------------------------
+
+	public int getNumCells() {
+		return cellParent.length;
+	}
+
+	/**
+	 * @return the number of cells in the first frame (cells 0 to
+	 *         getNumRoots()-1).
+	 */
+	public int getNumRoots() {
+		return numRoots;
+	}
+
+	public int getFirstSegment( final int cell ) {
+		return cellFirstSegment[ cell ];
+	}
+
+	public int getLastSegment( final int cell ) {
+		return cellFirstSegment[ cell + 1 ] - 1;
+	}
+
+	public int getTrackLength( final int cell ) {
+		return cellFirstSegment[ cell + 1 ] - cellFirstSegment[ cell ];
+	}
+
+	public int getBirthFrame( final int cell ) {
+		return segmentFrame[ cellFirstSegment[ cell ] ];
+	}
+
+	public int getLastFrame( final int cell ) {
+		return segmentFrame[ cellFirstSegment[ cell + 1 ] - 1 ];
+	}
+
+	/**
+	 * @return the mother of the given cell, or NONE for cells of the first
+	 *         frame.
+	 */
+	public int getParent( final int cell ) {
+		return cellParent[ cell ];
+	}
+
+	public int getLowerDaughter( final int cell ) {
+		return cellLower[ cell ];
+	}
+
+	public int getUpperDaughter( final int cell ) {
+		return cellUpper[ cell ];
+	}
+
+	/**
+	 * @return the type of the assignment that ended the track of the given
+	 *         cell (<code>GrowthLineTrackingILP.ASSIGNMENT_DIVISION</code> or
+	 *         <code>ASSIGNMENT_EXIT</code>), or NONE if it reaches the last
+	 *         frame.
+	 */
+	public int getEndType( final int cell ) {
+		return cellEndType[ cell ];
+	}
+
+	/**
+	 * @return the number of divisions between the first frame and the given
+	 *         cell.
+	 */
+	public int getGeneration( final int cell ) {
+		return cellGeneration[ cell ];
+	}
+
+	/**
+	 * @return true if <code>cell</code> is <code>ancestor</code> or one of its
+	 *         descendants.
+	 */
+	public boolean isInSubtree( final int cell, final int ancestor ) {
+		return cellPreorder[ cell ] >= cellPreorder[ ancestor ] && cellPreorder[ cell ] < cellSubtreeEnd[ ancestor ];
+	}
+
+	/**
+	 * @return the number of cells in the subtree of the given cell (itself
+	 *         included).
+	 */
+	public int getSubtreeSize( final int cell ) {
+		return cellSubtreeEnd[ cell ] - cellPreorder[ cell ];
+	}
+
+	/**
+	 * @return the i-th cell of the subtree of the given cell, in depth-first
+	 *         order (i=0 is the cell itself).
+	 */
+	public int getSubtreeCell( final int cell, final int i ) {
+		return preorderCells[ cellPreorder[ cell ] + i ];
+	}
+}
@@ -0,0 +1,215 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import gurobi.GRB;
+import gurobi.GRBConstr;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Hands out the names of Gurobi variables and constraints of one
+ * <code>GrowthLineTrackingILP</code>.
+ *
+ * Names are only needed when looking at LP/MPS files, but building millions
+ * of formatted strings costs time and heap. Therefore three modes exist:
+ * <ul>
+ * <li><code>NAMES_FULL</code>: descriptive names, as always.</li>
+ * <li><code>NAMES_COMPACT</code>: short running numbers ('x17', 'c42').</li>
+ * <li><code>NAMES_NONE</code>: no names at all (Gurobi uses default names
+ * when writing files).</li>
+ * </ul>
+ * In the latter two modes, kind, time-point and id of each named constraint
+ * are recorded in a small side table, so that the descriptive names can be
+ * restored by <code>applyReadableNames</code> right before the model is
+ * written for debugging. Variable names are restored from the assignments
+ * themselves.
+ *
+ * @author jug
+ */
+public class ModelNaming {
+
+	public static final int NAMES_FULL = 0;
+	public static final int NAMES_COMPACT = 1;
+	public static final int NAMES_NONE = 2;
+
+	// kinds of constraints
+	public static final int PATH_BLOCKING = 0;
+	public static final int CONTINUITY = 1;
+	public static final int EXIT = 2;
+
+	private static final String[] CONSTR_PREFIX = new String[] { "pbc_r_t_", "ecc_", "dc_" };
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private final int mode;
+
+	private int nextVarNumber = 0;
+	private int nextConstrNumber = 0;
+
+	// side table (only used if mode != NAMES_FULL)
+	private final List< GRBConstr > constrs = new ArrayList< GRBConstr >();
+	private int[] constrKinds = new int[ 1024 ];
+	private int[] constrTimes = new int[ 1024 ];
+	private int[] constrIds = new int[ 1024 ];
+
+	// -------------------------------------------------------------------------------------
+	// construction
+	// -------------------------------------------------------------------------------------
+	public ModelNaming( final int mode ) {
+		this.mode = mode;
+	}
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	public int getMode() {
+		return mode;
+	}
+
+	/**
+	 * @param type
+	 *            one of the ASSIGNMENT_* constants in
+	 *            <code>GrowthLineTrackingILP</code>.
+	 * @param t
+	 * @param fromId
+	 *            id of the source hypothesis.
+	 * @param toId
+	 *            id of the (upper) destination hypothesis (ignored for exits).
+	 * @return the name for the variable of such an assignment.
+	 */
+	public String varName( final int type, final int t, final int fromId, final int toId ) {
+		switch ( mode ) {
+		case NAMES_NONE:
+			return null;
+		case NAMES_COMPACT:
+			return "x" + ( nextVarNumber++ );
+		default:
+			return readableVarName( type, t, fromId, toId );
+		}
+	}
+
+	/**
+	 * @param kind
+	 *            one of PATH_BLOCKING, CONTINUITY, or EXIT.
+	 * @param t
+	 * @param id
+	 *            a running number (unique together with kind and t).
+	 * @return the name for such a constraint. If not null, the constraint
+	 *         should be passed to <code>register</code> after it was added.
+	 */
+	public String constrName( final int kind, final int t, final int id ) {
+		switch ( mode ) {
+		case NAMES_NONE:
+			return null;
+		case NAMES_COMPACT:
+			return "c" + ( nextConstrNumber++ );
+		default:
+			return CONSTR_PREFIX[ kind ] + t + "_" + id;
+		}
+	}
+
+	/**
+	 * Names for a batch of constraints with the running numbers
+	 * <code>0..count-1</code>.
+	 *
+	 * @return the names, or null if no names are used.
+	 */
+	public String[] constrNames( final int kind, final int t, final int count ) {
+		if ( mode == NAMES_NONE ) return null;
+		final String[] names = new String[ count ];
+		for ( int i = 0; i < count; i++ ) {
+			names[ i ] = constrName( kind, t, i );
+		}
+		return names;
+	}
+
+	/**
+	 * Records how to restore the readable name of the given constraint.
+	 * (Does nothing if readable names are in use anyways.)
+	 */
+	public void register( final GRBConstr constr, final int kind, final int t, final int id ) {
+		if ( mode == NAMES_FULL || constr == null ) return;
+		final int i = constrs.size();
+		if ( i == constrKinds.length ) {
+			constrKinds = Arrays.copyOf( constrKinds, 2 * i );
+			constrTimes = Arrays.copyOf( constrTimes, 2 * i );
+			constrIds = Arrays.copyOf( constrIds, 2 * i );
+		}
+		constrs.add( constr );
+		constrKinds[ i ] = kind;
+		constrTimes[ i ] = t;
+		constrIds[ i ] = id;
+	}
+
+	/**
+	 * Registers a batch of constraints named by <code>constrNames</code>.
+	 */
+	public void registerAll( final GRBConstr[] batch, final int kind, final int t ) {
+		for ( int i = 0; i < batch.length; i++ ) {
+			register( batch[ i ], kind, t, i );
+		}
+	}
+
+	/**
+	 * Sets descriptive names on all assignment variables and all registered
+	 * constraints of the given model. Call <code>model.update()</code>
+	 * afterwards.
+	 */
+	public void applyReadableNames( final GRBModel model, final AssignmentsAndHypotheses< AbstractAssignment< Hypothesis< Component< FloatType, ? > > >, Hypothesis< Component< FloatType, ? > > > nodes ) throws GRBException {
+		if ( mode == NAMES_FULL ) return;
+
+		final List< GRBVar > vars = new ArrayList< GRBVar >();
+		final List< String > varNames = new ArrayList< String >();
+		for ( final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > assmts : nodes.getAllAssignments() ) {
+			for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a : assmts ) {
+				if ( a.getGRBVar() == null ) continue;
+				vars.add( a.getGRBVar() );
+				varNames.add( readableVarName( a ) );
+			}
+		}
+		model.set( GRB.StringAttr.VarName, vars.toArray( new GRBVar[ vars.size() ] ), varNames.toArray( new String[ varNames.size() ] ) );
+
+		for ( int i = 0; i < constrs.size(); i++ ) {
+			try {
+				constrs.get( i ).set( GRB.StringAttr.ConstrName, CONSTR_PREFIX[ constrKinds[ i ] ] + constrTimes[ i ] + "_" + constrIds[ i ] );
+			} catch ( final GRBException e ) {
+				// constraint was removed from the model in the meantime
+			}
+		}
+	}
+
+	private static String readableVarName( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a ) {
+		switch ( a.getType() ) {
+		case GrowthLineTrackingILP.ASSIGNMENT_EXIT:
+			final Hypothesis< Component< FloatType, ? > > who = ( ( ExitAssignment ) a ).getAssociatedHypothesis();
+			return readableVarName( a.getType(), who.getTime(), who.getId(), -1 );
+		case GrowthLineTrackingILP.ASSIGNMENT_MAPPING:
+			final MappingAssignment ma = ( MappingAssignment ) a;
+			return readableVarName( a.getType(), ma.getSourceHypothesis().getTime(), ma.getSourceHypothesis().getId(), ma.getDestinationHypothesis().getId() );
+		default:
+			final DivisionAssignment da = ( DivisionAssignment ) a;
+			return readableVarName( a.getType(), da.getSourceHypothesis().getTime(), da.getSourceHypothesis().getId(), da.getUpperDesinationHypothesis().getId() );
+		}
+	}
+
+	private static String readableVarName( final int type, final int t, final int fromId, final int toId ) {
+		switch ( type ) {
+		case GrowthLineTrackingILP.ASSIGNMENT_EXIT:
+			return String.format( "a_%d^EXIT--%d", t, fromId );
+		case GrowthLineTrackingILP.ASSIGNMENT_MAPPING:
+			return String.format( "a_%d^MAPPING--(%d,%d)", t, fromId, toId );
+		default:
+			return String.format( "a_%d^DIVISION--(%d,%d)", t, fromId, toId );
+		}
+	}
+}
@@ -0,0 +1,319 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.jug.GrowthLine;
+
+import gurobi.GRBException;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Tracks one (very long) GrowthLine by solving a sequence of overlapping time
+ * windows instead of one monolithic ILP.
+ *
+ * Each window covers <code>windowLength</code> frames. Only the assignments
+ * leaving the first <code>commitLength</code> frames are committed; the next
+ * window then starts at the first uncommitted frame. The segmentation of this
+ * boundary frame is fixed to the committed one (via segment in/not in
+ * solution constraints, just like the frames before the cursor get frozen by
+ * <code>GrowthLineTrackingILP.freezeBefore</code>). Everything after the
+ * committed part is solved again by the next window, which allows to report
+ * where two consecutive windows disagree.
+ *
+ * Only one window ILP exists at any time. The committed assignments are
+ * collected as <code>SolutionArtifact.AssignmentRecord</code>s and restored
+ * into a solver-less ILP at the end (see <code>GrowthLine.loadSolution</code>),
+ * hence memory stays bounded by the window length.
+ *
+ * @author jug
+ */
+public class RollingHorizonTracker {
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private final GrowthLine gl;
+	private final int windowLength;
+	private final int commitLength;
+
+	private final List< SolutionArtifact.AssignmentRecord > committed = new ArrayList< SolutionArtifact.AssignmentRecord >();
+	private final int[] hypothesesPerFrame;
+	private final long[] hypothesesHashes;
+	private int status = GrowthLineTrackingILP.OPTIMIZATION_NEVER_PERFORMED;
+
+	/**
+	 * One entry per frame in an overlap region: { t, number of assignments
+	 * only active in the earlier window, number of assignments only active
+	 * in the later window }.
+	 */
+	private final List< int[] > disagreements = new ArrayList< int[] >();
+
+	// -------------------------------------------------------------------------------------
+	// construction
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @param gl
+	 *            the GrowthLine to track.
+	 * @param windowLength
+	 *            number of frames per window (at least 2).
+	 * @param commitLength
+	 *            number of frames committed per window (at least 1, less than
+	 *            windowLength, see <code>getValidCommitLength</code>).
+	 * @throws IllegalArgumentException
+	 *             if the window or commit length is out of range.
+	 */
+	public RollingHorizonTracker( final GrowthLine gl, final int windowLength, final int commitLength ) {
+		if ( windowLength < 2 || commitLength < 1 || commitLength >= windowLength ) { throw new IllegalArgumentException( String.format( "Invalid rolling horizon: window=%d, commit=%d", windowLength, commitLength ) ); }
+		this.gl = gl;
+		this.windowLength = windowLength;
+		this.commitLength = commitLength;
+		this.hypothesesPerFrame = new int[ gl.size() ];
+		this.hypothesesHashes = new long[ gl.size() ];
+	}
+
+	// -------------------------------------------------------------------------------------
+	// getters
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @return one entry per frame in an overlap region: { t, #assignments
+	 *         only in earlier window, #assignments only in later window }.
+	 */
+	public List< int[] > getDisagreements() {
+		return disagreements;
+	}
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	/**
+	 * Solves all windows and installs the merged solution in the GrowthLine.
+	 *
+	 * @param inputFingerprint
+	 *            describes the data and segmentation parameters in use (see
+	 *            <code>GrowthLineTrackingILP.loadSolution</code>).
+	 * @return true if the merged solution could be installed.
+	 */
+	public boolean run( final String inputFingerprint ) {
+		final int numFrames = gl.size();
+		Set< String > boundary = null;
+		List< SolutionArtifact.AssignmentRecord > previousTail = new ArrayList< SolutionArtifact.AssignmentRecord >();
+
+		for ( final int[] w : toWindows( numFrames, windowLength, commitLength ) ) {
+			final int start = w[ 0 ];
+			final int end = w[ 1 ];
+			final int commitEnd = w[ 2 ];
+			final boolean isLast = ( end == numFrames );
+			System.out.println( String.format( " > > > Rolling horizon window [%d,%d) of %d frames", start, end, numFrames ) );
+
+			final GrowthLine window = new GrowthLine( gl.getFrames().subList( start, end ) );
+			final GrowthLineTrackingILP ilp = new GrowthLineTrackingILP( window );
+			ilp.buildILP();
+			if ( boundary != null ) {
+				fixBoundary( ilp, boundary );
+			}
+			ilp.run();
+			if ( ilp.getStatus() != GrowthLineTrackingILP.OPTIMAL ) {
+				System.out.println( String.format( "WARNING: window [%d,%d) was not solved to optimality (status %d).", start, end, ilp.getStatus() ) );
+				status = ilp.getStatus();
+			} else if ( status == GrowthLineTrackingILP.OPTIMIZATION_NEVER_PERFORMED ) {
+				status = GrowthLineTrackingILP.OPTIMAL;
+			}
+
+			final SolutionArtifact solution = ilp.getSolutionArtifact( inputFingerprint );
+			ilp.dispose();
+
+			for ( int t = start; t < end; t++ ) {
+				hypothesesPerFrame[ t ] = solution.getNumHypotheses( t - start );
+				hypothesesHashes[ t ] = solution.getHypothesesHash( t - start );
+			}
+
+			final List< SolutionArtifact.AssignmentRecord > head = new ArrayList< SolutionArtifact.AssignmentRecord >();
+			final List< SolutionArtifact.AssignmentRecord > tail = new ArrayList< SolutionArtifact.AssignmentRecord >();
+			for ( final SolutionArtifact.AssignmentRecord local : solution.getAssignments() ) {
+				final SolutionArtifact.AssignmentRecord record = new SolutionArtifact.AssignmentRecord( local.getType(), local.getTime() + start, local.getCost(), local.getHypLocations() );
+				if ( isLast || record.getTime() < commitEnd ) {
+					head.add( record );
+				} else {
+					tail.add( record );
+				}
+			}
+			compareOverlap( previousTail, head, tail );
+
+			committed.addAll( head );
+			boundary = getBoundary( head, commitEnd - 1 );
+			previousTail = tail;
+		}
+
+		final SolutionArtifact merged = new SolutionArtifact( inputFingerprint + "|" + GrowthLineTrackingILP.getCostFingerprint(), status, hypothesesPerFrame, hypothesesHashes, committed );
+		reportDisagreements();
+		return gl.loadSolution( merged, inputFingerprint );
+	}
+
+	/**
+	 * @return the given commit length, clamped such that each window commits
+	 *         at least one frame and leaves at least one frame to the next
+	 *         window (i.e. to [1, windowLength-1]).
+	 */
+	public static int getValidCommitLength( final int windowLength, final int commitLength ) {
+		return Math.max( 1, Math.min( commitLength, windowLength - 1 ) );
+	}
+
+	/**
+	 * Splits <code>numFrames</code> frames into overlapping windows.
+	 *
+	 * @return one entry per window: { first frame, first frame after the
+	 *         window, first frame after the committed part }. Assignments
+	 *         leaving frames before the latter are committed. The last window
+	 *         ends at <code>numFrames</code> and commits everything.
+	 */
+	static List< int[] > toWindows( final int numFrames, final int windowLength, final int commitLength ) {
+		final List< int[] > windows = new ArrayList< int[] >();
+		int start = 0;
+		while ( start < numFrames - 1 ) {
+			final int end = Math.min( start + windowLength, numFrames );
+			final int commitEnd = ( end == numFrames ) ? end : start + commitLength;
+			windows.add( new int[] { start, end, commitEnd } );
+			start = commitEnd;
+		}
+		return windows;
+	}
+
+	/**
+	 * Forces the segmentation of the first frame of the given window ILP to
+	 * be the one given by <code>boundary</code>.
+	 */
+	private void fixBoundary( final GrowthLineTrackingILP ilp, final Set< String > boundary ) {
+		for ( final Hypothesis< Component< FloatType, ? > > hyp : ilp.nodes.getHypothesesAt( 0 ) ) {
+			if ( ilp.edgeSets.getRightNeighborhood( hyp ) == null ) {
+				if ( boundary.contains( key( hyp ) ) ) {
+					System.out.println( "WARNING: committed segment at rolling horizon boundary cannot be continued." );
+				}
+				continue;
+			}
+			try {
+				if ( boundary.contains( key( hyp ) ) ) {
+					ilp.addSegmentInSolutionConstraint( hyp, null );
+				} else {
+					ilp.addSegmentNotInSolutionConstraint( hyp );
+				}
+			} catch ( final GRBException e ) {
+				e.printStackTrace();
+			}
+		}
+		try {
+			ilp.model.update();
+		} catch ( final GRBException e ) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return the locations of all hypotheses at time <code>t+1</code> that
+	 *         are reached by the given assignments leaving time t.
+	 */
+	private static Set< String > getBoundary( final List< SolutionArtifact.AssignmentRecord > records, final int t ) {
+		final Set< String > ret = new HashSet< String >();
+		for ( final SolutionArtifact.AssignmentRecord record : records ) {
+			if ( record.getTime() != t ) continue;
+			final int[] loc = record.getHypLocations();
+			for ( int i = 2; i + 1 < loc.length; i += 2 ) {
+				ret.add( loc[ i ] + ":" + loc[ i + 1 ] );
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Compares the uncommitted tail of the previous window with what the
+	 * current window decided for the same frames.
+	 */
+	private void compareOverlap( final List< SolutionArtifact.AssignmentRecord > previousTail, final List< SolutionArtifact.AssignmentRecord > head, final List< SolutionArtifact.AssignmentRecord > tail ) {
+		if ( previousTail.isEmpty() ) return;
+
+		int tMin = Integer.MAX_VALUE;
+		int tMax = Integer.MIN_VALUE;
+		final Set< String > earlier = new HashSet< String >();
+		for ( final SolutionArtifact.AssignmentRecord record : previousTail ) {
+			earlier.add( key( record ) );
+			tMin = Math.min( tMin, record.getTime() );
+			tMax = Math.max( tMax, record.getTime() );
+		}
+		final Set< String > later = new HashSet< String >();
+		collectKeys( head, tMin, tMax, later );
+		collectKeys( tail, tMin, tMax, later );
+
+		for ( int t = tMin; t <= tMax; t++ ) {
+			int onlyEarlier = 0;
+			int onlyLater = 0;
+			final String prefix = t + "|";
+			for ( final String k : earlier ) {
+				if ( k.startsWith( prefix ) && !later.contains( k ) ) onlyEarlier++;
+			}
+			for ( final String k : later ) {
+				if ( k.startsWith( prefix ) && !earlier.contains( k ) ) onlyLater++;
+			}
+			if ( onlyEarlier + onlyLater > 0 ) {
+				disagreements.add( new int[] { t, onlyEarlier, onlyLater } );
+			}
+		}
+	}
+
+	private static void collectKeys( final List< SolutionArtifact.AssignmentRecord > records, final int tMin, final int tMax, final Set< String > keys ) {
+		for ( final SolutionArtifact.AssignmentRecord record : records ) {
+			if ( record.getTime() >= tMin && record.getTime() <= tMax ) {
+				keys.add( key( record ) );
+			}
+		}
+	}
+
+	private void reportDisagreements() {
+		if ( disagreements.isEmpty() ) {
+			System.out.println( "Rolling horizon: consecutive windows agree on all overlapping frames." );
+			return;
+		}
+		System.out.println( String.format( "Rolling horizon: consecutive windows disagree at %d frame(s):", disagreements.size() ) );
+		for ( final int[] d : disagreements ) {
+			System.out.println( String.format( "    t=%d: %d assignment(s) dropped, %d assignment(s) added", d[ 0 ], d[ 1 ], d[ 2 ] ) );
+		}
+	}
+
+	/**
+	 * Writes the disagreements found in the overlap regions to a CSV file.
+	 */
+	public void saveDisagreements( final File file ) throws IOException {
+		final BufferedWriter out = new BufferedWriter( new FileWriter( file ) );
+		try {
+			out.write( String.format( "# window=%d, commit=%d\n", windowLength, commitLength ) );
+			out.write( "t, only_in_earlier_window, only_in_later_window\n" );
+			for ( final int[] d : disagreements ) {
+				out.write( String.format( "%d, %d, %d\n", d[ 0 ], d[ 1 ], d[ 2 ] ) );
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static String key( final Hypothesis< Component< FloatType, ? > > hyp ) {
+		return hyp.getLocation().getA() + ":" + hyp.getLocation().getB();
+	}
+
+	private static String key( final SolutionArtifact.AssignmentRecord record ) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append( record.getTime() ).append( "|" ).append( record.getType() );
+		for ( final int pos : record.getHypLocations() ) {
+			sb.append( "," ).append( pos );
+		}
+		return sb.toString();
+	}
+}
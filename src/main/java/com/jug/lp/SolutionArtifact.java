@@ -0,0 +1,271 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jug.MoMA;
+
+/**
+ * The solution of one <code>GrowthLineTrackingILP</code>, stored in a way
+ * that allows to restore it without running (or even having) the solver.
+ *
+ * Hypotheses are identified by time-point and covered interval (top and
+ * bottom position along the GL), assignments by their type and the
+ * hypotheses they connect. All ids are therefore derived from the content
+ * and stay valid as long as the data and the segmentation parameters do not
+ * change -- which is what the stored fingerprint (identity of the input data
+ * and all parameters) and the per frame hashes over all hypotheses are
+ * checked for.
+ *
+ * @author jug
+ */
+public class SolutionArtifact {
+
+	/**
+	 * One active assignment.
+	 */
+	public static class AssignmentRecord {
+
+		private final int type;
+		private final int t;
+		private final float cost;
+		private final int[] hypLocations;
+
+		/**
+		 * @param type
+		 *            one of the ASSIGNMENT_* constants in
+		 *            <code>GrowthLineTrackingILP</code>.
+		 * @param t
+		 *            the time-point the assignment starts at.
+		 * @param cost
+		 *            the cost of the assignment.
+		 * @param hypLocations
+		 *            top and bottom of all involved hypotheses (source first).
+		 */
+		public AssignmentRecord( final int type, final int t, final float cost, final int[] hypLocations ) {
+			this.type = type;
+			this.t = t;
+			this.cost = cost;
+			this.hypLocations = hypLocations;
+		}
+
+		public int getType() {
+			return type;
+		}
+
+		public int getTime() {
+			return t;
+		}
+
+		public float getCost() {
+			return cost;
+		}
+
+		/**
+		 * @return top and bottom of all involved hypotheses, source first.
+		 */
+		public int[] getHypLocations() {
+			return hypLocations;
+		}
+	}
+
+	private static final String[] TYPE_NAMES = new String[] { "EXIT", "MAPPING", "DIVISION" };
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private final String fingerprint;
+	private final int status;
+	private final int[] hypothesesPerFrame;
+	private final long[] hypothesesHashes;
+	private final List< AssignmentRecord > assignments;
+
+	// -------------------------------------------------------------------------------------
+	// construction
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @param fingerprint
+	 *            identifies the input data and all parameters the solution
+	 *            was computed with.
+	 * @param status
+	 * @param hypothesesPerFrame
+	 * @param hypothesesHashes
+	 *            per frame, the hash over all hypotheses (see
+	 *            <code>hashHypotheses</code>).
+	 * @param assignments
+	 */
+	public SolutionArtifact( final String fingerprint, final int status, final int[] hypothesesPerFrame, final long[] hypothesesHashes, final List< AssignmentRecord > assignments ) {
+		this.fingerprint = fingerprint;
+		this.status = status;
+		this.hypothesesPerFrame = hypothesesPerFrame;
+		this.hypothesesHashes = hypothesesHashes;
+		this.assignments = assignments;
+	}
+
+	// -------------------------------------------------------------------------------------
+	// getters
+	// -------------------------------------------------------------------------------------
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public int getNumFrames() {
+		return hypothesesPerFrame.length;
+	}
+
+	public int getNumHypotheses( final int t ) {
+		return hypothesesPerFrame[ t ];
+	}
+
+	public long getHypothesesHash( final int t ) {
+		return hypothesesHashes[ t ];
+	}
+
+	public List< AssignmentRecord > getAssignments() {
+		return assignments;
+	}
+
+	/**
+	 * @return true if this solution was computed on the data and with the
+	 *         parameters identified by the given fingerprint.
+	 */
+	public boolean hasFingerprint( final String expectedFingerprint ) {
+		return fingerprint.equals( expectedFingerprint );
+	}
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @return the file the artifact of the GL with the given index is stored
+	 *         in (within the given folder).
+	 */
+	public static File getFileFor( final File folder, final int glIdx ) {
+		return new File( folder, String.format( "GL%03d.mmsol", glIdx ) );
+	}
+
+	/**
+	 * @return a hash over the locations (top and bottom) of the given
+	 *         hypotheses, in the given order.
+	 */
+	public static long hashHypotheses( final List< ? extends Hypothesis< ? > > hyps ) {
+		long h = 1125899906842597L;
+		if ( hyps == null ) return h;
+		for ( final Hypothesis< ? > hyp : hyps ) {
+			h = 31 * h + hyp.getLocation().getA();
+			h = 31 * h + hyp.getLocation().getB();
+		}
+		return h;
+	}
+
+	public void save( final File file ) throws IOException {
+		final BufferedWriter out = new BufferedWriter( new FileWriter( file ) );
+		try {
+			out.write( "# " + MoMA.VERSION_STRING );
+			out.newLine();
+			out.write( "FINGERPRINT, " + fingerprint );
+			out.newLine();
+			out.write( String.format( "STATUS, %d", status ) );
+			out.newLine();
+			out.write( String.format( "FRAMES, %d", hypothesesPerFrame.length ) );
+			out.newLine();
+			out.newLine();
+
+			out.write( "# Number of hypotheses and hash over their locations per frame (HYPS, t, count, hash)" );
+			out.newLine();
+			for ( int t = 0; t < hypothesesPerFrame.length; t++ ) {
+				out.write( String.format( "\tHYPS, %d, %d, %016x", t, hypothesesPerFrame[ t ], hypothesesHashes[ t ] ) );
+				out.newLine();
+			}
+
+			out.write( "# Active assignments (TYPE, t, cost, top_from, bottom_from[, top_to, bottom_to[, top_to2, bottom_to2]])" );
+			out.newLine();
+			for ( final AssignmentRecord a : assignments ) {
+				final StringBuilder line = new StringBuilder();
+				line.append( String.format( "\t%s, %d, %s", TYPE_NAMES[ a.getType() ], a.getTime(), Float.toString( a.getCost() ) ) );
+				for ( final int pos : a.getHypLocations() ) {
+					line.append( ", " ).append( pos );
+				}
+				out.write( line.toString() );
+				out.newLine();
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	public static SolutionArtifact load( final File file ) throws IOException {
+		final BufferedReader reader = new BufferedReader( new FileReader( file ) );
+
+		String fingerprint = null;
+		int status = GrowthLineTrackingILP.OPTIMIZATION_NEVER_PERFORMED;
+		int[] hypothesesPerFrame = null;
+		long[] hypothesesHashes = null;
+		final List< AssignmentRecord > assignments = new ArrayList< AssignmentRecord >();
+
+		try {
+			String line;
+			while ( ( line = reader.readLine() ) != null ) {
+				// ignore comments and empty lines
+				if ( line.trim().startsWith( "#" ) || line.trim().length() == 0 ) continue;
+
+				if ( line.startsWith( "FINGERPRINT, " ) ) {
+					fingerprint = line.substring( "FINGERPRINT, ".length() );
+					continue;
+				}
+
+				final String[] columns = line.split( "," );
+				for ( int i = 0; i < columns.length; i++ ) {
+					columns[ i ] = columns[ i ].trim();
+				}
+				try {
+					if ( columns[ 0 ].equals( "STATUS" ) ) {
+						status = Integer.parseInt( columns[ 1 ] );
+					} else if ( columns[ 0 ].equals( "FRAMES" ) ) {
+						hypothesesPerFrame = new int[ Integer.parseInt( columns[ 1 ] ) ];
+						hypothesesHashes = new long[ hypothesesPerFrame.length ];
+					} else if ( columns[ 0 ].equals( "HYPS" ) ) {
+						final int t = Integer.parseInt( columns[ 1 ] );
+						hypothesesPerFrame[ t ] = Integer.parseInt( columns[ 2 ] );
+						hypothesesHashes[ t ] = new BigInteger( columns[ 3 ], 16 ).longValue();
+					} else {
+						int type = -1;
+						for ( int i = 0; i < TYPE_NAMES.length; i++ ) {
+							if ( TYPE_NAMES[ i ].equals( columns[ 0 ] ) ) type = i;
+						}
+						if ( type == -1 ) {
+							System.out.println( "WARNING: unknown line in solution artifact " + file.getName() + ": " + line );
+							continue;
+						}
+						final int[] hypLocations = new int[ columns.length - 3 ];
+						for ( int i = 0; i < hypLocations.length; i++ ) {
+							hypLocations[ i ] = Integer.parseInt( columns[ 3 + i ] );
+						}
+						assignments.add( new AssignmentRecord( type, Integer.parseInt( columns[ 1 ] ), Float.parseFloat( columns[ 2 ] ), hypLocations ) );
+					}
+				} catch ( final RuntimeException e ) {
+					throw new IOException( "Malformed line in solution artifact " + file.getName() + ": " + line, e );
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		if ( fingerprint == null || hypothesesPerFrame == null ) { throw new IOException( "Solution artifact " + file.getName() + " is incomplete." ); }
+		return new SolutionArtifact( fingerprint, status, hypothesesPerFrame, hypothesesHashes, assignments );
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * One published solution of a <code>GrowthLineTrackingILP</code>: which
+ * assignments were chosen and, per frame, which hypotheses are active.
+ *
+ * Snapshots are immutable. The thread running the optimization builds a new
+ * one whenever a solution is complete (or, as a preview, whenever Gurobi
+ * found a better incumbent) and publishes it by a single volatile write, see
+ * <code>GrowthLineTrackingILP.getPublishedSolution()</code>. Everyone reading
+ * the solution (GUI, exporters) hence sees one consistent solution without
+ * taking locks and without ever touching the Gurobi model while it is being
+ * optimized.
+ *
+ * @author jug
+ */
+public class SolutionSnapshot {
+
+	private final int version;
+	private final boolean incumbent;
+	private final double objective;
+
+	private final IdentityHashMap< AbstractAssignment< Hypothesis< Component< FloatType, ? > > >, Boolean > choosen;
+	private final List< List< Hypothesis< Component< FloatType, ? > > > > activeHypotheses;
+
+	/**
+	 * @param ilp
+	 *            the ILP the solution belongs to (only its hypotheses and
+	 *            assignments are looked at).
+	 * @param version
+	 *            the solution version (see
+	 *            <code>GrowthLineTrackingILP.getSolutionVersion()</code>).
+	 * @param incumbent
+	 *            true if the solution is not final (optimization still
+	 *            running).
+	 * @param objective
+	 *            objective value of the solution (NaN if unknown).
+	 * @param assignments
+	 *            all assignments of the ILP.
+	 * @param values
+	 *            per given assignment: is it chosen in the solution?
+	 */
+	SolutionSnapshot( final GrowthLineTrackingILP ilp, final int version, final boolean incumbent, final double objective, final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > assignments, final boolean[] values ) {
+		this.version = version;
+		this.incumbent = incumbent;
+		this.objective = objective;
+
+		choosen = new IdentityHashMap< AbstractAssignment< Hypothesis< Component< FloatType, ? > > >, Boolean >( assignments.size() );
+		for ( int i = 0; i < assignments.size(); i++ ) {
+			choosen.put( assignments.get( i ), Boolean.valueOf( values[ i ] ) );
+		}
+
+		final int numTimeSteps = ilp.nodes.getNumberOfTimeSteps();
+		activeHypotheses = new ArrayList< List< Hypothesis< Component< FloatType, ? > > > >( numTimeSteps );
+		for ( int t = 0; t < numTimeSteps; t++ ) {
+			final List< Hypothesis< Component< FloatType, ? > > > active = new ArrayList< Hypothesis< Component< FloatType, ? > > >();
+			final List< Hypothesis< Component< FloatType, ? > > > hyps = ilp.nodes.getHypothesesAt( t );
+			if ( hyps != null ) {
+				for ( final Hypothesis< Component< FloatType, ? > > hyp : hyps ) {
+					// same as GrowthLineTrackingILP.isSelected
+					final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > nh = ( t > 0 ) ? ilp.edgeSets.getLeftNeighborhood( hyp ) : ilp.edgeSets.getRightNeighborhood( hyp );
+					if ( containsChoosen( nh ) ) {
+						active.add( hyp );
+					}
+				}
+			}
+			activeHypotheses.add( Collections.unmodifiableList( active ) );
+		}
+	}
+
+	private boolean containsChoosen( final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > set ) {
+		if ( set == null ) return false;
+		for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a : set ) {
+			if ( Boolean.TRUE.equals( choosen.get( a ) ) ) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the solution version this snapshot was published as.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return true if this is an intermediate solution of an optimization
+	 *         that was still running when it was published.
+	 */
+	public boolean isIncumbent() {
+		return incumbent;
+	}
+
+	/**
+	 * @return the objective value of this solution (NaN if unknown).
+	 */
+	public double getObjective() {
+		return objective;
+	}
+
+	/**
+	 * @return true if the given assignment existed when this snapshot was
+	 *         taken.
+	 */
+	public boolean contains( final AbstractAssignment< ? > assignment ) {
+		return choosen.containsKey( assignment );
+	}
+
+	/**
+	 * @return true if the given assignment is chosen in this solution (false
+	 *         if it is not, or not contained in this snapshot).
+	 */
+	public boolean isChoosen( final AbstractAssignment< ? > assignment ) {
+		return Boolean.TRUE.equals( choosen.get( assignment ) );
+	}
+
+	/**
+	 * @return the number of frames this snapshot knows active hypotheses for.
+	 */
+	public int getNumTimeSteps() {
+		return activeHypotheses.size();
+	}
+
+	/**
+	 * @return the (unmodifiable) list of hypotheses active at frame t.
+	 */
+	public List< Hypothesis< Component< FloatType, ? > > > getActiveHypotheses( final int t ) {
+		return activeHypotheses.get( t );
+	}
+}
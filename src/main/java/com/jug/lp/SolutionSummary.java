@@ -0,0 +1,161 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import gurobi.GRBException;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Per-frame counts of one solution of a <code>GrowthLineTrackingILP</code>:
+ * number of cells (active right assignments), divisions and exits, and
+ * whether the user constrained anything at that frame.
+ *
+ * A summary is computed in a single pass over all right assignments of a
+ * published <code>SolutionSnapshot</code>. It is immutable afterwards and can
+ * be obtained (cached per solution) via
+ * <code>GrowthLineTrackingILP.getSolutionSummary()</code>.
+ *
+ * @author jug
+ */
+public class SolutionSummary {
+
+	private final int solutionVersion;
+	private final int[] cells;
+	private final int[] divisions;
+	private final int[] exits;
+	private final boolean[] userTouched;
+	private final int[] cumulativeCells;
+
+	/**
+	 * @param ilp
+	 *            the ILP to summarize.
+	 * @param snapshot
+	 *            the solution to summarize. If null (the ILP was never
+	 *            optimized) all counts are 0.
+	 * @param numFrames
+	 *            the number of frames to summarize.
+	 */
+	SolutionSummary( final GrowthLineTrackingILP ilp, final SolutionSnapshot snapshot, final int numFrames ) {
+		this.solutionVersion = ( snapshot == null ) ? 0 : snapshot.getVersion();
+		cells = new int[ numFrames ];
+		divisions = new int[ numFrames ];
+		exits = new int[ numFrames ];
+		userTouched = new boolean[ numFrames ];
+		cumulativeCells = new int[ numFrames ];
+
+		final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > assignments = new ArrayList< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > >();
+		final List< Integer > assignmentTimes = new ArrayList< Integer >();
+		final int numTimeSteps = Math.min( numFrames, ilp.nodes.getNumberOfTimeSteps() );
+		for ( int t = 0; t < numTimeSteps; t++ ) {
+			final List< Hypothesis< Component< FloatType, ? > > > hyps = ilp.nodes.getHypothesesAt( t );
+			if ( hyps == null ) continue;
+			if ( ilp.getSegmentsInFrameCountConstraintRHS( t ) >= 0 ) {
+				userTouched[ t ] = true;
+			}
+			for ( final Hypothesis< Component< FloatType, ? > > hyp : hyps ) {
+				if ( hyp.getSegmentSpecificConstraint() != null ) {
+					userTouched[ t ] = true;
+				}
+				final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > rightNeighbors = ilp.edgeSets.getRightNeighborhood( hyp );
+				if ( rightNeighbors == null ) continue;
+				for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > assmnt : rightNeighbors ) {
+					if ( assmnt.isGroundTruth() || assmnt.isGroundUntruth() ) {
+						userTouched[ t ] = true;
+					}
+					assignments.add( assmnt );
+					assignmentTimes.add( t );
+				}
+			}
+		}
+
+		if ( snapshot == null ) return;
+
+		for ( int i = 0; i < assignments.size(); i++ ) {
+			if ( !isChoosen( snapshot, assignments.get( i ) ) ) continue;
+			final int t = assignmentTimes.get( i );
+			cells[ t ]++;
+			if ( assignments.get( i ).getType() == GrowthLineTrackingILP.ASSIGNMENT_DIVISION ) divisions[ t ]++;
+			if ( assignments.get( i ).getType() == GrowthLineTrackingILP.ASSIGNMENT_EXIT ) exits[ t ]++;
+		}
+
+		int sum = 0;
+		for ( int t = 0; t < numFrames; t++ ) {
+			if ( sum == 0 ) {
+				sum = cells[ t ];
+			} else {
+				sum += divisions[ t ];
+			}
+			cumulativeCells[ t ] = sum;
+		}
+	}
+
+	/**
+	 * @return the solution value of the given assignment in the given
+	 *         snapshot (for assignments the snapshot does not know, the value
+	 *         <code>isChoosen</code> finds).
+	 */
+	private static boolean isChoosen( final SolutionSnapshot snapshot, final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > assignment ) {
+		if ( snapshot.contains( assignment ) ) return snapshot.isChoosen( assignment );
+		try {
+			return assignment.isChoosen();
+		} catch ( final GRBException e ) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the version of the ILP solution this summary was computed from.
+	 */
+	public int getSolutionVersion() {
+		return solutionVersion;
+	}
+
+	public int getNumFrames() {
+		return cells.length;
+	}
+
+	/**
+	 * @return the number of cells in frame t (active right assignments).
+	 */
+	public int getCellCount( final int t ) {
+		return cells[ t ];
+	}
+
+	public int getDivisionCount( final int t ) {
+		return divisions[ t ];
+	}
+
+	public int getExitCount( final int t ) {
+		return exits[ t ];
+	}
+
+	/**
+	 * @return true if the user added segment or assignment constraints (or a
+	 *         cell count) at frame t.
+	 */
+	public boolean isUserTouched( final int t ) {
+		return userTouched[ t ];
+	}
+
+	/**
+	 * @return cells of the first frame with cells plus all divisions up to and
+	 *         including frame t.
+	 */
+	public int getCumulativeCellCount( final int t ) {
+		return cumulativeCells[ t ];
+	}
+
+	/**
+	 * @return the cumulative cell count of the last frame (0 if there are no
+	 *         frames).
+	 */
+	public int getTotalCellCount() {
+		return ( cumulativeCells.length == 0 ) ? 0 : cumulativeCells[ cumulativeCells.length - 1 ];
+	}
+}
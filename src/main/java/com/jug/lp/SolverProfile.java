@@ -0,0 +1,150 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+
+/**
+ * A named bundle of Gurobi parameters used when solving the tracking ILPs.
+ *
+ * Values of -1 reset the corresponding Gurobi parameter to its default (for
+ * 'Threads': to the share of the core budget handed out by
+ * <code>ComputeResources</code>), so profiles applied one after another do
+ * not inherit each other's settings.
+ * Select a profile by name via <code>MoMA.SOLVER_PROFILE</code> (or the
+ * <code>-sp</code> command line option); <code>SolverTuner</code> helps to
+ * find the best one for a set of saved tracking models.
+ *
+ * @author jug
+ */
+public class SolverProfile {
+
+	/**
+	 * Gurobi defaults (what MoMA always used).
+	 */
+	public static final SolverProfile DEFAULT = new SolverProfile( "default", -1, -1, -1, -1, -1, -1 );
+
+	/**
+	 * Finds good solutions early (MIPFocus=1, more heuristics, conservative
+	 * presolve): for re-optimizations triggered in the GUI.
+	 */
+	public static final SolverProfile FAST_INTERACTIVE = new SolverProfile( "fast-interactive", 1, 0.2, 1, -1, 1, -1 );
+
+	/**
+	 * Balances finding solutions and closing the gap, using aggressive
+	 * presolve and the fair share of cores, so that many GLs can be solved
+	 * side by side (see <code>MoMA.MAX_CONCURRENT_SOLVES</code>).
+	 */
+	public static final SolverProfile BATCH_THROUGHPUT = new SolverProfile( "batch-throughput", 0, 0.05, 2, -1, -1, -1 );
+
+	/**
+	 * Focuses on proving optimality (MIPFocus=2, aggressive cuts, no
+	 * tolerated gap).
+	 */
+	public static final SolverProfile EXACT = new SolverProfile( "exact", 2, -1, 2, -1, 2, 0.0 );
+
+	private static final SolverProfile[] PROFILES = new SolverProfile[] { DEFAULT, FAST_INTERACTIVE, BATCH_THROUGHPUT, EXACT };
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private final String name;
+	private final int mipFocus;
+	private final double heuristics;
+	private final int presolve;
+	private final int threads;
+	private final int cuts;
+	private final double mipGap;
+
+	// -------------------------------------------------------------------------------------
+	// construction
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @param name
+	 * @param mipFocus
+	 *            Gurobi 'MIPFocus' (0-3).
+	 * @param heuristics
+	 *            Gurobi 'Heuristics' (fraction of time spent in MIP
+	 *            heuristics).
+	 * @param presolve
+	 *            Gurobi 'Presolve' (0-2).
+	 * @param threads
+	 *            Gurobi 'Threads' (0 means all cores, -1 the fair share
+	 *            given by <code>ComputeResources.acquireForSolve</code>).
+	 * @param cuts
+	 *            Gurobi 'Cuts' (0-3).
+	 * @param mipGap
+	 *            Gurobi 'MIPGap'.
+	 */
+	public SolverProfile( final String name, final int mipFocus, final double heuristics, final int presolve, final int threads, final int cuts, final double mipGap ) {
+		this.name = name;
+		this.mipFocus = mipFocus;
+		this.heuristics = heuristics;
+		this.presolve = presolve;
+		this.threads = threads;
+		this.cuts = cuts;
+		this.mipGap = mipGap;
+	}
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return all predefined profiles.
+	 */
+	public static SolverProfile[] getProfiles() {
+		return PROFILES.clone();
+	}
+
+	/**
+	 * @return the predefined profile with the given name, or
+	 *         <code>DEFAULT</code> (with a warning) if there is none.
+	 */
+	public static SolverProfile byName( final String name ) {
+		for ( final SolverProfile profile : PROFILES ) {
+			if ( profile.getName().equalsIgnoreCase( name ) ) return profile;
+		}
+		System.out.println( "WARNING: unknown solver profile '" + name + "' -- using '" + DEFAULT.getName() + "'." );
+		return DEFAULT;
+	}
+
+	/**
+	 * Resets all parameters of the given environment (use
+	 * <code>model.getEnv()</code> to only affect one model) to the Gurobi
+	 * defaults and sets the ones specified by this profile. Parameters that
+	 * are not part of a profile (e.g. 'OutputFlag') must be set afterwards.
+	 */
+	public void apply( final GRBEnv env ) throws GRBException {
+		apply( env, -1 );
+	}
+
+	/**
+	 * Like <code>apply( env )</code>, but uses <code>fairShareThreads</code>
+	 * (if >= 0) for 'Threads' if this profile does not specify them.
+	 */
+	public void apply( final GRBEnv env, final int fairShareThreads ) throws GRBException {
+		env.resetParams();
+		if ( mipFocus >= 0 ) env.set( GRB.IntParam.MIPFocus, mipFocus );
+		if ( heuristics >= 0 ) env.set( GRB.DoubleParam.Heuristics, heuristics );
+		if ( presolve >= 0 ) env.set( GRB.IntParam.Presolve, presolve );
+		if ( threads >= 0 ) {
+			env.set( GRB.IntParam.Threads, threads );
+		} else if ( fairShareThreads >= 0 ) {
+			env.set( GRB.IntParam.Threads, fairShareThreads );
+		}
+		if ( cuts >= 0 ) env.set( GRB.IntParam.Cuts, cuts );
+		if ( mipGap >= 0 ) env.set( GRB.DoubleParam.MIPGap, mipGap );
+	}
+
+	@Override
+	public String toString() {
+		return String.format( "%s (MIPFocus=%d, Heuristics=%s, Presolve=%d, Threads=%d, Cuts=%d, MIPGap=%s)", name, mipFocus, heuristics, presolve, threads, cuts, mipGap );
+	}
+}
@@ -0,0 +1,191 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import gurobi.GRB;
+
+/**
+ * How incumbent and bound of one MIP solve evolved over time. A point
+ * (runtime, incumbent, bound) is recorded whenever incumbent or bound
+ * change. Independently, the progress of the branch-and-bound search is
+ * logged every so many nodes (see <code>recordNodes</code>).
+ *
+ * @author jug
+ */
+public class SolverTrajectory {
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private final List< double[] > points = new ArrayList< double[] >();
+	private final List< double[] > nodeLog = new ArrayList< double[] >();
+	private double lastIncumbent = Double.NaN;
+	private double lastBound = Double.NaN;
+	private double lastImprovementTime = 0;
+	private double latestRuntime = 0;
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @param runtime
+	 *            seconds since the solve started.
+	 * @param incumbent
+	 *            objective of the best solution found so far (GRB.INFINITY if
+	 *            none).
+	 * @param bound
+	 *            best known lower bound.
+	 */
+	public void record( final double runtime, final double incumbent, final double bound ) {
+		latestRuntime = runtime;
+		if ( incumbent == lastIncumbent && bound == lastBound ) return;
+		if ( incumbent != lastIncumbent ) {
+			lastImprovementTime = runtime;
+		}
+		lastIncumbent = incumbent;
+		lastBound = bound;
+		points.add( new double[] { runtime, incumbent, bound } );
+	}
+
+	/**
+	 * Logs the state of the branch-and-bound search.
+	 *
+	 * @param runtime
+	 *            seconds since the solve started.
+	 * @param nodes
+	 *            number of explored nodes.
+	 * @param openNodes
+	 *            number of unexplored nodes.
+	 * @param iterations
+	 *            number of simplex iterations.
+	 * @param solutions
+	 *            number of solutions found.
+	 * @param cuts
+	 *            number of cutting planes applied.
+	 */
+	public void recordNodes( final double runtime, final double nodes, final int openNodes, final int iterations, final int solutions, final int cuts ) {
+		nodeLog.add( new double[] { runtime, nodes, openNodes, iterations, solutions, cuts } );
+	}
+
+	/**
+	 * @return the logged search states { runtime, nodes, open nodes,
+	 *         iterations, solutions, cuts }.
+	 */
+	public List< double[] > getNodeLog() {
+		return nodeLog;
+	}
+
+	/**
+	 * @return the recorded points { runtime, incumbent, bound }.
+	 */
+	public List< double[] > getPoints() {
+		return points;
+	}
+
+	public boolean isEmpty() {
+		return points.isEmpty();
+	}
+
+	/**
+	 * @return true if an incumbent solution exists.
+	 */
+	public boolean hasIncumbent() {
+		return !Double.isNaN( lastIncumbent ) && Math.abs( lastIncumbent ) < GRB.INFINITY;
+	}
+
+	public double getIncumbent() {
+		return lastIncumbent;
+	}
+
+	public double getBound() {
+		return lastBound;
+	}
+
+	/**
+	 * @return the runtime of the latest call to <code>record</code>.
+	 */
+	public double getRuntime() {
+		return latestRuntime;
+	}
+
+	/**
+	 * @return the runtime at which the incumbent last changed.
+	 */
+	public double getLastImprovementTime() {
+		return lastImprovementTime;
+	}
+
+	/**
+	 * @return the current gap (see <code>gap</code>).
+	 */
+	public double getGap() {
+		return gap( lastIncumbent, lastBound );
+	}
+
+	/**
+	 * @return the gap at the given runtime (infinity if nothing was recorded
+	 *         up to then).
+	 */
+	public double getGapAt( final double runtime ) {
+		double ret = Double.POSITIVE_INFINITY;
+		for ( final double[] point : points ) {
+			if ( point[ 0 ] > runtime ) break;
+			ret = gap( point[ 1 ], point[ 2 ] );
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the gap as used by <code>GurobiCallback</code>, i.e.
+	 *         |incumbent-bound| / (1+|incumbent|); infinity if there is no
+	 *         incumbent.
+	 */
+	public static double gap( final double incumbent, final double bound ) {
+		if ( Double.isNaN( incumbent ) || Math.abs( incumbent ) >= GRB.INFINITY ) return Double.POSITIVE_INFINITY;
+		return Math.abs( incumbent - bound ) / ( 1.0 + Math.abs( incumbent ) );
+	}
+
+	/**
+	 * Writes all recorded points to a CSV file.
+	 *
+	 * @param terminationReason
+	 *            written as a comment line on top (can be null).
+	 */
+	public void save( final File file, final String terminationReason ) throws IOException {
+		final BufferedWriter out = new BufferedWriter( new FileWriter( file ) );
+		try {
+			if ( terminationReason != null ) {
+				out.write( "# terminated: " + terminationReason + "\n" );
+			}
+			out.write( "runtime, incumbent, bound, gap\n" );
+			for ( final double[] point : points ) {
+				out.write( String.format( "%.3f, %s, %s, %s\n", point[ 0 ], point[ 1 ], point[ 2 ], gap( point[ 1 ], point[ 2 ] ) ) );
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the node log (see <code>recordNodes</code>) to a CSV file.
+	 */
+	public void saveNodeLog( final File file ) throws IOException {
+		final BufferedWriter out = new BufferedWriter( new FileWriter( file ) );
+		try {
+			out.write( "runtime, nodes, open_nodes, iterations, solutions, cuts\n" );
+			for ( final double[] entry : nodeLog ) {
+				out.write( String.format( "%.3f, %d, %d, %d, %d, %d\n", entry[ 0 ], ( long ) entry[ 1 ], ( long ) entry[ 2 ], ( long ) entry[ 3 ], ( long ) entry[ 4 ], ( long ) entry[ 5 ] ) );
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import gurobi.GRB;
+import gurobi.GRBCallback;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+
+/**
+ * Local tuning harness: solves a set of saved tracking models (see
+ * <code>MoMA.SAVE_TRACKING_MODELS</code>) once with each
+ * <code>SolverProfile</code>, records how incumbent and bound evolve over
+ * time (time-to-gap curves), and picks the profile that reaches the target
+ * gaps fastest.
+ *
+ * Usage: <code>SolverTuner &lt;model-folder&gt; [time-limit-in-sec]</code>.
+ * Curves and a summary are written as CSV files into the model folder.
+ *
+ * Runs not reaching a target gap within the time limit are charged twice the
+ * time limit for that target (PAR2 score).
+ *
+ * @author jug
+ */
+public class SolverTuner {
+
+	private static final double[] TARGET_GAPS = new double[] { 0.1, 0.01, 0.001 };
+
+	/**
+	 * Records (runtime, incumbent, bound) whenever one of the latter changes.
+	 */
+	private static class TrajectoryCallback extends GRBCallback {
+
+		private final SolverTrajectory trajectory = new SolverTrajectory();
+
+		@Override
+		protected void callback() {
+			try {
+				if ( where == GRB.CB_MIP ) {
+					trajectory.record( getDoubleInfo( GRB.CB_RUNTIME ), getDoubleInfo( GRB.CB_MIP_OBJBST ), getDoubleInfo( GRB.CB_MIP_OBJBND ) );
+				}
+			} catch ( final GRBException e ) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private final File[] modelFiles;
+	private final double timeLimit;
+
+	// -------------------------------------------------------------------------------------
+	// construction
+	// -------------------------------------------------------------------------------------
+	public SolverTuner( final File[] modelFiles, final double timeLimit ) {
+		this.modelFiles = modelFiles;
+		this.timeLimit = timeLimit;
+	}
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	public static void main( final String[] args ) {
+		if ( args.length < 1 ) {
+			System.out.println( "Usage: SolverTuner <model-folder> [time-limit-in-sec]" );
+			return;
+		}
+		final File folder = new File( args[ 0 ] );
+		final File[] models = folder.listFiles( new FilenameFilter() {
+
+			@Override
+			public boolean accept( final File dir, final String name ) {
+				return name.endsWith( ".mps" ) || name.endsWith( ".lp" ) || name.endsWith( ".mps.gz" ) || name.endsWith( ".lp.gz" );
+			}
+		} );
+		if ( models == null || models.length == 0 ) {
+			System.out.println( "ERROR: no tracking models (*.mps, *.lp) found in " + folder.getAbsolutePath() );
+			return;
+		}
+		Arrays.sort( models );
+
+		final double timeLimit = ( args.length > 1 ) ? Double.parseDouble( args[ 1 ] ) : 60.0;
+		try {
+			final SolverProfile best = new SolverTuner( models, timeLimit ).tune( folder );
+			System.out.println( "Best solver profile: " + best );
+		} catch ( final Exception e ) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Runs all profiles on all models.
+	 *
+	 * @param outputFolder
+	 *            where 'tuning_curves.csv' and 'tuning_summary.csv' are
+	 *            written to.
+	 * @return the profile with the lowest PAR2 score.
+	 */
+	public SolverProfile tune( final File outputFolder ) throws GRBException, IOException {
+		final SolverProfile[] profiles = SolverProfile.getProfiles();
+		final double[] scores = new double[ profiles.length ];
+
+		final BufferedWriter curves = new BufferedWriter( new FileWriter( new File( outputFolder, "tuning_curves.csv" ) ) );
+		final BufferedWriter summary = new BufferedWriter( new FileWriter( new File( outputFolder, "tuning_summary.csv" ) ) );
+		try {
+			curves.write( "profile, model, runtime, incumbent, bound, gap\n" );
+			summary.write( "profile, model, status, runtime" );
+			for ( final double gap : TARGET_GAPS ) {
+				summary.write( String.format( ", time_to_gap_%s", gap ) );
+			}
+			summary.write( "\n" );
+
+			final GRBEnv env = new GRBEnv( "MoMA_tuning.log" );
+			for ( int p = 0; p < profiles.length; p++ ) {
+				for ( final File modelFile : modelFiles ) {
+					System.out.println( String.format( "Tuning: profile '%s' on %s", profiles[ p ].getName(), modelFile.getName() ) );
+					final GRBModel model = new GRBModel( env, modelFile.getAbsolutePath() );
+					profiles[ p ].apply( model.getEnv() );
+					model.getEnv().set( GRB.IntParam.OutputFlag, 0 );
+					model.getEnv().set( GRB.DoubleParam.TimeLimit, timeLimit );
+
+					final TrajectoryCallback callback = new TrajectoryCallback();
+					model.setCallback( callback );
+					model.optimize();
+					if ( model.get( GRB.IntAttr.SolCount ) > 0 ) {
+						callback.trajectory.record( model.get( GRB.DoubleAttr.Runtime ), model.get( GRB.DoubleAttr.ObjVal ), model.get( GRB.DoubleAttr.ObjBound ) );
+					}
+
+					for ( final double[] point : callback.trajectory.getPoints() ) {
+						curves.write( String.format( "%s, %s, %.3f, %s, %s, %s\n", profiles[ p ].getName(), modelFile.getName(), point[ 0 ], point[ 1 ], point[ 2 ], gap( point[ 1 ], point[ 2 ] ) ) );
+					}
+					summary.write( String.format( "%s, %s, %d, %.3f", profiles[ p ].getName(), modelFile.getName(), model.get( GRB.IntAttr.Status ), model.get( GRB.DoubleAttr.Runtime ) ) );
+					for ( final double target : TARGET_GAPS ) {
+						final double time = timeToGap( callback.trajectory.getPoints(), target );
+						summary.write( String.format( ", %.3f", time ) );
+						scores[ p ] += Double.isInfinite( time ) ? 2 * timeLimit : time;
+					}
+					summary.write( "\n" );
+					model.dispose();
+				}
+			}
+			env.dispose();
+		} finally {
+			curves.close();
+			summary.close();
+		}
+
+		int best = 0;
+		for ( int p = 0; p < profiles.length; p++ ) {
+			System.out.println( String.format( "    %-18s PAR2 score: %.1f", profiles[ p ].getName(), scores[ p ] ) );
+			if ( scores[ p ] < scores[ best ] ) best = p;
+		}
+		return profiles[ best ];
+	}
+
+	/**
+	 * @return the relative gap as defined by Gurobi.
+	 */
+	private static double gap( final double incumbent, final double bound ) {
+		if ( Math.abs( incumbent ) >= GRB.INFINITY ) return Double.POSITIVE_INFINITY;
+		return Math.abs( incumbent - bound ) / Math.max( 1e-10, Math.abs( incumbent ) );
+	}
+
+	/**
+	 * @return the first runtime at which the given trajectory reached the
+	 *         target gap (infinity if never).
+	 */
+	private static double timeToGap( final List< double[] > trajectory, final double target ) {
+		for ( final double[] point : trajectory ) {
+			if ( gap( point[ 1 ], point[ 2 ] ) <= target ) return point[ 0 ];
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+}
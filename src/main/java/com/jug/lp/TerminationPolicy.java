@@ -0,0 +1,154 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jug.MoMA;
+
+/**
+ * Decides, based on the trajectory recorded so far, whether a running
+ * optimization can be stopped early. <code>GurobiCallback</code> aborts the
+ * solve as soon as one of its policies says so, and the best solution found
+ * so far is used.
+ *
+ * @author jug
+ */
+public abstract class TerminationPolicy {
+
+	/**
+	 * @return true if the solve should be stopped now.
+	 */
+	public abstract boolean shouldTerminate( SolverTrajectory trajectory );
+
+	/**
+	 * @return a short human readable description of why the solve was
+	 *         stopped.
+	 */
+	public abstract String getReason();
+
+	/**
+	 * The policies configured in MoMA (always including
+	 * <code>TimeLimitAndGap</code>).
+	 *
+	 * @param previousObjective
+	 *            objective of the previous solve of the same ILP (NaN if
+	 *            there was none), see <code>MatchesPrevious</code>.
+	 */
+	public static List< TerminationPolicy > fromParameters( final double previousObjective ) {
+		final List< TerminationPolicy > ret = new ArrayList< TerminationPolicy >();
+		ret.add( new TimeLimitAndGap() );
+		if ( MoMA.TERMINATION_STALL_SECONDS > 0 ) {
+			ret.add( new IncumbentStall( MoMA.TERMINATION_STALL_SECONDS ) );
+		}
+		if ( MoMA.TERMINATION_FLAT_GAP_SECONDS > 0 ) {
+			ret.add( new FlatGap( MoMA.TERMINATION_FLAT_GAP_SECONDS, MoMA.TERMINATION_FLAT_GAP_DELTA ) );
+		}
+		if ( MoMA.TERMINATION_MATCH_TOLERANCE >= 0 && !Double.isNaN( previousObjective ) ) {
+			ret.add( new MatchesPrevious( previousObjective, MoMA.TERMINATION_MATCH_TOLERANCE ) );
+		}
+		return ret;
+	}
+
+	/**
+	 * Stops once <code>MoMA.GUROBI_TIME_LIMIT</code> is exceeded and the gap
+	 * is below <code>MoMA.GUROBI_MAX_OPTIMALITY_GAP</code> (what MoMA always
+	 * did). Both values are read on every call, since they can be changed in
+	 * the GUI.
+	 */
+	public static class TimeLimitAndGap extends TerminationPolicy {
+
+		@Override
+		public boolean shouldTerminate( final SolverTrajectory trajectory ) {
+			return trajectory.getRuntime() > MoMA.GUROBI_TIME_LIMIT && trajectory.getGap() < MoMA.GUROBI_MAX_OPTIMALITY_GAP;
+		}
+
+		@Override
+		public String getReason() {
+			return String.format( "time limit of %.1f sec. reached", MoMA.GUROBI_TIME_LIMIT );
+		}
+	}
+
+	/**
+	 * Stops if the incumbent did not improve for a given number of seconds.
+	 */
+	public static class IncumbentStall extends TerminationPolicy {
+
+		private final double seconds;
+
+		public IncumbentStall( final double seconds ) {
+			this.seconds = seconds;
+		}
+
+		@Override
+		public boolean shouldTerminate( final SolverTrajectory trajectory ) {
+			return trajectory.hasIncumbent() && trajectory.getRuntime() - trajectory.getLastImprovementTime() >= seconds;
+		}
+
+		@Override
+		public String getReason() {
+			return String.format( "incumbent did not improve for %.1f sec.", seconds );
+		}
+	}
+
+	/**
+	 * Stops if the gap decreased by less than <code>delta</code> during the
+	 * last <code>seconds</code> seconds.
+	 */
+	public static class FlatGap extends TerminationPolicy {
+
+		private final double seconds;
+		private final double delta;
+
+		public FlatGap( final double seconds, final double delta ) {
+			this.seconds = seconds;
+			this.delta = delta;
+		}
+
+		@Override
+		public boolean shouldTerminate( final SolverTrajectory trajectory ) {
+			if ( !trajectory.hasIncumbent() || trajectory.getRuntime() < seconds ) return false;
+			final double before = trajectory.getGapAt( trajectory.getRuntime() - seconds );
+			return !Double.isInfinite( before ) && before - trajectory.getGap() < delta;
+		}
+
+		@Override
+		public String getReason() {
+			return String.format( "gap decreased by less than %s within %.1f sec.", delta, seconds );
+		}
+	}
+
+	/**
+	 * Stops as soon as the incumbent is as good as the objective of the
+	 * previous solve (within a relative tolerance). As long as constraints
+	 * were only added since then (forcing or ignoring segments and
+	 * assignments) the new optimum cannot be better than the previous one, so
+	 * such an incumbent is (near-)optimal. Once a constraint was removed (e.g.
+	 * ground truth toggled off, unfreezing, or un-ignoring segments) this does
+	 * not hold anymore, hence <code>GrowthLineTrackingILP</code> does not pass
+	 * a previous objective then (see
+	 * <code>GrowthLineTrackingILP.removeConstraint</code>).
+	 */
+	public static class MatchesPrevious extends TerminationPolicy {
+
+		private final double previousObjective;
+		private final double tolerance;
+
+		public MatchesPrevious( final double previousObjective, final double tolerance ) {
+			this.previousObjective = previousObjective;
+			this.tolerance = tolerance;
+		}
+
+		@Override
+		public boolean shouldTerminate( final SolverTrajectory trajectory ) {
+			return trajectory.hasIncumbent() && trajectory.getIncumbent() <= previousObjective + tolerance * ( 1.0 + Math.abs( previousObjective ) );
+		}
+
+		@Override
+		public String getReason() {
+			return String.format( "incumbent matches previous solution (objective %.4f)", previousObjective );
+		}
+	}
+}
@@ -0,0 +1,450 @@
+/**
+ *
+ */
+package com.jug.lp;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jug.MoMA;
+import com.jug.util.ComputeResources;
+
+import gurobi.GRB;
+import gurobi.GRBConstr;
+import gurobi.GRBException;
+import gurobi.GRBLinExpr;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Solves the ILP of one GrowthLine as a set of independent time segments.
+ *
+ * All constraints of the tracking ILP only involve the assignments leaving a
+ * single frame, except for the continuity constraints, which couple the
+ * assignments entering and leaving a hypothesis. If the activity of every
+ * hypothesis at some frame t is forced (because the hypothesis cannot be
+ * entered or left, e.g. after presolve or in an empty channel, or because it
+ * is clamped by a segment, freeze, or ignore constraint), the continuity
+ * constraints at t only fix the sums of the incoming and of the outgoing
+ * assignments of each hypothesis separately. The frames before and after t
+ * can then be optimized independently of each other, and the sum of the
+ * segment optima is the optimum of the whole ILP.
+ *
+ * Each segment is solved on a copy of the full model in which all variables
+ * outside the segment are removed, constraints left without variables are
+ * removed, and the right hand sides of the continuity constraints at the cut
+ * frames are set to the forced activities. This keeps all user constraints
+ * (curations) of the original model. Any other constraint spanning a cut
+ * couples both sides, hence such cuts are not used. The segments are solved
+ * in parallel and the merged solution is stored in the assignments of the
+ * original ILP (see <code>AbstractAssignment.setStoredSolution</code>).
+ *
+ * @author jug
+ */
+@SuppressWarnings( "restriction" )
+public class TimeSegmentDecomposer {
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private final GrowthLineTrackingILP ilp;
+	private final int numFrames;
+
+	/**
+	 * Segments as { first frame, last frame }; consecutive segments share
+	 * their cut frame.
+	 */
+	private List< int[] > segments;
+
+	/**
+	 * Forced activities (0 or 1) of all hypotheses at cut frames.
+	 */
+	private final IdentityHashMap< Hypothesis< Component< FloatType, ? > >, Integer > forcedActivity = new IdentityHashMap< Hypothesis< Component< FloatType, ? > >, Integer >();
+
+	/**
+	 * The constraints of the full model as variable indices, coefficients,
+	 * and right hand sides (read once, since the model must not be accessed
+	 * concurrently).
+	 */
+	private int[][] rowVars;
+	private double[][] rowCoeffs;
+	private double[] rowRhs;
+	private char[] rowSense;
+
+	/**
+	 * For each constraint spanning a cut: the hypothesis at the cut it is the
+	 * continuity constraint of (null for all other constraints).
+	 */
+	private Hypothesis< Component< FloatType, ? > >[] cutHypOfRow;
+
+	private GRBVar[] vars;
+	private AbstractAssignment< Hypothesis< Component< FloatType, ? > > >[] assignmentOfVar;
+	private boolean[] solution;
+	private double objective;
+	private int status;
+
+	// -------------------------------------------------------------------------------------
+	// construction
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @param ilp
+	 *            a built (but not necessarily solved) ILP.
+	 * @param minSegmentLength
+	 *            cuts leading to segments of fewer frames are not used.
+	 */
+	public TimeSegmentDecomposer( final GrowthLineTrackingILP ilp, final int minSegmentLength ) {
+		this.ilp = ilp;
+		this.numFrames = ilp.getGrowthLine().size();
+
+		final boolean[] isCut = new boolean[ numFrames ];
+		for ( int t = 1; t < numFrames - 1; t++ ) {
+			isCut[ t ] = isForced( t );
+		}
+		segments = toSegments( isCut, minSegmentLength );
+	}
+
+	// -------------------------------------------------------------------------------------
+	// getters
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @return the segments as { first frame, last frame }.
+	 */
+	public List< int[] > getSegments() {
+		return segments;
+	}
+
+	/**
+	 * @return the sum of the objective values of all segments.
+	 */
+	public double getObjective() {
+		return objective;
+	}
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @return true if the activity of all hypotheses at (inner) frame t is
+	 *         determined by the current constraints.
+	 */
+	private boolean isForced( final int t ) {
+		final List< Hypothesis< Component< FloatType, ? > > > hyps = ilp.nodes.getHypothesesAt( t );
+		if ( hyps == null ) return true;
+		final IdentityHashMap< Hypothesis< Component< FloatType, ? > >, Integer > activities = new IdentityHashMap< Hypothesis< Component< FloatType, ? > >, Integer >();
+		for ( final Hypothesis< Component< FloatType, ? > > hyp : hyps ) {
+			final int activity = ilp.getForcedActivity( hyp );
+			if ( activity < 0 ) return false;
+			activities.put( hyp, activity );
+		}
+		forcedActivity.putAll( activities );
+		return true;
+	}
+
+	/**
+	 * Turns cut frames into segments.
+	 *
+	 * @param isCut
+	 *            one entry per frame; true if the frame can be used as cut.
+	 * @param minSegmentLength
+	 *            segments with fewer frames are merged with their neighbor.
+	 * @return segments as { first frame, last frame }, consecutive segments
+	 *         share their cut frame.
+	 */
+	public static List< int[] > toSegments( final boolean[] isCut, final int minSegmentLength ) {
+		final int numFrames = isCut.length;
+		final List< int[] > ret = new ArrayList< int[] >();
+		if ( numFrames == 0 ) return ret;
+
+		int start = 0;
+		for ( int t = 1; t < numFrames - 1; t++ ) {
+			if ( isCut[ t ] && t - start + 1 >= minSegmentLength ) {
+				ret.add( new int[] { start, t } );
+				start = t;
+			}
+		}
+		if ( !ret.isEmpty() && numFrames - start < minSegmentLength ) {
+			ret.get( ret.size() - 1 )[ 1 ] = numFrames - 1;
+		} else {
+			ret.add( new int[] { start, numFrames - 1 } );
+		}
+		return ret;
+	}
+
+	/**
+	 * Solves all segments (in parallel) and stores the merged solution in
+	 * the assignments of the ILP.
+	 *
+	 * @return one of the status values of <code>GrowthLineTrackingILP</code>;
+	 *         OPTIMAL only if all segments were solved to optimality.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public int run() {
+		final long startTime = System.currentTimeMillis();
+		final IdentityHashMap< GRBVar, Integer > idxOfVar = new IdentityHashMap< GRBVar, Integer >();
+		try {
+			ilp.model.update();
+			vars = ilp.model.getVars();
+			for ( int i = 0; i < vars.length; i++ ) {
+				idxOfVar.put( vars[ i ], i );
+			}
+			final GRBConstr[] constrs = ilp.model.getConstrs();
+			rowVars = new int[ constrs.length ][];
+			rowCoeffs = new double[ constrs.length ][];
+			rowRhs = new double[ constrs.length ];
+			rowSense = new char[ constrs.length ];
+			for ( int c = 0; c < constrs.length; c++ ) {
+				final GRBLinExpr row = ilp.model.getRow( constrs[ c ] );
+				rowVars[ c ] = new int[ row.size() ];
+				rowCoeffs[ c ] = new double[ row.size() ];
+				for ( int j = 0; j < row.size(); j++ ) {
+					rowVars[ c ][ j ] = idxOfVar.get( row.getVar( j ) );
+					rowCoeffs[ c ][ j ] = row.getCoeff( j );
+				}
+				rowRhs[ c ] = constrs[ c ].get( GRB.DoubleAttr.RHS );
+				rowSense[ c ] = constrs[ c ].get( GRB.CharAttr.Sense );
+			}
+		} catch ( final GRBException e ) {
+			e.printStackTrace();
+			return GrowthLineTrackingILP.NUMERIC;
+		}
+		assignmentOfVar = new AbstractAssignment[ vars.length ];
+		for ( final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > list : ilp.nodes.getAllAssignments() ) {
+			for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a : list ) {
+				final Integer idx = idxOfVar.get( a.getGRBVar() );
+				if ( idx != null ) {
+					assignmentOfVar[ idx ] = a;
+				}
+			}
+		}
+		checkCuts();
+
+		solution = new boolean[ vars.length ];
+		objective = 0;
+		status = GrowthLineTrackingILP.OPTIMAL;
+
+		final ComputeResources.Allocation cores = ComputeResources.acquireForSolve();
+		try {
+			final int numThreads = Math.max( 1, Math.min( segments.size(), cores.getThreads() ) );
+			final int solverThreads = Math.max( 1, cores.getThreads() / numThreads );
+			final AtomicInteger nextSegment = new AtomicInteger( 0 );
+			final Thread[] threads = new Thread[ numThreads ];
+			for ( int i = 0; i < numThreads; i++ ) {
+				threads[ i ] = new Thread() {
+
+					@Override
+					public void run() {
+						for ( int s = nextSegment.getAndIncrement(); s < segments.size(); s = nextSegment.getAndIncrement() ) {
+							solveSegment( segments.get( s ), solverThreads );
+						}
+					}
+				};
+				threads[ i ].start();
+			}
+			for ( final Thread thread : threads ) {
+				try {
+					thread.join();
+				} catch ( final InterruptedException e ) {
+					e.printStackTrace();
+				}
+			}
+		} finally {
+			cores.release();
+		}
+
+		for ( int i = 0; i < vars.length; i++ ) {
+			if ( assignmentOfVar[ i ] != null ) {
+				assignmentOfVar[ i ].setStoredSolution( assignmentOfVar[ i ].getCost(), solution[ i ] );
+			}
+		}
+		System.out.println( String.format( "    Decomposition: %d time segments solved in %d ms, objective %.6f", segments.size(), System.currentTimeMillis() - startTime, objective ) );
+		return status;
+	}
+
+	/**
+	 * Builds the model of one segment from a copy of the full model, solves
+	 * it, and copies the solution into <code>solution</code>.
+	 */
+	private void solveSegment( final int[] segment, final int solverThreads ) {
+		final int first = segment[ 0 ];
+		final int last = segment[ 1 ];
+		GRBModel copy = null;
+		try {
+			synchronized ( ilp.model ) {
+				copy = new GRBModel( ilp.model );
+			}
+			final GRBVar[] copyVars = copy.getVars();
+			final GRBConstr[] copyConstrs = copy.getConstrs();
+
+			// fix the right hand sides at the cuts, remove what is outside
+			for ( int c = 0; c < rowVars.length; c++ ) {
+				int inside = 0;
+				int anyOutside = -1;
+				double outsideCoeff = 0;
+				for ( int j = 0; j < rowVars[ c ].length; j++ ) {
+					final int idx = rowVars[ c ][ j ];
+					final int t = getTime( idx );
+					if ( t >= first && t < last ) {
+						inside++;
+					} else {
+						anyOutside = idx;
+						outsideCoeff = rowCoeffs[ c ][ j ];
+					}
+				}
+				if ( inside == 0 ) {
+					copy.remove( copyConstrs[ c ] );
+				} else if ( anyOutside >= 0 ) {
+					// continuity constraint of a hypothesis at a cut (nothing
+					// else spans a cut, see checkCuts): its outside variables
+					// share one coefficient and sum up to the forced activity
+					if ( cutHypOfRow[ c ] == null ) {
+						System.out.println( String.format( "ERROR: constraint %d spans a cut of time segment [%d,%d], but is no continuity constraint.", c, first, last ) );
+						setStatus( GrowthLineTrackingILP.NUMERIC );
+						return;
+					}
+					final double outsideValue = outsideCoeff * forcedActivity.get( cutHypOfRow[ c ] );
+					copyConstrs[ c ].set( GRB.DoubleAttr.RHS, rowRhs[ c ] - outsideValue );
+				}
+			}
+			for ( int i = 0; i < vars.length; i++ ) {
+				final int t = getTime( i );
+				if ( t < first || t >= last ) {
+					copy.remove( copyVars[ i ] );
+				}
+			}
+			copy.update();
+
+			SolverProfile.byName( MoMA.SOLVER_PROFILE ).apply( copy.getEnv(), solverThreads );
+			copy.getEnv().set( GRB.IntParam.OutputFlag, 0 );
+			copy.setCallback( new GurobiCallback( null, TerminationPolicy.fromParameters( Double.NaN ) ) );
+			copy.optimize();
+
+			final int segmentStatus = copy.get( GRB.IntAttr.Status );
+			if ( copy.get( GRB.IntAttr.SolCount ) == 0 ) {
+				System.out.println( String.format( "WARNING: time segment [%d,%d] could not be solved (Gurobi status %d).", first, last, segmentStatus ) );
+				setStatus( ( segmentStatus == GRB.Status.INFEASIBLE ) ? GrowthLineTrackingILP.INFEASIBLE : GrowthLineTrackingILP.LIMIT_REACHED );
+				return;
+			}
+			if ( segmentStatus != GRB.Status.OPTIMAL ) {
+				setStatus( GrowthLineTrackingILP.LIMIT_REACHED );
+			}
+			synchronized ( this ) {
+				objective += copy.get( GRB.DoubleAttr.ObjVal );
+				for ( int i = 0; i < vars.length; i++ ) {
+					final int t = getTime( i );
+					if ( t >= first && t < last ) {
+						solution[ i ] = copyVars[ i ].get( GRB.DoubleAttr.X ) > 0.5;
+					}
+				}
+			}
+		} catch ( final GRBException e ) {
+			System.out.println( String.format( "ERROR: time segment [%d,%d] could not be solved.", first, last ) );
+			e.printStackTrace();
+			setStatus( GrowthLineTrackingILP.NUMERIC );
+		} finally {
+			if ( copy != null ) {
+				copy.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Finds the continuity constraints of the hypotheses at the cuts (see
+	 * <code>cutHypOfRow</code>). Cuts spanned by any other constraint (e.g. a
+	 * user constraint involving several frames) are dropped, i.e. the
+	 * segments on both sides are merged.
+	 */
+	@SuppressWarnings( "unchecked" )
+	private void checkCuts() {
+		cutHypOfRow = new Hypothesis[ rowVars.length ];
+		final boolean[] isCut = new boolean[ numFrames ];
+		for ( int s = 1; s < segments.size(); s++ ) {
+			isCut[ segments.get( s )[ 0 ] ] = true;
+		}
+
+		boolean dropped = false;
+		for ( int c = 0; c < rowVars.length; c++ ) {
+			int tMin = Integer.MAX_VALUE;
+			int tMax = -1;
+			for ( final int idx : rowVars[ c ] ) {
+				final int t = getTime( idx );
+				if ( t < 0 ) continue;
+				tMin = Math.min( tMin, t );
+				tMax = Math.max( tMax, t );
+			}
+			for ( int cut = tMin + 1; cut <= tMax; cut++ ) {
+				if ( !isCut[ cut ] ) continue;
+				if ( tMax - tMin == 1 ) {
+					cutHypOfRow[ c ] = getContinuityHypothesis( c, cut );
+					if ( cutHypOfRow[ c ] != null ) continue;
+				}
+				System.out.println( String.format( "WARNING: decomposition cannot cut at frame %d, constraint %d couples frames %d to %d.", cut, c, tMin, tMax ) );
+				isCut[ cut ] = false;
+				dropped = true;
+			}
+		}
+		if ( dropped ) {
+			segments = toSegments( isCut, 1 );
+		}
+	}
+
+	/**
+	 * @return the hypothesis at frame t whose continuity constraint is the
+	 *         given row (entering assignments with coefficient 1, leaving
+	 *         ones with -1, right hand side 0), or null if the row is
+	 *         anything else.
+	 */
+	private Hypothesis< Component< FloatType, ? > > getContinuityHypothesis( final int c, final int t ) {
+		if ( rowSense[ c ] != GRB.EQUAL || rowRhs[ c ] != 0.0 ) return null;
+		Hypothesis< Component< FloatType, ? > > hyp = null;
+		int numLeaving = 0;
+		for ( int j = 0; j < rowVars[ c ].length; j++ ) {
+			final int idx = rowVars[ c ][ j ];
+			if ( getTime( idx ) != t ) continue;
+			final Hypothesis< Component< FloatType, ? > > source = getSource( assignmentOfVar[ idx ] );
+			if ( rowCoeffs[ c ][ j ] != -1.0 || ( hyp != null && hyp != source ) ) return null;
+			hyp = source;
+			numLeaving++;
+		}
+		if ( hyp == null || !forcedActivity.containsKey( hyp ) ) return null;
+
+		final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > left = ilp.edgeSets.getLeftNeighborhood( hyp );
+		final Set< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > right = ilp.edgeSets.getRightNeighborhood( hyp );
+		if ( left == null || right == null || right.size() != numLeaving || left.size() != rowVars[ c ].length - numLeaving ) return null;
+		for ( int j = 0; j < rowVars[ c ].length; j++ ) {
+			final int idx = rowVars[ c ][ j ];
+			if ( getTime( idx ) == t ) continue;
+			if ( rowCoeffs[ c ][ j ] != 1.0 || !left.contains( assignmentOfVar[ idx ] ) ) return null;
+		}
+		return hyp;
+	}
+
+	private synchronized void setStatus( final int newStatus ) {
+		if ( status == GrowthLineTrackingILP.OPTIMAL ) {
+			status = newStatus;
+		}
+	}
+
+	/**
+	 * @return the frame the assignment of the given variable leaves (-1 if
+	 *         the variable does not belong to an assignment).
+	 */
+	private int getTime( final int varIdx ) {
+		final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a = assignmentOfVar[ varIdx ];
+		return ( a == null ) ? -1 : getSource( a ).getTime();
+	}
+
+	private static Hypothesis< Component< FloatType, ? > > getSource( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a ) {
+		if ( a.getType() == GrowthLineTrackingILP.ASSIGNMENT_EXIT ) {
+			return ( ( ExitAssignment ) a ).getAssociatedHypothesis();
+		} else if ( a.getType() == GrowthLineTrackingILP.ASSIGNMENT_MAPPING ) {
+			return ( ( MappingAssignment ) a ).getSourceHypothesis();
+		} else {
+			return ( ( DivisionAssignment ) a ).getSourceHypothesis();
+		}
+	}
+}
@@ -25,11 +25,22 @@ public class CostManager {
 	private final Map< GRBVar, Integer > var2row;
 
 	public CostManager( final int numMappingFeatures, final int numDivisionFeatures ) {
+		this( numMappingFeatures, numDivisionFeatures, new double[ numMappingFeatures + numDivisionFeatures ] );
+	}
+
+	/**
+	 * @param weights
+	 *            the weight vector to use. It is not copied, hence cost
+	 *            managers created with the same array share their weights
+	 *            (but not their feature rows).
+	 */
+	public CostManager( final int numMappingFeatures, final int numDivisionFeatures, final double[] weights ) {
 		this.numFeatures = numMappingFeatures + numDivisionFeatures;
 		this.numMappingFeatures = numMappingFeatures;
 		this.numDivisionFeatures = numDivisionFeatures;
 
-		this.weights = new double[ numFeatures ];
+		if ( weights.length != numFeatures ) { throw new IllegalArgumentException( "Dimension mismatch of given weight vector." ); }
+		this.weights = weights;
 		this.matrix = new ArrayList< float[] >();
 		this.var2row = new HashMap< GRBVar, Integer >();
 	}
@@ -76,6 +87,15 @@ public class CostManager {
 		addRow( var, features );
 	}
 
+	/**
+	 * Forgets all feature rows (e.g. when the model the variables belong to
+	 * is disposed). The weights are kept.
+	 */
+	public void clear() {
+		var2row.clear();
+		matrix.clear();
+	}
+
 	public double getCurrentCost( final GRBVar var ) {
 		double ret = 0;
 		final Integer muh = var2row.get( var );
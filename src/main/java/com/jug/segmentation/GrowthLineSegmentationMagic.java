@@ -3,6 +3,9 @@
  */
 package com.jug.segmentation;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.type.numeric.real.FloatType;
 import net.imglib2.view.SubsampleIntervalView;
@@ -16,8 +19,23 @@ public class GrowthLineSegmentationMagic {
 	static SilentWekaSegmenter< FloatType > classifier;
 	private static long numSolutions;
 
+	/**
+	 * Classifiers loaded so far (by folder and file), so that switching back
+	 * and forth, or processing many datasets in one batch run, does not load
+	 * the same model file again.
+	 */
+	private static final Map< String, SilentWekaSegmenter< FloatType > > loadedClassifiers = new HashMap< String, SilentWekaSegmenter< FloatType > >();
+
 	public static void setClassifier( final String folder, final String file ) {
-		classifier = new SilentWekaSegmenter< FloatType >( folder, file );
+		synchronized ( loadedClassifiers ) {
+			final String key = folder + file;
+			SilentWekaSegmenter< FloatType > loaded = loadedClassifiers.get( key );
+			if ( loaded == null ) {
+				loaded = new SilentWekaSegmenter< FloatType >( folder, file );
+				loadedClassifiers.put( key, loaded );
+			}
+			classifier = loaded;
+		}
 	}
 
 	public static void setClassifier( final SilentWekaSegmenter< FloatType > newClassifier ) {
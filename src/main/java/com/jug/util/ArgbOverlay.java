@@ -0,0 +1,143 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import java.util.Arrays;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+/**
+ * Sparse ARGB annotations on top of an (x,y,t) stack. Only the annotated
+ * pixels are stored (per frame, in the order they were set); an ARGB image
+ * of a frame is rendered on demand by painting them over the (gray) data.
+ *
+ * This replaces a full ARGB copy of the data, of which only the few pixels
+ * on the GL center lines ever differed from the data itself.
+ *
+ * @author jug
+ */
+public class ArgbOverlay {
+
+	private final int width;
+	private final int height;
+
+	/**
+	 * Per frame: pixel indices (x + y * width) and colors, in the order they
+	 * were set, and how many of them are used.
+	 */
+	private final int[][] indices;
+	private final int[][] colors;
+	private final int[] sizes;
+
+	/**
+	 * @param blueprint
+	 *            the (x,y,t) stack to be annotated.
+	 */
+	public ArgbOverlay( final RandomAccessibleInterval< ? > blueprint ) {
+		this.width = ( int ) blueprint.dimension( 0 );
+		this.height = ( int ) blueprint.dimension( 1 );
+		final int numFrames = ( int ) blueprint.dimension( 2 );
+		indices = new int[ numFrames ][];
+		colors = new int[ numFrames ][];
+		sizes = new int[ numFrames ];
+	}
+
+	/**
+	 * Sets the color of one pixel. Positions outside the stack are ignored.
+	 *
+	 * @param pos
+	 *            (x,y,t) position of the pixel.
+	 * @param argb
+	 *            the color (see <code>ARGBType.rgba</code>).
+	 */
+	public synchronized void set( final long[] pos, final int argb ) {
+		if ( pos[ 0 ] < 0 || pos[ 0 ] >= width || pos[ 1 ] < 0 || pos[ 1 ] >= height || pos[ 2 ] < 0 || pos[ 2 ] >= sizes.length ) return;
+		final int t = ( int ) pos[ 2 ];
+		if ( indices[ t ] == null ) {
+			indices[ t ] = new int[ 64 ];
+			colors[ t ] = new int[ 64 ];
+		} else if ( sizes[ t ] == indices[ t ].length ) {
+			indices[ t ] = Arrays.copyOf( indices[ t ], 2 * sizes[ t ] );
+			colors[ t ] = Arrays.copyOf( colors[ t ], 2 * sizes[ t ] );
+		}
+		indices[ t ][ sizes[ t ] ] = ( int ) ( pos[ 0 ] + pos[ 1 ] * width );
+		colors[ t ][ sizes[ t ] ] = argb;
+		sizes[ t ]++;
+	}
+
+	/**
+	 * Removes all annotations.
+	 */
+	public synchronized void clear() {
+		Arrays.fill( indices, null );
+		Arrays.fill( colors, null );
+		Arrays.fill( sizes, 0 );
+	}
+
+	/**
+	 * @return the number of annotated pixels (pixels set more than once are
+	 *         counted as often).
+	 */
+	public synchronized long size() {
+		long n = 0;
+		for ( final int s : sizes ) {
+			n += s;
+		}
+		return n;
+	}
+
+	/**
+	 * Renders one frame of the annotated data.
+	 *
+	 * @param data
+	 *            the annotated (x,y,t) stack; values in [0,1] are shown as
+	 *            gray values (see <code>DataMover.convertAndCopy</code>).
+	 * @param t
+	 *            the frame to render.
+	 * @return a new 2D ARGB image.
+	 */
+	public Img< ARGBType > render( final RandomAccessibleInterval< FloatType > data, final int t ) {
+		final Img< ARGBType > ret = new ArrayImgFactory< ARGBType >().create( new long[] { width, height }, new ARGBType() );
+		try {
+			DataMover.convertAndCopy( Views.zeroMin( Views.hyperSlice( data, 2, data.min( 2 ) + t ) ), ret );
+		} catch ( final Exception e ) {
+			// conversion might not be supported
+			e.printStackTrace();
+		}
+
+		final int[] frameIndices;
+		final int[] frameColors;
+		final int n;
+		synchronized ( this ) {
+			n = sizes[ t ];
+			frameIndices = ( n == 0 ) ? null : Arrays.copyOf( indices[ t ], n );
+			frameColors = ( n == 0 ) ? null : Arrays.copyOf( colors[ t ], n );
+		}
+		if ( n == 0 ) return ret;
+
+		// later annotations win over earlier ones
+		final int[] pixels = new int[ width * height ];
+		final boolean[] annotated = new boolean[ width * height ];
+		for ( int i = 0; i < n; i++ ) {
+			pixels[ frameIndices[ i ] ] = frameColors[ i ];
+			annotated[ frameIndices[ i ] ] = true;
+		}
+		final Cursor< ARGBType > cursor = Views.flatIterable( ret ).cursor();
+		int i = 0;
+		while ( cursor.hasNext() ) {
+			final ARGBType pixel = cursor.next();
+			if ( annotated[ i ] ) {
+				pixel.set( pixels[ i ] );
+			}
+			i++;
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jug.util.converter.RealFloatNormalizeConverter;
+import com.jug.util.converter.RealFloatOffsetNormalizeConverter;
+import com.jug.util.converter.RealUnsignedByteQuantizeConverter;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+/**
+ * Compact storage for the (x,y,t) stacks MoMA keeps in memory. The data is
+ * held in narrow primitive types and handed out as <code>FloatType</code>
+ * views, such that all code working on float data can stay as it is.
+ *
+ * Raw channels are stored as <code>UnsignedShortType</code> (one plane per
+ * frame, minus the plane minimum), which reproduces 8- and 16-bit source
+ * data -- normalized or not -- bit by bit. Probability maps are stored as
+ * <code>UnsignedByteType</code>, i.e. quantized to 1/255.
+ *
+ * @author jug
+ */
+public class CompactImgs {
+
+	/**
+	 * Largest range of integer values a plane may span to be stored as
+	 * <code>UnsignedShortType</code>.
+	 */
+	private static final float MAX_RANGE = 65535f;
+
+	/**
+	 * Stores the given raw stack as <code>UnsignedShortType</code>, if every
+	 * plane (frame) of it contains only integer values spanning at most
+	 * 2^16 values.
+	 *
+	 * @param img
+	 *            an (x,y,t) stack of unnormalized raw data.
+	 * @param normalize
+	 *            if true, the returned view normalizes each plane to [0,1]
+	 *            (exactly like <code>ParallelTiffLoader.normalize</code>).
+	 * @return a float view on the compact copy, or null if the data cannot be
+	 *         stored without loss (e.g. it was float data to begin with).
+	 */
+	public static RandomAccessibleInterval< FloatType > compactRaw( final RandomAccessibleInterval< FloatType > img, final boolean normalize ) {
+		final int numPlanes = ( int ) img.dimension( 2 );
+		final float[] mins = new float[ numPlanes ];
+		final float[] ranges = new float[ numPlanes ];
+		for ( int t = 0; t < numPlanes; t++ ) {
+			float min = Float.MAX_VALUE;
+			float max = -Float.MAX_VALUE;
+			for ( final FloatType type : Views.iterable( Views.hyperSlice( img, 2, img.min( 2 ) + t ) ) ) {
+				final float v = type.get();
+				if ( v != ( float ) Math.floor( v ) ) return null;
+				if ( v < min ) min = v;
+				if ( v > max ) max = v;
+			}
+			if ( max - min > MAX_RANGE ) return null;
+			mins[ t ] = min;
+			ranges[ t ] = max - min;
+		}
+
+		final Img< UnsignedShortType > storage = new PlanarImgFactory< UnsignedShortType >().create( new long[] { img.dimension( 0 ), img.dimension( 1 ), numPlanes }, new UnsignedShortType() );
+		final List< RandomAccessibleInterval< FloatType > > planes = new ArrayList< RandomAccessibleInterval< FloatType > >( numPlanes );
+		for ( int t = 0; t < numPlanes; t++ ) {
+			final RandomAccessibleInterval< UnsignedShortType > plane = Views.hyperSlice( storage, 2, t );
+			final Cursor< FloatType > source = Views.flatIterable( Views.hyperSlice( img, 2, img.min( 2 ) + t ) ).cursor();
+			final Cursor< UnsignedShortType > target = Views.flatIterable( plane ).cursor();
+			while ( target.hasNext() ) {
+				target.next().set( ( int ) ( source.next().get() - mins[ t ] ) );
+			}
+
+			// (v-min)/range is what normalization computes, v-min+min is v -- both bit-exact
+			final RealFloatOffsetNormalizeConverter< UnsignedShortType > converter;
+			if ( normalize ) {
+				converter = new RealFloatOffsetNormalizeConverter< UnsignedShortType >( 0f, ( ranges[ t ] == 0 ) ? 1f : ranges[ t ] );
+			} else {
+				converter = new RealFloatOffsetNormalizeConverter< UnsignedShortType >( mins[ t ], 1f );
+			}
+			planes.add( Converters.convert( plane, converter, new FloatType() ) );
+		}
+		return Views.stack( planes );
+	}
+
+	/**
+	 * @return an empty probability map storage of the size of the given
+	 *         stack.
+	 */
+	public static Img< UnsignedByteType > createProbabilityMapLike( final RandomAccessibleInterval< ? > blueprint ) {
+		return DataMover.createEmptyArrayImgLike( blueprint, new UnsignedByteType() );
+	}
+
+	/**
+	 * Quantizes the given probabilities (values in [0,1]) into a new
+	 * probability map storage.
+	 */
+	public static Img< UnsignedByteType > quantizeProbabilities( final RandomAccessibleInterval< FloatType > probabilities ) {
+		final Img< UnsignedByteType > ret = new ArrayImgFactory< UnsignedByteType >().create( probabilities, new UnsignedByteType() );
+		DataMover.copy( Views.zeroMin( probabilities ), Views.iterable( ret ), getProbabilityQuantizer() );
+		return ret;
+	}
+
+	/**
+	 * @return the converter that writes probabilities (floats in [0,1]) into
+	 *         a probability map storage.
+	 */
+	public static RealUnsignedByteQuantizeConverter< FloatType > getProbabilityQuantizer() {
+		return new RealUnsignedByteQuantizeConverter< FloatType >();
+	}
+
+	/**
+	 * @return a float view (values in [0,1]) on the given probability map
+	 *         storage.
+	 */
+	public static RandomAccessibleInterval< FloatType > asProbabilities( final RandomAccessibleInterval< UnsignedByteType > storage ) {
+		return Converters.convert( storage, new RealFloatNormalizeConverter< UnsignedByteType >( 255f ), new FloatType() );
+	}
+}
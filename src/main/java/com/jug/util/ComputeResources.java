@@ -0,0 +1,145 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import ij.Prefs;
+
+/**
+ * Central bookkeeping of the CPU cores MoMA may use.
+ *
+ * All parallel parts (I/O, preprocessing, classification, the solver, and
+ * the export) ask for an <code>Allocation</code> instead of sizing themselves
+ * from <code>Prefs.getThreads()</code>, and release it when done. The sum of all
+ * active allocations is kept within the core budget (see
+ * <code>setBudget</code>); if the budget is exhausted, a request still gets
+ * a single thread, so nothing ever blocks or dead-locks on nested requests.
+ *
+ * Solver allocations are fair shares: each solve gets the budget divided by
+ * the number of growth lines that are still pending (and can be solved
+ * concurrently). A growth line may be solved several times (e.g. window by
+ * window), hence it counts as pending until <code>solveFinished</code> is
+ * called for it; later solves then get more threads.
+ *
+ * @author jug
+ */
+public class ComputeResources {
+
+	public static final String IO = "I/O";
+	public static final String PREPROCESSING = "preprocessing";
+	public static final String CLASSIFICATION = "classification";
+	public static final String SOLVER = "solver";
+	public static final String EXPORT = "export";
+
+	/**
+	 * Threads granted to one party; must be released after use.
+	 */
+	public static class Allocation {
+
+		private final String purpose;
+		private final int threads;
+		private boolean released = false;
+
+		private Allocation( final String purpose, final int threads ) {
+			this.purpose = purpose;
+			this.threads = threads;
+		}
+
+		public String getPurpose() {
+			return purpose;
+		}
+
+		public int getThreads() {
+			return threads;
+		}
+
+		/**
+		 * Returns the threads to the budget (calling it again does nothing).
+		 */
+		public void release() {
+			synchronized ( ComputeResources.class ) {
+				if ( released ) return;
+				released = true;
+				inUse -= threads;
+			}
+		}
+	}
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private static int budget = 0;
+	private static int inUse = 0;
+	private static int peakInUse = 0;
+
+	private static int pendingSolves = 0;
+	private static int maxConcurrentSolves = 1;
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @param numCores
+	 *            total number of cores MoMA may use; 0 or less means
+	 *            <code>Prefs.getThreads()</code>.
+	 */
+	public static synchronized void setBudget( final int numCores ) {
+		budget = numCores;
+	}
+
+	public static synchronized int getBudget() {
+		return ( budget > 0 ) ? budget : Math.max( 1, Prefs.getThreads() );
+	}
+
+	/**
+	 * Announces how many growth lines are about to be solved and how many of
+	 * them are solved at the same time. Used to compute fair solver shares.
+	 */
+	public static synchronized void announceSolves( final int numSolves, final int concurrentSolves ) {
+		pendingSolves = numSolves;
+		maxConcurrentSolves = Math.max( 1, concurrentSolves );
+	}
+
+	/**
+	 * To be called once per announced growth line when all of its solves are
+	 * done.
+	 */
+	public static synchronized void solveFinished() {
+		if ( pendingSolves > 0 ) {
+			pendingSolves--;
+		}
+	}
+
+	/**
+	 * @param purpose
+	 *            one of IO, PREPROCESSING, CLASSIFICATION, SOLVER, or EXPORT.
+	 * @param wanted
+	 *            the number of threads that could be used.
+	 * @return an allocation of between 1 and <code>wanted</code> threads.
+	 */
+	public static synchronized Allocation acquire( final String purpose, final int wanted ) {
+		final int free = getBudget() - inUse;
+		final int threads = Math.max( 1, Math.min( wanted, free ) );
+		inUse += threads;
+		peakInUse = Math.max( peakInUse, inUse );
+		return new Allocation( purpose, threads );
+	}
+
+	/**
+	 * @return an allocation for one solve, being a fair share of the budget
+	 *         w.r.t. the other pending solves.
+	 */
+	public static synchronized Allocation acquireForSolve() {
+		final int competing = Math.max( 1, Math.min( pendingSolves, maxConcurrentSolves ) );
+		final int share = ( int ) Math.ceil( ( double ) getBudget() / competing );
+		return acquire( SOLVER, share );
+	}
+
+	/**
+	 * @return the largest number of threads that were allocated at the same
+	 *         time.
+	 */
+	public static synchronized int getPeakInUse() {
+		return peakInUse;
+	}
+}
@@ -4,12 +4,12 @@
 package com.jug.util;
 
 import ij.IJ;
-import ij.Prefs;
 import io.scif.img.ImgIOException;
 import io.scif.img.ImgOpener;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -122,8 +122,8 @@ public class DoubleTypeImgLoader {
 	 * @throws ImgIOException
 	 */
 	public static List< Img< DoubleType >> loadTiffs( final File[] listOfFiles ) throws ImgIOException {
-		final int numProcessors = Prefs.getThreads();
-		final int numThreads = Math.min( listOfFiles.length, numProcessors );
+		final ComputeResources.Allocation cores = ComputeResources.acquire( ComputeResources.IO, listOfFiles.length );
+		final int numThreads = cores.getThreads();
 
 		final List< Img< DoubleType > > images = new ArrayList< Img< DoubleType > >( listOfFiles.length );
 		for ( int i = 0; i < listOfFiles.length; i++ ) {
@@ -169,6 +169,7 @@ public class DoubleTypeImgLoader {
 				thread.join();
 			} catch ( final InterruptedException e ) {}
 		}
+		cores.release();
 
 		return images;
 	}
@@ -185,58 +186,15 @@ public class DoubleTypeImgLoader {
 	 * @throws ImgIOException
 	 */
 	public static List< Img< DoubleType >> loadMMTiffSequence( final File[] listOfFiles, final boolean normalize ) throws ImgIOException {
-		final int numProcessors = Prefs.getThreads();
-		final int numThreads = Math.min( listOfFiles.length, numProcessors );
-
 		final List< Img< DoubleType > > images = new ArrayList< Img< DoubleType > >( listOfFiles.length );
-		for ( int i = 0; i < listOfFiles.length; i++ ) {
-			images.add( null );
-		}
-
-		final ImgIOException ioe = new ImgIOException( "One of the image loading threads had a problem reading from file." );
+		if ( listOfFiles.length == 0 ) return images;
 
-		final Thread[] threads = new Thread[ numThreads ];
-
-		class ImageProcessingThread extends Thread {
-
-			final int numThread;
-			final int numThreads;
-
-			public ImageProcessingThread( final int numThread, final int numThreads ) {
-				this.numThread = numThread;
-				this.numThreads = numThreads;
-			}
-
-			@Override
-			public void run() {
-
-				for ( int t = numThread; t < listOfFiles.length; t += numThreads ) {
-					try {
-						images.set( t, loadTiff( listOfFiles[ t ] ) );
-					} catch ( final ImgIOException e ) {
-						ioe.setStackTrace( e.getStackTrace() );
-					}
-					// Selective Normalization!
-					if ( normalize ) {
-						Normalize.normalize( images.get( t ), new DoubleType( 0.0 ), new DoubleType( 1.0 ) );
-					}
-				}
-			}
-		}
-
-		// start threads
-		for ( int i = 0; i < numThreads; i++ ) {
-			threads[ i ] = new ImageProcessingThread( i, numThreads );
-			threads[ i ].start();
-		}
-
-		// wait for all threads to terminate
-		for ( final Thread thread : threads ) {
-			try {
-				thread.join();
-			} catch ( final InterruptedException e ) {}
+		// same decoding engine as FloatTypeImgLoader, but decoding straight into double (keeps 32 bit integer data exact)
+		try {
+			images.addAll( new ParallelTiffLoader().loadDoublePlanes( ParallelTiffLoader.firstPlaneOf( listOfFiles ), normalize ) );
+		} catch ( final IOException e ) {
+			throw new ImgIOException( e );
 		}
-
 		return images;
 	}
 
@@ -0,0 +1,95 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal PNG encoder for 8 bit RGB images, trading file size for speed: each
+ * row uses the 'Sub' filter and the data is deflated with
+ * <code>Deflater.BEST_SPEED</code>. Several times faster than
+ * <code>ImageIO</code> for the small images the HTML overview consists of,
+ * and safe to be used from many threads at once.
+ *
+ * @author jug
+ */
+public class FastPngWriter {
+
+	private static final byte[] SIGNATURE = new byte[] { ( byte ) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+	/**
+	 * Writes an image given as packed (A)RGB ints (alpha is ignored).
+	 *
+	 * @param argb
+	 *            the pixels, row by row.
+	 * @param width
+	 * @param height
+	 * @param file
+	 *            the PNG file to write.
+	 * @throws IOException
+	 */
+	public static void write( final int[] argb, final int width, final int height, final File file ) throws IOException {
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream( width * height + 1024 );
+		final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+		try {
+			final DeflaterOutputStream zip = new DeflaterOutputStream( compressed, deflater, 1 << 16 );
+			final byte[] row = new byte[ 1 + 3 * width ];
+			row[ 0 ] = 1; // 'Sub' filter: every byte minus the byte of the pixel to its left
+			for ( int y = 0; y < height; y++ ) {
+				int left = 0;
+				for ( int x = 0; x < width; x++ ) {
+					final int pixel = argb[ y * width + x ];
+					row[ 1 + 3 * x ] = ( byte ) ( ( pixel >> 16 ) - ( left >> 16 ) );
+					row[ 2 + 3 * x ] = ( byte ) ( ( pixel >> 8 ) - ( left >> 8 ) );
+					row[ 3 + 3 * x ] = ( byte ) ( pixel - left );
+					left = pixel;
+				}
+				zip.write( row );
+			}
+			zip.finish();
+		} finally {
+			deflater.end();
+		}
+
+		final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ), 1 << 16 ) );
+		try {
+			out.write( SIGNATURE );
+
+			final ByteArrayOutputStream header = new ByteArrayOutputStream( 13 );
+			final DataOutputStream headerData = new DataOutputStream( header );
+			headerData.writeInt( width );
+			headerData.writeInt( height );
+			headerData.writeByte( 8 ); // bit depth
+			headerData.writeByte( 2 ); // color type: RGB
+			headerData.writeByte( 0 ); // deflate
+			headerData.writeByte( 0 ); // adaptive filtering
+			headerData.writeByte( 0 ); // no interlace
+			writeChunk( out, "IHDR", header.toByteArray() );
+
+			writeChunk( out, "IDAT", compressed.toByteArray() );
+			writeChunk( out, "IEND", new byte[ 0 ] );
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeChunk( final DataOutputStream out, final String type, final byte[] data ) throws IOException {
+		final byte[] typeBytes = type.getBytes( "US-ASCII" );
+		final CRC32 crc = new CRC32();
+		crc.update( typeBytes );
+		crc.update( data );
+		out.writeInt( data.length );
+		out.write( typeBytes );
+		out.write( data );
+		out.writeInt( ( int ) crc.getValue() );
+	}
+}
@@ -4,18 +4,17 @@
 package com.jug.util;
 
 import ij.IJ;
-import ij.ImagePlus;
-import ij.Prefs;
-import ij.plugin.ChannelSplitter;
-import ij.plugin.Duplicator;
 import io.scif.img.ImgIOException;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import net.imglib2.*;
 import net.imglib2.algorithm.stats.Normalize;
@@ -23,11 +22,12 @@ import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.ImagePlusAdapter;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgFactory;
-import net.imglib2.img.display.imagej.ImageJFunctions;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.planar.PlanarImg;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.FloatType;
-import net.imglib2.view.IntervalView;
 import net.imglib2.view.Views;
 import org.apache.commons.lang3.StringUtils;
 
@@ -37,7 +37,30 @@ import org.apache.commons.lang3.StringUtils;
  */
 public class FloatTypeImgLoader {
 
-	public static ArrayList <Img<FloatType>> loadTiffsFromFileOrFolder(String fileOrPathName, int minTime, int maxTime, int minChannel, int maxChannel) throws FileNotFoundException
+	/**
+	 * Name of the raw datasets (one per channel) in N5 containers.
+	 */
+	public static final String N5_RAW_DATASET_FORMAT = "raw/c%04d";
+
+	public static ArrayList <Img<FloatType>> loadTiffsFromFileOrFolder(String fileOrPathName, int minTime, int maxTime, int minChannel, int maxChannel) throws IOException
+	{
+		final ArrayList< Img< FloatType > > ret = new ArrayList< Img< FloatType > >();
+		for ( final RandomAccessibleInterval< FloatType > img : loadTiffsFromFileOrFolder( fileOrPathName, minTime, maxTime, minChannel, maxChannel, false ) ) {
+			ret.add( ( Img< FloatType > ) img ); // not compacted, hence plain Imgs
+		}
+		return ret;
+	}
+
+	/**
+	 * Loads the requested channels from a file, folder or N5 container.
+	 *
+	 * @param compact
+	 *            if true, channels holding 8- or 16-bit data are stored as
+	 *            <code>UnsignedShortType</code> and returned as float views
+	 *            (see <code>CompactImgs.compactRaw</code>). Other channels
+	 *            are returned as float <code>Img</code>s.
+	 */
+	public static ArrayList< RandomAccessibleInterval< FloatType > > loadTiffsFromFileOrFolder(String fileOrPathName, int minTime, int maxTime, int minChannel, int maxChannel, boolean compact) throws IOException
 	{
 		File file = new File(fileOrPathName);
 
@@ -45,86 +68,213 @@ public class FloatTypeImgLoader {
 			throw new FileNotFoundException();
 		}
 
-		if (file.isDirectory()) {
-			return loadTiffsFromFolder( fileOrPathName, minTime, maxTime, minChannel, maxChannel);
+		if (file.isDirectory() && N5DatasetIO.isN5Container( file )) {
+			return loadChannelsFromN5( file, minTime, maxTime, minChannel, maxChannel, compact);
+		} else if (file.isDirectory()) {
+			return loadTiffsFromFolder( fileOrPathName, minTime, maxTime, minChannel, maxChannel, compact);
 		} else {
-			return loadTiffsFromFile( fileOrPathName, minTime, maxTime, minChannel, maxChannel);
+			return loadTiffsFromFile( fileOrPathName, minTime, maxTime, minChannel, maxChannel, compact);
 		}
 	}
 
-	private static ArrayList<Img<FloatType>> loadTiffsFromFile(String filename, int minTime, int maxTime, int minChannel, int maxChannel) {
-
-		ArrayList<Img<FloatType>> rawChannelImgs = new ArrayList< Img< FloatType >>();
+	/**
+	 * Stores a loaded (unnormalized) channel compactly if requested and
+	 * possible, and normalizes it if requested.
+	 */
+	private static RandomAccessibleInterval< FloatType > store( final PlanarImg< FloatType, FloatArray > img, final boolean normalize, final boolean compact ) {
+		if ( img == null ) return null;
+		if ( compact ) {
+			final RandomAccessibleInterval< FloatType > compacted = CompactImgs.compactRaw( img, normalize );
+			if ( compacted != null ) return compacted;
+			System.out.println( "Channel does not hold 8- or 16-bit data -- kept as 32-bit float." );
+		}
+		if ( normalize ) {
+			for ( int i = 0; i < img.numSlices(); i++ ) {
+				ParallelTiffLoader.normalize( img.getPlane( i ).getCurrentStorageArray() );
+			}
+		}
+		return img;
+	}
 
-		ImagePlus imp = IJ.openImage(filename);
+	/**
+	 * Loads the requested channels and time-points from a single (multipage)
+	 * tiff file. Only the requested planes are read -- their IFDs are located
+	 * directly, all other planes are never touched.
+	 * Time and channel indices are 1-based (as in ImageJ); minTime and maxTime
+	 * can be -1 to load all time-points.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be decoded or holds none of the
+	 *             requested frames.
+	 */
+	private static ArrayList<RandomAccessibleInterval<FloatType>> loadTiffsFromFile(String filename, int minTime, int maxTime, int minChannel, int maxChannel, boolean compact) throws IOException {
 
-		int channelCount = imp.getNChannels();
-		int frameCount = imp.getNFrames();
-		if (channelCount == maxChannel - minChannel + 1 && (frameCount == maxTime - minTime + 1 || (minTime == -1 && maxTime == -1 )))
-		{
-			ImagePlus[] channelImps = ChannelSplitter.split(imp);
-			for (ImagePlus channelImp : channelImps)
-			{
-				Img<FloatType> img = ImageJFunctions.convertFloat(channelImp);
-				System.out.println("size before dupl "  + img.max(2));
+		ArrayList<RandomAccessibleInterval<FloatType>> rawChannelImgs = new ArrayList< RandomAccessibleInterval< FloatType >>();
+		final File file = new File( filename );
 
-				// dirty workaround, see FloatTypeImgLoader.loadMMTiffSequence
-				img = duplicateLastSlice(img);
+		final int[] dims;
+		final TiffPlaneDecoder decoder = new TiffPlaneDecoder();
+		try {
+			decoder.open( file );
+			dims = decoder.getHyperstackDimensions();
+		} finally {
+			decoder.close();
+		}
+		final int channelCount = dims[ 0 ];
+		final int frameCount = dims[ 2 ];
+
+		final int firstFrame = ( minTime == -1 ) ? 1 : Math.max( 1, minTime );
+		final int lastFrame = ( maxTime == -1 ) ? frameCount : Math.min( frameCount, maxTime );
+		if ( firstFrame > lastFrame ) { throw new IOException( String.format( "Requested frames %d-%d, but '%s' contains only %d frame(s)!", minTime, maxTime, file.getName(), frameCount ) ); }
+		if ( maxChannel > channelCount ) {
+			System.out.println( String.format( "ERROR: Requested channels %d-%d, but '%s' contains only %d channel(s)!", minChannel, maxChannel, file.getName(), channelCount ) );
+		}
 
-				System.out.println("size after dupl "  + img.max(2));
-				rawChannelImgs.add(img);
+		final ParallelTiffLoader loader = new ParallelTiffLoader();
+		for ( int c = minChannel; c <= Math.min( maxChannel, channelCount ); c++ ) {
+			final List< ParallelTiffLoader.PlaneSource > sources = new ArrayList< ParallelTiffLoader.PlaneSource >();
+			for ( int t = firstFrame; t <= lastFrame; t++ ) {
+				sources.add( new ParallelTiffLoader.PlaneSource( file, TiffPlaneDecoder.getPlaneIndex( dims, c, 1, t ) ) );
 			}
-		} else { // this way is not very memory efficient, but I see no other easy alternative
-			int sliceCount = imp.getNSlices();
+			System.out.println( String.format( "Loading frames %d-%d of channel %d from '%s'...", firstFrame, lastFrame, c, file.getName() ) );
+			// normalise first channel only, duplicate last frame (see loadMMTiffSequence)
+			rawChannelImgs.add( store( loader.loadPlanes( sources, false, true ), c == minChannel, compact ) );
+		}
 
-			for (int c = minChannel; c <= maxChannel; c++) {
-				ImagePlus dupl = new Duplicator().run(imp, minChannel, maxChannel, 1, sliceCount, minTime, maxTime);
-				Img<FloatType> img = ImageJFunctions.convertFloat(dupl);
+		return rawChannelImgs;
+	}
+
+	/**
+	 * Loads raw channels from an N5 container (see MoMA.CACHE_PREPROCESSED_DATA).
+	 * Only the chunks (frames) within the requested time range are read. If the
+	 * datasets carry a 'firstTimeIndex' attribute, minTime and maxTime are
+	 * interpreted as the time indices used in the original filenames,
+	 * otherwise as 0-based frame indices. The first channel is normalized
+	 * unless its dataset has the attribute 'normalized' set to true.
+	 */
+	private static ArrayList<RandomAccessibleInterval<FloatType>> loadChannelsFromN5(File container, int minTime, int maxTime, int minChannel, int maxChannel, boolean compact) {
 
-				// dirty workaround, see FloatTypeImgLoader.loadMMTiffSequence
-				img = duplicateLastSlice(img);
-				rawChannelImgs.add(img);
+		ArrayList<RandomAccessibleInterval<FloatType>> rawChannelImgs = new ArrayList< RandomAccessibleInterval< FloatType >>();
+		for ( int cIdx = minChannel; cIdx <= maxChannel; cIdx++ ) {
+			final String dataset = String.format( N5_RAW_DATASET_FORMAT, cIdx );
+			System.out.println( String.format( "Loading chunked dataset '%s' from '%s'...", dataset, container.getAbsolutePath() ) );
+			try {
+				final long[] dims = N5DatasetIO.getDimensions( container, dataset );
+				final String strFirstTime = N5DatasetIO.getAttribute( container, dataset, "firstTimeIndex" );
+				final int firstTime = ( strFirstTime == null ) ? 0 : Integer.parseInt( strFirstTime );
+				final long fromFrame = ( minTime == -1 ) ? 0 : Math.max( 0, minTime - firstTime );
+				final long toFrame = ( maxTime == -1 ) ? dims[ 2 ] - 1 : Math.min( dims[ 2 ] - 1, maxTime - firstTime );
+
+				// read one more frame and overwrite it with a copy of the last one (see loadMMTiffSequence)
+				final Img< FloatType > img = N5DatasetIO.readFloat( container, dataset, new long[] { 0, 0, fromFrame }, new long[] { dims[ 0 ] - 1, dims[ 1 ] - 1, toFrame + 1 } );
+				DataMover.copy( Views.hyperSlice( img, 2, img.max( 2 ) - 1 ), Views.iterable( Views.hyperSlice( img, 2, img.max( 2 ) ) ) );
+				// normalise first channel only (see loadMMTiffSequence), unless MoMA's cache did already
+				final boolean normalize = ( cIdx == minChannel ) && !Boolean.parseBoolean( N5DatasetIO.getAttribute( container, dataset, "normalized" ) );
+				final RandomAccessibleInterval< FloatType > compacted = compact ? CompactImgs.compactRaw( img, normalize ) : null;
+				if ( compacted == null && normalize ) {
+					normalizePlanes( img );
+				}
+				rawChannelImgs.add( ( compacted != null ) ? compacted : img );
+			} catch ( final Exception e ) {
+				e.printStackTrace();
+				System.exit( 10 );
 			}
+			System.out.println( "Done loading chunks!" );
 		}
+		return rawChannelImgs;
+	}
 
-		System.out.println("size before norm  "  + rawChannelImgs.get(0).max(2));
-		// Normalise first channel
-		ArrayList<IntervalView<FloatType>> firstChannelSlices = Util.slice(rawChannelImgs.get( 0 ));
-		for (IntervalView<FloatType> slice : firstChannelSlices)
-		{
-			Normalize.normalize(slice, new FloatType( 0.0f ), new FloatType( 1.0f ) );
+	/**
+	 * Normalizes each plane (frame) of the given stack to [0,1] in place, like
+	 * <code>ParallelTiffLoader.normalize</code> does for loaded tiff planes.
+	 */
+	private static void normalizePlanes( final RandomAccessibleInterval< FloatType > img ) {
+		final float[] values = new float[ ( int ) ( img.dimension( 0 ) * img.dimension( 1 ) ) ];
+		for ( long t = img.min( 2 ); t <= img.max( 2 ); t++ ) {
+			final IterableInterval< FloatType > plane = Views.flatIterable( Views.hyperSlice( img, 2, t ) );
+			int i = 0;
+			for ( final FloatType v : plane ) {
+				values[ i++ ] = v.get();
+			}
+			ParallelTiffLoader.normalize( values );
+			i = 0;
+			for ( final FloatType v : plane ) {
+				v.set( values[ i++ ] );
+			}
 		}
-		rawChannelImgs.set(0, Util.stack(firstChannelSlices));
-
-		System.out.println("size after norm  "  + rawChannelImgs.get(0).max(2));
-		return rawChannelImgs;
 	}
 
-	private static Img<FloatType> duplicateLastSlice(Img<FloatType> inImg) {
-		ArrayList<IntervalView<FloatType>> slices = Util.slice(inImg);
+	/**
+	 * Writes one raw channel (as returned by
+	 * <code>loadTiffsFromFileOrFolder</code>) into an N5 container, such that
+	 * <code>loadChannelsFromN5</code> returns it again. The duplicated last
+	 * frame is therefore not stored. One chunk per frame.
+	 */
+	public static void writeRawChannelToN5( final File container, final int channel, final RandomAccessibleInterval< FloatType > img, final Map< String, String > attributes ) throws IOException {
+		final long[] max = new long[] { img.max( 0 ), img.max( 1 ), img.max( 2 ) - 1 };
+		final int[] blockSize = new int[] { ( int ) img.dimension( 0 ), ( int ) img.dimension( 1 ), 1 };
+		N5DatasetIO.writeFloat( container, String.format( N5_RAW_DATASET_FORMAT, channel ), Views.interval( img, new long[ 3 ], max ), blockSize, attributes );
+	}
 
-		// duplicate last slice
-		slices.add(slices.get(slices.size() - 1));
+	/**
+	 * Identifies the data behind the given file, folder or N5 container by
+	 * name, size and modification time of the files it consists of (all
+	 * tiffs in a folder, the raw dataset attributes of an N5 container). No
+	 * pixel is read, so this is cheap enough to be checked on every start.
+	 */
+	public static String getInputIdentity( final File fileOrFolder ) {
+		final List< File > files = new ArrayList< File >();
+		if ( N5DatasetIO.isN5Container( fileOrFolder ) ) {
+			final File[] datasets = new File( fileOrFolder, "raw" ).listFiles();
+			if ( datasets != null ) {
+				for ( final File dataset : datasets ) {
+					files.add( new File( dataset, "attributes.json" ) );
+				}
+			}
+		} else if ( fileOrFolder.isDirectory() ) {
+			final File[] listOfFiles = fileOrFolder.listFiles();
+			if ( listOfFiles != null ) {
+				for ( final File file : listOfFiles ) {
+					if ( file.isFile() && file.getName().contains( ".tif" ) ) {
+						files.add( file );
+					}
+				}
+			}
+		} else {
+			files.add( fileOrFolder );
+		}
+		Collections.sort( files );
 
+		long h = 1125899906842597L;
+		for ( final File file : files ) {
+			h = 31 * h + file.getName().hashCode();
+			h = 31 * h + file.length();
+			h = 31 * h + file.lastModified();
+		}
+		return String.format( "%d files,%016x", files.size(), h );
+	}
 
+	private static ArrayList<RandomAccessibleInterval<FloatType>> loadTiffsFromFolder(String path, int minTime, int maxTime, int minChannel, int maxChannel, boolean compact) {
 
-		return Util.stack(slices);
-	}
+		ArrayList<RandomAccessibleInterval<FloatType>> rawChannelImgs = new ArrayList< RandomAccessibleInterval< FloatType >>();
 
-	private static ArrayList<Img<FloatType>> loadTiffsFromFolder(String path, int minTime, int maxTime, int minChannel, int maxChannel) {
+		// list and parse the folder content only once for all channels
+		final TiffFolderIndex index;
+		try {
+			index = new TiffFolderIndex( path );
+		} catch ( final FileNotFoundException e ) {
+			e.printStackTrace();
+			System.exit( 10 );
+			return null;
+		}
 
-		ArrayList<Img<FloatType>> rawChannelImgs = new ArrayList< Img< FloatType >>();
+		final ParallelTiffLoader loader = new ParallelTiffLoader();
 		for ( int cIdx = minChannel; cIdx <= maxChannel; cIdx++ ) {
-
-			// load tiffs from folder
-			final String filter = String.format( "_c%04d", cIdx );
-			System.out.println( String.format( "Loading tiff sequence for channel, identified by '%s', from '%s'...", filter, path ) );
+			System.out.println( String.format( "Loading tiff sequence for channel, identified by '_c%04d', from '%s'...", cIdx, path ) );
 			try {
-				if ( cIdx == minChannel ) {
-					rawChannelImgs.add( FloatTypeImgLoader.loadMMPathAsStack( path, minTime, maxTime, true, filter ) );
-				} else {
-					rawChannelImgs.add( FloatTypeImgLoader.loadMMPathAsStack( path, minTime, maxTime, false, filter ) );
-				}
+				final File[] listOfFiles = index.getFiles( cIdx, minTime, maxTime );
+				// only the first channel gets normalized
+				rawChannelImgs.add( store( loader.loadPlanes( ParallelTiffLoader.firstPlaneOf( listOfFiles ), false, true ), cIdx == minChannel, compact ) );
 			} catch ( final Exception e ) {
 				e.printStackTrace();
 				System.exit( 10 );
@@ -192,15 +342,30 @@ public class FloatTypeImgLoader {
 	 * @throws Exception
 	 */
 	public static List< Img< FloatType >> loadMMTiffsFromFolder( final String strFolder, final int minTime, final int maxTime, final boolean normalize, final String... filterStrings ) throws ImgIOException, IncompatibleTypeException, Exception {
+		final File[] listOfFiles = listMMTiffsInFolder( strFolder, minTime, maxTime, filterStrings );
+		final List< Img< FloatType >> images = loadMMTiffSequence( listOfFiles, normalize );
+		return images;
+	}
 
+	/**
+	 * Lists all tiff files in the given folder that contain all given filter
+	 * strings and lie within the given time range.
+	 *
+	 * @return the matching files, sorted by name.
+	 * @throws Exception
+	 *             if the given path is not a folder.
+	 */
+	private static File[] listMMTiffsInFolder( final String strFolder, final int minTime, final int maxTime, final String... filterStrings ) throws Exception {
 		final File folder = new File( strFolder );
 		final FilenameFilter filter = new FilenameFilter() {
 
 			@Override
 			public boolean accept( final File dir, final String name ) {
 				boolean isMatching = name.contains( ".tif" );
-				for ( final String filter : filterStrings ) {
-					isMatching = isMatching && name.contains( filter );
+				if ( filterStrings != null ) {
+					for ( final String filter : filterStrings ) {
+						isMatching = isMatching && name.contains( filter );
+					}
 				}
 				if ( isMatching == true ) {
 					final int time = getTimeFromFilename(name);
@@ -212,11 +377,9 @@ public class FloatTypeImgLoader {
 			}
 		};
 		final File[] listOfFiles = folder.listFiles( filter );
-		Arrays.sort( listOfFiles ); // LINUX does not do that by default!
 		if ( listOfFiles == null ) { throw new Exception( "Given argument is not a valid folder!" ); }
-
-		final List< Img< FloatType >> images = loadMMTiffSequence( listOfFiles, normalize );
-		return images;
+		Arrays.sort( listOfFiles ); // LINUX does not do that by default!
+		return listOfFiles;
 	}
 
 	/**
@@ -230,8 +393,8 @@ public class FloatTypeImgLoader {
 			images.add( null );
 		}
 
-		final int numProcessors = Prefs.getThreads();
-		final int numThreads = Math.min( listOfFiles.length, numProcessors );
+		final ComputeResources.Allocation cores = ComputeResources.acquire( ComputeResources.IO, listOfFiles.length );
+		final int numThreads = cores.getThreads();
 
 		final ImgIOException ioe = new ImgIOException( "One of the image loading threads had a problem reading from file." );
 
@@ -275,6 +438,7 @@ public class FloatTypeImgLoader {
 				e.printStackTrace();
 			}
 		}
+		cores.release();
 
 		// SINGLE THREADED ALTERNATIVE
 //		for ( int i = 0; i < listOfFiles.length; i++ ) {
@@ -300,87 +464,22 @@ public class FloatTypeImgLoader {
 	 * @throws ImgIOException
 	 */
 	public static List< Img< FloatType >> loadMMTiffSequence( final File[] listOfFiles, final boolean normalize ) throws ImgIOException {
-		final List< Img< FloatType > > images = new ArrayList< Img< FloatType > >( listOfFiles.length );
-
-		for ( int i = 0; i < listOfFiles.length; i++ ) {
-			images.add( null );
-		}
-
-		final int numProcessors = Prefs.getThreads();
-		final int numThreads = Math.min( listOfFiles.length, numProcessors );
-
-		final ImgIOException ioe = new ImgIOException( "One of the image loading threads had a problem reading from file." );
-
-		final Thread[] threads = new Thread[ numThreads ];
-
-		class ImageProcessingThread extends Thread {
-
-			final int numThread;
-			final int numThreads;
-
-			public ImageProcessingThread( final int numThread, final int numThreads ) {
-				this.numThread = numThread;
-				this.numThreads = numThreads;
-			}
-
-			@Override
-			public void run() {
-
-				for ( int t = numThread; t < listOfFiles.length; t += numThreads ) {
-					try {
-						images.set( t, loadTiff( listOfFiles[ t ] ) );
-					} catch ( final ImgIOException e ) {
-						ioe.setStackTrace( e.getStackTrace() );
-					}
-					// Selective Normalization!
-					if ( normalize ) {
-						Normalize.normalize( images.get( t ), new FloatType( 0.0f ), new FloatType( 1.0f ) );
-					}
-				}
-			}
-		}
-
-		// start threads
-		for ( int i = 0; i < numThreads; i++ ) {
-			threads[ i ] = new ImageProcessingThread( i, numThreads );
-			threads[ i ].start();
-		}
-
-		// wait for all threads to terminate
-		for ( final Thread thread : threads ) {
-			try {
-				thread.join();
-			} catch ( final InterruptedException e ) {
-				System.out.println( "Thread.join was interrupted in FloatTypeImgLoader.loadTiffs - be aware of leaking Threads!" );
-				e.printStackTrace();
-			}
-		}
-
-		// SINGLE THREADED ALTERNATIVE
-		// ---------------------------
-//		for ( int i = 0; i < listOfFiles.length; i++ ) {
-//			try {
-//				images.set( i, loadTiff( listOfFiles[ i ] ) );
-//			} catch ( final ImgIOException e ) {
-//				e.printStackTrace();
-//			}
-//			// Selective Normalization!
-//			if ( normalize ) {
-//				Normalize.normalize( images.get( i ), new FloatType( 0f ), new FloatType( 1f ) );
-//			}
-//		}
+		final List< Img< FloatType > > images = new ArrayList< Img< FloatType > >( listOfFiles.length + 1 );
+		if ( listOfFiles.length == 0 ) return images;
 
 		// Add the last image twice. This is to trick the MM to not having tracking problems towards the last frame.
 		// Note that this also means that the GUI always has to show one frame less!!!
+		final PlanarImg< FloatType, FloatArray > stack;
 		try {
-			images.add( loadTiff( listOfFiles[ listOfFiles.length - 1 ] ) );
-			if ( normalize ) {
-				Normalize.normalize( images.get( listOfFiles.length ), new FloatType( 0.0f ), new FloatType( 1.0f ) );
-			}
-		} catch ( final ImgIOException e ) {
-			e.printStackTrace();
+			stack = new ParallelTiffLoader().loadPlanes( ParallelTiffLoader.firstPlaneOf( listOfFiles ), normalize, true );
+		} catch ( final IOException e ) {
+			throw new ImgIOException( e );
 		}
 
+		// wrap the decoded planes (no copying)
+		for ( int i = 0; i < stack.numSlices(); i++ ) {
+			images.add( ArrayImgs.floats( stack.getPlane( i ).getCurrentStorageArray(), stack.dimension( 0 ), stack.dimension( 1 ) ) );
+		}
 		return images;
 	}
 
@@ -528,26 +627,11 @@ public class FloatTypeImgLoader {
 
 	public static < T extends RealType< T > & NativeType< T > > Img< FloatType > loadMMPathAsStack( final String strFolder, final int minTime, final int maxTime, final boolean normalize, final String... filter ) throws ImgIOException, IncompatibleTypeException, Exception {
 
-		final List< Img< FloatType >> imageList = loadMMTiffsFromFolder( strFolder, minTime, maxTime, normalize, filter );
-		if ( imageList.size() == 0 ) return null;
-
-		Img< FloatType > stack = null;
-		final long width = imageList.get( 0 ).dimension( 0 );
-		final long height = imageList.get( 0 ).dimension( 1 );
-		final long frames = imageList.size();
-
-		stack = new ArrayImgFactory< FloatType >().create( new long[] { width, height, frames }, new FloatType() );
-
-		// Add images to stack...
-		int i = 0;
-		for ( final Img< FloatType > image : imageList ) {
-			final RandomAccessibleInterval< FloatType > viewZSlize = Views.hyperSlice( stack, 2, i );
-			final IterableInterval< FloatType > iterZSlize = Views.iterable( viewZSlize );
-			DataMover.copy( Views.extendZero( image ), iterZSlize );
-			i++;
-		}
+		final File[] listOfFiles = listMMTiffsInFolder( strFolder, minTime, maxTime, filter );
+		if ( listOfFiles.length == 0 ) return null;
 
-		return stack;
+		// decoded straight into the planes of the returned stack (last frame twice, see loadMMTiffSequence)
+		return new ParallelTiffLoader().loadPlanes( ParallelTiffLoader.firstPlaneOf( listOfFiles ), normalize, true );
 	}
 
 	/**
@@ -0,0 +1,297 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.AbstractInterval;
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import com.jug.GrowthLine;
+import com.jug.MoMA;
+
+/**
+ * Layout of one column strip per GrowthLine, used to keep only the image data
+ * around the GrowthLines once they are detected and segmented.
+ *
+ * Strips are straightened: in every frame the strip of a GL starts at the same
+ * distance left of that frame's GL center (<code>getAvgXpos()</code>), such
+ * that the center line is one fixed column of the strip. A strip is wide
+ * enough for everything that looks at the data of its GL later on -- the
+ * views shown in the GUI, the gap separation function, and the
+ * fluorescence columns exported by <code>CellStatsExporter</code>.
+ *
+ * <code>crop</code> copies an (x,y,t) stack into one contiguous
+ * <code>Img</code> per GL and returns a view that looks like the original
+ * stack (same interval, zero outside of all strips), such that code written
+ * for the full frames keeps working on the strips.
+ *
+ * @author jug
+ */
+public class GrowthLineStrips {
+
+	/**
+	 * Half-width (in pixels) of the rectangle the gap separation function
+	 * samples around the GL center, plus one for the interpolation.
+	 */
+	private static final int GAP_SAMPLING_RADIUS = 10;
+
+	private final long[] dims;
+
+	/**
+	 * Per GL: strip width (0 if the GL is empty in all frames) and, per frame,
+	 * the x-position of the left-most strip column in the full frame.
+	 */
+	private final int[] widths;
+	private final long[][] lefts;
+
+	/**
+	 * Per frame and column of the full frame: the GL whose strip covers it
+	 * (the one with the closest center if strips overlap), or -1.
+	 */
+	private final int[][] owners;
+
+	/**
+	 * @param blueprint
+	 *            the (x,y,t) stack the GLs were detected in.
+	 * @param gls
+	 *            the detected GrowthLines.
+	 */
+	public GrowthLineStrips( final RandomAccessibleInterval< ? > blueprint, final List< GrowthLine > gls ) {
+		dims = new long[] { blueprint.dimension( 0 ), blueprint.dimension( 1 ), blueprint.dimension( 2 ) };
+		final int numFrames = ( int ) dims[ 2 ];
+		widths = new int[ gls.size() ];
+		lefts = new long[ gls.size() ][];
+
+		final int[][] centers = new int[ gls.size() ][];
+		for ( int g = 0; g < gls.size(); g++ ) {
+			centers[ g ] = getCenters( gls.get( g ), numFrames );
+			if ( centers[ g ] == null ) {
+				lefts[ g ] = new long[ numFrames ];
+				continue;
+			}
+
+			// columns needed left and right of the center, in any frame
+			final int referenceX = gls.get( g ).get( 0 ).getAvgXpos(); // what CellStatsExporter measures around
+			final int collectLeft = Math.max( MoMA.GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS / 2, MoMA.GL_WIDTH_IN_PIXELS / 2 );
+			final int collectRight = Math.max( MoMA.GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS / 2 + MoMA.GL_FLUORESCENCE_COLLECTION_WIDTH_IN_PIXELS % 2, MoMA.GL_WIDTH_IN_PIXELS / 2 + MoMA.GL_WIDTH_IN_PIXELS % 2 );
+			long halfLeft = Math.max( MoMA.GL_WIDTH_IN_PIXELS / 2 + MoMA.GL_PIXEL_PADDING_IN_VIEWS, GAP_SAMPLING_RADIUS );
+			long halfRight = Math.max( MoMA.GL_WIDTH_IN_PIXELS / 2 + MoMA.GL_WIDTH_IN_PIXELS % 2 + MoMA.GL_PIXEL_PADDING_IN_VIEWS, GAP_SAMPLING_RADIUS );
+			for ( int t = 0; t < numFrames; t++ ) {
+				final int c = centers[ g ][ t ];
+				if ( referenceX >= 0 ) {
+					halfLeft = Math.max( halfLeft, c - ( referenceX - collectLeft ) );
+					halfRight = Math.max( halfRight, ( referenceX + collectRight ) - c );
+				}
+				if ( t < gls.get( g ).size() ) {
+					// center line points (and their mirror images, see getMirroredImgLocations)
+					for ( final Point p : gls.get( g ).get( t ).getImgLocations() ) {
+						final long d = Math.abs( p.getLongPosition( 0 ) - c );
+						halfLeft = Math.max( halfLeft, d );
+						halfRight = Math.max( halfRight, d );
+					}
+				}
+			}
+
+			widths[ g ] = ( int ) ( halfLeft + halfRight + 1 );
+			lefts[ g ] = new long[ numFrames ];
+			for ( int t = 0; t < numFrames; t++ ) {
+				lefts[ g ][ t ] = centers[ g ][ t ] - halfLeft;
+			}
+		}
+
+		owners = new int[ numFrames ][ ( int ) dims[ 0 ] ];
+		for ( int t = 0; t < numFrames; t++ ) {
+			Arrays.fill( owners[ t ], -1 );
+			for ( int g = 0; g < gls.size(); g++ ) {
+				if ( widths[ g ] == 0 ) continue;
+				final long from = Math.max( 0, lefts[ g ][ t ] );
+				final long to = Math.min( dims[ 0 ] - 1, lefts[ g ][ t ] + widths[ g ] - 1 );
+				for ( int x = ( int ) from; x <= to; x++ ) {
+					final int o = owners[ t ][ x ];
+					if ( o == -1 || Math.abs( x - centers[ g ][ t ] ) < Math.abs( x - centers[ o ][ t ] ) ) {
+						owners[ t ][ x ] = g;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the center x-position of the given GL in each frame (frames in
+	 *         which the GL is empty get the center of the closest frame in
+	 *         which it is not), or null if the GL is empty in all frames.
+	 */
+	private static int[] getCenters( final GrowthLine gl, final int numFrames ) {
+		final int[] centers = new int[ numFrames ];
+		int last = -1;
+		for ( int t = 0; t < numFrames; t++ ) {
+			final int x = ( t < gl.size() ) ? gl.get( t ).getAvgXpos() : -1;
+			centers[ t ] = ( x >= 0 ) ? x : last;
+			if ( x >= 0 ) last = x;
+		}
+		if ( last == -1 ) return null;
+		for ( int t = numFrames - 1; t >= 0; t-- ) {
+			if ( centers[ t ] >= 0 ) {
+				last = centers[ t ];
+			} else {
+				centers[ t ] = last;
+			}
+		}
+		return centers;
+	}
+
+	/**
+	 * @return the number of pixels all strips of one stack hold together.
+	 */
+	public long getNumPixels() {
+		long n = 0;
+		for ( final int w : widths ) {
+			n += w;
+		}
+		return n * dims[ 1 ] * dims[ 2 ];
+	}
+
+	/**
+	 * @return the width of the strip of the given GL (0 if the GL is empty).
+	 */
+	public int getWidth( final int glIdx ) {
+		return widths[ glIdx ];
+	}
+
+	/**
+	 * @return the x-position (in the full frame) of the first column of the
+	 *         strip of the given GL in the given frame.
+	 */
+	public long getLeft( final int glIdx, final int frame ) {
+		return lefts[ glIdx ][ frame ];
+	}
+
+	/**
+	 * Copies the strips out of the given stack.
+	 *
+	 * @param img
+	 *            an (x,y,t) stack of the size the layout was made for.
+	 * @return a view on the copied strips, having the interval of
+	 *         <code>img</code>.
+	 */
+	public CroppedStack crop( final RandomAccessibleInterval< FloatType > img ) {
+		final RandomAccessibleInterval< FloatType > zeroMinImg = Views.zeroMin( img );
+		final List< Img< FloatType > > strips = new ArrayList< Img< FloatType > >( widths.length );
+		for ( int g = 0; g < widths.length; g++ ) {
+			if ( widths[ g ] == 0 ) {
+				strips.add( null );
+				continue;
+			}
+			final Img< FloatType > strip = new ArrayImgFactory< FloatType >().create( new long[] { widths[ g ], dims[ 1 ], dims[ 2 ] }, new FloatType() );
+			for ( int t = 0; t < dims[ 2 ]; t++ ) {
+				final RandomAccessibleInterval< FloatType > source = Views.interval(
+						Views.extendZero( Views.hyperSlice( zeroMinImg, 2, t ) ),
+						new long[] { lefts[ g ][ t ], 0 },
+						new long[] { lefts[ g ][ t ] + widths[ g ] - 1, dims[ 1 ] - 1 } );
+				final Cursor< FloatType > sourceCursor = Views.flatIterable( source ).cursor();
+				final Cursor< FloatType > targetCursor = Views.flatIterable( Views.hyperSlice( strip, 2, t ) ).cursor();
+				while ( targetCursor.hasNext() ) {
+					targetCursor.next().set( sourceCursor.next() );
+				}
+			}
+			strips.add( strip );
+		}
+		return new CroppedStack( img, strips );
+	}
+
+	/**
+	 * A stack, cropped to the GL strips. Reading outside of all strips gives
+	 * zero, writing there has no effect.
+	 */
+	public class CroppedStack extends AbstractInterval implements RandomAccessibleInterval< FloatType > {
+
+		private final List< Img< FloatType > > strips;
+
+		private CroppedStack( final Interval interval, final List< Img< FloatType > > strips ) {
+			super( interval );
+			this.strips = strips;
+		}
+
+		/**
+		 * @return the strip of the given GL, with one column per strip
+		 *         column, one row per image row, and one plane per frame (or
+		 *         null if the GL is empty).
+		 */
+		public Img< FloatType > getStrip( final int glIdx ) {
+			return strips.get( glIdx );
+		}
+
+		@Override
+		public RandomAccess< FloatType > randomAccess() {
+			return new StackAccess( this );
+		}
+
+		@Override
+		public RandomAccess< FloatType > randomAccess( final Interval interval ) {
+			return randomAccess();
+		}
+	}
+
+	private class StackAccess extends Point implements RandomAccess< FloatType > {
+
+		private final CroppedStack stack;
+		private final List< RandomAccess< FloatType > > stripAccesses;
+		private final FloatType outside = new FloatType();
+
+		private StackAccess( final CroppedStack stack ) {
+			super( 3 );
+			this.stack = stack;
+			stripAccesses = new ArrayList< RandomAccess< FloatType > >( widths.length );
+			for ( int g = 0; g < widths.length; g++ ) {
+				stripAccesses.add( ( stack.getStrip( g ) == null ) ? null : stack.getStrip( g ).randomAccess() );
+			}
+		}
+
+		private StackAccess( final StackAccess other ) {
+			this( other.stack );
+			setPosition( other );
+		}
+
+		@Override
+		public FloatType get() {
+			final long x = position[ 0 ] - stack.min( 0 );
+			final long y = position[ 1 ] - stack.min( 1 );
+			final long t = position[ 2 ] - stack.min( 2 );
+			if ( x < 0 || x >= dims[ 0 ] || y < 0 || y >= dims[ 1 ] || t < 0 || t >= dims[ 2 ] ) return zero();
+			final int g = owners[ ( int ) t ][ ( int ) x ];
+			if ( g == -1 ) return zero();
+			final RandomAccess< FloatType > ra = stripAccesses.get( g );
+			ra.setPosition( x - lefts[ g ][ ( int ) t ], 0 );
+			ra.setPosition( y, 1 );
+			ra.setPosition( t, 2 );
+			return ra.get();
+		}
+
+		private FloatType zero() {
+			outside.setZero();
+			return outside;
+		}
+
+		@Override
+		public StackAccess copy() {
+			return new StackAccess( this );
+		}
+
+		@Override
+		public StackAccess copyRandomAccess() {
+			return copy();
+		}
+	}
+}
@@ -0,0 +1,164 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Point;
+
+import com.jug.GrowthLine;
+import com.jug.GrowthLineFrame;
+
+/**
+ * On-disk cache of the segmentation hypotheses of all GrowthLineFrames.
+ *
+ * For each GrowthLineFrame the gap separation function is stored in a compact
+ * binary file. This is the expensive part of generating the hypotheses: the
+ * component tree built on such a one-dimensional function is cheap and fully
+ * determined by the function and the segmentation parameters, so on load it
+ * is simply rebuilt.
+ *
+ * The file is only used if the key stored in it equals the key computed for
+ * the current data (see <code>computeKey</code>).
+ *
+ * @author jug
+ */
+public class HypothesisCache {
+
+	private static final int MAGIC = 0x4D4D4843; // "MMHC"
+	private static final int VERSION = 2;
+
+	private static final long HASH_SEED = 1125899906842597L;
+
+	// -------------------------------------------------------------------------------------
+	// key
+	// -------------------------------------------------------------------------------------
+	/**
+	 * Computes the cache key from the geometry of all given GrowthLines and a
+	 * string holding all relevant parameter values. The latter must identify
+	 * the image data the gap separation values are computed on as well (see
+	 * <code>MoMA.getSegmentationFingerprint</code>) -- hashing the image itself
+	 * would cost about as much as recomputing the values.
+	 */
+	public static long computeKey( final List< GrowthLine > gls, final String parameters ) {
+		long h = HASH_SEED;
+		h = 31 * h + gls.size();
+		for ( final GrowthLine gl : gls ) {
+			h = 31 * h + gl.size();
+			for ( final GrowthLineFrame glf : gl.getFrames() ) {
+				h = 31 * h + glf.getAvgXpos();
+				h = 31 * h + glf.size();
+				if ( glf.size() > 0 ) {
+					h = hashPoint( h, glf.getFirstPoint() );
+					h = hashPoint( h, glf.getLastPoint() );
+				}
+			}
+		}
+		h = 31 * h + parameters.hashCode();
+		return h;
+	}
+
+	private static long hashPoint( long h, final Point p ) {
+		for ( int d = 0; d < p.numDimensions(); d++ ) {
+			h = 31 * h + p.getLongPosition( d );
+		}
+		return h;
+	}
+
+	// -------------------------------------------------------------------------------------
+	// save
+	// -------------------------------------------------------------------------------------
+	/**
+	 * Writes the gap separation values of all GrowthLineFrames to the given
+	 * file.
+	 */
+	public static void save( final File file, final long key, final List< GrowthLine > gls ) throws IOException {
+		final File tmp = new File( file.getPath() + ".tmp" );
+		final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tmp ) ) );
+		try {
+			out.writeInt( MAGIC );
+			out.writeInt( VERSION );
+			out.writeLong( key );
+			out.writeInt( gls.size() );
+			for ( final GrowthLine gl : gls ) {
+				out.writeInt( gl.size() );
+				for ( final GrowthLineFrame glf : gl.getFrames() ) {
+					final float[] fkt = glf.getSimpleGapSeparationValues( null );
+					if ( fkt == null ) {
+						out.writeInt( -1 );
+						continue;
+					}
+					out.writeInt( fkt.length );
+					for ( final float v : fkt ) {
+						out.writeFloat( v );
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+		if ( ( file.exists() && !file.delete() ) || !tmp.renameTo( file ) ) { throw new IOException( "Could not move " + tmp.getPath() + " to " + file.getPath() ); }
+	}
+
+	// -------------------------------------------------------------------------------------
+	// load
+	// -------------------------------------------------------------------------------------
+	/**
+	 * Loads the cached gap separation values into all given GrowthLineFrames
+	 * and rebuilds their component trees.
+	 *
+	 * @return true if the cache file exists, belongs to the given key and
+	 *         holds values for all GrowthLineFrames. If false is returned,
+	 *         none of the GrowthLineFrames was touched and their hypotheses
+	 *         must be computed.
+	 */
+	public static boolean load( final File file, final long key, final List< GrowthLine > gls ) {
+		if ( !file.exists() ) return false;
+
+		// read everything first, so a truncated file does not leave us with half of the GLFs set up
+		final List< float[] > functions = new ArrayList< float[] >();
+		try {
+			final DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+			try {
+				if ( in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != key ) return false;
+				if ( in.readInt() != gls.size() ) return false;
+				for ( final GrowthLine gl : gls ) {
+					if ( in.readInt() != gl.size() ) return false;
+					for ( int f = 0; f < gl.size(); f++ ) {
+						final int len = in.readInt();
+						if ( len < 0 ) return false;
+						final float[] fkt = new float[ len ];
+						for ( int i = 0; i < len; i++ ) {
+							fkt[ i ] = in.readFloat();
+						}
+						functions.add( fkt );
+					}
+				}
+			} finally {
+				in.close();
+			}
+		} catch ( final IOException e ) {
+			System.out.println( "WARNING: could not read hypothesis cache " + file.getAbsolutePath() );
+			e.printStackTrace();
+			return false;
+		}
+
+		int i = 0;
+		for ( final GrowthLine gl : gls ) {
+			for ( final GrowthLineFrame glf : gl.getFrames() ) {
+				glf.generateSimpleSegmentationHypotheses( functions.get( i++ ) );
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Static interval tree over closed integer intervals [start,end].
+ *
+ * The intervals are sorted by their start and stored in arrays; the implicit
+ * balanced binary tree over this order is augmented by the largest end in
+ * each subtree. Stabbing and overlap queries then cost O(log n + k) for k
+ * reported items.
+ *
+ * @author jug
+ */
+public class IntervalIndex< T > {
+
+	private final int[] starts;
+	private final int[] ends;
+	private final int[] maxEnds;
+	private final List< T > items;
+
+	/**
+	 * @param starts
+	 *            start of each interval (inclusive).
+	 * @param ends
+	 *            end of each interval (inclusive).
+	 * @param items
+	 *            the item belonging to each interval.
+	 */
+	public IntervalIndex( final int[] starts, final int[] ends, final List< T > items ) {
+		final int n = items.size();
+		final Integer[] order = new Integer[ n ];
+		for ( int i = 0; i < n; i++ ) {
+			order[ i ] = i;
+		}
+		Arrays.sort( order, new Comparator< Integer >() {
+
+			@Override
+			public int compare( final Integer o1, final Integer o2 ) {
+				return ( starts[ o1 ] < starts[ o2 ] ) ? -1 : ( ( starts[ o1 ] == starts[ o2 ] ) ? 0 : 1 );
+			}
+		} );
+
+		this.starts = new int[ n ];
+		this.ends = new int[ n ];
+		this.maxEnds = new int[ n ];
+		this.items = new ArrayList< T >( n );
+		for ( int i = 0; i < n; i++ ) {
+			this.starts[ i ] = starts[ order[ i ] ];
+			this.ends[ i ] = ends[ order[ i ] ];
+			this.items.add( items.get( order[ i ] ) );
+		}
+		buildMaxEnds( 0, n - 1 );
+	}
+
+	private int buildMaxEnds( final int lo, final int hi ) {
+		if ( lo > hi ) return Integer.MIN_VALUE;
+		final int mid = ( lo + hi ) >>> 1;
+		maxEnds[ mid ] = Math.max( ends[ mid ], Math.max( buildMaxEnds( lo, mid - 1 ), buildMaxEnds( mid + 1, hi ) ) );
+		return maxEnds[ mid ];
+	}
+
+	/**
+	 * @return the number of intervals in this index.
+	 */
+	public int size() {
+		return items.size();
+	}
+
+	/**
+	 * @return all items whose interval contains <code>pos</code>.
+	 */
+	public List< T > getItemsAt( final int pos ) {
+		return getItemsIn( pos, pos );
+	}
+
+	/**
+	 * @return all items whose interval overlaps [min,max].
+	 */
+	public List< T > getItemsIn( final int min, final int max ) {
+		final List< T > ret = new ArrayList< T >();
+		collect( 0, items.size() - 1, min, max, ret );
+		return ret;
+	}
+
+	private void collect( final int lo, final int hi, final int min, final int max, final List< T > ret ) {
+		if ( lo > hi ) return;
+		final int mid = ( lo + hi ) >>> 1;
+		if ( maxEnds[ mid ] < min ) return; // nothing in this subtree reaches min
+		collect( lo, mid - 1, min, max, ret );
+		if ( starts[ mid ] > max ) return; // neither mid nor anything right of it starts early enough
+		if ( ends[ mid ] >= min ) {
+			ret.add( items.get( mid ) );
+		}
+		collect( mid + 1, hi, min, max, ret );
+	}
+}
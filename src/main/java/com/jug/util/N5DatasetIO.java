@@ -0,0 +1,430 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Minimal reader/writer for chunked 3d datasets (x, y, t) on the local
+ * filesystem, following the N5 layout: a container folder with an
+ * 'attributes.json', one folder per dataset with its own 'attributes.json'
+ * and one file per block at 'dataset/bx/by/bt'. Blocks are stored
+ * uncompressed ('raw' compression) with the N5 block header, big endian.
+ * Written datasets can therefore be opened with any N5 reader (Fiji, BDV,
+ * z5py, ...).
+ *
+ * Only float32 and int16 are supported, which is what MoMA needs for raw and
+ * preprocessed stacks, probability maps, and segmentations.
+ *
+ * @author jug
+ */
+public class N5DatasetIO {
+
+	public static final String N5_VERSION = "2.0.0";
+	private static final String ATTRIBUTES_FILE = "attributes.json";
+
+	private static final String DATA_TYPE_FLOAT32 = "float32";
+	private static final String DATA_TYPE_INT16 = "int16";
+
+	/**
+	 * @return true if the given folder is an N5 container.
+	 */
+	public static boolean isN5Container( final File folder ) {
+		final File attributes = new File( folder, ATTRIBUTES_FILE );
+		if ( !attributes.canRead() ) return false;
+		try {
+			return readAttributes( folder ).has( "n5" );
+		} catch ( final IOException e ) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return true if the given dataset exists in the given container.
+	 */
+	public static boolean datasetExists( final File container, final String dataset ) {
+		return new File( new File( container, dataset ), ATTRIBUTES_FILE ).canRead();
+	}
+
+	/**
+	 * Returns the value of a custom (string) attribute of a dataset, or null
+	 * if the dataset or attribute does not exist.
+	 */
+	public static String getAttribute( final File container, final String dataset, final String key ) {
+		if ( !datasetExists( container, dataset ) ) return null;
+		try {
+			final JsonElement value = readAttributes( new File( container, dataset ) ).get( key );
+			return ( value == null ) ? null : value.getAsString();
+		} catch ( final IOException e ) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a float image as chunked dataset. Existing blocks are
+	 * overwritten.
+	 *
+	 * @param container
+	 *            N5 container folder (created if needed).
+	 * @param dataset
+	 *            dataset path within container, e.g. "raw/c1".
+	 * @param img
+	 *            3d image (x, y, t).
+	 * @param blockSize
+	 *            size of the blocks to be written, e.g. { width, height, 1 }
+	 *            for one chunk per frame.
+	 * @param attributes
+	 *            additional string attributes (may be null).
+	 * @throws IOException
+	 */
+	public static void writeFloat( final File container, final String dataset, final RandomAccessibleInterval< FloatType > img, final int[] blockSize, final Map< String, String > attributes ) throws IOException {
+		write( container, dataset, img, blockSize, attributes, DATA_TYPE_FLOAT32 );
+	}
+
+	/**
+	 * Writes a short image as chunked dataset (see <code>writeFloat</code>).
+	 */
+	public static void writeShort( final File container, final String dataset, final RandomAccessibleInterval< ShortType > img, final int[] blockSize, final Map< String, String > attributes ) throws IOException {
+		write( container, dataset, img, blockSize, attributes, DATA_TYPE_INT16 );
+	}
+
+	/**
+	 * Reads an entire float dataset.
+	 */
+	public static Img< FloatType > readFloat( final File container, final String dataset ) throws IOException {
+		final long[] dims = getDimensions( container, dataset );
+		return readFloat( container, dataset, new long[ dims.length ], maxOf( dims ) );
+	}
+
+	/**
+	 * Reads the given interval of a float dataset. Only blocks intersecting
+	 * the interval are touched.
+	 *
+	 * @param min
+	 *            inclusive min corner.
+	 * @param max
+	 *            inclusive max corner.
+	 * @return an image of size max-min+1 (origin at 0).
+	 */
+	public static Img< FloatType > readFloat( final File container, final String dataset, final long[] min, final long[] max ) throws IOException {
+		checkDataType( container, dataset, DATA_TYPE_FLOAT32 );
+		final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( sizeOf( min, max ), new FloatType() );
+		read( container, dataset, img, min );
+		return img;
+	}
+
+	/**
+	 * Reads an entire short dataset.
+	 */
+	public static Img< ShortType > readShort( final File container, final String dataset ) throws IOException {
+		final long[] dims = getDimensions( container, dataset );
+		checkDataType( container, dataset, DATA_TYPE_INT16 );
+		final Img< ShortType > img = new ArrayImgFactory< ShortType >().create( dims, new ShortType() );
+		read( container, dataset, img, new long[ dims.length ] );
+		return img;
+	}
+
+	/**
+	 * @return the dimensions of the given dataset.
+	 */
+	public static long[] getDimensions( final File container, final String dataset ) throws IOException {
+		final JsonArray jsonDims = readAttributes( new File( container, dataset ) ).getAsJsonArray( "dimensions" );
+		final long[] dims = new long[ jsonDims.size() ];
+		for ( int d = 0; d < dims.length; d++ ) {
+			dims[ d ] = jsonDims.get( d ).getAsLong();
+		}
+		return dims;
+	}
+
+	// -------------------------------------------------------------------------------------
+	// private helpers
+	// -------------------------------------------------------------------------------------
+	private static < T extends RealType< T > > void write( final File container, final String dataset, final RandomAccessibleInterval< T > img, final int[] blockSize, final Map< String, String > attributes, final String dataType ) throws IOException {
+		final int n = img.numDimensions();
+
+		// container attributes
+		if ( !container.exists() && !container.mkdirs() ) { throw new IOException( "Could not create N5 container at " + container.getAbsolutePath() ); }
+		final JsonObject containerAttributes = new JsonObject();
+		containerAttributes.addProperty( "n5", N5_VERSION );
+		writeAttributes( container, containerAttributes );
+
+		// dataset attributes
+		final File datasetFolder = new File( container, dataset );
+		if ( !datasetFolder.exists() && !datasetFolder.mkdirs() ) { throw new IOException( "Could not create dataset folder " + datasetFolder.getAbsolutePath() ); }
+		new File( datasetFolder, ATTRIBUTES_FILE ).delete(); // invalidate old content while (over)writing blocks
+		final JsonObject datasetAttributes = new JsonObject();
+		final JsonArray jsonDims = new JsonArray();
+		final JsonArray jsonBlockSize = new JsonArray();
+		for ( int d = 0; d < n; d++ ) {
+			jsonDims.add( new JsonPrimitive( img.dimension( d ) ) );
+			jsonBlockSize.add( new JsonPrimitive( blockSize[ d ] ) );
+		}
+		datasetAttributes.add( "dimensions", jsonDims );
+		datasetAttributes.add( "blockSize", jsonBlockSize );
+		datasetAttributes.addProperty( "dataType", dataType );
+		final JsonObject compression = new JsonObject();
+		compression.addProperty( "type", "raw" );
+		datasetAttributes.add( "compression", compression );
+		if ( attributes != null ) {
+			for ( final Map.Entry< String, String > entry : attributes.entrySet() ) {
+				datasetAttributes.addProperty( entry.getKey(), entry.getValue() );
+			}
+		}
+
+		// blocks (in parallel, each thread writes whole blocks)
+		final long[] gridSize = new long[ n ];
+		long numBlocks = 1;
+		for ( int d = 0; d < n; d++ ) {
+			gridSize[ d ] = ( img.dimension( d ) + blockSize[ d ] - 1 ) / blockSize[ d ];
+			numBlocks *= gridSize[ d ];
+		}
+		final long totalBlocks = numBlocks;
+		final AtomicReference< IOException > firstError = new AtomicReference< IOException >();
+
+		final ComputeResources.Allocation cores = ComputeResources.acquire( ComputeResources.IO, ( int ) Math.min( totalBlocks, Integer.MAX_VALUE ) );
+		final int numThreads = cores.getThreads();
+		final Thread[] threads = new Thread[ numThreads ];
+
+		class BlockWritingThread extends Thread {
+
+			final int numThread;
+			final int numThreads;
+
+			public BlockWritingThread( final int numThread, final int numThreads ) {
+				this.numThread = numThread;
+				this.numThreads = numThreads;
+			}
+
+			@Override
+			public void run() {
+				final long[] gridPos = new long[ n ];
+				final long[] min = new long[ n ];
+				final long[] max = new long[ n ];
+				for ( long b = numThread; b < totalBlocks && firstError.get() == null; b += numThreads ) {
+					gridPosition( b, gridSize, gridPos );
+					for ( int d = 0; d < n; d++ ) {
+						min[ d ] = img.min( d ) + gridPos[ d ] * blockSize[ d ];
+						max[ d ] = Math.min( img.max( d ), min[ d ] + blockSize[ d ] - 1 );
+					}
+					try {
+						writeBlock( datasetFolder, gridPos, Views.interval( img, min, max ), dataType );
+					} catch ( final IOException e ) {
+						firstError.compareAndSet( null, e );
+					}
+				}
+			}
+		}
+
+		// start threads
+		for ( int i = 0; i < numThreads; i++ ) {
+			threads[ i ] = new BlockWritingThread( i, numThreads );
+			threads[ i ].start();
+		}
+
+		// wait for all threads to terminate
+		for ( final Thread thread : threads ) {
+			try {
+				thread.join();
+			} catch ( final InterruptedException e ) {
+				e.printStackTrace();
+			}
+		}
+		cores.release();
+		if ( firstError.get() != null ) { throw firstError.get(); }
+
+		// attributes last -- a dataset only 'exists' once all its blocks are written
+		writeAttributes( datasetFolder, datasetAttributes );
+	}
+
+	private static < T extends RealType< T > > void writeBlock( final File datasetFolder, final long[] gridPos, final RandomAccessibleInterval< T > block, final String dataType ) throws IOException {
+		final File blockFile = getBlockFile( datasetFolder, gridPos );
+		blockFile.getParentFile().mkdirs();
+
+		final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( blockFile ), 1 << 16 ) );
+		try {
+			out.writeShort( 0 ); // mode: default
+			out.writeShort( block.numDimensions() );
+			for ( int d = 0; d < block.numDimensions(); d++ ) {
+				out.writeInt( ( int ) block.dimension( d ) );
+			}
+			final Cursor< T > cursor = Views.flatIterable( block ).cursor();
+			if ( DATA_TYPE_FLOAT32.equals( dataType ) ) {
+				while ( cursor.hasNext() ) {
+					out.writeFloat( cursor.next().getRealFloat() );
+				}
+			} else {
+				while ( cursor.hasNext() ) {
+					out.writeShort( ( short ) cursor.next().getRealDouble() );
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static < T extends RealType< T > > void read( final File container, final String dataset, final Img< T > target, final long[] offset ) throws IOException {
+		final File datasetFolder = new File( container, dataset );
+		final JsonObject attributes = readAttributes( datasetFolder );
+		final JsonArray jsonBlockSize = attributes.getAsJsonArray( "blockSize" );
+		final String dataType = attributes.get( "dataType" ).getAsString();
+		final String compression = attributes.getAsJsonObject( "compression" ).get( "type" ).getAsString();
+		if ( !"raw".equals( compression ) ) { throw new IOException( "Only 'raw' N5 compression is supported, found '" + compression + "'." ); }
+
+		final int n = target.numDimensions();
+		final int[] blockSize = new int[ n ];
+		final long[] gridMin = new long[ n ];
+		final long[] gridMax = new long[ n ];
+		long numBlocks = 1;
+		for ( int d = 0; d < n; d++ ) {
+			blockSize[ d ] = jsonBlockSize.get( d ).getAsInt();
+			gridMin[ d ] = offset[ d ] / blockSize[ d ];
+			gridMax[ d ] = ( offset[ d ] + target.dimension( d ) - 1 ) / blockSize[ d ];
+			numBlocks *= gridMax[ d ] - gridMin[ d ] + 1;
+		}
+
+		final long[] gridSize = new long[ n ];
+		for ( int d = 0; d < n; d++ ) {
+			gridSize[ d ] = gridMax[ d ] - gridMin[ d ] + 1;
+		}
+		final long[] gridPos = new long[ n ];
+		final long[] blockMin = new long[ n ];
+		final long[] blockMax = new long[ n ];
+		final long[] intersectMin = new long[ n ];
+		final long[] intersectMax = new long[ n ];
+		for ( long b = 0; b < numBlocks; b++ ) {
+			gridPosition( b, gridSize, gridPos );
+			for ( int d = 0; d < n; d++ ) {
+				gridPos[ d ] += gridMin[ d ];
+			}
+
+			final File blockFile = getBlockFile( datasetFolder, gridPos );
+			if ( !blockFile.exists() ) continue; // N5: missing blocks are empty
+
+			final DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( blockFile ), 1 << 16 ) );
+			try {
+				in.readShort(); // mode
+				final int nDims = in.readShort();
+				final long[] actualBlockSize = new long[ nDims ];
+				for ( int d = 0; d < nDims; d++ ) {
+					actualBlockSize[ d ] = in.readInt();
+				}
+				for ( int d = 0; d < n; d++ ) {
+					blockMin[ d ] = gridPos[ d ] * blockSize[ d ];
+					blockMax[ d ] = blockMin[ d ] + actualBlockSize[ d ] - 1;
+					intersectMin[ d ] = Math.max( blockMin[ d ], offset[ d ] ) - offset[ d ];
+					intersectMax[ d ] = Math.min( blockMax[ d ], offset[ d ] + target.dimension( d ) - 1 ) - offset[ d ];
+				}
+
+				// iterate the whole block in flat order (global coordinates), copy what falls into the target
+				final long[] pos = new long[ n ];
+				final Cursor< T > cursor = Views.flatIterable( Views.interval( Views.translate( Views.extendZero( target ), offset ), blockMin, blockMax ) ).cursor();
+				while ( cursor.hasNext() ) {
+					final T t = cursor.next();
+					final double value = DATA_TYPE_FLOAT32.equals( dataType ) ? in.readFloat() : in.readShort();
+					cursor.localize( pos );
+					boolean inside = true;
+					for ( int d = 0; d < n; d++ ) {
+						final long p = pos[ d ] - offset[ d ];
+						if ( p < intersectMin[ d ] || p > intersectMax[ d ] ) {
+							inside = false;
+							break;
+						}
+					}
+					if ( inside ) {
+						t.setReal( value );
+					}
+				}
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	private static void gridPosition( long index, final long[] gridSize, final long[] gridPos ) {
+		for ( int d = 0; d < gridSize.length; d++ ) {
+			gridPos[ d ] = index % gridSize[ d ];
+			index /= gridSize[ d ];
+		}
+	}
+
+	private static File getBlockFile( final File datasetFolder, final long[] gridPos ) {
+		File f = datasetFolder;
+		for ( final long p : gridPos ) {
+			f = new File( f, Long.toString( p ) );
+		}
+		return f;
+	}
+
+	private static void checkDataType( final File container, final String dataset, final String expected ) throws IOException {
+		final String dataType = readAttributes( new File( container, dataset ) ).get( "dataType" ).getAsString();
+		if ( !expected.equals( dataType ) ) { throw new IOException( String.format( "Dataset '%s' is of type %s, expected %s.", dataset, dataType, expected ) ); }
+	}
+
+	private static long[] maxOf( final long[] dims ) {
+		final long[] max = new long[ dims.length ];
+		for ( int d = 0; d < dims.length; d++ ) {
+			max[ d ] = dims[ d ] - 1;
+		}
+		return max;
+	}
+
+	private static long[] sizeOf( final long[] min, final long[] max ) {
+		final long[] size = new long[ min.length ];
+		for ( int d = 0; d < min.length; d++ ) {
+			size[ d ] = max[ d ] - min[ d ] + 1;
+		}
+		return size;
+	}
+
+	private static JsonObject readAttributes( final File folder ) throws IOException {
+		final Reader reader = new InputStreamReader( new FileInputStream( new File( folder, ATTRIBUTES_FILE ) ), "UTF-8" );
+		try {
+			return new JsonParser().parse( reader ).getAsJsonObject();
+		} catch ( final RuntimeException e ) {
+			throw new IOException( "Could not parse attributes in " + folder.getAbsolutePath(), e );
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static void writeAttributes( final File folder, final JsonObject attributes ) throws IOException {
+		final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		final Writer writer = new OutputStreamWriter( new FileOutputStream( new File( folder, ATTRIBUTES_FILE ) ), "UTF-8" );
+		try {
+			gson.toJson( attributes, writer );
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,296 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Loader engine that decodes many TIFF planes in parallel. A fixed number of
+ * worker threads is used, each owning one reusable {@link TiffPlaneDecoder}.
+ * Workers pull plane indices from a shared counter and decode straight into
+ * the (preallocated) planes of the resulting <code>PlanarImg</code>, so the
+ * order of the result is always the order of the given sources, no matter
+ * which thread finishes first. If requested, each plane is normalized to
+ * [0,1] by the same worker right after decoding it.
+ *
+ * @author jug
+ */
+public class ParallelTiffLoader {
+
+	/**
+	 * Points at one plane (IFD) in one TIFF file.
+	 */
+	public static class PlaneSource {
+
+		private final File file;
+		private final int planeIdx;
+
+		public PlaneSource( final File file, final int planeIdx ) {
+			this.file = file;
+			this.planeIdx = planeIdx;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public int getPlaneIdx() {
+			return planeIdx;
+		}
+	}
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private final int numThreads;
+
+	// -------------------------------------------------------------------------------------
+	// construction
+	// -------------------------------------------------------------------------------------
+	public ParallelTiffLoader() {
+		this( ComputeResources.getBudget() );
+	}
+
+	public ParallelTiffLoader( final int numThreads ) {
+		this.numThreads = Math.max( 1, numThreads );
+	}
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	/**
+	 * Creates one <code>PlaneSource</code> for the first plane of each given
+	 * file.
+	 */
+	public static List< PlaneSource > firstPlaneOf( final File[] files ) {
+		final List< PlaneSource > ret = new ArrayList< PlaneSource >( files.length );
+		for ( final File file : files ) {
+			ret.add( new PlaneSource( file, 0 ) );
+		}
+		return ret;
+	}
+
+	/**
+	 * Decodes all given planes into a new 3d image (x, y, plane).
+	 *
+	 * @param sources
+	 *            the planes to be loaded, in the order they should appear in
+	 *            the returned image.
+	 * @param normalize
+	 *            if true, each plane is normalized to [0,1].
+	 * @param duplicateLastPlane
+	 *            if true, the last plane is added twice. (This is to trick the
+	 *            MM to not having tracking problems towards the last frame, see
+	 *            FloatTypeImgLoader.loadMMTiffSequence.)
+	 * @return the loaded image or null if 'sources' is empty.
+	 * @throws IOException
+	 *             if any of the planes could not be decoded.
+	 */
+	public PlanarImg< FloatType, FloatArray > loadPlanes( final List< PlaneSource > sources, final boolean normalize, final boolean duplicateLastPlane ) throws IOException {
+		if ( sources.size() == 0 ) return null;
+
+		// figure out plane size from the first plane
+		final int[] size = getPlaneSize( sources.get( 0 ) );
+		final int width = size[ 0 ];
+		final int height = size[ 1 ];
+
+		final int numPlanes = sources.size() + ( duplicateLastPlane ? 1 : 0 );
+		@SuppressWarnings( "unchecked" )
+		final PlanarImg< FloatType, FloatArray > img =
+				( PlanarImg< FloatType, FloatArray > ) new PlanarImgFactory< FloatType >().create( new long[] { width, height, numPlanes }, new FloatType() );
+
+		decodeAll( sources, width, height, new PlaneTarget() {
+
+			@Override
+			public void decode( final TiffPlaneDecoder decoder, final PlaneSource source, final int i ) throws IOException {
+				final float[] plane = img.getPlane( i ).getCurrentStorageArray();
+				decoder.readPlane( source.getPlaneIdx(), plane, 0 );
+				if ( normalize ) {
+					normalize( plane );
+				}
+			}
+		} );
+
+		if ( duplicateLastPlane ) {
+			final float[] last = img.getPlane( sources.size() - 1 ).getCurrentStorageArray();
+			System.arraycopy( last, 0, img.getPlane( sources.size() ).getCurrentStorageArray(), 0, last.length );
+		}
+		return img;
+	}
+
+	/**
+	 * Decodes all given planes into new 2d double images, one per plane. In
+	 * contrast to <code>loadPlanes</code>, 32 bit integer data keeps its full
+	 * precision.
+	 *
+	 * @param sources
+	 *            the planes to be loaded, in the order they should be
+	 *            returned.
+	 * @param normalize
+	 *            if true, each plane is normalized to [0,1].
+	 * @return the loaded planes (empty if 'sources' is empty).
+	 * @throws IOException
+	 *             if any of the planes could not be decoded.
+	 */
+	public List< ArrayImg< DoubleType, DoubleArray > > loadDoublePlanes( final List< PlaneSource > sources, final boolean normalize ) throws IOException {
+		final List< ArrayImg< DoubleType, DoubleArray > > ret = new ArrayList< ArrayImg< DoubleType, DoubleArray > >( sources.size() );
+		if ( sources.size() == 0 ) return ret;
+
+		final int[] size = getPlaneSize( sources.get( 0 ) );
+		final int width = size[ 0 ];
+		final int height = size[ 1 ];
+		final double[][] planes = new double[ sources.size() ][ width * height ];
+
+		decodeAll( sources, width, height, new PlaneTarget() {
+
+			@Override
+			public void decode( final TiffPlaneDecoder decoder, final PlaneSource source, final int i ) throws IOException {
+				decoder.readPlane( source.getPlaneIdx(), planes[ i ], 0 );
+				if ( normalize ) {
+					normalize( planes[ i ] );
+				}
+			}
+		} );
+
+		for ( final double[] plane : planes ) {
+			ret.add( ArrayImgs.doubles( plane, width, height ) );
+		}
+		return ret;
+	}
+
+	/**
+	 * @return {width, height} of the given plane.
+	 */
+	private static int[] getPlaneSize( final PlaneSource source ) throws IOException {
+		final TiffPlaneDecoder probe = new TiffPlaneDecoder();
+		try {
+			probe.open( source.getFile() );
+			return new int[] { probe.getWidth(), probe.getHeight() };
+		} finally {
+			probe.close();
+		}
+	}
+
+	/**
+	 * Where (and how) a decoded plane goes.
+	 */
+	private interface PlaneTarget {
+
+		void decode( TiffPlaneDecoder decoder, PlaneSource source, int i ) throws IOException;
+	}
+
+	/**
+	 * Runs the worker threads that hand each of the given sources (and its
+	 * index) to 'target', after checking the plane size.
+	 *
+	 * @throws IOException
+	 *             the first error any of the workers ran into.
+	 */
+	private void decodeAll( final List< PlaneSource > sources, final int width, final int height, final PlaneTarget target ) throws IOException {
+		final AtomicInteger nextPlane = new AtomicInteger( 0 );
+		final AtomicReference< IOException > firstError = new AtomicReference< IOException >();
+		final ComputeResources.Allocation cores = ComputeResources.acquire( ComputeResources.IO, Math.min( numThreads, sources.size() ) );
+		final int threadsToUse = cores.getThreads();
+		final Thread[] threads = new Thread[ threadsToUse ];
+
+		class ImageLoadingThread extends Thread {
+
+			@Override
+			public void run() {
+				final TiffPlaneDecoder decoder = new TiffPlaneDecoder();
+				try {
+					int i;
+					while ( firstError.get() == null && ( i = nextPlane.getAndIncrement() ) < sources.size() ) {
+						final PlaneSource source = sources.get( i );
+						decoder.open( source.getFile() );
+						if ( decoder.getWidth() != width || decoder.getHeight() != height ) { throw new IOException( String.format( "Plane %d of '%s' has size %dx%d, expected %dx%d.", source.getPlaneIdx(), source.getFile().getName(), decoder.getWidth(), decoder.getHeight(), width, height ) ); }
+						target.decode( decoder, source, i );
+					}
+				} catch ( final IOException e ) {
+					firstError.compareAndSet( null, e );
+				} finally {
+					decoder.close();
+				}
+			}
+		}
+
+		// start threads
+		for ( int i = 0; i < threadsToUse; i++ ) {
+			threads[ i ] = new ImageLoadingThread();
+			threads[ i ].start();
+		}
+
+		// wait for all threads to terminate
+		for ( final Thread thread : threads ) {
+			try {
+				thread.join();
+			} catch ( final InterruptedException e ) {
+				System.out.println( "Thread.join was interrupted in ParallelTiffLoader - be aware of leaking Threads!" );
+				e.printStackTrace();
+			}
+		}
+		cores.release();
+		if ( firstError.get() != null ) { throw firstError.get(); }
+	}
+
+	/**
+	 * Normalizes the given values to [0,1] in place (same mapping as
+	 * <code>Normalize.normalize</code>).
+	 */
+	public static void normalize( final float[] values ) {
+		float min = Float.MAX_VALUE;
+		float max = -Float.MAX_VALUE;
+		for ( final float v : values ) {
+			if ( v < min ) min = v;
+			if ( v > max ) max = v;
+		}
+		final float range = max - min;
+		if ( range == 0 ) {
+			// Normalize.normalize would divide by zero here... we rather map to 0.
+			for ( int i = 0; i < values.length; i++ ) {
+				values[ i ] = 0f;
+			}
+			return;
+		}
+		for ( int i = 0; i < values.length; i++ ) {
+			values[ i ] = ( values[ i ] - min ) / range;
+		}
+	}
+
+	/**
+	 * Same as <code>normalize( float[] )</code>, for doubles.
+	 */
+	public static void normalize( final double[] values ) {
+		double min = Double.MAX_VALUE;
+		double max = -Double.MAX_VALUE;
+		for ( final double v : values ) {
+			if ( v < min ) min = v;
+			if ( v > max ) max = v;
+		}
+		final double range = max - min;
+		if ( range == 0 ) {
+			for ( int i = 0; i < values.length; i++ ) {
+				values[ i ] = 0d;
+			}
+			return;
+		}
+		for ( int i = 0; i < values.length; i++ ) {
+			values[ i ] = ( values[ i ] - min ) / range;
+		}
+	}
+}
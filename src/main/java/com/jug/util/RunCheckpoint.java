@@ -0,0 +1,171 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Records which phases of a headless run are completed, such that a run
+ * that crashed or was preempted can be resumed without redoing them.
+ *
+ * The state lives in 'checkpoint.properties' in the run folder. It is
+ * rewritten after every completed phase by writing a temporary file, syncing
+ * it to disk, and renaming it over the old one, so that a crash at any time
+ * leaves either the old or the new state behind.
+ *
+ * Only phases whose results are persisted (and hence can be skipped on
+ * resume) are recorded: per dataset <code>EXPORTED</code>, per GL
+ * <code>SOLVED</code> (the solution is in the solution folder). Segmentation
+ * hypotheses are resumed from their cache file, which validates itself. The
+ * state is only resumed from if the fingerprint stored with it equals the
+ * one of the current data and parameters.
+ *
+ * @author jug
+ */
+public class RunCheckpoint {
+
+	public static final String SOLVED = "SOLVED";
+	public static final String EXPORTED = "EXPORTED";
+
+	private static final String FILENAME = "checkpoint.properties";
+	private static final String FINGERPRINT_KEY = "fingerprint";
+
+	private final File folder;
+	private final Properties state = new Properties();
+	private final boolean resumed;
+
+	/**
+	 * @param folder
+	 *            the run folder (created if needed).
+	 * @param fingerprint
+	 *            identifies data and parameters of this run.
+	 * @param resume
+	 *            if true, phases recorded by an earlier run with the same
+	 *            fingerprint count as done; otherwise the run starts from
+	 *            scratch.
+	 */
+	public RunCheckpoint( final File folder, final String fingerprint, final boolean resume ) {
+		this.folder = folder;
+		boolean loaded = false;
+		if ( resume ) {
+			final File file = new File( folder, FILENAME );
+			if ( file.exists() ) {
+				final Properties stored = new Properties();
+				try {
+					final InputStream in = new FileInputStream( file );
+					try {
+						stored.load( in );
+					} finally {
+						in.close();
+					}
+					if ( fingerprint.equals( stored.getProperty( FINGERPRINT_KEY ) ) ) {
+						state.putAll( stored );
+						loaded = true;
+					} else {
+						System.out.println( "Checkpoint in " + folder.getAbsolutePath() + " does not fit current data or parameters -- starting from scratch." );
+					}
+				} catch ( final IOException e ) {
+					System.out.println( "WARNING: checkpoint " + file.getAbsolutePath() + " could not be read -- starting from scratch." );
+					e.printStackTrace();
+				}
+			}
+		}
+		this.resumed = loaded;
+		state.setProperty( FINGERPRINT_KEY, fingerprint );
+	}
+
+	/**
+	 * @return the folder the checkpoint (and files belonging to it) are
+	 *         stored in.
+	 */
+	public File getFolder() {
+		return folder;
+	}
+
+	/**
+	 * @return true if this checkpoint continues one of an earlier run.
+	 */
+	public boolean isResumed() {
+		return resumed;
+	}
+
+	/**
+	 * @return true if the given dataset-level phase is completed.
+	 */
+	public synchronized boolean isDone( final String phase ) {
+		return Boolean.parseBoolean( state.getProperty( phase ) );
+	}
+
+	/**
+	 * @return true if the given GL reached the given phase (only
+	 *         <code>SOLVED</code> is recorded per GL).
+	 */
+	public synchronized boolean isDone( final int glIdx, final String phase ) {
+		return SOLVED.equals( phase ) && SOLVED.equals( state.getProperty( getGLKey( glIdx ) ) );
+	}
+
+	/**
+	 * Records a completed dataset-level phase.
+	 */
+	public synchronized void markDone( final String phase ) {
+		state.setProperty( phase, Boolean.toString( true ) );
+		write();
+	}
+
+	/**
+	 * Records that the given GL reached the given phase.
+	 */
+	public synchronized void markDone( final int glIdx, final String phase ) {
+		if ( isDone( glIdx, phase ) ) return;
+		state.setProperty( getGLKey( glIdx ), phase );
+		write();
+	}
+
+	/**
+	 * Forgets everything recorded for the given GL, e.g. if its stored
+	 * solution turned out to be unusable.
+	 */
+	public synchronized void reset( final int glIdx ) {
+		state.remove( getGLKey( glIdx ) );
+		write();
+	}
+
+	private static String getGLKey( final int glIdx ) {
+		return String.format( "GL%03d", glIdx );
+	}
+
+	/**
+	 * Writes the state atomically. Failing to write a checkpoint does not
+	 * stop the run; it only makes resuming redo more.
+	 */
+	private void write() {
+		if ( !folder.isDirectory() && !folder.mkdirs() ) {
+			System.out.println( "WARNING: could not create run folder " + folder.getAbsolutePath() );
+			return;
+		}
+		final File file = new File( folder, FILENAME );
+		final File tmp = new File( folder, FILENAME + ".tmp" );
+		try {
+			final FileOutputStream out = new FileOutputStream( tmp );
+			try {
+				state.store( out, "MoMA run checkpoint" );
+				out.flush();
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		} catch ( final IOException e ) {
+			System.out.println( "WARNING: could not write checkpoint " + file.getAbsolutePath() );
+			e.printStackTrace();
+		}
+	}
+}
@@ -527,4 +527,107 @@ public class SimpleFunctionAnalysis {
 		return ret;
 	}
 
+	/**
+	 * Convolves the given function values with a 1D Gaussian kernel. Borders
+	 * are handled by mirroring.
+	 *
+	 * @param fkt
+	 *            - discrete float function values.
+	 * @param sigma
+	 *            - sigma of the Gaussian. If <= 0 a copy of 'fkt' is
+	 *            returned.
+	 * @return the smoothed function values.
+	 */
+	public static float[] gaussianSmooth( final float[] fkt, final double sigma ) {
+		if ( sigma <= 0 || fkt.length == 0 ) { return Arrays.copyOf( fkt, fkt.length ); }
+
+		final int radius = Math.max( 1, ( int ) Math.ceil( 3 * sigma ) );
+		final double[] kernel = new double[ 2 * radius + 1 ];
+		double sum = 0;
+		for ( int i = -radius; i <= radius; i++ ) {
+			kernel[ i + radius ] = Math.exp( -( i * i ) / ( 2 * sigma * sigma ) );
+			sum += kernel[ i + radius ];
+		}
+
+		final int n = fkt.length;
+		final float[] ret = new float[ n ];
+		for ( int center = 0; center < n; center++ ) {
+			double value = 0;
+			for ( int i = -radius; i <= radius; i++ ) {
+				int idx = center + i;
+				// mirror at borders (repeatedly, in case kernel > function)
+				while ( idx < 0 || idx >= n ) {
+					if ( idx < 0 ) idx = -idx - 1;
+					if ( idx >= n ) idx = 2 * n - idx - 1;
+				}
+				value += kernel[ i + radius ] * fkt[ idx ];
+			}
+			ret[ center ] = ( float ) ( value / sum );
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the positions of all local maxima within [from,to). A position
+	 * is considered to be a local maximum if its value is strictly larger
+	 * than its left neighbor and the values right of it (after a plateau of
+	 * equal values, if any) are strictly lower. A plateau is reported once,
+	 * at its last position. Plateaus reaching the end of the considered
+	 * range count as maxima (there is nothing to compare them with).
+	 * No boxing and no intermediate lists -- this is meant for profiles that
+	 * need to be analyzed for many frames.
+	 *
+	 * @param fktValues
+	 *            - discrete float function values.
+	 * @param from
+	 *            - first position to be considered (inclusive).
+	 * @param to
+	 *            - last position to be considered (exclusive).
+	 * @return ascending array of positions of local maxima.
+	 */
+	public static int[] getLocalMaxima( final float[] fktValues, final int from, final int to ) {
+		final int start = Math.max( 1, from );
+		final int end = Math.min( fktValues.length - 1, to );
+		final int[] buffer = new int[ Math.max( 0, end - start ) ];
+		int count = 0;
+		for ( int i = start; i < end; i++ ) {
+			if ( fktValues[ i ] > fktValues[ i - 1 ] && fktValues[ i ] >= fktValues[ i + 1 ] ) {
+				// skip to the end of a plateau
+				while ( i + 1 < end && fktValues[ i + 1 ] == fktValues[ i ] ) {
+					i++;
+				}
+				// a plateau is only a maximum if values drop afterwards
+				if ( fktValues[ i + 1 ] < fktValues[ i ] || ( i + 1 == end && fktValues[ i + 1 ] == fktValues[ i ] ) ) {
+					buffer[ count++ ] = i;
+				}
+			}
+		}
+		return Arrays.copyOf( buffer, count );
+	}
+
+	/**
+	 * Given two ascending sequences of positions, where 'positions' contains
+	 * at most as many entries as 'reference', this function finds the offset
+	 * into 'reference' at which 'positions[0]' fits best. The next
+	 * 'positions.length' entries of 'reference' (starting at the returned
+	 * offset) can then be assigned one-to-one to 'positions'.
+	 * Since both sequences are sorted the distance is unimodal in the offset
+	 * and a single linear sweep suffices.
+	 *
+	 * @param reference
+	 *            - ascending positions (e.g. of all known growth lines).
+	 * @param positions
+	 *            - ascending positions (e.g. maxima found in one frame).
+	 * @return the best offset in [0, reference.length-positions.length].
+	 */
+	public static int getBestAlignmentOffset( final int[] reference, final int[] positions ) {
+		if ( positions.length == 0 ) return 0;
+		final int maxOffset = reference.length - positions.length;
+		int offset = 0;
+		while ( offset < maxOffset && Math.abs( reference[ offset + 1 ] - positions[ 0 ] ) <= Math.abs( reference[ offset ] - positions[ 0 ] ) ) {
+			offset++;
+		}
+		return offset;
+	}
+
 }
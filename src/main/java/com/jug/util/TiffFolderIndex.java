@@ -0,0 +1,128 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of a folder containing a tiff sequence following the naming
+ * convention "<some_name>_t####_c####.tif". The folder is listed exactly once;
+ * time and channel of each file are parsed once as well.
+ *
+ * @author jug
+ */
+public class TiffFolderIndex {
+
+	/**
+	 * One indexed file.
+	 */
+	public static class Entry {
+
+		private final File file;
+		private final int time;
+		private final int channel;
+
+		public Entry( final File file, final int time, final int channel ) {
+			this.file = file;
+			this.time = time;
+			this.channel = channel;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public int getTime() {
+			return time;
+		}
+
+		public int getChannel() {
+			return channel;
+		}
+	}
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private final File folder;
+
+	/**
+	 * Per channel: all entries, sorted by filename.
+	 */
+	private final Map< Integer, List< Entry > > entriesPerChannel = new HashMap< Integer, List< Entry > >();
+
+	// -------------------------------------------------------------------------------------
+	// construction
+	// -------------------------------------------------------------------------------------
+	public TiffFolderIndex( final String strFolder ) throws FileNotFoundException {
+		folder = new File( strFolder );
+		final File[] listOfFiles = folder.listFiles();
+		if ( listOfFiles == null ) { throw new FileNotFoundException( "Given argument is not a valid folder: " + strFolder ); }
+		Arrays.sort( listOfFiles ); // LINUX does not do that by default!
+
+		for ( final File file : listOfFiles ) {
+			final String name = file.getName();
+			if ( !name.contains( ".tif" ) ) continue;
+			final int channel = FloatTypeImgLoader.getChannelFromFilename( name );
+			final int time = FloatTypeImgLoader.getTimeFromFilename( name );
+			List< Entry > entries = entriesPerChannel.get( channel );
+			if ( entries == null ) {
+				entries = new ArrayList< Entry >();
+				entriesPerChannel.put( channel, entries );
+			}
+			entries.add( new Entry( file, time, channel ) );
+		}
+	}
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	/**
+	 * @return the indexed folder.
+	 */
+	public File getFolder() {
+		return folder;
+	}
+
+	/**
+	 * Returns all files of the given channel that lie within the given time
+	 * range, sorted by filename.
+	 *
+	 * @param channel
+	 * @param minTime
+	 *            lowest time-index to be returned (-1 for no limit).
+	 * @param maxTime
+	 *            highest time-index to be returned (-1 for no limit).
+	 * @return array of files (possibly empty).
+	 */
+	public File[] getFiles( final int channel, final int minTime, final int maxTime ) {
+		final List< Entry > entries = entriesPerChannel.get( channel );
+		if ( entries == null ) return new File[ 0 ];
+
+		final List< File > ret = new ArrayList< File >( entries.size() );
+		for ( final Entry entry : entries ) {
+			if ( ( minTime != -1 && entry.getTime() < minTime ) || ( maxTime != -1 && entry.getTime() > maxTime ) ) {
+				continue;
+			}
+			ret.add( entry.getFile() );
+		}
+		return ret.toArray( new File[ ret.size() ] );
+	}
+
+	/**
+	 * @return all channels found in the indexed folder (ascending).
+	 */
+	public List< Integer > getChannels() {
+		final List< Integer > ret = new ArrayList< Integer >( entriesPerChannel.keySet() );
+		Collections.sort( ret );
+		return ret;
+	}
+}
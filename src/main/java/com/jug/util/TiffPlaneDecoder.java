@@ -0,0 +1,539 @@
+/**
+ *
+ */
+package com.jug.util;
+
+import ij.IJ;
+import ij.ImagePlus;
+import ij.ImageStack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A small, reusable TIFF reader that decodes single image planes (IFDs)
+ * directly into a given <code>float[]</code> (or <code>double[]</code>). One
+ * instance is meant to be used by one thread only; its read buffer and the
+ * parsed IFD offsets of the currently open file are reused between calls.
+ *
+ * Uncompressed, single sample, 8/16/32 bit integer and 32 bit float images
+ * (both byte orders) are decoded natively. Everything else (compression, RGB,
+ * BigTIFF, ...) falls back to ImageJ.
+ *
+ * @author jug
+ */
+public class TiffPlaneDecoder {
+
+	private static final int TAG_IMAGE_WIDTH = 256;
+	private static final int TAG_IMAGE_LENGTH = 257;
+	private static final int TAG_BITS_PER_SAMPLE = 258;
+	private static final int TAG_COMPRESSION = 259;
+	private static final int TAG_PHOTOMETRIC = 262;
+	private static final int TAG_IMAGE_DESCRIPTION = 270;
+	private static final int TAG_STRIP_OFFSETS = 273;
+	private static final int TAG_SAMPLES_PER_PIXEL = 277;
+	private static final int TAG_STRIP_BYTE_COUNTS = 279;
+	private static final int TAG_SAMPLE_FORMAT = 339;
+
+	private static final int SAMPLE_FORMAT_UINT = 1;
+	private static final int SAMPLE_FORMAT_INT = 2;
+	private static final int SAMPLE_FORMAT_FLOAT = 3;
+
+	// how the samples of a natively read plane are stored
+	private static final int SAMPLE_INT8 = 0;
+	private static final int SAMPLE_UINT8 = 1;
+	private static final int SAMPLE_INT16 = 2;
+	private static final int SAMPLE_UINT16 = 3;
+	private static final int SAMPLE_INT32 = 4;
+	private static final int SAMPLE_UINT32 = 5;
+	private static final int SAMPLE_FLOAT32 = 6;
+
+	/**
+	 * Everything we need to know in order to read one plane.
+	 */
+	private static class PlaneInfo {
+
+		int width;
+		int height;
+		int bitsPerSample = 1;
+		int samplesPerPixel = 1;
+		int compression = 1;
+		int photometric = 1;
+		int sampleFormat = SAMPLE_FORMAT_UINT;
+		long[] stripOffsets;
+		long[] stripByteCounts;
+		String description;
+
+		boolean isNativelySupported() {
+			if ( compression != 1 || samplesPerPixel != 1 ) return false;
+			// 8 bit images with inverting or palette LUT are read as raw values (like ImageJ does)
+			if ( photometric != 1 && !( bitsPerSample == 8 && ( photometric == 0 || photometric == 3 ) ) ) return false;
+			if ( sampleFormat == SAMPLE_FORMAT_FLOAT ) return bitsPerSample == 32;
+			return bitsPerSample == 8 || bitsPerSample == 16 || bitsPerSample == 32;
+		}
+
+		int getPlaneBytes() {
+			return width * height * ( bitsPerSample / 8 );
+		}
+	}
+
+	// -------------------------------------------------------------------------------------
+	// fields
+	// -------------------------------------------------------------------------------------
+	private File file;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private ByteOrder byteOrder;
+	private boolean useFallback;
+
+	private final List< Long > ifdOffsets = new ArrayList< Long >();
+	private PlaneInfo firstPlane;
+	private boolean contiguousImageJStack;
+	private int numPlanes;
+
+	private ByteBuffer buffer;
+	private final ByteBuffer smallBuffer = ByteBuffer.allocate( 4096 );
+
+	private ImagePlus fallbackImp;
+
+	// -------------------------------------------------------------------------------------
+	// methods
+	// -------------------------------------------------------------------------------------
+	/**
+	 * Opens the given file (if not already open) and parses its first IFD.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void open( final File file ) throws IOException {
+		if ( file.equals( this.file ) ) return;
+		close();
+
+		this.file = file;
+		raf = new RandomAccessFile( file, "r" );
+		channel = raf.getChannel();
+
+		final ByteBuffer header = readAt( 0, 8 );
+		final byte b0 = header.get( 0 );
+		final byte b1 = header.get( 1 );
+		if ( b0 == 'I' && b1 == 'I' ) {
+			byteOrder = ByteOrder.LITTLE_ENDIAN;
+		} else if ( b0 == 'M' && b1 == 'M' ) {
+			byteOrder = ByteOrder.BIG_ENDIAN;
+		} else {
+			throw new IOException( "Not a TIFF file: " + file.getAbsolutePath() );
+		}
+		header.order( byteOrder );
+		if ( header.getShort( 2 ) != 42 ) {
+			// BigTIFF (43) or something else we do not read natively
+			useFallback = true;
+			checkFallback();
+			return;
+		}
+
+		ifdOffsets.add( header.getInt( 4 ) & 0xffffffffL );
+		firstPlane = readPlaneInfo( ifdOffsets.get( 0 ) );
+		useFallback = !firstPlane.isNativelySupported();
+		if ( useFallback ) {
+			checkFallback();
+		}
+
+		// ImageJ writes large stacks with a single IFD and the number of
+		// images stored in the description. In that case all planes are
+		// stored contiguously after the first one.
+		final int imagesInDescription = getImageJImageCount( firstPlane.description );
+		final boolean hasNextIfd = readNextIfdOffset( ifdOffsets.get( 0 ) ) != 0;
+		contiguousImageJStack = !useFallback && imagesInDescription > 1 && !hasNextIfd && firstPlane.stripOffsets.length == 1;
+		numPlanes = -1;
+	}
+
+	/**
+	 * Closes the currently open file (if any).
+	 */
+	public void close() {
+		if ( raf != null ) {
+			try {
+				raf.close();
+			} catch ( final IOException e ) {
+				e.printStackTrace();
+			}
+		}
+		raf = null;
+		channel = null;
+		file = null;
+		fallbackImp = null;
+		useFallback = false;
+		contiguousImageJStack = false;
+		firstPlane = null;
+		ifdOffsets.clear();
+		numPlanes = -1;
+	}
+
+	/**
+	 * @return the width of the planes in the currently open file.
+	 */
+	public int getWidth() {
+		if ( useFallback ) return getFallbackImp().getWidth();
+		return firstPlane.width;
+	}
+
+	/**
+	 * @return the height of the planes in the currently open file.
+	 */
+	public int getHeight() {
+		if ( useFallback ) return getFallbackImp().getHeight();
+		return firstPlane.height;
+	}
+
+	/**
+	 * @return the number of planes (IFDs) in the currently open file.
+	 * @throws IOException
+	 */
+	public int getNumPlanes() throws IOException {
+		if ( useFallback ) return getFallbackImp().getStackSize();
+		if ( numPlanes < 0 ) {
+			if ( contiguousImageJStack ) {
+				numPlanes = getImageJImageCount( firstPlane.description );
+			} else {
+				while ( findIfdOffset( ifdOffsets.size() ) >= 0 ) {}
+				numPlanes = ifdOffsets.size();
+			}
+		}
+		return numPlanes;
+	}
+
+	/**
+	 * Returns the hyperstack layout of the currently open file as
+	 * <code>{ channels, slices, frames }</code>. For ImageJ hyperstacks this
+	 * information is taken from the image description (planes are stored in
+	 * czt-order). If no frames are given (plain ImageJ stacks only say
+	 * 'slices=', just like any non-ImageJ file), all planes of a channel are
+	 * interpreted as a time series.
+	 *
+	 * @throws IOException
+	 */
+	public int[] getHyperstackDimensions() throws IOException {
+		final int channels;
+		final int slices;
+		final int frames;
+		if ( useFallback ) {
+			final ImagePlus imp = getFallbackImp();
+			channels = imp.getNChannels();
+			slices = imp.getNSlices();
+			frames = ( imp.getNFrames() > 1 ) ? imp.getNFrames() : -1;
+		} else {
+			channels = getImageJValue( firstPlane.description, "channels=", 1 );
+			slices = getImageJValue( firstPlane.description, "slices=", 1 );
+			frames = getImageJValue( firstPlane.description, "frames=", -1 );
+		}
+		if ( frames == -1 ) { return new int[] { channels, 1, getNumPlanes() / channels }; }
+		return new int[] { channels, slices, frames };
+	}
+
+	/**
+	 * Computes the (0-based) plane index of the given (1-based) channel,
+	 * slice, and frame in a hyperstack with the given dimensions (see
+	 * <code>getHyperstackDimensions</code>).
+	 */
+	public static int getPlaneIndex( final int[] dims, final int channel, final int slice, final int frame ) {
+		return ( ( frame - 1 ) * dims[ 1 ] + ( slice - 1 ) ) * dims[ 0 ] + ( channel - 1 );
+	}
+
+	/**
+	 * Decodes the plane with the given index (0-based IFD index) of the
+	 * currently open file into 'target', starting at 'targetOffset'.
+	 * Note: 32 bit integer values beyond 2^24 cannot be represented exactly
+	 * as float, use <code>readPlane( int, double[], int )</code> for those.
+	 *
+	 * @param planeIdx
+	 * @param target
+	 * @param targetOffset
+	 * @throws IOException
+	 */
+	public void readPlane( final int planeIdx, final float[] target, final int targetOffset ) throws IOException {
+		final PlaneInfo info = readRawPlane( planeIdx );
+		if ( info == null ) {
+			final float[] pixels = readPlaneViaImageJ( planeIdx );
+			System.arraycopy( pixels, 0, target, targetOffset, pixels.length );
+			return;
+		}
+
+		final int numPixels = info.width * info.height;
+		final int sampleType = getSampleType( info );
+		for ( int i = 0; i < numPixels; i++ ) {
+			target[ targetOffset + i ] = ( float ) getSample( sampleType, i );
+		}
+	}
+
+	/**
+	 * Same as <code>readPlane( int, float[], int )</code>, but keeps 32 bit
+	 * integer values exact. (Planes ImageJ has to read for us are float
+	 * already.)
+	 *
+	 * @param planeIdx
+	 * @param target
+	 * @param targetOffset
+	 * @throws IOException
+	 */
+	public void readPlane( final int planeIdx, final double[] target, final int targetOffset ) throws IOException {
+		final PlaneInfo info = readRawPlane( planeIdx );
+		if ( info == null ) {
+			final float[] pixels = readPlaneViaImageJ( planeIdx );
+			for ( int i = 0; i < pixels.length; i++ ) {
+				target[ targetOffset + i ] = pixels[ i ];
+			}
+			return;
+		}
+
+		final int numPixels = info.width * info.height;
+		final int sampleType = getSampleType( info );
+		for ( int i = 0; i < numPixels; i++ ) {
+			target[ targetOffset + i ] = getSample( sampleType, i );
+		}
+	}
+
+	/**
+	 * @return how the samples of a natively read plane are stored (one of the
+	 *         <code>SAMPLE_*</code> constants).
+	 */
+	private static int getSampleType( final PlaneInfo info ) {
+		final boolean signed = ( info.sampleFormat == SAMPLE_FORMAT_INT );
+		if ( info.bitsPerSample == 8 ) return signed ? SAMPLE_INT8 : SAMPLE_UINT8;
+		if ( info.bitsPerSample == 16 ) return signed ? SAMPLE_INT16 : SAMPLE_UINT16;
+		if ( info.sampleFormat == SAMPLE_FORMAT_FLOAT ) return SAMPLE_FLOAT32;
+		return signed ? SAMPLE_INT32 : SAMPLE_UINT32;
+	}
+
+	/**
+	 * Decodes the i-th sample of the plane in <code>buffer</code>. All
+	 * supported sample types are represented exactly by a double.
+	 */
+	private double getSample( final int sampleType, final int i ) {
+		switch ( sampleType ) {
+		case SAMPLE_INT8:
+			return buffer.get( i );
+		case SAMPLE_UINT8:
+			return buffer.get( i ) & 0xff;
+		case SAMPLE_INT16:
+			return buffer.getShort( 2 * i );
+		case SAMPLE_UINT16:
+			return buffer.getShort( 2 * i ) & 0xffff;
+		case SAMPLE_INT32:
+			return buffer.getInt( 4 * i );
+		case SAMPLE_UINT32:
+			return buffer.getInt( 4 * i ) & 0xffffffffL;
+		default:
+			return buffer.getFloat( 4 * i );
+		}
+	}
+
+	/**
+	 * Reads the raw bytes of the given plane into <code>buffer</code>.
+	 *
+	 * @return the layout of the plane, or null if it cannot be read natively
+	 *         (use <code>readPlaneViaImageJ</code> then).
+	 * @throws IOException
+	 */
+	private PlaneInfo readRawPlane( final int planeIdx ) throws IOException {
+		if ( useFallback ) return null;
+
+		final PlaneInfo info;
+		final long[] stripOffsets;
+		if ( contiguousImageJStack ) {
+			if ( planeIdx >= getNumPlanes() ) { throw new IOException( String.format( "Plane %d does not exist in '%s'.", planeIdx, file.getName() ) ); }
+			info = firstPlane;
+			stripOffsets = new long[] { firstPlane.stripOffsets[ 0 ] + ( long ) planeIdx * firstPlane.getPlaneBytes() };
+		} else {
+			final long ifdOffset = findIfdOffset( planeIdx );
+			if ( ifdOffset < 0 ) { throw new IOException( String.format( "Plane %d does not exist in '%s'.", planeIdx, file.getName() ) ); }
+			info = ( planeIdx == 0 ) ? firstPlane : readPlaneInfo( ifdOffset );
+			if ( !info.isNativelySupported() ) return null;
+			stripOffsets = info.stripOffsets;
+		}
+
+		// read all strips into our (reused) buffer
+		final int planeBytes = info.getPlaneBytes();
+		if ( buffer == null || buffer.capacity() < planeBytes ) {
+			buffer = ByteBuffer.allocate( planeBytes );
+		}
+		buffer.clear();
+		buffer.order( byteOrder );
+		int bytesRead = 0;
+		for ( int s = 0; s < stripOffsets.length && bytesRead < planeBytes; s++ ) {
+			final int stripBytes = ( int ) Math.min( planeBytes - bytesRead, ( contiguousImageJStack || info.stripByteCounts == null ) ? planeBytes : info.stripByteCounts[ s ] );
+			buffer.limit( bytesRead + stripBytes );
+			long pos = stripOffsets[ s ];
+			while ( buffer.hasRemaining() ) {
+				final int n = channel.read( buffer, pos );
+				if ( n < 0 ) { throw new IOException( "Unexpected end of file in '" + file.getName() + "'." ); }
+				pos += n;
+			}
+			bytesRead += stripBytes;
+		}
+		if ( bytesRead < planeBytes ) { throw new IOException( String.format( "Plane %d of '%s' is truncated.", planeIdx, file.getName() ) ); }
+		buffer.flip();
+		return info;
+	}
+
+	/**
+	 * Returns the offset of the IFD with the given index by following the IFD
+	 * chain as far as needed (offsets found on the way are cached).
+	 *
+	 * @return the offset or -1 if there is no such IFD.
+	 * @throws IOException
+	 */
+	private long findIfdOffset( final int ifdIdx ) throws IOException {
+		while ( ifdOffsets.size() <= ifdIdx ) {
+			final long next = readNextIfdOffset( ifdOffsets.get( ifdOffsets.size() - 1 ) );
+			if ( next == 0 ) return -1;
+			ifdOffsets.add( next );
+		}
+		return ifdOffsets.get( ifdIdx );
+	}
+
+	private long readNextIfdOffset( final long ifdOffset ) throws IOException {
+		final int numEntries = readAt( ifdOffset, 2 ).getShort( 0 ) & 0xffff;
+		return readAt( ifdOffset + 2 + 12L * numEntries, 4 ).getInt( 0 ) & 0xffffffffL;
+	}
+
+	private PlaneInfo readPlaneInfo( final long ifdOffset ) throws IOException {
+		final PlaneInfo info = new PlaneInfo();
+		final int numEntries = readAt( ifdOffset, 2 ).getShort( 0 ) & 0xffff;
+		final ByteBuffer entries = ByteBuffer.allocate( 12 * numEntries ).order( byteOrder );
+		readFully( entries, ifdOffset + 2 );
+
+		for ( int e = 0; e < numEntries; e++ ) {
+			final int base = 12 * e;
+			final int tag = entries.getShort( base ) & 0xffff;
+			final int type = entries.getShort( base + 2 ) & 0xffff;
+			final int count = entries.getInt( base + 4 );
+			switch ( tag ) {
+			case TAG_IMAGE_WIDTH:
+				info.width = ( int ) readValues( entries, base, type, 1 )[ 0 ];
+				break;
+			case TAG_IMAGE_LENGTH:
+				info.height = ( int ) readValues( entries, base, type, 1 )[ 0 ];
+				break;
+			case TAG_BITS_PER_SAMPLE:
+				info.bitsPerSample = ( int ) readValues( entries, base, type, count )[ 0 ];
+				break;
+			case TAG_COMPRESSION:
+				info.compression = ( int ) readValues( entries, base, type, 1 )[ 0 ];
+				break;
+			case TAG_PHOTOMETRIC:
+				info.photometric = ( int ) readValues( entries, base, type, 1 )[ 0 ];
+				break;
+			case TAG_SAMPLES_PER_PIXEL:
+				info.samplesPerPixel = ( int ) readValues( entries, base, type, 1 )[ 0 ];
+				break;
+			case TAG_SAMPLE_FORMAT:
+				info.sampleFormat = ( int ) readValues( entries, base, type, count )[ 0 ];
+				break;
+			case TAG_STRIP_OFFSETS:
+				info.stripOffsets = readValues( entries, base, type, count );
+				break;
+			case TAG_STRIP_BYTE_COUNTS:
+				info.stripByteCounts = readValues( entries, base, type, count );
+				break;
+			case TAG_IMAGE_DESCRIPTION:
+				if ( count > 4 ) {
+					final ByteBuffer chars = ByteBuffer.allocate( Math.min( count, 65536 ) );
+					readFully( chars, entries.getInt( base + 8 ) & 0xffffffffL );
+					info.description = new String( chars.array(), "ISO-8859-1" );
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		if ( info.stripOffsets == null ) {
+			info.compression = -1; // force fallback
+		}
+		return info;
+	}
+
+	/**
+	 * Reads SHORT or LONG values of an IFD entry (inline or at the given
+	 * offset).
+	 */
+	private long[] readValues( final ByteBuffer entries, final int base, final int type, final int count ) throws IOException {
+		final int size = ( type == 3 ) ? 2 : 4;
+		final long[] ret = new long[ count ];
+		final ByteBuffer values;
+		int start;
+		if ( size * count <= 4 ) {
+			values = entries;
+			start = base + 8;
+		} else {
+			values = ByteBuffer.allocate( size * count ).order( byteOrder );
+			readFully( values, entries.getInt( base + 8 ) & 0xffffffffL );
+			start = 0;
+		}
+		for ( int i = 0; i < count; i++ ) {
+			if ( size == 2 ) {
+				ret[ i ] = values.getShort( start + 2 * i ) & 0xffff;
+			} else {
+				ret[ i ] = values.getInt( start + 4 * i ) & 0xffffffffL;
+			}
+		}
+		return ret;
+	}
+
+	private ByteBuffer readAt( final long pos, final int length ) throws IOException {
+		smallBuffer.clear();
+		smallBuffer.limit( length );
+		smallBuffer.order( byteOrder == null ? ByteOrder.BIG_ENDIAN : byteOrder );
+		readFully( smallBuffer, pos );
+		return smallBuffer;
+	}
+
+	private void readFully( final ByteBuffer bb, long pos ) throws IOException {
+		while ( bb.hasRemaining() ) {
+			final int n = channel.read( bb, pos );
+			if ( n < 0 ) { throw new IOException( "Unexpected end of file in '" + file.getName() + "'." ); }
+			pos += n;
+		}
+	}
+
+	private static int getImageJImageCount( final String description ) {
+		return getImageJValue( description, "images=", -1 );
+	}
+
+	private static int getImageJValue( final String description, final String key, final int defaultValue ) {
+		if ( description == null || !description.startsWith( "ImageJ" ) ) return defaultValue;
+		for ( final String line : description.split( "\n" ) ) {
+			if ( line.startsWith( key ) ) {
+				try {
+					return Integer.parseInt( line.substring( key.length() ).trim() );
+				} catch ( final NumberFormatException e ) {
+					return defaultValue;
+				}
+			}
+		}
+		return defaultValue;
+	}
+
+	private ImagePlus getFallbackImp() {
+		if ( fallbackImp == null ) {
+			fallbackImp = IJ.openImage( file.getAbsolutePath() );
+		}
+		return fallbackImp;
+	}
+
+	private void checkFallback() throws IOException {
+		if ( getFallbackImp() == null ) { throw new IOException( "ImageJ could not open '" + file.getAbsolutePath() + "'." ); }
+	}
+
+	private float[] readPlaneViaImageJ( final int planeIdx ) throws IOException {
+		final ImagePlus imp = getFallbackImp();
+		if ( imp == null ) { throw new IOException( "ImageJ could not open '" + file.getAbsolutePath() + "'." ); }
+		final ImageStack stack = imp.getStack();
+		return ( float[] ) stack.getProcessor( planeIdx + 1 ).convertToFloat().getPixels();
+	}
+}
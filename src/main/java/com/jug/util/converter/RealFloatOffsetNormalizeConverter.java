@@ -0,0 +1,33 @@
+/**
+ *
+ */
+package com.jug.util.converter;
+
+import net.imglib2.converter.Converter;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Converts any {@link RealType} to a {@link FloatType}, adds the given offset
+ * and divides by the given number.
+ *
+ * If the input type is complex, it loses the imaginary part without complaining
+ * further.
+ *
+ * @author jug
+ */
+public class RealFloatOffsetNormalizeConverter< R extends RealType< R > > implements Converter< R, FloatType > {
+
+	float offset;
+	float num;
+
+	public RealFloatOffsetNormalizeConverter( final float offset, final float num ) {
+		this.offset = offset;
+		this.num = num;
+	}
+
+	@Override
+	public void convert( final R input, final FloatType output ) {
+		output.set( ( input.getRealFloat() + offset ) / num );
+	}
+}
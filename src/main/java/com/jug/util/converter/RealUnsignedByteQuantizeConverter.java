@@ -0,0 +1,26 @@
+/**
+ *
+ */
+package com.jug.util.converter;
+
+import net.imglib2.converter.Converter;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+/**
+ * Converts any {@link RealType} with values in [0,1] (e.g. a probability map)
+ * to an {@link UnsignedByteType} in [0,255]. Values outside [0,1] are clamped.
+ *
+ * If the input type is complex, it loses the imaginary part without complaining
+ * further.
+ *
+ * @author jug
+ */
+public class RealUnsignedByteQuantizeConverter< R extends RealType< R > > implements Converter< R, UnsignedByteType > {
+
+	@Override
+	public void convert( final R input, final UnsignedByteType output ) {
+		final int v = Math.round( input.getRealFloat() * 255f );
+		output.set( Math.max( 0, Math.min( 255, v ) ) );
+	}
+}
@@ -0,0 +1,86 @@
+package com.jug.batch;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BatchJobQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File writeManifest( final String content ) throws IOException {
+        final File manifest = folder.newFile( "jobs.txt" );
+        final FileWriter writer = new FileWriter( manifest );
+        writer.write( content );
+        writer.close();
+        return manifest;
+    }
+
+    @Test
+    public void testManifestParsing() throws IOException {
+        final File manifest = writeManifest( "# comment\n\n/data/pos01\n/data/pos02 o=/results/pos02 tmax=200 GUROBI_TIME_LIMIT=30\n" );
+        final BatchJobQueue queue = new BatchJobQueue( manifest, BatchJobQueue.getDefaultJournalFor( manifest ), 2 );
+        try {
+            Assert.assertEquals( 2, queue.getJobs().size() );
+
+            final BatchJob first = queue.getJobs().get( 0 );
+            Assert.assertEquals( new File( "/data/pos01" ), first.getInputFolder() );
+            Assert.assertFalse( first.hasOutputFolder() );
+            Assert.assertEquals( first.getInputFolder(), first.getOutputFolder() );
+            Assert.assertEquals( -1, first.getIntOption( "tmax", -1 ) );
+
+            final BatchJob second = queue.getJobs().get( 1 );
+            Assert.assertEquals( new File( "/results/pos02" ), second.getOutputFolder() );
+            Assert.assertEquals( 200, second.getIntOption( "tmax", -1 ) );
+            Assert.assertEquals( "30", second.getOverrides().getProperty( "GUROBI_TIME_LIMIT" ) );
+            Assert.assertNull( second.getOverrides().getProperty( "tmax" ) );
+        } finally {
+            queue.close();
+        }
+    }
+
+    @Test
+    public void testResumeFromJournal() throws IOException {
+        final File manifest = writeManifest( "/data/pos01\n/data/pos02\n/data/pos03\n" );
+        final File journal = BatchJobQueue.getDefaultJournalFor( manifest );
+
+        BatchJobQueue queue = new BatchJobQueue( manifest, journal, 2 );
+        queue.markStarted( queue.getJobs().get( 0 ) );
+        queue.markDone( queue.getJobs().get( 0 ) );
+        queue.markStarted( queue.getJobs().get( 1 ) ); // "crashes" while running pos02
+        queue.close();
+
+        queue = new BatchJobQueue( manifest, journal, 2 );
+        try {
+            Assert.assertEquals( 2, queue.getPendingJobs().size() );
+            Assert.assertEquals( BatchJobQueue.DONE, queue.getState( queue.getJobs().get( 0 ) ) );
+            Assert.assertEquals( BatchJobQueue.STARTED, queue.getState( queue.getJobs().get( 1 ) ) );
+            Assert.assertEquals( 1, queue.getAttempts( queue.getJobs().get( 1 ) ) );
+
+            // second attempt fails as well -> no attempts left
+            queue.markStarted( queue.getJobs().get( 1 ) );
+            queue.markFailed( queue.getJobs().get( 1 ), new RuntimeException( "broken\tdata" ) );
+            Assert.assertFalse( queue.isPending( queue.getJobs().get( 1 ) ) );
+            Assert.assertEquals( 1, queue.getPendingJobs().size() );
+        } finally {
+            queue.close();
+        }
+    }
+
+    @Test( expected = IOException.class )
+    public void testJournalIsLocked() throws IOException {
+        final File manifest = writeManifest( "/data/pos01\n" );
+        final BatchJobQueue queue = new BatchJobQueue( manifest, BatchJobQueue.getDefaultJournalFor( manifest ), 2 );
+        try {
+            new BatchJobQueue( manifest, BatchJobQueue.getDefaultJournalFor( manifest ), 2 );
+        } finally {
+            queue.close();
+        }
+    }
+}
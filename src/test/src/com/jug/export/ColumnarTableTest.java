@@ -0,0 +1,69 @@
+package com.jug.export;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColumnarTableTest {
+
+    @Test
+    public void testRoundTripOverSeveralRowGroups() throws IOException {
+        final File file = File.createTempFile( "ColumnarTableTest", ".mmcol" );
+        file.deleteOnExit();
+
+        final int rows = 23;
+        final ColumnarTableWriter writer = new ColumnarTableWriter( file, 5 );
+        final int colId = writer.addColumn( "cell_id", ColumnarTableWriter.INT32 );
+        final int colLength = writer.addColumn( "length", ColumnarTableWriter.FLOAT32 );
+        final int colHist = writer.addColumn( "histogram", ColumnarTableWriter.INT32_LIST );
+        final int colSums = writer.addColumn( "column_sums", ColumnarTableWriter.FLOAT32_LIST );
+        final int colGenealogy = writer.addColumn( "genealogy", ColumnarTableWriter.STRING );
+        writer.putMetadata( "source", "test" );
+        for ( int i = 0; i < rows; i++ ) {
+            writer.setInt( colId, i - 3 );
+            writer.setFloat( colLength, i * 0.5f );
+            writer.setInts( colHist, new int[ i % 4 ] );
+            writer.setFloats( colSums, new float[] { i, -i } );
+            writer.setString( colGenealogy, i % 3 == 0 ? "" : "T" + i + "\u00b5" );
+            writer.endRow();
+        }
+        writer.close();
+
+        final ColumnarTableReader reader = new ColumnarTableReader( file );
+        Assert.assertEquals( rows, reader.getNumRows() );
+        Assert.assertEquals( 5, reader.getNumRowGroups() );
+        Assert.assertEquals( "test", reader.getMetadata( "source" ) );
+        Assert.assertEquals( ColumnarTableWriter.FLOAT32_LIST, reader.getType( "column_sums" ) );
+
+        final int[] ids = reader.readInts( "cell_id" );
+        final float[] lengths = reader.readFloats( "length" );
+        final int[][] hists = reader.readIntLists( "histogram" );
+        final float[][] sums = reader.readFloatLists( "column_sums" );
+        final String[] genealogies = reader.readStrings( "genealogy" );
+        for ( int i = 0; i < rows; i++ ) {
+            Assert.assertEquals( i - 3, ids[ i ] );
+            Assert.assertEquals( i * 0.5f, lengths[ i ], 0f );
+            Assert.assertEquals( i % 4, hists[ i ].length );
+            Assert.assertArrayEquals( new float[] { i, -i }, sums[ i ], 0f );
+            Assert.assertEquals( i % 3 == 0 ? "" : "T" + i + "\u00b5", genealogies[ i ] );
+        }
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testIncompleteRowIsRejected() throws IOException {
+        final File file = File.createTempFile( "ColumnarTableTest", ".mmcol" );
+        file.deleteOnExit();
+
+        final ColumnarTableWriter writer = new ColumnarTableWriter( file, 5 );
+        writer.addColumn( "a", ColumnarTableWriter.INT32 );
+        final int colB = writer.addColumn( "b", ColumnarTableWriter.INT32 );
+        writer.setInt( colB, 1 );
+        try {
+            writer.endRow();
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.jug.lp;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CandidateSelectorTest {
+
+    private static final int MAPPING = GrowthLineTrackingILP.ASSIGNMENT_MAPPING;
+
+    @Test
+    public void testNaturalBreakAtLargestGap() {
+        // average gap 1.125, largest gap 3.7 (after the third candidate)
+        Assert.assertEquals( 3, CandidateSelector.getNaturalBreak( new float[] { 1f, 1.2f, 1.3f, 5f, 5.5f }, 1.5f ) );
+        // a single cheap candidate far below the others
+        Assert.assertEquals( 1, CandidateSelector.getNaturalBreak( new float[] { -2f, 1f, 1.1f, 1.2f }, 1.5f ) );
+    }
+
+    @Test
+    public void testNoBreakInEvenlySpreadCosts() {
+        Assert.assertEquals( 4, CandidateSelector.getNaturalBreak( new float[] { 1f, 2f, 3f, 4f }, 1.5f ) );
+        Assert.assertEquals( 3, CandidateSelector.getNaturalBreak( new float[] { 2f, 2f, 2f }, 1.5f ) );
+        // too few candidates to tell
+        Assert.assertEquals( 2, CandidateSelector.getNaturalBreak( new float[] { 0f, 10f }, 1.5f ) );
+        Assert.assertEquals( 0, CandidateSelector.getNaturalBreak( new float[ 0 ], 1.5f ) );
+    }
+
+    @Test
+    public void testSelectCombinesStrategies() {
+        final List< Float > costs = Arrays.asList( 5f, 1f, 5.5f, 1.2f, 1.3f );
+
+        Assert.assertArrayEquals( new int[] { 0, 1, 2, 3, 4 }, new CandidateSelector( CandidateSelector.EXHAUSTIVE, 2, 1.5f ).select( MAPPING, costs ) );
+        Assert.assertArrayEquals( new int[] { 1, 3, 4 }, new CandidateSelector( CandidateSelector.ADAPTIVE, 2, 1.5f ).select( MAPPING, costs ) );
+        Assert.assertArrayEquals( new int[] { 1, 3 }, new CandidateSelector( CandidateSelector.K_BEST | CandidateSelector.ADAPTIVE, 2, 1.5f ).select( MAPPING, costs ) );
+        // a higher ratio does not accept the break
+        Assert.assertArrayEquals( new int[] { 1, 3, 4, 0, 2 }, new CandidateSelector( CandidateSelector.ADAPTIVE, 2, 4f ).select( MAPPING, costs ) );
+    }
+}
@@ -0,0 +1,245 @@
+package com.jug.lp;
+
+import gurobi.GRBVar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.imglib2.Localizable;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.algorithm.componenttree.ComponentForest;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConstraintCompilerTest {
+
+    /**
+     * Hand-built component tree node owning <code>numVars</code> assignment
+     * variables.
+     */
+    private static class Node implements Component< FloatType, Node > {
+
+        private final int numVars;
+        private Node parent = null;
+        private final List< Node > children = new ArrayList< Node >();
+
+        Node( final int numVars, final Node... children ) {
+            this.numVars = numVars;
+            for ( final Node child : children ) {
+                child.parent = this;
+                this.children.add( child );
+            }
+        }
+
+        @Override
+        public FloatType value() {
+            return new FloatType();
+        }
+
+        @Override
+        public long size() {
+            return 0;
+        }
+
+        @Override
+        public Node getParent() {
+            return parent;
+        }
+
+        @Override
+        public List< Node > getChildren() {
+            return children;
+        }
+
+        @Override
+        public Iterator< Localizable > iterator() {
+            return Collections.< Localizable >emptyList().iterator();
+        }
+    }
+
+    private static class Forest implements ComponentForest< Node > {
+
+        private final Set< Node > roots;
+
+        Forest( final Node... roots ) {
+            this.roots = new LinkedHashSet< Node >( Arrays.asList( roots ) );
+        }
+
+        @Override
+        public Set< Node > roots() {
+            return roots;
+        }
+    }
+
+    /**
+     * Hands out (empty) variable arrays of the node's size and remembers the
+     * pre-order index of each node.
+     */
+    private static class Lookup implements ConstraintCompiler.NodeVariables {
+
+        final Map< Node, Integer > index = new IdentityHashMap< Node, Integer >();
+        final List< Node > visited = new ArrayList< Node >();
+
+        @Override
+        public GRBVar[] get( final Component< ?, ? > node ) {
+            index.put( ( Node ) node, visited.size() );
+            visited.add( ( Node ) node );
+            return new GRBVar[ ( ( Node ) node ).numVars ];
+        }
+    }
+
+    /**
+     * <pre>
+     * a(2)                 f(0)    h(1)    chain of 20 nodes
+     * |- b(1)              |- g(0)         (variables at both ends)
+     * |- c(0)
+     *    |- d(1)
+     *    |- e(0)
+     * </pre>
+     */
+    private static Forest createForest() {
+        Node chain = new Node( 1 );
+        for ( int i = 0; i < 18; i++ ) {
+            chain = new Node( 0, chain );
+        }
+        chain = new Node( 1, chain );
+        return new Forest(
+                new Node( 2, new Node( 1 ), new Node( 0, new Node( 1 ), new Node( 0 ) ) ),
+                new Node( 0, new Node( 0 ) ),
+                new Node( 1 ),
+                chain );
+    }
+
+    /**
+     * @return the first variable index of each node (in pre-order), with the
+     *         total number of variables as last entry.
+     */
+    private static int[] getVariableOffsets( final List< GRBVar[] > varsPerNode ) {
+        final int[] offsets = new int[ varsPerNode.size() + 1 ];
+        for ( int i = 0; i < varsPerNode.size(); i++ ) {
+            offsets[ i + 1 ] = offsets[ i ] + varsPerNode.get( i ).length;
+        }
+        return offsets;
+    }
+
+    /**
+     * The constraints of the recursive formulation: all variables on the way
+     * from each leaf up to its root.
+     */
+    private static List< Set< Integer > > getRecursiveConstraints( final Forest forest, final Lookup lookup, final int[] offsets ) {
+        final List< Set< Integer > > constraints = new ArrayList< Set< Integer > >();
+        for ( final Node node : lookup.visited ) {
+            if ( node.getChildren().size() > 0 ) continue;
+            final Set< Integer > constraint = new HashSet< Integer >();
+            for ( Node runner = node; runner != null; runner = runner.getParent() ) {
+                final int idx = lookup.index.get( runner );
+                for ( int v = offsets[ idx ]; v < offsets[ idx + 1 ]; v++ ) {
+                    constraint.add( v );
+                }
+            }
+            constraints.add( constraint );
+        }
+        return constraints;
+    }
+
+    private static List< Set< Integer > > toVariableSets( final List< int[] > paths, final int[] offsets ) {
+        final List< Set< Integer > > constraints = new ArrayList< Set< Integer > >();
+        for ( final int[] path : paths ) {
+            final Set< Integer > constraint = new HashSet< Integer >();
+            for ( final int idx : path ) {
+                for ( int v = offsets[ idx ]; v < offsets[ idx + 1 ]; v++ ) {
+                    constraint.add( v );
+                }
+            }
+            constraints.add( constraint );
+        }
+        return constraints;
+    }
+
+    private static boolean isFeasible( final int assignment, final List< Set< Integer > > constraints ) {
+        for ( final Set< Integer > constraint : constraints ) {
+            int sum = 0;
+            for ( final int v : constraint ) {
+                sum += ( assignment >> v ) & 1;
+            }
+            if ( sum > 1 ) return false;
+        }
+        return true;
+    }
+
+    @Test
+    public void testNodesAreVisitedInPreorder() {
+        final Forest forest = createForest();
+        final Lookup lookup = new Lookup();
+        final List< GRBVar[] > varsPerNode = new ArrayList< GRBVar[] >();
+        ConstraintCompiler.compilePathTable( forest, lookup, false, varsPerNode );
+
+        Assert.assertEquals( 28, varsPerNode.size() );
+        for ( int i = 0; i < varsPerNode.size(); i++ ) {
+            Assert.assertEquals( lookup.visited.get( i ).numVars, varsPerNode.get( i ).length );
+        }
+        // a, b, c, d, e, f, g, h, chain
+        final Node a = forest.roots().iterator().next();
+        Assert.assertSame( a, lookup.visited.get( 0 ) );
+        Assert.assertSame( a.getChildren().get( 0 ), lookup.visited.get( 1 ) );
+        Assert.assertSame( a.getChildren().get( 1 ).getChildren().get( 1 ), lookup.visited.get( 4 ) );
+    }
+
+    @Test
+    public void testPathTableHasSameConstraintsAsRecursive() {
+        final Forest forest = createForest();
+        final Lookup lookup = new Lookup();
+        final List< GRBVar[] > varsPerNode = new ArrayList< GRBVar[] >();
+        final List< int[] > paths = ConstraintCompiler.compilePathTable( forest, lookup, false, varsPerNode );
+        final int[] offsets = getVariableOffsets( varsPerNode );
+
+        // the recursive formulation also emits the empty path f-g
+        final List< Set< Integer > > expected = getRecursiveConstraints( forest, lookup, offsets );
+        expected.remove( Collections.< Integer >emptySet() );
+        Assert.assertEquals( expected, toVariableSets( paths, offsets ) );
+
+        // the deep chain is one path across all its nodes
+        Assert.assertEquals( 20, paths.get( paths.size() - 1 ).length );
+    }
+
+    @Test
+    public void testAllFormulationsHaveSameFeasibleSet() {
+        final Forest forest = createForest();
+
+        final Lookup lookup = new Lookup();
+        final List< GRBVar[] > varsPerNode = new ArrayList< GRBVar[] >();
+        final List< int[] > pathTable = ConstraintCompiler.compilePathTable( forest, lookup, false, varsPerNode );
+        final int[] offsets = getVariableOffsets( varsPerNode );
+        final List< Set< Integer > > recursive = getRecursiveConstraints( forest, lookup, offsets );
+        final List< Set< Integer > > paths = toVariableSets( pathTable, offsets );
+
+        final List< GRBVar[] > varsPerNodeCliques = new ArrayList< GRBVar[] >();
+        final List< int[] > cliqueTable = ConstraintCompiler.compilePathTable( forest, new Lookup(), true, varsPerNodeCliques );
+        final List< Set< Integer > > cliques = toVariableSets( cliqueTable, getVariableOffsets( varsPerNodeCliques ) );
+        // a-c-d and a-c-e collapse, f-g vanishes
+        Assert.assertEquals( 4, cliques.size() );
+
+        final int numVars = offsets[ offsets.length - 1 ];
+        Assert.assertEquals( 7, numVars );
+        int numFeasible = 0;
+        for ( int assignment = 0; assignment < ( 1 << numVars ); assignment++ ) {
+            final boolean feasible = isFeasible( assignment, recursive );
+            Assert.assertEquals( "assignment " + Integer.toBinaryString( assignment ), feasible, isFeasible( assignment, paths ) );
+            Assert.assertEquals( "assignment " + Integer.toBinaryString( assignment ), feasible, isFeasible( assignment, cliques ) );
+            if ( feasible ) numFeasible++;
+        }
+        // a: 0 or one of its 2 variables (then b and d are 0) -> 2
+        // else b and d are free -> 4; times 2 for h, times 3 for the chain
+        Assert.assertEquals( ( 2 + 4 ) * 2 * 3, numFeasible );
+    }
+}
@@ -0,0 +1,246 @@
+package com.jug.lp;
+
+import gurobi.GRBException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jug.GrowthLine;
+import com.jug.GrowthLineFrame;
+
+public class LineageIndexTest {
+
+    private static final int NONE = LineageIndex.NONE;
+
+    /**
+     * Hand-built segment covering the pixel rows <code>top</code> to
+     * <code>bottom</code>.
+     */
+    private static class Segment implements Component< FloatType, Segment > {
+
+        private final List< Localizable > pixels = new ArrayList< Localizable >();
+
+        Segment( final int top, final int bottom ) {
+            for ( int y = top; y <= bottom; y++ ) {
+                pixels.add( new Point( y ) );
+            }
+        }
+
+        @Override
+        public FloatType value() {
+            return new FloatType();
+        }
+
+        @Override
+        public long size() {
+            return pixels.size();
+        }
+
+        @Override
+        public Segment getParent() {
+            return null;
+        }
+
+        @Override
+        public List< Segment > getChildren() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Iterator< Localizable > iterator() {
+            return pixels.iterator();
+        }
+    }
+
+    /**
+     * A hand-made solution on an ILP without solver: hypotheses and
+     * assignments are added by hand, the chosen ones are given explicitly.
+     */
+    private static class Solution {
+
+        final GrowthLineTrackingILP ilp;
+        final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > assignments = new ArrayList< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > >();
+        final List< Boolean > choosen = new ArrayList< Boolean >();
+
+        Solution( final int numFrames ) {
+            final GrowthLine gl = new GrowthLine();
+            for ( int t = 0; t < numFrames; t++ ) {
+                gl.add( new GrowthLineFrame() );
+            }
+            ilp = new GrowthLineTrackingILP( gl, false );
+            for ( int t = 0; t < numFrames; t++ ) {
+                ilp.nodes.addTimeStep();
+            }
+        }
+
+        Hypothesis< Component< FloatType, ? > > hyp( final int t, final int top, final int bottom ) {
+            final Hypothesis< Component< FloatType, ? > > hyp = new Hypothesis< Component< FloatType, ? > >( t, new Segment( top, bottom ), 0f );
+            ilp.nodes.addHypothesis( t, hyp );
+            return hyp;
+        }
+
+        void map( final boolean isChoosen, final Hypothesis< Component< FloatType, ? > > from, final Hypothesis< Component< FloatType, ? > > to ) throws GRBException {
+            final int t = from.getTime();
+            add( t, isChoosen, new MappingAssignment( t, null, ilp, ilp.nodes, ilp.edgeSets, from, to ), from );
+            ilp.edgeSets.addToLeftNeighborhood( to, assignments.get( assignments.size() - 1 ) );
+        }
+
+        void divide( final Hypothesis< Component< FloatType, ? > > from, final Hypothesis< Component< FloatType, ? > > toUpper, final Hypothesis< Component< FloatType, ? > > toLower ) throws GRBException {
+            final int t = from.getTime();
+            add( t, true, new DivisionAssignment( t, null, ilp, ilp.nodes, ilp.edgeSets, from, toUpper, toLower ), from );
+            ilp.edgeSets.addToLeftNeighborhood( toUpper, assignments.get( assignments.size() - 1 ) );
+            ilp.edgeSets.addToLeftNeighborhood( toLower, assignments.get( assignments.size() - 1 ) );
+        }
+
+        private void add( final int t, final boolean isChoosen, final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > assmnt, final Hypothesis< Component< FloatType, ? > > from ) {
+            ilp.nodes.addAssignment( t, assmnt );
+            ilp.edgeSets.addToRightNeighborhood( from, assmnt );
+            assignments.add( assmnt );
+            choosen.add( isChoosen );
+        }
+
+        LineageIndex index() {
+            final boolean[] values = new boolean[ choosen.size() ];
+            for ( int i = 0; i < values.length; i++ ) {
+                values[ i ] = choosen.get( i );
+            }
+            return new LineageIndex( ilp, new SolutionSnapshot( ilp, 1, false, 0, assignments, values ) );
+        }
+    }
+
+    @Test
+    public void testPreorderVisitsLowerDaughterFirst() {
+        // roots 0 and 1; 0 divides into 2 (lower) and 3 (upper); 2 divides into 4 and 5
+        final int[] lower = new int[] { 2, NONE, 4, NONE, NONE, NONE };
+        final int[] upper = new int[] { 3, NONE, 5, NONE, NONE, NONE };
+        final int[][] preorder = LineageIndex.toPreorder( lower, upper, 2 );
+
+        Assert.assertArrayEquals( new int[] { 0, 2, 4, 5, 3, 1 }, preorder[ 0 ] );
+        for ( int i = 0; i < preorder[ 0 ].length; i++ ) {
+            Assert.assertEquals( i, preorder[ 1 ][ preorder[ 0 ][ i ] ] );
+        }
+    }
+
+    @Test
+    public void testSubtreesAreContiguousRanges() {
+        final int[] lower = new int[] { 2, NONE, 4, NONE, NONE, NONE };
+        final int[] upper = new int[] { 3, NONE, 5, NONE, NONE, NONE };
+        final int[][] preorder = LineageIndex.toPreorder( lower, upper, 2 );
+        final int[] index = preorder[ 1 ];
+        final int[] end = preorder[ 2 ];
+
+        // subtree sizes
+        Assert.assertEquals( 5, end[ 0 ] - index[ 0 ] );
+        Assert.assertEquals( 1, end[ 1 ] - index[ 1 ] );
+        Assert.assertEquals( 3, end[ 2 ] - index[ 2 ] );
+        Assert.assertEquals( 1, end[ 5 ] - index[ 5 ] );
+
+        // 4 descends from 0 and 2, but not from 3 or 1
+        Assert.assertTrue( index[ 4 ] >= index[ 0 ] && index[ 4 ] < end[ 0 ] );
+        Assert.assertTrue( index[ 4 ] >= index[ 2 ] && index[ 4 ] < end[ 2 ] );
+        Assert.assertFalse( index[ 4 ] >= index[ 3 ] && index[ 4 ] < end[ 3 ] );
+        Assert.assertFalse( index[ 4 ] >= index[ 1 ] && index[ 4 ] < end[ 1 ] );
+    }
+
+    @Test
+    public void testEmptyLineage() {
+        final int[][] preorder = LineageIndex.toPreorder( new int[ 0 ], new int[ 0 ], 0 );
+        Assert.assertEquals( 0, preorder[ 0 ].length );
+    }
+
+    /**
+     * <pre>
+     * t=0        t=1         t=2
+     * a [0,9]  - a1 [0,9]  - a2 [0,9]
+     * b [10,19] < bu [10,14] < buu [10,11]
+     *                        < bul [12,14]
+     *           < bl [15,19] - bl2 [15,19]
+     * x [0,19] (not chosen)
+     * </pre>
+     */
+    @Test
+    public void testIndexOfHandMadeSolution() throws GRBException {
+        final Solution solution = new Solution( 3 );
+        final Hypothesis< Component< FloatType, ? > > a = solution.hyp( 0, 0, 9 );
+        final Hypothesis< Component< FloatType, ? > > b = solution.hyp( 0, 10, 19 );
+        final Hypothesis< Component< FloatType, ? > > x = solution.hyp( 0, 0, 19 );
+        final Hypothesis< Component< FloatType, ? > > a1 = solution.hyp( 1, 0, 9 );
+        final Hypothesis< Component< FloatType, ? > > bu = solution.hyp( 1, 10, 14 );
+        final Hypothesis< Component< FloatType, ? > > bl = solution.hyp( 1, 15, 19 );
+        final Hypothesis< Component< FloatType, ? > > a2 = solution.hyp( 2, 0, 9 );
+        final Hypothesis< Component< FloatType, ? > > buu = solution.hyp( 2, 10, 11 );
+        final Hypothesis< Component< FloatType, ? > > bul = solution.hyp( 2, 12, 14 );
+        final Hypothesis< Component< FloatType, ? > > bl2 = solution.hyp( 2, 15, 19 );
+        solution.map( true, a, a1 );
+        solution.map( false, x, a1 );
+        solution.divide( b, bu, bl );
+        solution.map( true, a1, a2 );
+        solution.divide( bu, buu, bul );
+        solution.map( true, bl, bl2 );
+        final LineageIndex lineage = solution.index();
+
+        // roots bottom up, then daughters in the order their mothers divide
+        Assert.assertEquals( 6, lineage.getNumCells() );
+        Assert.assertEquals( 2, lineage.getNumRoots() );
+        final List< Hypothesis< Component< FloatType, ? > > > firstHyps = new ArrayList< Hypothesis< Component< FloatType, ? > > >();
+        for ( int cell = 0; cell < lineage.getNumCells(); cell++ ) {
+            firstHyps.add( lineage.getHypothesis( lineage.getFirstSegment( cell ) ) );
+        }
+        Assert.assertSame( b, firstHyps.get( 0 ) );
+        Assert.assertSame( a, firstHyps.get( 1 ) );
+        Assert.assertSame( bl, firstHyps.get( 2 ) );
+        Assert.assertSame( bu, firstHyps.get( 3 ) );
+        Assert.assertSame( bul, firstHyps.get( 4 ) );
+        Assert.assertSame( buu, firstHyps.get( 5 ) );
+
+        final int[] parents = new int[] { NONE, NONE, 0, 0, 3, 3 };
+        final int[] generations = new int[] { 0, 0, 1, 1, 2, 2 };
+        for ( int cell = 0; cell < lineage.getNumCells(); cell++ ) {
+            Assert.assertEquals( parents[ cell ], lineage.getParent( cell ) );
+            Assert.assertEquals( generations[ cell ], lineage.getGeneration( cell ) );
+            // here each generation is born one frame after the previous one
+            Assert.assertEquals( generations[ cell ], lineage.getBirthFrame( cell ) );
+        }
+        Assert.assertEquals( 2, lineage.getLowerDaughter( 0 ) );
+        Assert.assertEquals( 3, lineage.getUpperDaughter( 0 ) );
+        Assert.assertEquals( GrowthLineTrackingILP.ASSIGNMENT_DIVISION, lineage.getEndType( 0 ) );
+        Assert.assertEquals( NONE, lineage.getEndType( 1 ) );
+
+        // segments are numbered cell by cell in track order
+        Assert.assertEquals( 9, lineage.getNumSegments() );
+        Assert.assertEquals( 0, lineage.getSegment( b ) );
+        Assert.assertEquals( 1, lineage.getSegment( a ) );
+        Assert.assertEquals( 2, lineage.getSegment( a1 ) );
+        Assert.assertEquals( 3, lineage.getSegment( a2 ) );
+        Assert.assertEquals( 4, lineage.getSegment( bl ) );
+        Assert.assertEquals( 5, lineage.getSegment( bl2 ) );
+        Assert.assertEquals( 8, lineage.getSegment( buu ) );
+        Assert.assertEquals( NONE, lineage.getSegment( x ) );
+        Assert.assertEquals( 1, lineage.getCell( lineage.getSegment( a2 ) ) );
+        Assert.assertEquals( 3, lineage.getNextSegment( 2 ) );
+        Assert.assertEquals( NONE, lineage.getNextSegment( 3 ) );
+        Assert.assertEquals( 3, lineage.getTrackLength( 1 ) );
+        Assert.assertNull( lineage.getRightAssignment( 3 ) );
+
+        Assert.assertEquals( 5, lineage.getSubtreeSize( 0 ) );
+        Assert.assertTrue( lineage.isInSubtree( 4, 0 ) );
+        Assert.assertFalse( lineage.isInSubtree( 4, 2 ) );
+    }
+
+    @Test
+    public void testIndexWithoutSolutionIsEmpty() {
+        final LineageIndex lineage = new LineageIndex( new Solution( 2 ).ilp, null );
+        Assert.assertEquals( 0, lineage.getNumCells() );
+        Assert.assertEquals( 0, lineage.getNumSegments() );
+    }
+}
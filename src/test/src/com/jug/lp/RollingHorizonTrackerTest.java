@@ -0,0 +1,63 @@
+package com.jug.lp;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RollingHorizonTrackerTest {
+
+    @Test
+    public void testWindowsOverlapByUncommittedFrames() {
+        final List< int[] > windows = RollingHorizonTracker.toWindows( 250, 100, 60 );
+        Assert.assertEquals( 4, windows.size() );
+        Assert.assertArrayEquals( new int[] { 0, 100, 60 }, windows.get( 0 ) );
+        Assert.assertArrayEquals( new int[] { 60, 160, 120 }, windows.get( 1 ) );
+        Assert.assertArrayEquals( new int[] { 120, 220, 180 }, windows.get( 2 ) );
+        // the last window commits everything
+        Assert.assertArrayEquals( new int[] { 180, 250, 250 }, windows.get( 3 ) );
+    }
+
+    @Test
+    public void testCommittedPartsCoverAllFrames() {
+        for ( int numFrames = 2; numFrames < 40; numFrames++ ) {
+            for ( int window = 2; window < 12; window++ ) {
+                for ( int commit = 1; commit < window; commit++ ) {
+                    final List< int[] > windows = RollingHorizonTracker.toWindows( numFrames, window, commit );
+                    Assert.assertEquals( 0, windows.get( 0 )[ 0 ] );
+                    Assert.assertEquals( numFrames, windows.get( windows.size() - 1 )[ 2 ] );
+                    for ( int i = 0; i < windows.size(); i++ ) {
+                        final int[] w = windows.get( i );
+                        Assert.assertTrue( w[ 1 ] - w[ 0 ] <= window );
+                        Assert.assertTrue( w[ 2 ] > w[ 0 ] && w[ 2 ] <= w[ 1 ] );
+                        if ( i > 0 ) {
+                            Assert.assertEquals( windows.get( i - 1 )[ 2 ], w[ 0 ] );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testShortGrowthLineIsOneWindow() {
+        final List< int[] > windows = RollingHorizonTracker.toWindows( 30, 100, 99 );
+        Assert.assertEquals( 1, windows.size() );
+        Assert.assertArrayEquals( new int[] { 0, 30, 30 }, windows.get( 0 ) );
+    }
+
+    @Test
+    public void testCommitLengthIsClampedToWindow() {
+        // the default commit length of 100 with a smaller window
+        Assert.assertEquals( 49, RollingHorizonTracker.getValidCommitLength( 50, 100 ) );
+        Assert.assertEquals( 99, RollingHorizonTracker.getValidCommitLength( 100, 100 ) );
+        Assert.assertEquals( 1, RollingHorizonTracker.getValidCommitLength( 2, 100 ) );
+        Assert.assertEquals( 1, RollingHorizonTracker.getValidCommitLength( 50, 0 ) );
+        Assert.assertEquals( 30, RollingHorizonTracker.getValidCommitLength( 50, 30 ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testCommitLengthNotBelowWindowIsRejected() {
+        new RollingHorizonTracker( null, 50, 50 );
+    }
+}
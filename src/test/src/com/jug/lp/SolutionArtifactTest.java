@@ -0,0 +1,87 @@
+package com.jug.lp;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SolutionArtifactTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String FINGERPRINT = "data=12 files,00000000deadbeef|t=1-3|c=1+2|costs=1.0,0.5";
+
+    private static SolutionArtifact createArtifact( final String fingerprint ) {
+        final List< SolutionArtifact.AssignmentRecord > assignments = new ArrayList< SolutionArtifact.AssignmentRecord >();
+        assignments.add( new SolutionArtifact.AssignmentRecord( GrowthLineTrackingILP.ASSIGNMENT_MAPPING, 0, -0.123456789f, new int[] { 10, 30, 12, 33 } ) );
+        assignments.add( new SolutionArtifact.AssignmentRecord( GrowthLineTrackingILP.ASSIGNMENT_DIVISION, 1, 1.5e-7f, new int[] { 12, 33, 11, 20, 21, 35 } ) );
+        assignments.add( new SolutionArtifact.AssignmentRecord( GrowthLineTrackingILP.ASSIGNMENT_EXIT, 1, 0f, new int[] { 40, 60 } ) );
+        // hashes with the high bit set must survive as well
+        return new SolutionArtifact( fingerprint, GrowthLineTrackingILP.OPTIMAL, new int[] { 4, 7, 5 }, new long[] { 0L, -8765432123456789L, Long.MAX_VALUE }, assignments );
+    }
+
+    @Test
+    public void testSaveLoadRoundTrip() throws IOException {
+        final SolutionArtifact artifact = createArtifact( FINGERPRINT );
+        final File file = SolutionArtifact.getFileFor( folder.getRoot(), 3 );
+        artifact.save( file );
+
+        final SolutionArtifact loaded = SolutionArtifact.load( file );
+        Assert.assertEquals( FINGERPRINT, loaded.getFingerprint() );
+        Assert.assertTrue( loaded.hasFingerprint( FINGERPRINT ) );
+        Assert.assertEquals( artifact.getStatus(), loaded.getStatus() );
+        Assert.assertEquals( artifact.getNumFrames(), loaded.getNumFrames() );
+        for ( int t = 0; t < artifact.getNumFrames(); t++ ) {
+            Assert.assertEquals( artifact.getNumHypotheses( t ), loaded.getNumHypotheses( t ) );
+            Assert.assertEquals( artifact.getHypothesesHash( t ), loaded.getHypothesesHash( t ) );
+        }
+        Assert.assertEquals( artifact.getAssignments().size(), loaded.getAssignments().size() );
+        for ( int i = 0; i < artifact.getAssignments().size(); i++ ) {
+            final SolutionArtifact.AssignmentRecord expected = artifact.getAssignments().get( i );
+            final SolutionArtifact.AssignmentRecord actual = loaded.getAssignments().get( i );
+            Assert.assertEquals( expected.getType(), actual.getType() );
+            Assert.assertEquals( expected.getTime(), actual.getTime() );
+            Assert.assertEquals( Float.floatToIntBits( expected.getCost() ), Float.floatToIntBits( actual.getCost() ) );
+            Assert.assertArrayEquals( expected.getHypLocations(), actual.getHypLocations() );
+        }
+    }
+
+    @Test
+    public void testFingerprintMismatchIsRejected() throws IOException {
+        final File file = SolutionArtifact.getFileFor( folder.getRoot(), 0 );
+        createArtifact( FINGERPRINT ).save( file );
+        final SolutionArtifact loaded = SolutionArtifact.load( file );
+
+        // other input data
+        Assert.assertFalse( loaded.hasFingerprint( FINGERPRINT.replace( "deadbeef", "deadbeee" ) ) );
+        // other parameters
+        Assert.assertFalse( loaded.hasFingerprint( FINGERPRINT.replace( "t=1-3", "t=1-4" ) ) );
+        Assert.assertFalse( loaded.hasFingerprint( "" ) );
+    }
+
+    @Test( expected = IOException.class )
+    public void testArtifactWithoutHypothesesHashesIsRejected() throws IOException {
+        // as written before the hashes were added
+        final File file = SolutionArtifact.getFileFor( folder.getRoot(), 1 );
+        final FileWriter writer = new FileWriter( file );
+        writer.write( "FINGERPRINT, " + FINGERPRINT + "\nSTATUS, 2\nFRAMES, 1\n\tHYPS, 0, 4\n" );
+        writer.close();
+        SolutionArtifact.load( file );
+    }
+
+    @Test( expected = IOException.class )
+    public void testIncompleteArtifactIsRejected() throws IOException {
+        final File file = SolutionArtifact.getFileFor( folder.getRoot(), 2 );
+        final FileWriter writer = new FileWriter( file );
+        writer.write( "STATUS, 2\nFRAMES, 1\n\tHYPS, 0, 4, 0000000000000001\n" );
+        writer.close();
+        SolutionArtifact.load( file );
+    }
+}
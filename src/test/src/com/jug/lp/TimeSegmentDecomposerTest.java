@@ -0,0 +1,166 @@
+package com.jug.lp;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.imglib2.Point;
+import net.imglib2.algorithm.componenttree.Component;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.jug.GrowthLine;
+import com.jug.GrowthLineFrame;
+import com.jug.MoMA;
+
+public class TimeSegmentDecomposerTest {
+
+    @Test
+    public void testNoCutsGiveOneSegment() {
+        final List< int[] > segments = TimeSegmentDecomposer.toSegments( new boolean[ 20 ], 1 );
+        Assert.assertEquals( 1, segments.size() );
+        Assert.assertArrayEquals( new int[] { 0, 19 }, segments.get( 0 ) );
+    }
+
+    @Test
+    public void testSegmentsShareCutFrames() {
+        final boolean[] isCut = new boolean[ 20 ];
+        isCut[ 5 ] = true;
+        isCut[ 12 ] = true;
+        final List< int[] > segments = TimeSegmentDecomposer.toSegments( isCut, 1 );
+        Assert.assertEquals( 3, segments.size() );
+        Assert.assertArrayEquals( new int[] { 0, 5 }, segments.get( 0 ) );
+        Assert.assertArrayEquals( new int[] { 5, 12 }, segments.get( 1 ) );
+        Assert.assertArrayEquals( new int[] { 12, 19 }, segments.get( 2 ) );
+    }
+
+    @Test
+    public void testBorderFramesAreNeverCuts() {
+        final boolean[] isCut = new boolean[ 10 ];
+        isCut[ 0 ] = true;
+        isCut[ 9 ] = true;
+        final List< int[] > segments = TimeSegmentDecomposer.toSegments( isCut, 1 );
+        Assert.assertEquals( 1, segments.size() );
+        Assert.assertArrayEquals( new int[] { 0, 9 }, segments.get( 0 ) );
+    }
+
+    @Test
+    public void testShortSegmentsAreMerged() {
+        final boolean[] isCut = new boolean[ 30 ];
+        isCut[ 2 ] = true;  // first segment would only have 3 frames
+        isCut[ 10 ] = true;
+        isCut[ 26 ] = true; // last segment would only have 4 frames
+        final List< int[] > segments = TimeSegmentDecomposer.toSegments( isCut, 5 );
+        Assert.assertEquals( 2, segments.size() );
+        Assert.assertArrayEquals( new int[] { 0, 10 }, segments.get( 0 ) );
+        Assert.assertArrayEquals( new int[] { 10, 29 }, segments.get( 1 ) );
+    }
+
+    @Test
+    public void testSegmentsCoverAllFrames() {
+        final boolean[] isCut = new boolean[ 100 ];
+        for ( int t = 0; t < isCut.length; t += 3 ) {
+            isCut[ t ] = true;
+        }
+        final List< int[] > segments = TimeSegmentDecomposer.toSegments( isCut, 7 );
+        Assert.assertEquals( 0, segments.get( 0 )[ 0 ] );
+        Assert.assertEquals( 99, segments.get( segments.size() - 1 )[ 1 ] );
+        for ( int i = 0; i < segments.size(); i++ ) {
+            Assert.assertTrue( segments.get( i )[ 1 ] - segments.get( i )[ 0 ] + 1 >= 7 );
+            if ( i > 0 ) {
+                Assert.assertEquals( segments.get( i - 1 )[ 1 ], segments.get( i )[ 0 ] );
+            }
+        }
+    }
+
+    private static boolean isGurobiAvailable() {
+        try {
+            final GRBEnv env = new GRBEnv();
+            env.dispose();
+            return true;
+        } catch ( final Throwable e ) {
+            // no license or no native library
+            return false;
+        }
+    }
+
+    /**
+     * A GL of 9 frames and 40 pixels with two cells growing downwards: the
+     * gap separation function has peaks at the channel borders and at the
+     * moving boundary between the cells.
+     */
+    private static GrowthLine createGrowthLine() {
+        final GrowthLine gl = new GrowthLine();
+        for ( int t = 0; t < 9; t++ ) {
+            final GrowthLineFrame glf = new GrowthLineFrame();
+            final float[] fkt = new float[ 40 ];
+            for ( int y = 0; y < fkt.length; y++ ) {
+                glf.addPoint( new Point( 10, y, t ) );
+                fkt[ y ] = 0.1f + 0.02f * ( ( y * 7 + t * 3 ) % 5 );
+                for ( final int gap : new int[] { 0, 14 + t, 39 } ) {
+                    fkt[ y ] += ( float ) ( 0.8 * Math.exp( -( y - gap ) * ( y - gap ) / 4.0 ) );
+                }
+            }
+            glf.generateSimpleSegmentationHypotheses( fkt );
+            gl.add( glf );
+        }
+        return gl;
+    }
+
+    @Test
+    public void testDecomposedSolveMatchesMonolithic() throws GRBException {
+        Assume.assumeTrue( "Gurobi is not available", isGurobiAvailable() );
+        MoMA.HEADLESS = true;
+        if ( MoMA.instance == null ) {
+            // only asked for the image the (already computed) gap separation
+            // functions were derived from
+            MoMA.instance = new MoMA();
+        }
+
+        final GrowthLineTrackingILP ilp = new GrowthLineTrackingILP( createGrowthLine() );
+        try {
+            ilp.buildILP();
+
+            // monolithic solve, then clamp frame 4 to its optimal activities,
+            // which turns it into a cut without changing the optimum
+            ilp.model.optimize();
+            Assert.assertEquals( GRB.Status.OPTIMAL, ilp.model.get( GRB.IntAttr.Status ) );
+            ilp.freezeAssignmentsAsAre( 4 );
+            ilp.model.update();
+            ilp.model.optimize();
+            Assert.assertEquals( GRB.Status.OPTIMAL, ilp.model.get( GRB.IntAttr.Status ) );
+            final double objective = ilp.model.get( GRB.DoubleAttr.ObjVal );
+            final Map< AbstractAssignment< Hypothesis< Component< FloatType, ? > > >, Boolean > monolithic = new IdentityHashMap< AbstractAssignment< Hypothesis< Component< FloatType, ? > > >, Boolean >();
+            for ( final List< AbstractAssignment< Hypothesis< Component< FloatType, ? > > > > list : ilp.nodes.getAllAssignments() ) {
+                for ( final AbstractAssignment< Hypothesis< Component< FloatType, ? > > > a : list ) {
+                    if ( a.getGRBVar() == null ) continue;
+                    monolithic.put( a, a.getGRBVar().get( GRB.DoubleAttr.X ) > 0.5 );
+                }
+            }
+            Assert.assertTrue( monolithic.containsValue( Boolean.TRUE ) );
+
+            // segments shorter than 5 frames are not allowed, so frame 4 is
+            // the only possible cut
+            final TimeSegmentDecomposer decomposer = new TimeSegmentDecomposer( ilp, 5 );
+            Assert.assertEquals( 2, decomposer.getSegments().size() );
+            Assert.assertArrayEquals( new int[] { 0, 4 }, decomposer.getSegments().get( 0 ) );
+            Assert.assertArrayEquals( new int[] { 4, 8 }, decomposer.getSegments().get( 1 ) );
+
+            Assert.assertEquals( GrowthLineTrackingILP.OPTIMAL, decomposer.run() );
+            Assert.assertEquals( 2, decomposer.getSegments().size() );
+            Assert.assertEquals( objective, decomposer.getObjective(), 1e-6 * Math.max( 1.0, Math.abs( objective ) ) );
+            for ( final Map.Entry< AbstractAssignment< Hypothesis< Component< FloatType, ? > > >, Boolean > entry : monolithic.entrySet() ) {
+                Assert.assertEquals( entry.getValue().booleanValue(), entry.getKey().getStoredChoosen() );
+            }
+        } finally {
+            ilp.dispose();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.jug.util;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactImgsTest {
+
+    @SuppressWarnings( "unchecked" )
+    private static PlanarImg< FloatType, FloatArray > createStack( final int maxValue, final long seed ) {
+        final PlanarImg< FloatType, FloatArray > img =
+                ( PlanarImg< FloatType, FloatArray > ) new PlanarImgFactory< FloatType >().create( new long[] { 7, 5, 4 }, new FloatType() );
+        final Random random = new Random( seed );
+        for ( final FloatType t : img ) {
+            t.set( 100 + random.nextInt( maxValue + 1 ) );
+        }
+        return img;
+    }
+
+    private static void assertSameValues( final RandomAccessibleInterval< FloatType > expected, final RandomAccessibleInterval< FloatType > actual ) {
+        final Cursor< FloatType > e = Views.flatIterable( expected ).cursor();
+        final Cursor< FloatType > a = Views.flatIterable( actual ).cursor();
+        while ( e.hasNext() ) {
+            Assert.assertEquals( Float.floatToIntBits( e.next().get() ), Float.floatToIntBits( a.next().get() ) );
+        }
+        Assert.assertFalse( a.hasNext() );
+    }
+
+    @Test
+    public void testRawIsBitExact() {
+        final PlanarImg< FloatType, FloatArray > img = createStack( 65535, 42 );
+        final RandomAccessibleInterval< FloatType > compact = CompactImgs.compactRaw( img, false );
+        Assert.assertNotNull( compact );
+        assertSameValues( img, compact );
+    }
+
+    @Test
+    public void testNormalizedIsBitExact() {
+        final PlanarImg< FloatType, FloatArray > img = createStack( 4095, 7 );
+        final RandomAccessibleInterval< FloatType > compact = CompactImgs.compactRaw( img, true );
+        Assert.assertNotNull( compact );
+        for ( int i = 0; i < img.numSlices(); i++ ) {
+            ParallelTiffLoader.normalize( img.getPlane( i ).getCurrentStorageArray() );
+        }
+        assertSameValues( img, compact );
+    }
+
+    @Test
+    public void testNonIntegerDataIsNotCompacted() {
+        final PlanarImg< FloatType, FloatArray > img = createStack( 255, 3 );
+        img.firstElement().set( 0.5f );
+        Assert.assertNull( CompactImgs.compactRaw( img, false ) );
+    }
+
+    @Test
+    public void testProbabilitiesAreQuantized() {
+        final Img< FloatType > probabilities = new ArrayImgFactory< FloatType >().create( new long[] { 11, 1, 1 }, new FloatType() );
+        int i = 0;
+        for ( final FloatType t : probabilities ) {
+            t.set( i++ / 10f );
+        }
+        final Img< UnsignedByteType > storage = CompactImgs.quantizeProbabilities( probabilities );
+        final Cursor< FloatType > e = Views.flatIterable( probabilities ).cursor();
+        final Cursor< FloatType > a = Views.flatIterable( CompactImgs.asProbabilities( storage ) ).cursor();
+        while ( e.hasNext() ) {
+            Assert.assertEquals( e.next().get(), a.next().get(), 0.5 / 255 );
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.jug.util;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FastPngWriterTest {
+
+    @Test
+    public void testImageIOReadsWhatWasWritten() throws IOException {
+        final int width = 37;
+        final int height = 23;
+        final int[] pixels = new int[ width * height ];
+        final Random random = new Random( 42 );
+        for ( int i = 0; i < pixels.length; i++ ) {
+            pixels[ i ] = random.nextInt();
+        }
+
+        final File file = File.createTempFile( "FastPngWriterTest", ".png" );
+        file.deleteOnExit();
+        FastPngWriter.write( pixels, width, height, file );
+
+        final BufferedImage image = ImageIO.read( file );
+        Assert.assertEquals( width, image.getWidth() );
+        Assert.assertEquals( height, image.getHeight() );
+        for ( int y = 0; y < height; y++ ) {
+            for ( int x = 0; x < width; x++ ) {
+                Assert.assertEquals( pixels[ y * width + x ] & 0xffffff, image.getRGB( x, y ) & 0xffffff );
+            }
+        }
+    }
+}
@@ -12,7 +12,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.concurrent.SynchronousQueue;
 
@@ -34,7 +34,7 @@ public class FloatTypeImgLoaderTest {
     }
 
     @Test
-    public void testLoadingSequenceFromFolder() throws FileNotFoundException {
+    public void testLoadingSequenceFromFolder() throws IOException {
         String filename = new File("").getAbsolutePath() + "/src/test/resources/sequence_as_file_8bit.tif";
         String foldername = resaveTifAsTifSequence(filename);
 
@@ -66,7 +66,7 @@ public class FloatTypeImgLoaderTest {
 
 
     @Test
-    public void testLoadingSequenceFromFile() throws FileNotFoundException {
+    public void testLoadingSequenceFromFile() throws IOException {
         String filename = new File("").getAbsolutePath() + "/src/test/resources/sequence_as_file_8bit.tif";
 
         System.out.print(filename);
@@ -97,7 +97,30 @@ public class FloatTypeImgLoaderTest {
     }
 
     @Test
-    public void testIfLoadingFilesAndFoldersResultsInEqualImages()throws FileNotFoundException
+    public void testLoadingPlainStackWithoutFramesFromFile() throws IOException {
+        // written like ImageJ writes a plain stack: 'images=5 slices=5', no 'frames='
+        String filename = new File("").getAbsolutePath() + "/src/test/resources/sequence_as_stack_8bit.tif";
+
+        ArrayList<Img<FloatType>> list = FloatTypeImgLoader.loadTiffsFromFileOrFolder(filename, -1, -1, 1, 1);
+
+        Assert.assertEquals(1, list.size());
+        Assert.assertEquals(2, list.get(0).max(0));
+        Assert.assertEquals(3, list.get(0).max(1));
+        // all 5 planes are frames (plus the duplicated last one)
+        Assert.assertEquals(5, list.get(0).max(2));
+
+        list = FloatTypeImgLoader.loadTiffsFromFileOrFolder(filename, 2, 4, 1, 1);
+        Assert.assertEquals(3, list.get(0).max(2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadingEmptyFrameRangeFromFileFails() throws IOException {
+        String filename = new File("").getAbsolutePath() + "/src/test/resources/sequence_as_stack_8bit.tif";
+        FloatTypeImgLoader.loadTiffsFromFileOrFolder(filename, 7, 9, 1, 1);
+    }
+
+    @Test
+    public void testIfLoadingFilesAndFoldersResultsInEqualImages()throws IOException
     {
         float tolerance = 0.001f;
 
@@ -127,7 +150,7 @@ public class FloatTypeImgLoaderTest {
     }
 
     @Test
-    public void testIfLoadingRealisticDataWorks()throws FileNotFoundException
+    public void testIfLoadingRealisticDataWorks()throws IOException
     {
         String fileDatasetFilename = new File("").getAbsolutePath() + "/src/test/resources/realisticDataExample.tif";
         String folderDatasetFilename = resaveTifAsTifSequence(fileDatasetFilename);
@@ -0,0 +1,78 @@
+package com.jug.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Cursor;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jug.GrowthLine;
+import com.jug.GrowthLineFrame;
+
+public class GrowthLineStripsTest {
+
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 30;
+    private static final int FRAMES = 4;
+
+    /**
+     * One GL drifting to the right by 2 pixels per frame.
+     */
+    private static List< GrowthLine > createGrowthLines() {
+        final GrowthLine gl = new GrowthLine();
+        for ( int t = 0; t < FRAMES; t++ ) {
+            final GrowthLineFrame glf = new GrowthLineFrame();
+            for ( int y = 5; y < 25; y++ ) {
+                glf.addPoint( new Point( 200 + 2 * t, y, t ) );
+            }
+            gl.add( glf );
+        }
+        final List< GrowthLine > gls = new ArrayList< GrowthLine >();
+        gls.add( gl );
+        return gls;
+    }
+
+    private static Img< FloatType > createStack() {
+        final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( new long[] { WIDTH, HEIGHT, FRAMES }, new FloatType() );
+        final Cursor< FloatType > cursor = img.localizingCursor();
+        while ( cursor.hasNext() ) {
+            cursor.fwd();
+            cursor.get().set( 1 + cursor.getIntPosition( 0 ) + 1000 * cursor.getIntPosition( 1 ) + 100000 * cursor.getIntPosition( 2 ) );
+        }
+        return img;
+    }
+
+    @Test
+    public void testCroppedStackMatchesStrips() {
+        final Img< FloatType > img = createStack();
+        final GrowthLineStrips strips = new GrowthLineStrips( img, createGrowthLines() );
+        Assert.assertTrue( strips.getNumPixels() < WIDTH * HEIGHT * FRAMES );
+
+        final GrowthLineStrips.CroppedStack cropped = strips.crop( img );
+        Assert.assertEquals( WIDTH, cropped.dimension( 0 ) );
+        Assert.assertEquals( FRAMES, cropped.dimension( 2 ) );
+
+        final RandomAccess< FloatType > raImg = img.randomAccess();
+        final RandomAccess< FloatType > raCropped = cropped.randomAccess();
+        for ( int t = 0; t < FRAMES; t++ ) {
+            final long left = strips.getLeft( 0, t );
+            // straightened: the GL center is the same strip column in every frame
+            Assert.assertEquals( strips.getLeft( 0, 0 ) + 2 * t, left );
+            for ( int x = 0; x < WIDTH; x++ ) {
+                for ( int y = 0; y < HEIGHT; y++ ) {
+                    raImg.setPosition( new long[] { x, y, t } );
+                    raCropped.setPosition( new long[] { x, y, t } );
+                    final boolean inStrip = x >= left && x < left + strips.getWidth( 0 );
+                    Assert.assertEquals( inStrip ? raImg.get().get() : 0f, raCropped.get().get(), 0f );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.jug.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Point;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jug.GrowthLine;
+import com.jug.GrowthLineFrame;
+
+public class HypothesisCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String PARAMETERS = "data=2 files,0123|sigmaPreSeg=1.000,0.000";
+
+    /**
+     * Two GLs with three frames each; each GLF is a vertical line of 20 points
+     * at the given x position.
+     */
+    private static List< GrowthLine > createGrowthLines( final int... xPositions ) {
+        final List< GrowthLine > gls = new ArrayList< GrowthLine >();
+        for ( final int x : xPositions ) {
+            final GrowthLine gl = new GrowthLine();
+            for ( int t = 0; t < 3; t++ ) {
+                final GrowthLineFrame glf = new GrowthLineFrame();
+                for ( int y = 0; y < 20; y++ ) {
+                    glf.addPoint( new Point( x, y, t ) );
+                }
+                gl.add( glf );
+            }
+            gls.add( gl );
+        }
+        return gls;
+    }
+
+    private static float[] createFunction( final int seed ) {
+        final float[] fkt = new float[ 20 ];
+        for ( int i = 0; i < fkt.length; i++ ) {
+            fkt[ i ] = ( float ) Math.abs( Math.sin( 0.7 * i + seed ) );
+        }
+        return fkt;
+    }
+
+    private static List< GrowthLine > createSegmentedGrowthLines() {
+        final List< GrowthLine > gls = createGrowthLines( 10, 40 );
+        int seed = 0;
+        for ( final GrowthLine gl : gls ) {
+            for ( final GrowthLineFrame glf : gl.getFrames() ) {
+                glf.generateSimpleSegmentationHypotheses( createFunction( seed++ ) );
+            }
+        }
+        return gls;
+    }
+
+    private static void assertNotLoaded( final List< GrowthLine > gls ) {
+        for ( final GrowthLine gl : gls ) {
+            for ( final GrowthLineFrame glf : gl.getFrames() ) {
+                Assert.assertNull( glf.getSimpleGapSeparationValues( null ) );
+                Assert.assertNull( glf.getComponentTree() );
+            }
+        }
+    }
+
+    @Test
+    public void testCacheHit() throws IOException {
+        final List< GrowthLine > gls = createSegmentedGrowthLines();
+        final File file = new File( folder.getRoot(), "hypotheses.bin" );
+        HypothesisCache.save( file, HypothesisCache.computeKey( gls, PARAMETERS ), gls );
+
+        final List< GrowthLine > loaded = createGrowthLines( 10, 40 );
+        Assert.assertTrue( HypothesisCache.load( file, HypothesisCache.computeKey( loaded, PARAMETERS ), loaded ) );
+        for ( int i = 0; i < gls.size(); i++ ) {
+            for ( int t = 0; t < gls.get( i ).size(); t++ ) {
+                final GrowthLineFrame expected = gls.get( i ).getFrames().get( t );
+                final GrowthLineFrame actual = loaded.get( i ).getFrames().get( t );
+                Assert.assertArrayEquals( expected.getSimpleGapSeparationValues( null ), actual.getSimpleGapSeparationValues( null ), 0f );
+                // the tree is rebuilt from the function
+                Assert.assertNotNull( actual.getComponentTree() );
+                Assert.assertEquals( expected.getComponentTree().roots().size(), actual.getComponentTree().roots().size() );
+            }
+        }
+    }
+
+    @Test
+    public void testCacheMiss() throws IOException {
+        final List< GrowthLine > gls = createSegmentedGrowthLines();
+        final File file = new File( folder.getRoot(), "hypotheses.bin" );
+
+        // no file yet
+        final List< GrowthLine > loaded = createGrowthLines( 10, 40 );
+        Assert.assertFalse( HypothesisCache.load( file, HypothesisCache.computeKey( loaded, PARAMETERS ), loaded ) );
+        assertNotLoaded( loaded );
+
+        HypothesisCache.save( file, HypothesisCache.computeKey( gls, PARAMETERS ), gls );
+
+        // other GL geometry
+        final List< GrowthLine > moved = createGrowthLines( 10, 41 );
+        Assert.assertFalse( HypothesisCache.load( file, HypothesisCache.computeKey( moved, PARAMETERS ), moved ) );
+        assertNotLoaded( moved );
+
+        // other number of GLs, even with the stored key
+        final List< GrowthLine > fewer = createGrowthLines( 10 );
+        Assert.assertFalse( HypothesisCache.load( file, HypothesisCache.computeKey( gls, PARAMETERS ), fewer ) );
+        assertNotLoaded( fewer );
+    }
+
+    @Test
+    public void testInvalidation() throws IOException {
+        final List< GrowthLine > gls = createSegmentedGrowthLines();
+        final File file = new File( folder.getRoot(), "hypotheses.bin" );
+        HypothesisCache.save( file, HypothesisCache.computeKey( gls, PARAMETERS ), gls );
+
+        // other data or parameters
+        final List< GrowthLine > loaded = createGrowthLines( 10, 40 );
+        Assert.assertNotEquals( HypothesisCache.computeKey( loaded, PARAMETERS ), HypothesisCache.computeKey( loaded, PARAMETERS + "|minCellLength=11" ) );
+        Assert.assertFalse( HypothesisCache.load( file, HypothesisCache.computeKey( loaded, PARAMETERS + "|minCellLength=11" ), loaded ) );
+        assertNotLoaded( loaded );
+
+        // truncated file
+        final RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        try {
+            raf.setLength( raf.length() - 10 );
+        } finally {
+            raf.close();
+        }
+        Assert.assertFalse( HypothesisCache.load( file, HypothesisCache.computeKey( loaded, PARAMETERS ), loaded ) );
+        assertNotLoaded( loaded );
+
+        // overwriting a stale file
+        HypothesisCache.save( file, HypothesisCache.computeKey( gls, PARAMETERS ), gls );
+        Assert.assertTrue( HypothesisCache.load( file, HypothesisCache.computeKey( loaded, PARAMETERS ), loaded ) );
+    }
+}
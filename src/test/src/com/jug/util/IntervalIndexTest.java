@@ -0,0 +1,62 @@
+package com.jug.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntervalIndexTest {
+
+    @Test
+    public void testStabbingQuery() {
+        final IntervalIndex< String > index = new IntervalIndex< String >(
+                new int[] { 10, 0, 30, 15 },
+                new int[] { 20, 5, 40, 35 },
+                Arrays.asList( "a", "b", "c", "d" ) );
+        Assert.assertEquals( 4, index.size() );
+        Assert.assertEquals( new HashSet< String >( Arrays.asList( "a", "d" ) ), new HashSet< String >( index.getItemsAt( 18 ) ) );
+        Assert.assertEquals( new HashSet< String >( Arrays.asList( "b" ) ), new HashSet< String >( index.getItemsAt( 5 ) ) );
+        Assert.assertTrue( index.getItemsAt( 7 ).isEmpty() );
+        Assert.assertTrue( index.getItemsAt( 41 ).isEmpty() );
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        final IntervalIndex< String > index = new IntervalIndex< String >( new int[ 0 ], new int[ 0 ], new ArrayList< String >() );
+        Assert.assertTrue( index.getItemsIn( -100, 100 ).isEmpty() );
+    }
+
+    @Test
+    public void testRangeQueryMatchesLinearScan() {
+        final Random random = new Random( 42 );
+        final int n = 500;
+        final int[] starts = new int[ n ];
+        final int[] ends = new int[ n ];
+        final List< Integer > items = new ArrayList< Integer >();
+        for ( int i = 0; i < n; i++ ) {
+            starts[ i ] = random.nextInt( 1000 );
+            ends[ i ] = starts[ i ] + random.nextInt( 50 );
+            items.add( i );
+        }
+        final IntervalIndex< Integer > index = new IntervalIndex< Integer >( starts, ends, items );
+
+        for ( int q = 0; q < 200; q++ ) {
+            final int min = random.nextInt( 1100 ) - 50;
+            final int max = min + random.nextInt( 20 );
+            final Set< Integer > expected = new HashSet< Integer >();
+            for ( int i = 0; i < n; i++ ) {
+                if ( starts[ i ] <= max && ends[ i ] >= min ) {
+                    expected.add( i );
+                }
+            }
+            final List< Integer > found = index.getItemsIn( min, max );
+            Assert.assertEquals( expected.size(), found.size() );
+            Assert.assertEquals( expected, new HashSet< Integer >( found ) );
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.jug.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class N5DatasetIOTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Img< FloatType > createFloatImg( final long... dims ) {
+        final Img< FloatType > img = ArrayImgs.floats( dims );
+        int i = 0;
+        for ( final FloatType t : img ) {
+            t.set( i * 0.5f - 7f );
+            i++;
+        }
+        return img;
+    }
+
+    private static float get( final RandomAccessibleInterval< FloatType > img, final long x, final long y, final long t ) {
+        final RandomAccess< FloatType > ra = img.randomAccess();
+        ra.setPosition( new long[] { x, y, t } );
+        return ra.get().get();
+    }
+
+    @Test
+    public void testFloatRoundTrip() throws IOException {
+        final File container = new File( folder.getRoot(), "test.n5" );
+        final Img< FloatType > img = createFloatImg( 5, 4, 3 );
+        final Map< String, String > attributes = new HashMap< String, String >();
+        attributes.put( "fingerprint", "abc" );
+        // blocks do not divide the image evenly
+        N5DatasetIO.writeFloat( container, "some/float", img, new int[] { 2, 3, 2 }, attributes );
+
+        Assert.assertTrue( N5DatasetIO.isN5Container( container ) );
+        Assert.assertTrue( N5DatasetIO.datasetExists( container, "some/float" ) );
+        Assert.assertFalse( N5DatasetIO.datasetExists( container, "some/other" ) );
+        Assert.assertEquals( "abc", N5DatasetIO.getAttribute( container, "some/float", "fingerprint" ) );
+        Assert.assertNull( N5DatasetIO.getAttribute( container, "some/float", "missing" ) );
+        Assert.assertArrayEquals( new long[] { 5, 4, 3 }, N5DatasetIO.getDimensions( container, "some/float" ) );
+
+        final Img< FloatType > read = N5DatasetIO.readFloat( container, "some/float" );
+        final Cursor< FloatType > c = img.cursor();
+        while ( c.hasNext() ) {
+            c.fwd();
+            Assert.assertEquals( c.get().get(), get( read, c.getLongPosition( 0 ), c.getLongPosition( 1 ), c.getLongPosition( 2 ) ), 0f );
+        }
+    }
+
+    @Test
+    public void testFloatIntervalRead() throws IOException {
+        final File container = new File( folder.getRoot(), "test.n5" );
+        final Img< FloatType > img = createFloatImg( 5, 4, 6 );
+        N5DatasetIO.writeFloat( container, "f", img, new int[] { 5, 4, 1 }, null );
+
+        final Img< FloatType > read = N5DatasetIO.readFloat( container, "f", new long[] { 1, 1, 2 }, new long[] { 3, 2, 4 } );
+        Assert.assertEquals( 3, read.dimension( 0 ) );
+        Assert.assertEquals( 2, read.dimension( 1 ) );
+        Assert.assertEquals( 3, read.dimension( 2 ) );
+        for ( int t = 0; t < 3; t++ ) {
+            for ( int y = 0; y < 2; y++ ) {
+                for ( int x = 0; x < 3; x++ ) {
+                    Assert.assertEquals( get( img, x + 1, y + 1, t + 2 ), get( read, x, y, t ), 0f );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testShortRoundTrip() throws IOException {
+        final File container = new File( folder.getRoot(), "test.n5" );
+        final Img< ShortType > img = ArrayImgs.shorts( 3, 2, 2 );
+        short v = -5;
+        for ( final ShortType t : img ) {
+            t.set( v );
+            v += 3;
+        }
+        N5DatasetIO.writeShort( container, "s", img, new int[] { 3, 2, 1 }, null );
+
+        final Img< ShortType > read = N5DatasetIO.readShort( container, "s" );
+        final Cursor< ShortType > a = img.cursor();
+        final Cursor< ShortType > b = read.cursor();
+        while ( a.hasNext() ) {
+            Assert.assertEquals( a.next().get(), b.next().get() );
+        }
+        Assert.assertFalse( b.hasNext() );
+    }
+
+    @Test( expected = IOException.class )
+    public void testReadingWrongTypeFails() throws IOException {
+        final File container = new File( folder.getRoot(), "test.n5" );
+        N5DatasetIO.writeShort( container, "s", ArrayImgs.shorts( 2, 2, 1 ), new int[] { 2, 2, 1 }, null );
+        N5DatasetIO.readFloat( container, "s" );
+    }
+
+    /**
+     * Raw channels are loaded with a duplicated last frame (see
+     * FloatTypeImgLoader.loadMMTiffSequence). It must not end up in the cache,
+     * and must be there again after loading from the cache.
+     */
+    @Test
+    public void testRawChannelRoundTripDropsDuplicatedLastFrame() throws IOException {
+        final File container = new File( folder.getRoot(), "raw.n5" );
+        final Img< FloatType > raw = createFloatImg( 4, 3, 4 );
+        // frame 3 is the duplicate of frame 2
+        final Cursor< FloatType > c = raw.localizingCursor();
+        while ( c.hasNext() ) {
+            c.fwd();
+            if ( c.getLongPosition( 2 ) == 3 ) {
+                c.get().set( get( raw, c.getLongPosition( 0 ), c.getLongPosition( 1 ), 2 ) );
+            }
+        }
+
+        final Map< String, String > attributes = new HashMap< String, String >();
+        attributes.put( "firstTimeIndex", "10" );
+        attributes.put( "normalized", "true" );
+        FloatTypeImgLoader.writeRawChannelToN5( container, 1, raw, attributes );
+        Assert.assertArrayEquals( new long[] { 4, 3, 3 }, N5DatasetIO.getDimensions( container, String.format( FloatTypeImgLoader.N5_RAW_DATASET_FORMAT, 1 ) ) );
+
+        final ArrayList< Img< FloatType > > all = FloatTypeImgLoader.loadTiffsFromFileOrFolder( container.getAbsolutePath(), -1, -1, 1, 1 );
+        Assert.assertEquals( 1, all.size() );
+        Assert.assertEquals( 4, all.get( 0 ).dimension( 2 ) );
+        final Cursor< FloatType > a = raw.localizingCursor();
+        while ( a.hasNext() ) {
+            a.fwd();
+            Assert.assertEquals( a.get().get(), get( all.get( 0 ), a.getLongPosition( 0 ), a.getLongPosition( 1 ), a.getLongPosition( 2 ) ), 0f );
+        }
+
+        // time indices relative to 'firstTimeIndex': frames 11 and 12 (plus duplicate)
+        final ArrayList< Img< FloatType > > range = FloatTypeImgLoader.loadTiffsFromFileOrFolder( container.getAbsolutePath(), 11, 12, 1, 1 );
+        Assert.assertEquals( 3, range.get( 0 ).dimension( 2 ) );
+        Assert.assertEquals( get( raw, 2, 1, 1 ), get( range.get( 0 ), 2, 1, 0 ), 0f );
+        Assert.assertEquals( get( raw, 2, 1, 2 ), get( range.get( 0 ), 2, 1, 1 ), 0f );
+        Assert.assertEquals( get( raw, 2, 1, 2 ), get( range.get( 0 ), 2, 1, 2 ), 0f );
+    }
+
+    @Test
+    public void testForeignN5ContainerIsNormalized() throws IOException {
+        final File container = new File( folder.getRoot(), "foreign.n5" );
+        // not written by MoMA's cache, hence no 'normalized' attribute
+        final Img< FloatType > raw = createFloatImg( 4, 3, 3 );
+        N5DatasetIO.writeFloat( container, String.format( FloatTypeImgLoader.N5_RAW_DATASET_FORMAT, 1 ), raw, new int[] { 4, 3, 1 }, null );
+        N5DatasetIO.writeFloat( container, String.format( FloatTypeImgLoader.N5_RAW_DATASET_FORMAT, 2 ), raw, new int[] { 4, 3, 1 }, null );
+
+        final ArrayList< Img< FloatType > > all = FloatTypeImgLoader.loadTiffsFromFileOrFolder( container.getAbsolutePath(), -1, -1, 1, 2 );
+        Assert.assertEquals( 2, all.size() );
+        for ( int t = 0; t < 3; t++ ) {
+            // values grow with the pixel index: each frame spans [0,1] after normalization
+            Assert.assertEquals( 0f, get( all.get( 0 ), 0, 0, t ), 0f );
+            Assert.assertEquals( 1f, get( all.get( 0 ), 3, 2, t ), 0f );
+            Assert.assertEquals( ( get( raw, 1, 1, t ) - get( raw, 0, 0, t ) ) / ( get( raw, 3, 2, t ) - get( raw, 0, 0, t ) ), get( all.get( 0 ), 1, 1, t ), 1e-6f );
+            // only the first channel is normalized
+            Assert.assertEquals( get( raw, 1, 1, t ), get( all.get( 1 ), 1, 1, t ), 0f );
+        }
+    }
+
+    @Test
+    public void testInputIdentityChangesWithData() throws IOException {
+        final File data = folder.newFolder( "data" );
+        final File t1 = new File( data, "pos_t0001_c0001.tif" );
+        final File t2 = new File( data, "pos_t0002_c0001.tif" );
+        write( t1, 10 );
+        write( t2, 10 );
+        final String identity = FloatTypeImgLoader.getInputIdentity( data );
+        Assert.assertEquals( identity, FloatTypeImgLoader.getInputIdentity( data ) );
+
+        // other files (e.g. the cache container or exports) do not matter
+        write( new File( data, "notes.txt" ), 3 );
+        new File( data, "moma_cache.n5" ).mkdir();
+        Assert.assertEquals( identity, FloatTypeImgLoader.getInputIdentity( data ) );
+
+        // same size, other modification time
+        Assert.assertTrue( t2.setLastModified( t2.lastModified() - 60000 ) );
+        final String touched = FloatTypeImgLoader.getInputIdentity( data );
+        Assert.assertNotEquals( identity, touched );
+
+        // other size
+        final long lastModified = t2.lastModified();
+        write( t2, 11 );
+        Assert.assertTrue( t2.setLastModified( lastModified ) );
+        Assert.assertNotEquals( touched, FloatTypeImgLoader.getInputIdentity( data ) );
+
+        // a single file
+        Assert.assertNotEquals( FloatTypeImgLoader.getInputIdentity( t1 ), FloatTypeImgLoader.getInputIdentity( t2 ) );
+    }
+
+    private static void write( final File file, final int numBytes ) throws IOException {
+        final FileOutputStream out = new FileOutputStream( file );
+        try {
+            out.write( new byte[ numBytes ] );
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.jug.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimpleFunctionAnalysisTest {
+
+    @Test
+    public void testStrictMaxima() {
+        final float[] f = new float[] { 0, 3, 1, 2, 5, 4, 0 };
+        Assert.assertArrayEquals( new int[] { 1, 4 }, SimpleFunctionAnalysis.getLocalMaxima( f, 0, f.length ) );
+    }
+
+    @Test
+    public void testPlateauIsReportedOnceAtItsEnd() {
+        final float[] f = new float[] { 0, 2, 2, 2, 1 };
+        Assert.assertArrayEquals( new int[] { 3 }, SimpleFunctionAnalysis.getLocalMaxima( f, 0, f.length ) );
+    }
+
+    @Test
+    public void testRisingPlateauIsNoMaximum() {
+        final float[] f = new float[] { 1, 2, 2, 3 };
+        Assert.assertArrayEquals( new int[ 0 ], SimpleFunctionAnalysis.getLocalMaxima( f, 0, f.length ) );
+
+        final float[] g = new float[] { 1, 2, 2, 3, 1 };
+        Assert.assertArrayEquals( new int[] { 3 }, SimpleFunctionAnalysis.getLocalMaxima( g, 0, g.length ) );
+    }
+
+    @Test
+    public void testBordersAreNoMaxima() {
+        final float[] f = new float[] { 5, 1, 0, 1, 5 };
+        Assert.assertArrayEquals( new int[ 0 ], SimpleFunctionAnalysis.getLocalMaxima( f, 0, f.length ) );
+        Assert.assertArrayEquals( new int[ 0 ], SimpleFunctionAnalysis.getLocalMaxima( new float[ 0 ], 0, 0 ) );
+        Assert.assertArrayEquals( new int[ 0 ], SimpleFunctionAnalysis.getLocalMaxima( new float[] { 1 }, 0, 1 ) );
+    }
+
+    @Test
+    public void testPlateauReachingTheEndOfTheRange() {
+        final float[] f = new float[] { 0, 2, 2, 2, 2 };
+        Assert.assertArrayEquals( new int[] { 3 }, SimpleFunctionAnalysis.getLocalMaxima( f, 0, f.length ) );
+        Assert.assertArrayEquals( new int[] { 2 }, SimpleFunctionAnalysis.getLocalMaxima( f, 0, 3 ) );
+    }
+
+    @Test
+    public void testFromToClipping() {
+        final float[] f = new float[] { 0, 3, 1, 4, 1, 5, 0 };
+        Assert.assertArrayEquals( new int[] { 1, 3, 5 }, SimpleFunctionAnalysis.getLocalMaxima( f, -3, 100 ) );
+        Assert.assertArrayEquals( new int[] { 3 }, SimpleFunctionAnalysis.getLocalMaxima( f, 2, 5 ) );
+        Assert.assertArrayEquals( new int[] { 3, 5 }, SimpleFunctionAnalysis.getLocalMaxima( f, 3, 7 ) );
+        Assert.assertArrayEquals( new int[ 0 ], SimpleFunctionAnalysis.getLocalMaxima( f, 4, 4 ) );
+        Assert.assertArrayEquals( new int[ 0 ], SimpleFunctionAnalysis.getLocalMaxima( f, 5, 2 ) );
+    }
+
+    @Test
+    public void testAlignmentOffset() {
+        final int[] reference = new int[] { 10, 30, 50, 70, 90 };
+        Assert.assertEquals( 0, SimpleFunctionAnalysis.getBestAlignmentOffset( reference, new int[] { 12, 28 } ) );
+        Assert.assertEquals( 2, SimpleFunctionAnalysis.getBestAlignmentOffset( reference, new int[] { 48, 72 } ) );
+        Assert.assertEquals( 3, SimpleFunctionAnalysis.getBestAlignmentOffset( reference, new int[] { 89, 100 } ) );
+        Assert.assertEquals( 0, SimpleFunctionAnalysis.getBestAlignmentOffset( reference, new int[ 0 ] ) );
+        Assert.assertEquals( 0, SimpleFunctionAnalysis.getBestAlignmentOffset( reference, new int[] { 95, 96, 97, 98, 99 } ) );
+    }
+}
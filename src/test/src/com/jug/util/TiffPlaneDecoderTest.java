@@ -0,0 +1,284 @@
+package com.jug.util;
+
+import ij.IJ;
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.Prefs;
+import ij.io.FileSaver;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Compares <code>TiffPlaneDecoder</code> against ImageJ on files written by
+ * ImageJ, and checks the natively decoded 32 bit integer case (which ImageJ
+ * cannot write) on hand-built files.
+ *
+ * @author jug
+ */
+public class TiffPlaneDecoderTest {
+
+    private static final int WIDTH = 7;
+    private static final int HEIGHT = 5;
+
+    @Test
+    public void testImageJWrittenFilesBothByteOrders() throws IOException {
+        final boolean intelByteOrder = Prefs.intelByteOrder;
+        try {
+            for (final boolean littleEndian : new boolean[] { false, true }) {
+                Prefs.intelByteOrder = littleEndian;
+                for (final int bitDepth : new int[] { 8, 16, 32 }) {
+                    for (final int numSlices : new int[] { 1, 3 }) {
+                        final File file = File.createTempFile("decoder_" + bitDepth + "_" + numSlices + "_", ".tif");
+                        file.deleteOnExit();
+                        final ImagePlus imp = createImage(bitDepth, numSlices, new Random(bitDepth * 10 + numSlices));
+                        final FileSaver saver = new FileSaver(imp);
+                        Assert.assertTrue(numSlices == 1 ? saver.saveAsTiff(file.getAbsolutePath()) : saver.saveAsTiffStack(file.getAbsolutePath()));
+
+                        assertDecodesLikeImageJ(file, numSlices, bitDepth + " bit, " + numSlices + " slices, little endian=" + littleEndian);
+                    }
+                }
+            }
+        } finally {
+            Prefs.intelByteOrder = intelByteOrder;
+        }
+    }
+
+    @Test
+    public void testUnsigned32BitIsExactAsDouble() throws IOException {
+        // 2^24 + 1 and 2^32 - 1 have no exact float representation
+        final long[] values = { 0L, 1L, 16777217L, 4294967295L, 123456789L, 2147483648L };
+        for (final ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            final ByteBuffer pixels = ByteBuffer.allocate(4 * values.length).order(order);
+            for (final long v : values) {
+                pixels.putInt((int) v);
+            }
+            final File file = writeTiff(order, 32, 1, values.length, 1, pixels.array(), 1);
+
+            final TiffPlaneDecoder decoder = new TiffPlaneDecoder();
+            try {
+                decoder.open(file);
+                final double[] doubles = new double[values.length];
+                decoder.readPlane(0, doubles, 0);
+                final float[] floats = new float[values.length];
+                decoder.readPlane(0, floats, 0);
+                for (int i = 0; i < values.length; i++) {
+                    Assert.assertEquals((double) values[i], doubles[i], 0.0);
+                    // the float path rounds to the nearest float (documented loss)
+                    Assert.assertEquals((float) values[i], floats[i], 0.0f);
+                }
+                Assert.assertNotEquals((double) 16777217L, (double) floats[2], 0.0);
+            } finally {
+                decoder.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSigned32BitAndMultipleStrips() throws IOException {
+        final int[] values = { -2147483647, -16777217, -1, 0, 1, 16777217, 2147483647, 42 };
+        for (final ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            final ByteBuffer pixels = ByteBuffer.allocate(4 * values.length).order(order);
+            for (final int v : values) {
+                pixels.putInt(v);
+            }
+            // 2x4 image, one row per strip
+            final File file = writeTiff(order, 32, 2, 2, 4, pixels.array(), 1);
+
+            final TiffPlaneDecoder decoder = new TiffPlaneDecoder();
+            try {
+                decoder.open(file);
+                Assert.assertEquals(2, decoder.getWidth());
+                Assert.assertEquals(4, decoder.getHeight());
+                Assert.assertEquals(1, decoder.getNumPlanes());
+                final double[] doubles = new double[values.length + 2];
+                decoder.readPlane(0, doubles, 2);
+                for (int i = 0; i < values.length; i++) {
+                    Assert.assertEquals((double) values[i], doubles[i + 2], 0.0);
+                }
+            } finally {
+                decoder.close();
+            }
+        }
+    }
+
+    @Test
+    public void testUnsigned16BitMultipleStrips() throws IOException {
+        final int[] values = { 0, 1, 255, 256, 32767, 32768, 65535, 12345, 7 };
+        for (final ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            final ByteBuffer pixels = ByteBuffer.allocate(2 * values.length).order(order);
+            for (final int v : values) {
+                pixels.putShort((short) v);
+            }
+            // 3x3 image, two rows per strip (last strip is shorter)
+            final File file = writeTiff(order, 16, 1, 3, 3, pixels.array(), 2);
+
+            final TiffPlaneDecoder decoder = new TiffPlaneDecoder();
+            try {
+                decoder.open(file);
+                final float[] floats = new float[values.length];
+                decoder.readPlane(0, floats, 0);
+                for (int i = 0; i < values.length; i++) {
+                    Assert.assertEquals(values[i], floats[i], 0.0f);
+                }
+            } finally {
+                decoder.close();
+            }
+        }
+    }
+
+    @Test
+    public void testPlainStackWithoutFramesIsTimeSeries() throws IOException {
+        final TiffPlaneDecoder decoder = new TiffPlaneDecoder();
+        try {
+            decoder.open(new File(new File("").getAbsolutePath() + "/src/test/resources/sequence_as_stack_8bit.tif"));
+            Assert.assertEquals(5, decoder.getNumPlanes());
+            final int[] dims = decoder.getHyperstackDimensions();
+            Assert.assertArrayEquals(new int[] { 1, 1, 5 }, dims);
+            final float[] plane = new float[3 * 4];
+            for (int t = 1; t <= 5; t++) {
+                decoder.readPlane(TiffPlaneDecoder.getPlaneIndex(dims, 1, 1, t), plane, 0);
+                Assert.assertEquals((t - 1) * 16, plane[0], 0.0f);
+                Assert.assertEquals((t - 1) * 16 + 11, plane[11], 0.0f);
+            }
+        } finally {
+            decoder.close();
+        }
+    }
+
+    @Test
+    public void testHyperstackWithFrames() throws IOException {
+        final TiffPlaneDecoder decoder = new TiffPlaneDecoder();
+        try {
+            decoder.open(new File(new File("").getAbsolutePath() + "/src/test/resources/sequence_as_file_8bit.tif"));
+            Assert.assertArrayEquals(new int[] { 2, 1, 5 }, decoder.getHyperstackDimensions());
+        } finally {
+            decoder.close();
+        }
+    }
+
+    private static ImagePlus createImage(final int bitDepth, final int numSlices, final Random random) {
+        final ImageStack stack = new ImageStack(WIDTH, HEIGHT);
+        for (int s = 0; s < numSlices; s++) {
+            final ImageProcessor ip;
+            if (bitDepth == 8) {
+                ip = new ByteProcessor(WIDTH, HEIGHT);
+            } else if (bitDepth == 16) {
+                ip = new ShortProcessor(WIDTH, HEIGHT);
+            } else {
+                ip = new FloatProcessor(WIDTH, HEIGHT);
+            }
+            for (int i = 0; i < WIDTH * HEIGHT; i++) {
+                if (bitDepth == 32) {
+                    ip.setf(i, (random.nextFloat() - 0.5f) * 1e6f);
+                } else {
+                    ip.set(i, random.nextInt(1 << bitDepth));
+                }
+            }
+            stack.addSlice("" + s, ip);
+        }
+        return new ImagePlus("decoder test", stack);
+    }
+
+    private static void assertDecodesLikeImageJ(final File file, final int numSlices, final String message) throws IOException {
+        final ImagePlus reference = IJ.openImage(file.getAbsolutePath());
+        Assert.assertNotNull(message, reference);
+
+        final TiffPlaneDecoder decoder = new TiffPlaneDecoder();
+        try {
+            decoder.open(file);
+            Assert.assertEquals(message, WIDTH, decoder.getWidth());
+            Assert.assertEquals(message, HEIGHT, decoder.getHeight());
+            Assert.assertEquals(message, numSlices, decoder.getNumPlanes());
+            for (int p = 0; p < numSlices; p++) {
+                final float[] expected = (float[]) reference.getStack().getProcessor(p + 1).convertToFloat().getPixels();
+                final float[] floats = new float[WIDTH * HEIGHT];
+                final double[] doubles = new double[WIDTH * HEIGHT];
+                decoder.readPlane(p, floats, 0);
+                decoder.readPlane(p, doubles, 0);
+                Assert.assertArrayEquals(message + ", plane " + p, expected, floats, 0.0f);
+                for (int i = 0; i < expected.length; i++) {
+                    Assert.assertEquals(message + ", plane " + p, expected[i], doubles[i], 0.0);
+                }
+            }
+        } finally {
+            decoder.close();
+        }
+    }
+
+    /**
+     * Writes a minimal, uncompressed, single IFD grayscale TIFF.
+     */
+    private static File writeTiff(final ByteOrder order, final int bitsPerSample, final int sampleFormat, final int width, final int height, final byte[] pixels, final int rowsPerStrip) throws IOException {
+        final int bytesPerRow = width * bitsPerSample / 8;
+        final int numStrips = (height + rowsPerStrip - 1) / rowsPerStrip;
+        final int numEntries = 10;
+        final int ifdOffset = 8;
+        final int ifdLength = 2 + 12 * numEntries + 4;
+        final int stripTablesOffset = ifdOffset + ifdLength;
+        final int pixelOffset = stripTablesOffset + 8 * numStrips;
+
+        final ByteBuffer out = ByteBuffer.allocate(pixelOffset + pixels.length).order(order);
+        out.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        out.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        out.putShort((short) 42);
+        out.putInt(ifdOffset);
+
+        out.putShort((short) numEntries);
+        putEntry(out, 256, 4, 1, width);
+        putEntry(out, 257, 4, 1, height);
+        putShortEntry(out, 258, bitsPerSample);
+        putShortEntry(out, 259, 1);
+        putShortEntry(out, 262, 1);
+        putEntry(out, 273, 4, numStrips, numStrips == 1 ? pixelOffset : stripTablesOffset);
+        putShortEntry(out, 277, 1);
+        putEntry(out, 278, 4, 1, rowsPerStrip);
+        putEntry(out, 279, 4, numStrips, numStrips == 1 ? pixels.length : stripTablesOffset + 4 * numStrips);
+        putShortEntry(out, 339, sampleFormat);
+        out.putInt(0);
+
+        for (int s = 0; s < numStrips; s++) {
+            out.putInt(pixelOffset + s * rowsPerStrip * bytesPerRow);
+        }
+        for (int s = 0; s < numStrips; s++) {
+            out.putInt(Math.min(rowsPerStrip, height - s * rowsPerStrip) * bytesPerRow);
+        }
+        out.put(pixels);
+
+        final File file = File.createTempFile("decoder_handmade_", ".tif");
+        file.deleteOnExit();
+        final FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(out.array());
+        } finally {
+            stream.close();
+        }
+        return file;
+    }
+
+    private static void putEntry(final ByteBuffer out, final int tag, final int type, final int count, final int value) {
+        out.putShort((short) tag);
+        out.putShort((short) type);
+        out.putInt(count);
+        out.putInt(value);
+    }
+
+    private static void putShortEntry(final ByteBuffer out, final int tag, final int value) {
+        out.putShort((short) tag);
+        out.putShort((short) 3);
+        out.putInt(1);
+        out.putShort((short) value);
+        out.putShort((short) 0);
+    }
+}